@@ -73,6 +73,14 @@ def call_endpoint(base_url: str, path: str, params: dict, client_id: str):
 
     return data
 
+def as_date_map(forecast):
+    """Turn a columnar forecast ({"dates": [...], "values": [...]}) into a
+    date -> price dict. Date-keyed objects (shape=map) pass through."""
+    if isinstance(forecast, dict) and "dates" in forecast:
+        return {d: f"{v:.2f}" for d, v in zip(forecast["dates"], forecast["values"])}
+    return forecast
+
+
 def run_client():
     base_url = get_base_url()
     client_id = get_client_id()
@@ -94,8 +102,8 @@ def run_client():
     # sentiment = call_endpoint(base_url, "/market/sentiment", {"symbol": symbol}, client_id)
 
     sentiment = combined.get("sentiment", {})
-    original = combined.get("originalPredictions", {})
-    adjusted = combined.get("adjustedPredictions", {})
+    original = as_date_map(combined.get("originalPredictions", {}))
+    adjusted = as_date_map(combined.get("adjustedPredictions", {}))
 
     print(f"Sentiment for {symbol}: {sentiment.get('label')} (score={sentiment.get('score')})\n")
 
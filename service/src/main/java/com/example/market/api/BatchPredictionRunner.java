@@ -0,0 +1,376 @@
+package com.example.market.api;
+
+import com.example.market.service.DaemonThreads;
+import com.example.market.service.PipelineMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Runs one job per symbol on a bounded pool of forecast workers and
+ * streams each outcome as a line of NDJSON as soon as it is known.
+ *
+ * <p>Every symbol yields exactly one line, in completion order:
+ * {@code {"symbol":..,"status":"ok","result":..}}, or {@code "error"} or
+ * {@code "timeout"} with an {@code "error"} message. Symbols the caller
+ * reports as cached are queued first so their lines arrive before the
+ * slow misses. A symbol's timeout starts when a worker picks it up, so
+ * queueing behind other symbols does not count against it; on timeout the
+ * worker is interrupted. If the client goes away or the whole request
+ * times out, the unfinished jobs are cancelled.</p>
+ */
+@Component
+public class BatchPredictionRunner implements DisposableBean {
+
+  /** Default number of symbols forecast at once. */
+  private static final int DEFAULT_CONCURRENCY = 8;
+  /** Default time one symbol may take once started. */
+  private static final Duration DEFAULT_SYMBOL_TIMEOUT =
+      Duration.ofMinutes(2);
+  /** Default largest batch accepted. */
+  private static final int DEFAULT_MAX_SYMBOLS = 500;
+  /** Default time the whole response may stay open. */
+  private static final Duration DEFAULT_REQUEST_TIMEOUT =
+      Duration.ofMinutes(30);
+  /** Serializes the result lines. */
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  /** Line separator of NDJSON. */
+  private static final byte NEWLINE = '\n';
+
+  /** Time one symbol may take once started. */
+  private final Duration symbolTimeout;
+  /** Largest batch accepted. */
+  private final int maxSymbols;
+  /** Time the whole response may stay open. */
+  private final Duration requestTimeout;
+  /** Forecast workers. */
+  private final ExecutorService workers;
+  /** Fires per-symbol timeouts. */
+  private final ScheduledExecutorService timer;
+
+  /**
+   * A unit of work for one symbol.
+   */
+  @FunctionalInterface
+  public interface Job {
+    /**
+     * Produce the result for a symbol.
+     *
+     * @param symbol the normalized symbol
+     * @return the value written as the line's {@code result}
+     * @throws Exception if this symbol fails; its message is written as
+     *                   the line's {@code error}
+     */
+    Object run(String symbol) throws Exception;
+  }
+
+  /**
+   * All args constructor.
+   *
+   * @param concurrency       number of symbols forecast at once
+   * @param thisSymbolTimeout time one symbol may take once started
+   * @param thisMaxSymbols    largest batch accepted
+   * @param thisRequestTimeout time the whole response may stay open
+   */
+  @Autowired
+  public BatchPredictionRunner(
+      @Value("${market.batch.concurrency:8}") final int concurrency,
+      @Value("${market.batch.symbol-timeout:PT2M}")
+      final Duration thisSymbolTimeout,
+      @Value("${market.batch.max-symbols:500}") final int thisMaxSymbols,
+      @Value("${market.batch.request-timeout:PT30M}")
+      final Duration thisRequestTimeout) {
+    if (concurrency < 1 || thisMaxSymbols < 1
+        || !thisSymbolTimeout.isPositive()
+        || !thisRequestTimeout.isPositive()) {
+      throw new IllegalArgumentException(
+          "market.batch limits and timeouts must be positive");
+    }
+    this.symbolTimeout = thisSymbolTimeout;
+    this.maxSymbols = thisMaxSymbols;
+    this.requestTimeout = thisRequestTimeout;
+    this.workers = Executors.newFixedThreadPool(concurrency,
+        DaemonThreads.numbered("batch-forecast-"));
+    this.timer = Executors.newSingleThreadScheduledExecutor(
+        DaemonThreads.numbered("batch-timeout-"));
+  }
+
+  /** Constructor with the default limits. */
+  public BatchPredictionRunner() {
+    this(DEFAULT_CONCURRENCY, DEFAULT_SYMBOL_TIMEOUT, DEFAULT_MAX_SYMBOLS,
+        DEFAULT_REQUEST_TIMEOUT);
+  }
+
+  /**
+   * Normalize the requested symbols: trimmed, upper case, duplicates
+   * dropped, request order kept.
+   *
+   * @param requested symbols from the request body
+   * @return the symbols to run
+   * @throws IllegalArgumentException if there are none, any is blank, or
+   *                                  there are more than the limit
+   */
+  public List<String> symbols(final List<String> requested) {
+    if (requested == null || requested.isEmpty()) {
+      throw new IllegalArgumentException("symbols must not be empty");
+    }
+    final Set<String> out = new LinkedHashSet<>();
+    for (String symbol : requested) {
+      if (symbol == null || symbol.isBlank()) {
+        throw new IllegalArgumentException("symbols must not be blank");
+      }
+      out.add(symbol.trim().toUpperCase(Locale.ROOT));
+    }
+    if (out.size() > maxSymbols) {
+      throw new IllegalArgumentException("at most " + maxSymbols
+          + " symbols per batch, got " + out.size());
+    }
+    return new ArrayList<>(out);
+  }
+
+  /**
+   * Start a batch and return the stream its lines are written to.
+   *
+   * @param symbols normalized symbols, see {@link #symbols(List)}
+   * @param cached  whether a symbol can be answered from cache
+   * @param job     the work for one symbol
+   * @return an emitter that completes after the last symbol's line
+   */
+  public ResponseBodyEmitter run(final List<String> symbols,
+                                 final Predicate<String> cached,
+                                 final Job job) {
+    final ResponseBodyEmitter emitter =
+        new ResponseBodyEmitter(requestTimeout.toMillis());
+    start(emitter, symbols, cached, job);
+    return emitter;
+  }
+
+  /**
+   * Queue the symbols' jobs and write their lines to the given emitter.
+   *
+   * @param emitter where the lines go
+   * @param symbols normalized symbols
+   * @param cached  whether a symbol can be answered from cache
+   * @param job     the work for one symbol
+   */
+  void start(final ResponseBodyEmitter emitter, final List<String> symbols,
+             final Predicate<String> cached, final Job job) {
+    final List<String> order = new ArrayList<>(symbols.size());
+    final List<String> misses = new ArrayList<>();
+    for (String symbol : symbols) {
+      (cached.test(symbol) ? order : misses).add(symbol);
+    }
+    order.addAll(misses);
+
+    if (order.isEmpty()) {
+      emitter.complete();
+      return;
+    }
+    final Batch batch = new Batch(emitter, order.size());
+    for (String symbol : order) {
+      batch.tasks.add(new SymbolRun(batch, symbol, job));
+    }
+    emitter.onTimeout(batch::abort);
+    emitter.onError(e -> batch.abort());
+    for (FutureTask<?> task : batch.tasks) {
+      workers.execute(task);
+    }
+  }
+
+  /**
+   * A response body holding just one JSON document, for answers that are
+   * known before any work is queued.
+   *
+   * @param json the document
+   * @return a completed emitter
+   */
+  public static ResponseBodyEmitter single(final String json) {
+    final ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+    try {
+      emitter.send(json.getBytes(StandardCharsets.UTF_8),
+          MediaType.APPLICATION_JSON);
+      emitter.complete();
+    } catch (IOException e) {
+      emitter.completeWithError(e);
+    }
+    return emitter;
+  }
+
+  /** Stops the workers, interrupting any running jobs. */
+  @Override
+  public void destroy() {
+    workers.shutdownNow();
+    timer.shutdownNow();
+  }
+
+  /** The lines of one response and the jobs still producing them. */
+  private static final class Batch {
+    /** Where the lines go. */
+    private final ResponseBodyEmitter emitter;
+    /** Jobs of this batch, so they can be cancelled. */
+    private final List<FutureTask<?>> tasks = new ArrayList<>();
+    /** Lines still to write. */
+    private int remaining;
+    /** Whether the response is finished or abandoned. */
+    private boolean closed;
+
+    Batch(final ResponseBodyEmitter thisEmitter, final int thisRemaining) {
+      this.emitter = thisEmitter;
+      this.remaining = thisRemaining;
+    }
+
+    /**
+     * Write one symbol's line, completing the response after the last.
+     *
+     * @param symbol the symbol
+     * @param status {@code ok}, {@code error} or {@code timeout}
+     * @param key    {@code result} or {@code error}
+     * @param value  the result or the error message
+     */
+    synchronized void report(final String symbol, final String status,
+                             final String key, final Object value) {
+      if (closed) {
+        return;
+      }
+      final Map<String, Object> line = new LinkedHashMap<>();
+      line.put("symbol", symbol);
+      line.put("status", status);
+      line.put(key, value);
+      try {
+        emitter.send(toLine(line), MediaType.APPLICATION_NDJSON);
+      } catch (IOException | IllegalStateException e) {
+        // the client is gone; stop the work nobody will read
+        abort();
+        return;
+      }
+      if (--remaining == 0) {
+        closed = true;
+        emitter.complete();
+      }
+    }
+
+    /** Cancel every unfinished job; later lines are dropped. */
+    synchronized void abort() {
+      closed = true;
+      for (FutureTask<?> task : tasks) {
+        task.cancel(true);
+      }
+    }
+
+    private static byte[] toLine(final Map<String, Object> line)
+        throws JsonProcessingException {
+      final byte[] json = MAPPER.writeValueAsBytes(line);
+      final byte[] out = new byte[json.length + 1];
+      System.arraycopy(json, 0, out, 0, json.length);
+      out[json.length] = NEWLINE;
+      return out;
+    }
+  }
+
+  /** One symbol's job; reports its own outcome when it finishes. */
+  private final class SymbolRun extends FutureTask<Object> {
+    /** The batch this symbol belongs to. */
+    private final Batch batch;
+    /** The symbol. */
+    private final String symbol;
+    /** Set by the timeout guard before it cancels the job. */
+    private volatile boolean timedOut;
+    /** Thread running the job, while it runs; guarded by {@code this}. */
+    private Thread worker;
+    /** Endpoint of the request that queued the job, for its metrics. */
+    private final String endpoint = PipelineMetrics.endpoint();
+
+    SymbolRun(final Batch thisBatch, final String thisSymbol,
+              final Job job) {
+      super(() -> job.run(thisSymbol));
+      this.batch = thisBatch;
+      this.symbol = thisSymbol;
+    }
+
+    @Override
+    public void run() {
+      if (isDone()) {
+        return;
+      }
+      final ScheduledFuture<?> guard;
+      try {
+        guard = timer.schedule(this::expire, symbolTimeout.toNanos(),
+            TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException e) {
+        // shutting down
+        cancel(false);
+        return;
+      }
+      synchronized (this) {
+        worker = Thread.currentThread();
+      }
+      try (PipelineMetrics.Scope ignored =
+               PipelineMetrics.bindEndpoint(endpoint)) {
+        super.run();
+      } finally {
+        guard.cancel(false);
+        synchronized (this) {
+          worker = null;
+        }
+      }
+    }
+
+    private void expire() {
+      timedOut = true;
+      // report the timeout before interrupting the job, so the worker
+      // cannot move on and report the next symbol first
+      if (cancel(false)) {
+        synchronized (this) {
+          if (worker != null) {
+            worker.interrupt();
+          }
+        }
+      }
+    }
+
+    @Override
+    protected void done() {
+      try {
+        batch.report(symbol, "ok", "result", get());
+      } catch (CancellationException e) {
+        if (timedOut) {
+          batch.report(symbol, "timeout", "error",
+              "no result within " + symbolTimeout);
+        }
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        batch.report(symbol, "error", "error",
+            cause.getMessage() == null ? cause.toString()
+                : cause.getMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.example.market.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encodings of the service's JSON payloads.
+ *
+ * <p>Object responses are encoded by the message converters that
+ * {@link BinaryEncodingsConfig} registers. Responses that are already
+ * JSON bytes, such as cache files and projections, are transcoded here
+ * token by token, without binding them to objects.</p>
+ */
+final class BinaryEncodings {
+
+  /** Jackson Smile. */
+  static final MediaType SMILE =
+      new MediaType("application", "x-jackson-smile");
+  /** CBOR (RFC 8949). */
+  static final MediaType CBOR = MediaType.APPLICATION_CBOR;
+
+  /** Parser for the JSON being transcoded. */
+  private static final JsonFactory JSON = new JsonFactory();
+  /** Smile generator factory. */
+  private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+  /** CBOR generator factory. */
+  private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+  private BinaryEncodings() {
+  }
+
+  /**
+   * The encoding a request prefers. JSON wins whenever the client
+   * accepts it at least as much as a binary encoding, so browsers and
+   * clients without an {@code Accept} header keep getting JSON.
+   *
+   * @param request the request headers, or {@code null}
+   * @return {@link MediaType#APPLICATION_JSON}, {@link #SMILE} or
+   *     {@link #CBOR}
+   */
+  static MediaType negotiate(final HttpHeaders request) {
+    if (request == null) {
+      return MediaType.APPLICATION_JSON;
+    }
+    final List<MediaType> accept = new ArrayList<>(request.getAccept());
+    MimeTypeUtils.sortBySpecificity(accept);
+    for (MediaType type : accept) {
+      if (type.getQualityValue() == 0) {
+        continue;
+      }
+      if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+        return MediaType.APPLICATION_JSON;
+      }
+      if (type.equalsTypeAndSubtype(SMILE)) {
+        return SMILE;
+      }
+      if (type.equalsTypeAndSubtype(CBOR)) {
+        return CBOR;
+      }
+    }
+    return MediaType.APPLICATION_JSON;
+  }
+
+  /**
+   * Whether an encoding is one of the binary ones.
+   *
+   * @param encoding a result of {@link #negotiate}
+   * @return {@code true} for Smile and CBOR
+   */
+  static boolean isBinary(final MediaType encoding) {
+    return !MediaType.APPLICATION_JSON.equals(encoding);
+  }
+
+  /**
+   * Re-encode a JSON document. Numbers keep their exact decimal value.
+   *
+   * @param json     the JSON document
+   * @param encoding {@link #SMILE} or {@link #CBOR}
+   * @return the document in that encoding
+   * @throws IOException if {@code json} is malformed
+   */
+  static byte[] transcode(final InputStream json, final MediaType encoding)
+      throws IOException {
+    final JsonFactory target =
+        SMILE.equals(encoding) ? SMILE_FACTORY : CBOR_FACTORY;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonParser p = JSON.createParser(json);
+         JsonGenerator g = target.createGenerator(out)) {
+      while (p.nextToken() != null) {
+        g.copyCurrentEventExact(p);
+      }
+    }
+    return out.toByteArray();
+  }
+}
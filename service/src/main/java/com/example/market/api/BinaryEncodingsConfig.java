@@ -0,0 +1,52 @@
+package com.example.market.api;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers Smile and CBOR message converters built from the same
+ * Jackson configuration as the JSON one, so every encoding of a response
+ * has the same shape. They replace Spring's classpath-detected defaults,
+ * which use a plain builder.
+ */
+@Configuration(proxyBeanMethods = false)
+public class BinaryEncodingsConfig implements WebMvcConfigurer {
+
+  /** Application-configured Jackson builder. */
+  private final Jackson2ObjectMapperBuilder jackson;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisJackson the Jackson builder Spring Boot configured
+   */
+  public BinaryEncodingsConfig(final Jackson2ObjectMapperBuilder thisJackson) {
+    this.jackson = thisJackson;
+  }
+
+  /**
+   * Swap in the Smile and CBOR converters. They go after the JSON
+   * converter, so JSON stays the default when a client accepts anything.
+   *
+   * @param converters the converters Spring MVC will use
+   */
+  @Override
+  public void extendMessageConverters(
+      final List<HttpMessageConverter<?>> converters) {
+    converters.removeIf(c ->
+        c instanceof MappingJackson2SmileHttpMessageConverter
+        || c instanceof MappingJackson2CborHttpMessageConverter);
+    converters.add(new MappingJackson2SmileHttpMessageConverter(
+        jackson.factory(new SmileFactory()).build()));
+    converters.add(new MappingJackson2CborHttpMessageConverter(
+        jackson.factory(new CBORFactory()).build()));
+  }
+}
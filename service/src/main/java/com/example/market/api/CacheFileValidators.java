@@ -0,0 +1,189 @@
+package com.example.market.api;
+
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Conditional-GET validators for cache files.
+ *
+ * <p>The strong ETag is a CRC32C of the file's bytes plus its length. It
+ * is computed once per file version (modification time and size) and
+ * remembered, so answering a poll costs one {@code stat} and no parsing.
+ * </p>
+ */
+final class CacheFileValidators {
+
+  /** Read buffer size for hashing. */
+  private static final int BUFFER_SIZE = 16 * 1024;
+  /** Hex radix. */
+  private static final int HEX = 16;
+
+  /** Last computed version of each cache file. */
+  private final ConcurrentMap<Path, Version> versions =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Current version of a cache file.
+   *
+   * @param file the cache file; may be {@code null}
+   * @return its version, or {@code null} if there is no such file
+   * @throws IOException if the file cannot be read
+   */
+  Version current(final Path file) throws IOException {
+    if (file == null) {
+      return null;
+    }
+    final BasicFileAttributes before;
+    try {
+      before = Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+    final Instant modified = before.lastModifiedTime().toInstant();
+    final long size = before.size();
+    final Version known = versions.get(file);
+    if (known != null && known.matchesFile(modified, size)) {
+      return known;
+    }
+    final Version fresh = new Version(modified, size, hash(file, size));
+    // only remember it if the file was not replaced while hashing
+    final BasicFileAttributes after =
+        Files.readAttributes(file, BasicFileAttributes.class);
+    if (fresh.matchesFile(after.lastModifiedTime().toInstant(),
+        after.size())) {
+      versions.put(file, fresh);
+    }
+    return fresh;
+  }
+
+  private static String hash(final Path file, final long size)
+      throws IOException {
+    final CRC32C crc = new CRC32C();
+    final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      while (ch.read(buf) >= 0) {
+        buf.flip();
+        crc.update(buf);
+        buf.clear();
+      }
+    }
+    return "\"" + Long.toString(crc.getValue(), HEX) + "-"
+        + Long.toString(size, HEX) + "\"";
+  }
+
+  /** Validators of one version of a cache file. */
+  static final class Version {
+    /** File modification time. */
+    private final Instant lastModified;
+    /** File size in bytes. */
+    private final long size;
+    /** Quoted strong entity tag. */
+    private final String etag;
+
+    /**
+     * All args constructor.
+     *
+     * @param thisLastModified file modification time
+     * @param thisSize         file size in bytes
+     * @param thisEtag         quoted strong entity tag
+     */
+    Version(final Instant thisLastModified, final long thisSize,
+            final String thisEtag) {
+      this.lastModified = thisLastModified;
+      this.size = thisSize;
+      this.etag = thisEtag;
+    }
+
+    /**
+     * Quoted strong entity tag.
+     *
+     * @return the ETag header value
+     */
+    String getEtag() {
+      return etag;
+    }
+
+    /**
+     * File modification time.
+     *
+     * @return last modified instant
+     */
+    Instant getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * Validators of a representation derived from this version, such as
+     * a projection of the file. The tag stays strong: each variant key
+     * names one deterministic rendering of these exact bytes.
+     *
+     * @param variant key of the derived representation; must not contain
+     *                double quotes
+     * @return a version with the same modification time and its own tag
+     */
+    Version withVariant(final String variant) {
+      return new Version(lastModified, size,
+          etag.substring(0, etag.length() - 1) + "/" + variant + "\"");
+    }
+
+    /**
+     * How much longer the file stays fresh.
+     *
+     * @param ttl freshness lifetime counted from the modification time
+     * @param now current time
+     * @return remaining lifetime, or zero if already stale
+     */
+    Duration remaining(final Duration ttl, final Instant now) {
+      final Duration left = Duration.between(now, lastModified.plus(ttl));
+      return left.isNegative() ? Duration.ZERO : left;
+    }
+
+    /**
+     * Whether a request's conditional headers say the client already has
+     * this version. {@code If-None-Match} wins over
+     * {@code If-Modified-Since}, as RFC 9110 requires.
+     *
+     * @param request the request headers
+     * @return {@code true} if a 304 should be sent
+     */
+    boolean notModified(final HttpHeaders request) {
+      final List<String> tags = request.getIfNoneMatch();
+      if (!tags.isEmpty()) {
+        for (String tag : tags) {
+          if ("*".equals(tag) || etag.equals(stripWeak(tag))) {
+            return true;
+          }
+        }
+        return false;
+      }
+      final long since = request.getIfModifiedSince();
+      // HTTP dates have whole-second precision
+      return since >= 0
+          && lastModified.getEpochSecond() <= since / Duration.ofSeconds(1)
+              .toMillis();
+    }
+
+    private boolean matchesFile(final Instant thisModified,
+                                final long thisSize) {
+      return lastModified.equals(thisModified) && size == thisSize;
+    }
+
+    private static String stripWeak(final String tag) {
+      return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+  }
+}
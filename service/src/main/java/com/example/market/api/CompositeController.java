@@ -1,24 +1,54 @@
 package com.example.market.api;
 
+import com.example.market.api.dto.BatchPredictionRequest;
+import com.example.market.api.dto.DailyQuery;
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.news.SentimentAggregates;
 import com.example.market.model.news.SentimentResult;
+import com.example.market.model.news.SentimentWindow;
 import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
+import com.example.market.service.PipelineMetrics;
 import com.example.market.service.analysis.AdjustedPredictionService;
 import com.example.market.service.forecast.ForecastDataService;
 import com.example.market.service.news.NewsDataService;
+import com.example.market.service.news.SentimentHistoryService;
 import com.example.market.service.stock.JsonStore;
 import com.example.market.service.stock.StockDataService;
+import com.example.market.service.upstream.UpstreamUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -34,6 +64,12 @@ public final class CompositeController {
   private final AdjustedPredictionService adjustedPrediction;
   /** JSON-backed cache or storage handler. */
   private final JsonStore store;
+  /** Append-only sentiment history with rolling aggregates. */
+  private final SentimentHistoryService sentimentHistory;
+  /** Runs batch predictions on the forecast workers. */
+  private final BatchPredictionRunner batch;
+  /** ETags and modification times of cache files. */
+  private final CacheFileValidators validators = new CacheFileValidators();
 
   /** Default symbol or company name. */
   private static final String DEFAULT_SYMBOL = "AMZN";
@@ -41,6 +77,24 @@ public final class CompositeController {
   private static final Duration DAILY_CACHE_TTL = Duration.ofDays(1);
   /** Time-to-live for cached news data. */
   private static final Duration NEWS_CACHE_TTL  = Duration.ofHours(6);
+  /** Default number of observations returned by the history endpoint. */
+  private static final int DEFAULT_HISTORY_LIMIT = 100;
+  /** Smoothing value that uses the latest sentiment reading as-is. */
+  private static final String NO_SMOOTHING = "none";
+  /** Forecast shape with parallel date and value arrays. */
+  private static final String COLUMNAR_SHAPE = "columnar";
+  /** Forecast shape with a date to price object, as older clients expect. */
+  private static final String MAP_SHAPE = "map";
+  /** Warning on cached data served past its freshness. */
+  private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+  /** Cache tag of daily series lookups. */
+  private static final String DAILY_CACHE = "daily";
+  /** Cache tag of sentiment lookups. */
+  private static final String SENTIMENT_CACHE = "sentiment";
+  /** Cache tag of forecast lookups. */
+  private static final String FORECAST_CACHE = "forecast";
+  /** Header through which a gateway passes the time left to answer. */
+  static final String TIMEOUT_HEADER = "X-Request-Timeout";
 
   /**
    * All args constructor.
@@ -50,18 +104,46 @@ public final class CompositeController {
    * @param thisNews a NewsDataService object
    * @param thisAdjustedPrediction an AdjustedPredictionService object
    * @param thisStore a JsonStore object
+   * @param thisSentimentHistory a SentimentHistoryService object
+   * @param thisBatch a BatchPredictionRunner object
    * */
+  @Autowired
   public CompositeController(final StockDataService thisStocks,
                              final ForecastDataService thisForecast,
                              final NewsDataService thisNews,
                              final AdjustedPredictionService
                                  thisAdjustedPrediction,
-                             final JsonStore thisStore) {
+                             final JsonStore thisStore,
+                             final SentimentHistoryService
+                                 thisSentimentHistory,
+                             final BatchPredictionRunner thisBatch) {
     this.stocks = thisStocks;
     this.forecast = thisForecast;
     this.news = thisNews;
     this.adjustedPrediction = thisAdjustedPrediction;
     this.store = thisStore;
+    this.sentimentHistory = thisSentimentHistory;
+    this.batch = thisBatch;
+  }
+
+  /**
+   * Constructor that keeps sentiment history in the given store.
+   *
+   * @param thisStocks a StockDataService object
+   * @param thisForecast a ForecastService object
+   * @param thisNews a NewsDataService object
+   * @param thisAdjustedPrediction an AdjustedPredictionService object
+   * @param thisStore a JsonStore object
+   * */
+  public CompositeController(final StockDataService thisStocks,
+                             final ForecastDataService thisForecast,
+                             final NewsDataService thisNews,
+                             final AdjustedPredictionService
+                                 thisAdjustedPrediction,
+                             final JsonStore thisStore) {
+    this(thisStocks, thisForecast, thisNews, thisAdjustedPrediction,
+        thisStore, new SentimentHistoryService(thisStore),
+        new BatchPredictionRunner());
   }
 
   /**
@@ -72,21 +154,54 @@ public final class CompositeController {
    *                defaults to a predefined value if omitted
    * @param force  whether to bypass the cache
    *               and fetch a fresh daily series
-   * @return a JSON response containing the daily OHLCV series
+   * @param headers request headers; {@code If-None-Match} and
+   *               {@code If-Modified-Since} are honoured
+   * @param query   optional projection: {@code fields} to keep (the
+   *               timestamp is always kept), {@code last} N bars,
+   *               {@code cursor} of a previous page, page {@code limit},
+   *               and {@code shape} ({@code rows} or {@code columnar})
+   * @return a JSON response containing the daily OHLCV series,
+   *                a 304 if the client's copy is current,
    *                or an error description
    */
   @GetMapping("/daily")
   public ResponseEntity<?> getDaily(
       @RequestParam(required = false) final String symbol,
-      @RequestParam(defaultValue = "false") final boolean force) {
+      @RequestParam(defaultValue = "false") final boolean force,
+      @RequestHeader final HttpHeaders headers,
+      @ModelAttribute final DailyQuery query) {
     try {
       final String s = resolveSymbol(symbol);
-      StockDailySeries series = getDailySeries(s, force);
-      return ResponseEntity.ok(series);
+      final DailyProjection projection = DailyProjection.of(
+          query.getFields(), query.getLast(), query.getCursor(),
+          query.getLimit(), query.getShape());
+      final DailyProjection variant =
+          projection.isIdentity() ? null : projection;
+
+      // A fresh cache file is already the response: send its bytes as-is
+      final Path cache = store.dailyPath(s);
+      if (!force) {
+        final long lookup = System.nanoTime();
+        ResponseEntity<?> hit =
+            fromCache(cache, DAILY_CACHE_TTL, headers, variant);
+        cacheLookup(DAILY_CACHE, hit != null, lookup);
+        if (hit != null) {
+          return hit;
+        }
+      }
+
+      StockDailySeries series = getDailySeries(s, true);
+      if (variant == null) {
+        return ResponseEntity.ok(series);
+      }
+      final MediaType encoding = BinaryEncodings.negotiate(headers);
+      return ResponseEntity.ok()
+          .contentType(encoding)
+          .body(encoded(variant.apply(series), encoding));
     } catch (IllegalArgumentException e) {
       return ResponseEntity.badRequest().body(jsonError(e.getMessage()));
     } catch (Exception e) {
-      return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+      return ResponseEntity.status(upstreamStatus(e, Deadline.none()))
           .body(jsonError(e.getMessage()));
     }
   }
@@ -102,33 +217,47 @@ public final class CompositeController {
    *                determines the prediction scope
    * @param force   whether to bypass cached market data
    *                and fetch fresh values
-   * @return a JSON response containing the prediction results
-   *                or an error description
+   * @param shape   {@code columnar} (parallel {@code dates} and
+   *                {@code values} arrays plus model metadata) or
+   *                {@code map} (a date to price object)
+   * @param timeout optional time left to answer, e.g. {@code 3s} or
+   *                {@code 3000} (milliseconds)
+   * @param timeoutHeader the same, from {@value #TIMEOUT_HEADER}; the
+   *                shorter of the two applies
+   * @return a JSON response containing the prediction results,
+   *                504 if they are not ready in time, or an error
+   *                description
    */
   @GetMapping("/predict")
   public ResponseEntity<?> predict(
       @RequestParam(required = false) final String symbol,
       @RequestParam(defaultValue = "10") final int horizon,
-      @RequestParam(defaultValue = "false") final boolean force) {
+      @RequestParam(defaultValue = "false") final boolean force,
+      @RequestParam(defaultValue = COLUMNAR_SHAPE) final String shape,
+      @RequestParam(required = false) final String timeout,
+      @RequestHeader(value = TIMEOUT_HEADER, required = false)
+      final String timeoutHeader) {
+    final Deadline deadline;
     try {
+      deadline = deadline(timeout, timeoutHeader);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(jsonError(e.getMessage()));
+    }
+    try (Deadline.Scope ignored = deadline.bind()) {
       final String s = resolveSymbol(symbol);
+      final boolean asMap = isMapShape(shape);
 
-      // Keep this to warm the cache and surface AlphaVantage errors
-      StockDailySeries series = getDailySeries(s, force);
-
-      Map<String, String> map = forecast.predictFuturePrices(s, horizon);
+      final StockDailySeries series = getDailySeries(s, force);
+      final ForecastSeries prediction =
+          getForecastSeries(s, horizon, series, force);
 
-      return ResponseEntity.ok(Map.of(
-          "symbol", s,
-          "horizon", horizon,
-          "prediction", map,
-          "source", series.getSource()
-      ));
+      return ResponseEntity.ok(
+          predictionBody(s, horizon, prediction, asMap, series));
     } catch (IllegalArgumentException e) {
       return ResponseEntity.badRequest()
           .body(jsonError(e.getMessage()));
     } catch (Exception e) {
-      return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+      return ResponseEntity.status(upstreamStatus(e, deadline))
           .body(jsonError(e.getMessage()));
     }
   }
@@ -140,13 +269,17 @@ public final class CompositeController {
    * @param symbol symbol representing company name.
    * @param force a Boolean value determining if method uses the cache
    *              or forcefully run analysis again.
-   * @return a JSON response containing sentiment data
+   * @param headers request headers; {@code If-None-Match} and
+   *              {@code If-Modified-Since} are honoured
+   * @return a JSON response containing sentiment data,
+   *              a 304 if the client's copy is current,
    *              or an error response on failure
    **/
   @GetMapping("/sentiment")
   public ResponseEntity<?> getSentiment(
         @RequestParam(required = false) final String symbol,
-        @RequestParam(defaultValue = "false") final boolean force) {
+        @RequestParam(defaultValue = "false") final boolean force,
+        @RequestHeader final HttpHeaders headers) {
 
     try {
         // Use provided symbol or default
@@ -156,31 +289,84 @@ public final class CompositeController {
 
         final Path cache = store.newsPath(s);
 
-        if (!force && isFresh(cache, NEWS_CACHE_TTL)) {
-            return ResponseEntity.ok(store.read(cache, Map.class));
+        if (!force) {
+            final long lookup = System.nanoTime();
+            ResponseEntity<?> hit =
+                fromCache(cache, NEWS_CACHE_TTL, headers, null);
+            cacheLookup(SENTIMENT_CACHE, hit != null, lookup);
+            if (hit != null) {
+                return hit;
+            }
         }
 
         // Sentiment now depends on the symbol
-        var result = news.analyzeSentiment(s);
-
-        Map<String, Object> payload = Map.of(
-          "company", s,  // include company name (symbol)
-          "symbol", s,
-          "sentimentScore", result.getSentimentScore(),
-          "sentimentLabel", result.getSentimentLabel(),
-          "source", "HuggingFaceModel"
-          );
-
-        store.write(cache, payload);
-        return ResponseEntity.ok(payload);
+        try {
+            return ResponseEntity.ok(refreshSentiment(s));
+        } catch (UpstreamUnavailableException e) {
+            // a dependency is shed: an old reading beats none
+            if (Files.exists(cache)) {
+                return stale(store.read(cache, Map.class));
+            }
+            throw e;
+        }
 
     } catch (Exception e) {
-        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+        return ResponseEntity.status(upstreamStatus(e, Deadline.none()))
                 .body(jsonError(e.getMessage() != null
                         ? e.getMessage() : e.toString()));
     }
 }
 
+  /**
+   * Analyse a symbol's sentiment afresh, cache the reading and add it to
+   * the symbol's history.
+   *
+   * @param s the upper-case stock symbol
+   * @return the cached payload
+   * @throws Exception if the news or the model cannot be reached
+   */
+  Map<String, Object> refreshSentiment(final String s) throws Exception {
+    final SentimentResult result = news.analyzeSentiment(s);
+    final Map<String, Object> payload = Map.of(
+        "company", s,  // include company name (symbol)
+        "symbol", s,
+        "sentimentScore", result.getSentimentScore(),
+        "sentimentLabel", result.getSentimentLabel(),
+        "source", "HuggingFaceModel");
+    store.write(store.newsPath(s), payload);
+    recordSentiment(s, result);
+    return payload;
+  }
+
+  /**
+   * Returns the recorded sentiment history for a symbol together with its
+   * rolling 1-day, 7-day and 30-day exponentially decayed aggregates.
+   *
+   * @param symbol optional stock symbol; defaults to a predefined value
+   * @param limit  maximum number of most recent observations to return
+   * @return a JSON response with aggregates and observations
+   *              or an error description
+   */
+  @GetMapping("/sentiment/history")
+  public ResponseEntity<?> getSentimentHistory(
+      @RequestParam(required = false) final String symbol,
+      @RequestParam(defaultValue = "" + DEFAULT_HISTORY_LIMIT)
+      final int limit) {
+    try {
+      final String s = resolveSymbol(symbol);
+      Map<String, Object> payload = new LinkedHashMap<>();
+      payload.put("symbol", s);
+      payload.put("aggregates", sentimentHistory.aggregates(s));
+      payload.put("observations", sentimentHistory.recent(s, limit));
+      return ResponseEntity.ok(payload);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(jsonError(e.getMessage()));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+          .body(jsonError(e.getMessage()));
+    }
+  }
+
   /**
    * Generates sentiment-adjusted stock price predictions by adjusting
    * price forecasts with news sentiment analysis.
@@ -190,27 +376,46 @@ public final class CompositeController {
    * @param horizon X amount of days to predict into future
    * @param force  whether to bypass cached market data
    *               and fetch fresh values
-   * @return a JSON response containing sentiment-adjusted predictions
-   *               or an error description
+   * @param smoothing {@code none} to adjust with the latest sentiment
+   *               reading, or {@code 1d}, {@code 7d} or {@code 30d} to
+   *               adjust with that window's decayed sentiment
+   * @param shape  {@code columnar} or {@code map}; see {@link #predict}
+   * @param timeout optional time left to answer; see {@link #predict}
+   * @param timeoutHeader the same, from {@value #TIMEOUT_HEADER}
+   * @return a JSON response containing sentiment-adjusted predictions,
+   *               the unadjusted predictions flagged {@code degraded} if
+   *               sentiment misses the deadline, 504 if the forecast
+   *               does, or an error description
    */
   @GetMapping("/combined-prediction")
   public ResponseEntity<?> getCombinedPrediction(
       @RequestParam(required = false) final String symbol,
       @RequestParam(defaultValue = "10") final int horizon,
-      @RequestParam(defaultValue = "false") final boolean force) {
+      @RequestParam(defaultValue = "false") final boolean force,
+      @RequestParam(defaultValue = NO_SMOOTHING) final String smoothing,
+      @RequestParam(defaultValue = COLUMNAR_SHAPE) final String shape,
+      @RequestParam(required = false) final String timeout,
+      @RequestHeader(value = TIMEOUT_HEADER, required = false)
+      final String timeoutHeader) {
+    final Deadline deadline;
     try {
+      deadline = deadline(timeout, timeoutHeader);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(jsonError(e.getMessage()));
+    }
+    try (Deadline.Scope ignored = deadline.bind()) {
       final String s = resolveSymbol(symbol);
+      final SentimentWindow window = NO_SMOOTHING.equalsIgnoreCase(smoothing)
+          ? null : SentimentWindow.fromKey(smoothing);
+      final boolean asMap = isMapShape(shape);
 
       // 1) Get price predictions for this symbol
-      Map<String, String> pricePredictions;
+      ForecastSeries pricePredictions;
       try {
-        pricePredictions = forecast.predictFuturePrices(s, horizon);
-        if (pricePredictions == null || pricePredictions.isEmpty()) {
-          return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
-              .body(jsonError("Forecast service returned empty predictions"));
-        }
+        pricePredictions = getForecastSeries(s, horizon,
+            getDailySeries(s, force), force);
       } catch (Exception e) {
-        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+        return ResponseEntity.status(upstreamStatus(e, deadline))
             .body(jsonError("Forecast service error: " + e.getMessage()));
       }
 
@@ -223,24 +428,23 @@ public final class CompositeController {
               .body(jsonError("Sentiment service returned null result"));
         }
       } catch (Exception e) {
+        final HttpStatus status = upstreamStatus(e, deadline);
+        if (status == HttpStatus.GATEWAY_TIMEOUT) {
+          // the forecast is in hand; answer with it rather than nothing
+          return ResponseEntity.ok(degradedBody(s, pricePredictions,
+              "Sentiment missed the deadline: " + e.getMessage(), asMap));
+        }
+        if (status == HttpStatus.SERVICE_UNAVAILABLE) {
+          return ResponseEntity.ok(degradedBody(s, pricePredictions,
+              "Sentiment skipped: " + e.getMessage(), asMap));
+        }
         return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
             .body(jsonError("Sentiment service error: " + e.getMessage()));
       }
 
-      // 3) Adjust predictions with sentiment
-      Map<String, String> adjustedPredictions = adjustedPrediction
-          .adjustPricesWithSentiment(pricePredictions, sentimentResult);
-
-      // 4) Build response payload
-      return ResponseEntity.ok(Map.of(
-          "symbol", s,
-          "sentiment", Map.of(
-              "score", sentimentResult.getSentimentScore(),
-              "label", sentimentResult.getSentimentLabel()
-          ),
-          "originalPredictions", pricePredictions,
-          "adjustedPredictions", adjustedPredictions
-      ));
+      // 3) Adjust predictions and build response payload
+      return ResponseEntity.ok(combinedBody(s, pricePredictions,
+          sentimentResult, window, asMap));
 
     } catch (IllegalArgumentException e) {
       return ResponseEntity.badRequest()
@@ -252,7 +456,344 @@ public final class CompositeController {
   }
 
 
+  /**
+   * Predicts prices for many symbols at once. Cached daily series and
+   * forecasts are answered first; the rest run on a bounded pool of
+   * forecast workers with a per-symbol timeout. Each symbol's result is
+   * streamed as one NDJSON line as soon as it is ready, and a failing
+   * symbol gets an inline error line instead of failing the batch.
+   *
+   * @param request symbols and the options shared by all of them
+   * @return an NDJSON stream of {@code {"symbol","status","result"}}
+   *                or {@code {"symbol","status","error"}} lines,
+   *                or a 400 if the request itself is invalid
+   */
+  @PostMapping(path = "/predict/batch",
+      consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ResponseBodyEmitter> predictBatch(
+      @RequestBody final BatchPredictionRequest request) {
+    try {
+      final List<String> symbols = batch.symbols(request.getSymbols());
+      final int horizon = batchHorizon(request);
+      final boolean force = request.isForce();
+      final boolean asMap = isMapShape(request.getShape());
+      return ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_NDJSON)
+          .body(batch.run(symbols, s -> isCached(s, horizon, force), s -> {
+            final StockDailySeries series = getDailySeries(s, force);
+            return predictionBody(s, horizon,
+                getForecastSeries(s, horizon, series, force), asMap, series);
+          }));
+    } catch (IllegalArgumentException e) {
+      return batchError(e);
+    }
+  }
+
+  /**
+   * Sentiment-adjusted predictions for many symbols at once, scheduled
+   * and streamed like {@link #predictBatch}.
+   *
+   * @param request symbols and the options shared by all of them,
+   *                including {@code smoothing}
+   * @return an NDJSON stream with one line per symbol,
+   *                or a 400 if the request itself is invalid
+   */
+  @PostMapping(path = "/combined-prediction/batch",
+      consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ResponseBodyEmitter> combinedPredictionBatch(
+      @RequestBody final BatchPredictionRequest request) {
+    try {
+      final List<String> symbols = batch.symbols(request.getSymbols());
+      final int horizon = batchHorizon(request);
+      final boolean force = request.isForce();
+      final boolean asMap = isMapShape(request.getShape());
+      final SentimentWindow window =
+          NO_SMOOTHING.equalsIgnoreCase(request.getSmoothing())
+              ? null : SentimentWindow.fromKey(request.getSmoothing());
+      return ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_NDJSON)
+          .body(batch.run(symbols, s -> isCached(s, horizon, force), s -> {
+            final ForecastSeries prices = getForecastSeries(s, horizon,
+                getDailySeries(s, force), force);
+            final SentimentResult sentimentResult = news.analyzeSentiment(s);
+            if (sentimentResult == null) {
+              throw new IllegalStateException(
+                  "Sentiment service returned null result");
+            }
+            return combinedBody(s, prices, sentimentResult, window, asMap);
+          }));
+    } catch (IllegalArgumentException e) {
+      return batchError(e);
+    }
+  }
+
+
   /* ---------------- helpers ---------------- */
+  /**
+   * Payload of a price prediction.
+   *
+   * @param symbol     the stock symbol
+   * @param horizon    number of predicted days
+   * @param prediction the forecast
+   * @param asMap      whether to render the forecast as a date map
+   * @param series     the daily series the forecast is based on
+   * @return the response body
+   */
+  private static Map<String, Object> predictionBody(
+      final String symbol, final int horizon, final ForecastSeries prediction,
+      final boolean asMap, final StockDailySeries series) {
+    return Map.of(
+        "symbol", symbol,
+        "horizon", horizon,
+        "prediction", shaped(prediction, asMap),
+        "source", series.getSource()
+    );
+  }
+
+  /**
+   * Record a sentiment reading and adjust a forecast with the latest or
+   * the smoothed sentiment.
+   *
+   * @param symbol          the stock symbol
+   * @param prices          the unadjusted forecast
+   * @param sentimentResult the latest sentiment reading
+   * @param window          smoothing window, or {@code null} for none
+   * @param asMap           whether to render forecasts as date maps
+   * @return the response body
+   */
+  private Map<String, Object> combinedBody(
+      final String symbol, final ForecastSeries prices,
+      final SentimentResult sentimentResult, final SentimentWindow window,
+      final boolean asMap) {
+    SentimentAggregates aggregates = recordSentiment(symbol, sentimentResult);
+    Map<String, Object> sentiment = new LinkedHashMap<>();
+    sentiment.put("score", sentimentResult.getSentimentScore());
+    sentiment.put("label", sentimentResult.getSentimentLabel());
+
+    double score = sentimentResult.getSentimentScore();
+    if (window != null && aggregates != null && !aggregates.isEmpty()) {
+      score = aggregates.score(window);
+      sentiment.put("smoothing", window.getKey());
+      sentiment.put("smoothedScore", score);
+    }
+    final double adjustBy = score;
+    ForecastSeries adjustedPredictions = PipelineMetrics.timed(
+        PipelineMetrics.SENTIMENT_ADJUSTMENT,
+        () -> adjustedPrediction.adjust(prices, adjustBy));
+
+    return Map.of(
+        "symbol", symbol,
+        "sentiment", sentiment,
+        "originalPredictions", shaped(prices, asMap),
+        "adjustedPredictions", shaped(adjustedPredictions, asMap)
+    );
+  }
+
+  /**
+   * Response body of a combined prediction whose sentiment did not arrive
+   * in time: the forecast, unadjusted, flagged as degraded. Nothing is
+   * recorded in the sentiment history.
+   *
+   * @param symbol the stock symbol
+   * @param prices the forecast
+   * @param reason why sentiment is missing
+   * @param asMap  whether to use the map shape
+   * @return the body
+   */
+  private static Map<String, Object> degradedBody(
+      final String symbol, final ForecastSeries prices, final String reason,
+      final boolean asMap) {
+    final Map<String, Object> body = new LinkedHashMap<>();
+    body.put("symbol", symbol);
+    body.put("degraded", true);
+    body.put("degradedReason", reason);
+    body.put("originalPredictions", shaped(prices, asMap));
+    body.put("adjustedPredictions", shaped(prices, asMap));
+    return body;
+  }
+
+  /**
+   * The deadline a request asked for.
+   *
+   * @param param  the {@code timeout} parameter, or {@code null}
+   * @param header the {@value #TIMEOUT_HEADER} header, or {@code null}
+   * @return the deadline of the shorter budget given, or
+   *         {@link Deadline#none()} if neither is
+   * @throws IllegalArgumentException if a budget is not a positive
+   *         duration
+   */
+  static Deadline deadline(final String param, final String header) {
+    Duration budget = null;
+    for (String value : new String[] {param, header}) {
+      if (value == null || value.isBlank()) {
+        continue;
+      }
+      final Duration d;
+      try {
+        d = DurationStyle.detectAndParse(value.trim(), ChronoUnit.MILLIS);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid timeout: " + value, e);
+      }
+      if (budget == null || d.compareTo(budget) < 0) {
+        budget = d;
+      }
+    }
+    return budget == null ? Deadline.none() : Deadline.after(budget);
+  }
+
+  /**
+   * Status for a failed upstream call.
+   *
+   * @param e        the failure
+   * @param deadline the request's deadline
+   * @return 504 if the failure came from running out of time, 503 if a
+   *         circuit breaker or bulkhead turned the call away, else 502
+   */
+  private static HttpStatus upstreamStatus(final Exception e,
+                                           final Deadline deadline) {
+    if (e instanceof DeadlineExceededException || deadline.isExpired()) {
+      return HttpStatus.GATEWAY_TIMEOUT;
+    }
+    return e instanceof UpstreamUnavailableException
+        ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.BAD_GATEWAY;
+  }
+
+  /**
+   * A cached body served past its freshness because the dependency that
+   * would refresh it is unavailable.
+   *
+   * @param body the cached body
+   * @return the response, marked stale and not to be cached
+   */
+  private static ResponseEntity<?> stale(final Object body) {
+    return ResponseEntity.ok()
+        .header(HttpHeaders.WARNING, STALE_WARNING)
+        .cacheControl(CacheControl.noCache())
+        .body(body);
+  }
+
+  /**
+   * Validated horizon of a batch request.
+   *
+   * @param request the batch request
+   * @return the number of days to predict
+   * @throws IllegalArgumentException if it is not positive
+   */
+  private static int batchHorizon(final BatchPredictionRequest request) {
+    if (request.getHorizon() < 1) {
+      throw new IllegalArgumentException("horizon must be positive");
+    }
+    return request.getHorizon();
+  }
+
+  private static ResponseEntity<ResponseBodyEmitter> batchError(
+      final IllegalArgumentException e) {
+    return ResponseEntity.badRequest()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(BatchPredictionRunner.single(jsonError(e.getMessage())));
+  }
+
+  /**
+   * Whether a batch can answer a symbol from cache alone.
+   *
+   * @param symbol  the stock symbol
+   * @param horizon number of days to predict
+   * @param force   whether the caches are bypassed
+   * @return {@code true} if its daily series and forecast are fresh
+   */
+  private boolean isCached(final String symbol, final int horizon,
+                           final boolean force) {
+    return !force
+        && isFresh(store.dailyPath(symbol), DAILY_CACHE_TTL)
+        && isFresh(store.forecastPath(symbol, horizon), DAILY_CACHE_TTL);
+  }
+
+  /**
+   * Returns the forecast for a symbol from cache while it is as fresh as
+   * the daily series, otherwise runs the model on {@code series} in an
+   * isolated worker and caches the result.
+   *
+   * @param symbol  the stock symbol
+   * @param horizon number of days to predict
+   * @param series  the symbol's daily series
+   * @param force   whether to bypass the cache
+   * @return a non-empty forecast
+   * @throws IllegalStateException if the model returns no predictions
+   * @throws IOException if the cache cannot be read or written
+   */
+  private ForecastSeries getForecastSeries(final String symbol,
+                                           final int horizon,
+                                           final StockDailySeries series,
+                                           final boolean force)
+      throws IOException {
+    final Path cache = store.forecastPath(symbol, horizon);
+    if (!force) {
+      final long lookup = System.nanoTime();
+      final boolean hit = isFresh(cache, DAILY_CACHE_TTL);
+      final ForecastSeries cached =
+          hit ? store.read(cache, ForecastSeries.class) : null;
+      cacheLookup(FORECAST_CACHE, hit, lookup);
+      if (hit) {
+        return cached;
+      }
+    }
+    final ForecastSeries fresh = forecast.predictSeries(symbol, horizon,
+        series);
+    if (fresh == null || fresh.isEmpty()) {
+      throw new IllegalStateException(
+          "Forecast service returned empty predictions");
+    }
+    store.write(cache, fresh);
+    return fresh;
+  }
+
+  /**
+   * Run the model on {@code series} and cache the forecast, whatever is
+   * cached already.
+   *
+   * @param symbol  the upper-case stock symbol
+   * @param horizon number of days to predict
+   * @param series  the symbol's daily series
+   * @return a non-empty forecast
+   * @throws IOException if the cache cannot be written
+   */
+  ForecastSeries refreshForecast(final String symbol, final int horizon,
+                                 final StockDailySeries series)
+      throws IOException {
+    return getForecastSeries(symbol, horizon, series, true);
+  }
+
+  /**
+   * Validate the requested forecast shape.
+   *
+   * @param shape {@code columnar} or {@code map}, case-insensitive
+   * @return whether the legacy date to price map was requested
+   * @throws IllegalArgumentException for any other value
+   */
+  private static boolean isMapShape(final String shape) {
+    if (MAP_SHAPE.equalsIgnoreCase(shape)) {
+      return true;
+    }
+    if (COLUMNAR_SHAPE.equalsIgnoreCase(shape)) {
+      return false;
+    }
+    throw new IllegalArgumentException("Unknown shape '" + shape
+        + "'; expected columnar or map");
+  }
+
+  /**
+   * Render a forecast in the requested shape. The series itself
+   * serializes as columnar JSON.
+   *
+   * @param series the forecast
+   * @param asMap  whether to render a date to price map instead
+   * @return the value to put in the response body
+   */
+  private static Object shaped(final ForecastSeries series,
+                               final boolean asMap) {
+    return asMap ? series.toMap() : series;
+  }
+
   /**
    * Resolve the effective stock symbol to use.
    * Uses the provided symbol if non-blank,
@@ -286,10 +827,19 @@ public final class CompositeController {
 
     // 1) Cache-first: if fresh and not forced
     // return without needing an API key.
-    if (!force && isFresh(cache, DAILY_CACHE_TTL)) {
-      return store.read(cache, StockDailySeries.class);
+    if (!force) {
+      final long lookup = System.nanoTime();
+      final boolean hit = isFresh(cache, DAILY_CACHE_TTL);
+      final StockDailySeries cached =
+          hit ? store.read(cache, StockDailySeries.class) : null;
+      cacheLookup(DAILY_CACHE, hit, lookup);
+      if (hit) {
+        return cached;
+      }
     }
 
+    Deadline.current().check("daily series");
+
     // 2) Now require a key (env var, system property fallback for tests/CI).
     String key = System.getenv("ALPHAVANTAGE_API_KEY");
     if (key == null || key.isBlank()) {
@@ -302,11 +852,152 @@ public final class CompositeController {
     }
 
     // 3) Fetch & persist.
-    StockDailySeries fresh = stocks.fetchDaily(symbol, key);
+    StockDailySeries fresh;
+    try {
+      fresh = stocks.fetchDaily(symbol, key);
+    } catch (UpstreamUnavailableException e) {
+      // Alpha Vantage is shed: an old series beats none
+      if (Files.exists(cache)) {
+        return store.read(cache, StockDailySeries.class);
+      }
+      throw e;
+    }
     store.write(cache, fresh);
     return fresh;
   }
 
+  /**
+   * Appends a fresh sentiment reading to the symbol's history. History is
+   * best-effort: a failed write never fails the request.
+   *
+   * @param symbol the stock symbol
+   * @param result the sentiment reading
+   * @return the updated aggregates, or {@code null} if recording failed
+   */
+  private SentimentAggregates recordSentiment(final String symbol,
+                                              final SentimentResult result) {
+    try {
+      return sentimentHistory.record(symbol, result);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * Answer from a cache file if it is still fresh: a 304 when the
+   * request's validators match it, otherwise the file itself or its
+   * projection, in the encoding the request accepts. Responses carry an
+   * {@code ETag} and {@code Last-Modified} derived from the file and a
+   * {@code Cache-Control: max-age} of its remaining freshness.
+   *
+   * @param file       the cache file
+   * @param ttl        how long the file stays fresh after it is written
+   * @param request    request headers with any conditional validators
+   * @param projection projection of a daily series file, or {@code null}
+   *                   to send the file as it is
+   * @return the response, or {@code null} if the file is missing or stale
+   * @throws IOException if the file cannot be read
+   */
+  private ResponseEntity<?> fromCache(final Path file, final Duration ttl,
+                                      final HttpHeaders request,
+                                      final DailyProjection projection)
+      throws IOException {
+    final CacheFileValidators.Version current = validators.current(file);
+    if (current == null) {
+      return null;
+    }
+    final MediaType encoding = BinaryEncodings.negotiate(request);
+    final CacheFileValidators.Version version =
+        variantOf(current, projection, encoding);
+    final Duration left = version.remaining(ttl, Instant.now());
+    if (left.isZero()) {
+      return null;
+    }
+    if (request != null && version.notModified(request)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(version.getEtag())
+          .lastModified(version.getLastModified())
+          .cacheControl(CacheControl.maxAge(left))
+          .varyBy(HttpHeaders.ACCEPT)
+          .build();
+    }
+    final ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+        .contentType(encoding)
+        .eTag(version.getEtag())
+        .lastModified(version.getLastModified())
+        .cacheControl(CacheControl.maxAge(left))
+        .varyBy(HttpHeaders.ACCEPT);
+    if (projection == null && !BinaryEncodings.isBinary(encoding)) {
+      return cachedJson(file, ok);
+    }
+    final byte[] json = Files.readAllBytes(file);
+    return ok.body(encoded(
+        projection == null ? json : projection.apply(json), encoding));
+  }
+
+  /**
+   * Validators of one representation of a cache file.
+   *
+   * @param file       validators of the file itself
+   * @param projection projection sent instead of the file, or {@code null}
+   * @param encoding   encoding of the response
+   * @return validators distinct for each projection and encoding
+   */
+  private static CacheFileValidators.Version variantOf(
+      final CacheFileValidators.Version file,
+      final DailyProjection projection, final MediaType encoding) {
+    final CacheFileValidators.Version projected = projection == null
+        ? file : file.withVariant(projection.variant());
+    return BinaryEncodings.isBinary(encoding)
+        ? projected.withVariant(encoding.getSubtype()) : projected;
+  }
+
+  /**
+   * JSON bytes in the negotiated encoding.
+   *
+   * @param json     a JSON document
+   * @param encoding the negotiated encoding
+   * @return {@code json} itself, or its binary transcoding
+   * @throws IOException if {@code json} is malformed
+   */
+  private static byte[] encoded(final byte[] json, final MediaType encoding)
+      throws IOException {
+    return BinaryEncodings.isBinary(encoding)
+        ? BinaryEncodings.transcode(new ByteArrayInputStream(json), encoding)
+        : json;
+  }
+
+  /**
+   * Stream a cached JSON file to the client without deserializing it.
+   * The file is opened before its length is taken, so a concurrent
+   * rewrite (which {@link JsonStore} does by atomic rename) cannot make
+   * the body disagree with {@code Content-Length}.
+   *
+   * @param file the cached JSON file
+   * @param ok   the response with its other headers set
+   * @return a 200 response whose body is the file's bytes
+   * @throws IOException if the file cannot be opened
+   */
+  private static ResponseEntity<Resource> cachedJson(
+      final Path file, final ResponseEntity.BodyBuilder ok)
+      throws IOException {
+    final FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.READ);
+    try {
+      return ok.contentLength(channel.size())
+          .body(new InputStreamResource(Channels.newInputStream(channel)));
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static void cacheLookup(final String cache, final boolean hit,
+                                  final long started) {
+    PipelineMetrics.recordCache(cache, PipelineMetrics.FILE_TIER, hit,
+        System.nanoTime() - started);
+  }
+
   private static boolean isFresh(final Path file, final Duration ttl) {
     try {
       if (!Files.exists(file)) {
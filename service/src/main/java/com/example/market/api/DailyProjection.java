@@ -0,0 +1,418 @@
+package com.example.market.api;
+
+import com.example.market.model.stock.StockDailySeries;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * A field projection and page of a daily series, applied to its JSON
+ * form.
+ *
+ * <p>Bars are streamed from the cached bytes straight to the output;
+ * no {@code StockBar}s are built. Numbers are copied as written, so
+ * prices keep their exact decimal text. Projected responses leave out
+ * the series' {@code source}.</p>
+ *
+ * <p>{@code last} and {@code cursor} pick where a page starts: the
+ * last N bars, or the bars after a previous page. {@code limit} caps
+ * the page and, when more bars follow, adds a {@code nextCursor}.</p>
+ */
+final class DailyProjection {
+
+  /** Shape with one object per bar, as the full series has. */
+  static final String ROWS_SHAPE = "rows";
+  /** Shape with one array per field. */
+  static final String COLUMNAR_SHAPE = "columnar";
+
+  /** Streaming parser and generator factory. */
+  private static final JsonFactory JSON = new JsonFactory();
+  /** Serializes a freshly fetched series before projecting it. */
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  /** Name of the bar array in a serialized series. */
+  private static final String BARS = "bars";
+  /** Name of the continuation token in a projected page. */
+  private static final String NEXT_CURSOR = "nextCursor";
+  /** Series fields copied into a projection; {@code source} is not. */
+  private static final Set<String> HEADER = Set.of("symbol", "asOfIso");
+
+  /** Bar fields that can be selected. */
+  enum Field {
+    /** Bar date; always included. */
+    TIMESTAMP,
+    /** Opening price. */
+    OPEN,
+    /** High price. */
+    HIGH,
+    /** Low price. */
+    LOW,
+    /** Closing price. */
+    CLOSE,
+    /** Traded volume. */
+    VOLUME;
+
+    /** JSON property name. */
+    private final String json = name().toLowerCase(Locale.ROOT);
+
+    /**
+     * Field with the given JSON name.
+     *
+     * @param name property name
+     * @return the field, or {@code null} if no field has that name
+     */
+    static Field byJson(final String name) {
+      for (Field f : values()) {
+        if (f.json.equals(name)) {
+          return f;
+        }
+      }
+      return null;
+    }
+  }
+
+  /** Selected fields, always including the timestamp. */
+  private final Set<Field> fields;
+  /** Number of trailing bars to start from, or 0 for all. */
+  private final int last;
+  /** Timestamp after which the page starts, or {@code null}. */
+  private final String after;
+  /** Maximum bars in the page, or 0 for no limit. */
+  private final int limit;
+  /** Whether to emit per-field arrays. */
+  private final boolean columnar;
+  /** Whether no option was given. */
+  private final boolean identity;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisFields   selected fields
+   * @param thisLast     trailing bars, or 0
+   * @param thisAfter    start-after timestamp, or {@code null}
+   * @param thisLimit    page size, or 0
+   * @param thisColumnar whether to emit per-field arrays
+   * @param thisIdentity whether this is the full series
+   */
+  private DailyProjection(final Set<Field> thisFields, final int thisLast,
+                          final String thisAfter, final int thisLimit,
+                          final boolean thisColumnar,
+                          final boolean thisIdentity) {
+    this.fields = thisFields;
+    this.last = thisLast;
+    this.after = thisAfter;
+    this.limit = thisLimit;
+    this.columnar = thisColumnar;
+    this.identity = thisIdentity;
+  }
+
+  /**
+   * Parse request options.
+   *
+   * @param fieldList comma-separated bar fields, or {@code null} for all
+   * @param lastBars  start from the last N bars, or {@code null}
+   * @param cursor    {@code nextCursor} of a previous page, or {@code null}
+   * @param pageSize  maximum bars to return, or {@code null}
+   * @param shape     {@code rows}, {@code columnar}, or {@code null}
+   * @return the projection
+   * @throws IllegalArgumentException for unknown fields or shapes,
+   *     non-positive counts, a malformed cursor, or both {@code last}
+   *     and {@code cursor}
+   */
+  static DailyProjection of(final String fieldList, final Integer lastBars,
+                            final String cursor, final Integer pageSize,
+                            final String shape) {
+    final Set<Field> selected = parseFields(fieldList);
+    if (lastBars != null && cursor != null) {
+      throw new IllegalArgumentException(
+          "last and cursor cannot be combined");
+    }
+    final int n = positive("last", lastBars);
+    final int size = positive("limit", pageSize);
+    final String start = cursor == null ? null : decodeCursor(cursor);
+    final boolean cols;
+    if (shape == null || ROWS_SHAPE.equalsIgnoreCase(shape)) {
+      cols = false;
+    } else if (COLUMNAR_SHAPE.equalsIgnoreCase(shape)) {
+      cols = true;
+    } else {
+      throw new IllegalArgumentException("Unknown shape '" + shape
+          + "'; expected rows or columnar");
+    }
+    final boolean full = fieldList == null && lastBars == null
+        && cursor == null && pageSize == null && !cols;
+    return new DailyProjection(selected, n, start, size, cols, full);
+  }
+
+  /**
+   * Whether no option was given, so the full series is wanted.
+   *
+   * @return {@code true} for the full series
+   */
+  boolean isIdentity() {
+    return identity;
+  }
+
+  /**
+   * Canonical form of the options, distinct for each distinct output.
+   * Contains only characters that are valid inside an entity tag.
+   *
+   * @return the variant key
+   */
+  String variant() {
+    final StringJoiner f = new StringJoiner(".");
+    for (Field field : fields) {
+      f.add(field.json);
+    }
+    return "f=" + f + ";n=" + last + ";l=" + limit
+        + ";c=" + (after == null ? "" : encodeCursor(after))
+        + ";s=" + (columnar ? COLUMNAR_SHAPE : ROWS_SHAPE);
+  }
+
+  /**
+   * Project a series.
+   *
+   * @param series the series
+   * @return the projected JSON
+   * @throws IOException if the series cannot be serialized
+   */
+  byte[] apply(final StockDailySeries series) throws IOException {
+    return apply(MAPPER.writeValueAsBytes(series));
+  }
+
+  /**
+   * Project a serialized series.
+   *
+   * @param json the series as JSON
+   * @return the projected JSON
+   * @throws IOException if {@code json} is not a serialized series
+   */
+  byte[] apply(final byte[] json) throws IOException {
+    final int skip = last > 0 ? Math.max(0, countBars(json) - last) : 0;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(
+        json.length / 2);
+    try (JsonParser p = JSON.createParser(json);
+         JsonGenerator g = JSON.createGenerator(out)) {
+      expect(p.nextToken(), JsonToken.START_OBJECT);
+      g.writeStartObject();
+      String next = null;
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = p.currentName();
+        p.nextToken();
+        if (BARS.equals(name)) {
+          next = writeBars(p, g, skip);
+        } else if (HEADER.contains(name)) {
+          g.writeFieldName(name);
+          g.copyCurrentStructure(p);
+        } else {
+          p.skipChildren();
+        }
+      }
+      if (next != null) {
+        g.writeStringField(NEXT_CURSOR, encodeCursor(next));
+      }
+      g.writeEndObject();
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Copy the selected bars.
+   *
+   * @param p    parser positioned on the bar array
+   * @param g    output
+   * @param skip bars to pass over before selecting
+   * @return timestamp of the last bar written if more bars follow,
+   *     otherwise {@code null}
+   * @throws IOException if the bars are malformed
+   */
+  private String writeBars(final JsonParser p, final JsonGenerator g,
+                           final int skip) throws IOException {
+    expect(p.currentToken(), JsonToken.START_ARRAY);
+    final Field[] all = Field.values();
+    final String[] text = new String[all.length];
+    final boolean[] numeric = new boolean[all.length];
+    final TokenBuffer[] columns = new TokenBuffer[all.length];
+    if (columnar) {
+      for (Field f : fields) {
+        columns[f.ordinal()] = new TokenBuffer(null, false);
+        columns[f.ordinal()].writeStartArray();
+      }
+    } else {
+      g.writeArrayFieldStart(BARS);
+    }
+    int index = 0;
+    int written = 0;
+    String lastWritten = null;
+    String more = null;
+    while (p.nextToken() == JsonToken.START_OBJECT) {
+      if (index++ < skip || more != null) {
+        p.skipChildren();
+        continue;
+      }
+      readBar(p, text, numeric);
+      final String ts = text[Field.TIMESTAMP.ordinal()];
+      if (after != null && ts.compareTo(after) <= 0) {
+        continue;
+      }
+      if (limit > 0 && written == limit) {
+        more = lastWritten;
+        continue;
+      }
+      if (columnar) {
+        for (Field f : fields) {
+          writeValue(columns[f.ordinal()], text, numeric, f);
+        }
+      } else {
+        g.writeStartObject();
+        for (Field f : fields) {
+          g.writeFieldName(f.json);
+          writeValue(g, text, numeric, f);
+        }
+        g.writeEndObject();
+      }
+      written++;
+      lastWritten = ts;
+    }
+    if (columnar) {
+      for (Field f : fields) {
+        final TokenBuffer column = columns[f.ordinal()];
+        column.writeEndArray();
+        g.writeFieldName(f.json);
+        column.serialize(g);
+      }
+    } else {
+      g.writeEndArray();
+    }
+    return more;
+  }
+
+  /**
+   * Read one bar's values as their JSON text.
+   *
+   * @param p       parser positioned on the bar object
+   * @param text    receives each field's text, indexed by ordinal
+   * @param numeric receives whether each field was a JSON number
+   * @throws IOException if the bar has no timestamp
+   */
+  private static void readBar(final JsonParser p, final String[] text,
+                              final boolean[] numeric) throws IOException {
+    Arrays.fill(text, null);
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      final Field f = Field.byJson(p.currentName());
+      final JsonToken value = p.nextToken();
+      if (f == null || !value.isScalarValue()) {
+        p.skipChildren();
+        continue;
+      }
+      text[f.ordinal()] = p.getText();
+      numeric[f.ordinal()] = value.isNumeric();
+    }
+    if (text[Field.TIMESTAMP.ordinal()] == null) {
+      throw new IOException("Daily bar without timestamp");
+    }
+  }
+
+  private static void writeValue(final JsonGenerator g, final String[] text,
+                                 final boolean[] numeric, final Field f)
+      throws IOException {
+    final String value = text[f.ordinal()];
+    if (value == null) {
+      g.writeNull();
+    } else if (numeric[f.ordinal()]) {
+      g.writeNumber(value);
+    } else {
+      g.writeString(value);
+    }
+  }
+
+  private static int countBars(final byte[] json) throws IOException {
+    try (JsonParser p = JSON.createParser(json)) {
+      expect(p.nextToken(), JsonToken.START_OBJECT);
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = p.currentName();
+        p.nextToken();
+        if (BARS.equals(name)) {
+          expect(p.currentToken(), JsonToken.START_ARRAY);
+          int n = 0;
+          while (p.nextToken() != JsonToken.END_ARRAY) {
+            p.skipChildren();
+            n++;
+          }
+          return n;
+        }
+        p.skipChildren();
+      }
+      return 0;
+    }
+  }
+
+  private static void expect(final JsonToken actual, final JsonToken wanted)
+      throws IOException {
+    if (actual != wanted) {
+      throw new IOException("Malformed daily series: expected " + wanted
+          + " but found " + actual);
+    }
+  }
+
+  private static Set<Field> parseFields(final String fieldList) {
+    if (fieldList == null) {
+      return EnumSet.allOf(Field.class);
+    }
+    final Set<Field> selected = EnumSet.of(Field.TIMESTAMP);
+    for (String name : fieldList.split(",")) {
+      final String trimmed = name.trim().toLowerCase(Locale.ROOT);
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      final Field f = Field.byJson(trimmed);
+      if (f == null) {
+        throw new IllegalArgumentException("Unknown field '" + trimmed
+            + "'; expected open, high, low, close or volume");
+      }
+      selected.add(f);
+    }
+    return selected;
+  }
+
+  private static int positive(final String name, final Integer value) {
+    if (value == null) {
+      return 0;
+    }
+    if (value < 1) {
+      throw new IllegalArgumentException(name + " must be positive");
+    }
+    return value;
+  }
+
+  private static String encodeCursor(final String timestamp) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(timestamp.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decodeCursor(final String cursor) {
+    final String ts;
+    try {
+      ts = new String(Base64.getUrlDecoder().decode(cursor),
+          StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Malformed cursor", e);
+    }
+    if (ts.isBlank()) {
+      throw new IllegalArgumentException("Malformed cursor");
+    }
+    return ts;
+  }
+}
@@ -0,0 +1,94 @@
+package com.example.market.api;
+
+import com.example.market.service.PipelineMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Tags the pipeline stages a request runs with its endpoint, by
+ * {@linkplain PipelineMetrics#bindEndpoint binding} the matched path
+ * pattern, such as {@code /market/predict}, to the handling thread. The
+ * pattern rather than the path keeps symbols out of the tags.
+ */
+@Configuration(proxyBeanMethods = false)
+public class EndpointMetricsInterceptor
+    implements AsyncHandlerInterceptor, WebMvcConfigurer {
+
+  /** Request attribute holding the binding until the request is done. */
+  private static final String SCOPE =
+      EndpointMetricsInterceptor.class.getName() + ".scope";
+
+  /**
+   * Apply to the market endpoints.
+   *
+   * @param registry the interceptor registry
+   */
+  @Override
+  public void addInterceptors(final InterceptorRegistry registry) {
+    registry.addInterceptor(this).addPathPatterns("/market/**");
+  }
+
+  /**
+   * Bind the request's endpoint.
+   *
+   * @param request  the request
+   * @param response the response
+   * @param handler  the chosen handler
+   * @return always {@code true}
+   */
+  @Override
+  public boolean preHandle(final HttpServletRequest request,
+                           final HttpServletResponse response,
+                           final Object handler) {
+    final Object pattern =
+        request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    if (pattern != null) {
+      request.setAttribute(SCOPE,
+          PipelineMetrics.bindEndpoint(pattern.toString()));
+    }
+    return true;
+  }
+
+  /**
+   * Unbind once the handler has returned a streaming body; the rest of
+   * the response is written from other threads.
+   *
+   * @param request  the request
+   * @param response the response
+   * @param handler  the handler
+   */
+  @Override
+  public void afterConcurrentHandlingStarted(
+      final HttpServletRequest request, final HttpServletResponse response,
+      final Object handler) {
+    unbind(request);
+  }
+
+  /**
+   * Unbind once the request is done.
+   *
+   * @param request  the request
+   * @param response the response
+   * @param handler  the handler
+   * @param ex       what the handler threw, if anything
+   */
+  @Override
+  public void afterCompletion(final HttpServletRequest request,
+                              final HttpServletResponse response,
+                              final Object handler, final Exception ex) {
+    unbind(request);
+  }
+
+  private static void unbind(final HttpServletRequest request) {
+    final Object scope = request.getAttribute(SCOPE);
+    if (scope instanceof PipelineMetrics.Scope bound) {
+      request.removeAttribute(SCOPE);
+      bound.close();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.example.market.api;
+
+import com.example.market.service.forecast.python.TrendMasterHealthIndicator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Turns forecast requests away with {@code 503 Service Unavailable} and a
+ * {@code Retry-After} header until the TrendMaster workers are warm, so
+ * the first users do not wait for Python to start and load the model.
+ * The single-symbol and batch forecast endpoints all run on those
+ * workers; other endpoints are never held back. Without a
+ * {@link TrendMasterHealthIndicator}, as in web-layer tests, every request
+ * passes.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ForecastReadinessInterceptor
+    implements HandlerInterceptor, WebMvcConfigurer {
+
+  /** Endpoints that need the forecast workers, their batches included. */
+  static final String[] FORECAST_PATHS = {
+      "/market/predict", "/market/predict/**",
+      "/market/combined-prediction", "/market/combined-prediction/**"};
+  /** Writes the error body. */
+  private static final ObjectMapper JSON = new ObjectMapper();
+  /** Suggested wait before retrying. */
+  private static final Duration RETRY_AFTER = Duration.ofSeconds(30);
+
+  /** Reports readiness, if present. */
+  private final ObjectProvider<TrendMasterHealthIndicator> readiness;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisReadiness reports whether the workers are warm
+   */
+  public ForecastReadinessInterceptor(
+      final ObjectProvider<TrendMasterHealthIndicator> thisReadiness) {
+    this.readiness = thisReadiness;
+  }
+
+  /**
+   * Apply to the forecast endpoints.
+   *
+   * @param registry the interceptor registry
+   */
+  @Override
+  public void addInterceptors(final InterceptorRegistry registry) {
+    registry.addInterceptor(this).addPathPatterns(FORECAST_PATHS);
+  }
+
+  /**
+   * Answer 503 while the workers are not ready.
+   *
+   * @param request  the request
+   * @param response the response
+   * @param handler  the chosen handler
+   * @return whether to handle the request
+   * @throws IOException if the error body cannot be written
+   */
+  @Override
+  public boolean preHandle(final HttpServletRequest request,
+                           final HttpServletResponse response,
+                           final Object handler) throws IOException {
+    final TrendMasterHealthIndicator workers = readiness.getIfAvailable();
+    if (workers == null || workers.isReady()) {
+      return true;
+    }
+    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER,
+        Long.toString(RETRY_AFTER.toSeconds()));
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.getWriter().write(JSON.writeValueAsString(
+        Map.of("error", workers.reason())));
+    return false;
+  }
+}
@@ -0,0 +1,161 @@
+package com.example.market.api;
+
+import com.example.market.service.demand.SymbolDemand;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * What clients are asking the market endpoints for: how many of their
+ * requests are in flight, so background work can stay out of their way,
+ * and which symbols they ask for, counted in {@link SymbolDemand}, so
+ * they can be cached and fetched ahead of them.
+ *
+ * <p>A request counts as in flight from the moment it reaches a market
+ * endpoint until its response is complete, streamed batch responses
+ * included. The {@code symbol} of each request to one of the
+ * {@link #DEMAND_PATHS} is counted once, if well-formed. Without a
+ * {@link SymbolDemand}, as in web-layer tests, no symbol is counted.</p>
+ */
+@Configuration(proxyBeanMethods = false)
+public class InteractiveTraffic
+    implements AsyncHandlerInterceptor, WebMvcConfigurer {
+
+  /** Endpoints whose symbols are counted. */
+  static final Set<String> DEMAND_PATHS = Set.of("/market/daily",
+      "/market/predict", "/market/sentiment", "/market/combined-prediction");
+  /** What a ticker looks like, e.g. {@code BRK.B}. */
+  private static final Pattern SYMBOL =
+      Pattern.compile("[A-Z0-9][A-Z0-9.\\-]{0,11}");
+  /** Request attribute marking a request counted as in flight. */
+  private static final String COUNTED =
+      InteractiveTraffic.class.getName() + ".counted";
+
+  /** Requests in flight. */
+  private final AtomicInteger inFlight = new AtomicInteger();
+  /** Counts the symbols, if present. */
+  private final ObjectProvider<SymbolDemand> demand;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisDemand counts the symbols requested
+   */
+  public InteractiveTraffic(final ObjectProvider<SymbolDemand> thisDemand) {
+    this.demand = thisDemand;
+  }
+
+  /**
+   * Apply to the market endpoints.
+   *
+   * @param registry the interceptor registry
+   */
+  @Override
+  public void addInterceptors(final InterceptorRegistry registry) {
+    registry.addInterceptor(this).addPathPatterns("/market/**");
+  }
+
+  /**
+   * Count the request and its symbol.
+   *
+   * @param request  the request
+   * @param response the response
+   * @param handler  the chosen handler
+   * @return always {@code true}
+   */
+  @Override
+  public boolean preHandle(final HttpServletRequest request,
+                           final HttpServletResponse response,
+                           final Object handler) {
+    // an async dispatch finishing a streamed response was counted already
+    if (request.getDispatcherType() == DispatcherType.REQUEST
+        && request.getAttribute(COUNTED) == null) {
+      request.setAttribute(COUNTED, Boolean.TRUE);
+      inFlight.incrementAndGet();
+      if (request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)
+          instanceof String pattern && DEMAND_PATHS.contains(pattern)) {
+        record(request.getParameter("symbol"));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stop counting the request once its response is complete.
+   *
+   * @param request  the request
+   * @param response the response
+   * @param handler  the handler
+   * @param ex       what the handler threw, if anything
+   */
+  @Override
+  public void afterCompletion(final HttpServletRequest request,
+                              final HttpServletResponse response,
+                              final Object handler, final Exception ex) {
+    if (request.getAttribute(COUNTED) != null
+        && !request.isAsyncStarted()) {
+      request.removeAttribute(COUNTED);
+      inFlight.decrementAndGet();
+    }
+  }
+
+  /**
+   * Count one request for a symbol.
+   *
+   * @param symbol the symbol as the client sent it; blank or malformed
+   *               symbols are ignored
+   */
+  void record(final String symbol) {
+    final SymbolDemand counts = demand.getIfAvailable();
+    if (symbol == null || counts == null) {
+      return;
+    }
+    final String s = symbol.trim().toUpperCase(Locale.ROOT);
+    if (SYMBOL.matcher(s).matches()) {
+      counts.record(s);
+    }
+  }
+
+  /**
+   * Client requests in flight.
+   *
+   * @return the number of requests
+   */
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * The most requested symbols.
+   *
+   * @param limit most symbols to return
+   * @return symbols, most requested first; ties in name order
+   */
+  public List<String> popular(final int limit) {
+    final SymbolDemand counts = demand.getIfAvailable();
+    return counts == null ? List.of()
+        : List.copyOf(counts.top(limit).keySet());
+  }
+
+  /**
+   * Halve every count, so older traffic weighs less than recent traffic.
+   */
+  public void decay() {
+    final SymbolDemand counts = demand.getIfAvailable();
+    if (counts != null) {
+      counts.decay();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.market.api;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * The {@code prefetch} actuator endpoint: reading it reports the
+ * {@link WatchlistPrefetcher}'s progress, writing to it starts a run now.
+ */
+@Component
+@Endpoint(id = "prefetch")
+public class PrefetchEndpoint {
+  /** The prefetcher reported on. */
+  private final WatchlistPrefetcher prefetcher;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisPrefetcher the prefetcher reported on
+   */
+  public PrefetchEndpoint(final WatchlistPrefetcher thisPrefetcher) {
+    this.prefetcher = thisPrefetcher;
+  }
+
+  /**
+   * What the prefetcher is doing and how the last run went.
+   *
+   * @return progress, by name
+   */
+  @ReadOperation
+  public Map<String, Object> progress() {
+    return prefetcher.progress();
+  }
+
+  /**
+   * Start a run now.
+   *
+   * @return whether it started, and the progress
+   */
+  @WriteOperation
+  public Map<String, Object> run() {
+    final boolean startedNow = prefetcher.runNow();
+    final Map<String, Object> progress = prefetcher.progress();
+    progress.put("triggered", startedNow);
+    return progress;
+  }
+}
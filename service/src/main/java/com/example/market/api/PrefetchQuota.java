@@ -0,0 +1,146 @@
+package com.example.market.api;
+
+import com.example.market.service.upstream.Upstreams;
+import org.springframework.core.env.Environment;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * How many upstream calls a prefetch run may make, and how fast.
+ *
+ * <p>Each metered upstream gets, under
+ * {@code market.prefetch.quota.<name>}, a {@code per-minute} rate the run
+ * is paced to, its calls spread evenly over the minute, and a
+ * {@code per-run} budget after which the run stops calling it. Both are
+ * the part of the provider's quota left to the prefetcher after what
+ * interactive traffic needs; a rate of 0 does not pace at all.</p>
+ */
+final class PrefetchQuota {
+  /** Configuration prefix. */
+  private static final String PREFIX = "market.prefetch.quota.";
+  /** The upstreams that are metered. */
+  static final List<String> METERED = List.of(
+      Upstreams.ALPHA_VANTAGE, Upstreams.NEWS_API, Upstreams.FMP);
+  /** Default calls per minute, by upstream; Alpha Vantage's free tier. */
+  private static final Map<String, Integer> DEFAULT_PER_MINUTE = Map.of(
+      Upstreams.ALPHA_VANTAGE, 5, Upstreams.NEWS_API, 10, Upstreams.FMP, 10);
+  /** Default calls per run, by upstream. */
+  private static final Map<String, Integer> DEFAULT_PER_RUN = Map.of(
+      Upstreams.ALPHA_VANTAGE, 400, Upstreams.NEWS_API, 80,
+      Upstreams.FMP, 200);
+  /** Nanoseconds in a minute. */
+  private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+  /** Waits out the pacing. */
+  @FunctionalInterface
+  interface Sleeper {
+    /**
+     * Wait.
+     *
+     * @param nanos how long
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void sleep(long nanos) throws InterruptedException;
+  }
+
+  /** Nanoseconds between calls, by upstream; 0 when not paced. */
+  private final Map<String, Long> interval = new LinkedHashMap<>();
+  /** Calls allowed per run, by upstream. */
+  private final Map<String, Integer> perRun = new LinkedHashMap<>();
+  /** Calls made this run, by upstream. */
+  private final Map<String, Integer> used = new LinkedHashMap<>();
+  /** Earliest {@link #clock} reading of the next call, by upstream. */
+  private final Map<String, Long> next = new LinkedHashMap<>();
+  /** Monotonic nanosecond clock. */
+  private final LongSupplier clock;
+  /** Waits out the pacing. */
+  private final Sleeper sleeper;
+
+  /**
+   * Reads the quotas from configuration.
+   *
+   * @param env the application's environment
+   */
+  PrefetchQuota(final Environment env) {
+    this(env, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+  }
+
+  /**
+   * Reads the quotas from configuration, pacing by the given clock.
+   *
+   * @param env         the application's environment
+   * @param thisClock   monotonic nanosecond clock
+   * @param thisSleeper waits out the pacing
+   */
+  PrefetchQuota(final Environment env, final LongSupplier thisClock,
+                final Sleeper thisSleeper) {
+    for (String name : METERED) {
+      final String p = PREFIX + name + ".";
+      final int minute = env.getProperty(p + "per-minute", Integer.class,
+          DEFAULT_PER_MINUTE.get(name));
+      final int run = env.getProperty(p + "per-run", Integer.class,
+          DEFAULT_PER_RUN.get(name));
+      if (minute < 0 || run < 0) {
+        throw new IllegalArgumentException(
+            p + "per-minute and per-run must not be negative");
+      }
+      interval.put(name, minute == 0 ? 0L : MINUTE / minute);
+      perRun.put(name, run);
+      used.put(name, 0);
+    }
+    this.clock = thisClock;
+    this.sleeper = thisSleeper;
+  }
+
+  /** Start a run: its budgets are full again. */
+  synchronized void reset() {
+    used.replaceAll((name, n) -> 0);
+  }
+
+  /**
+   * Take one call from each of the given upstreams' budgets, waiting
+   * until the pacing allows them. Either every upstream is charged or
+   * none is.
+   *
+   * @param upstreams the upstreams the call will reach
+   * @return {@code false}, without waiting, if any of them has no budget
+   *         left this run
+   * @throws InterruptedException if interrupted while waiting
+   */
+  boolean acquire(final String... upstreams) throws InterruptedException {
+    long wait = 0;
+    synchronized (this) {
+      for (String name : upstreams) {
+        if (used.get(name) >= perRun.get(name)) {
+          return false;
+        }
+      }
+      final long now = clock.getAsLong();
+      for (String name : upstreams) {
+        used.merge(name, 1, Integer::sum);
+        final long at = Math.max(now, next.getOrDefault(name, now));
+        next.put(name, at + interval.get(name));
+        wait = Math.max(wait, at - now);
+      }
+    }
+    if (wait > 0) {
+      sleeper.sleep(wait);
+    }
+    return true;
+  }
+
+  /**
+   * Calls charged this run.
+   *
+   * @return calls by upstream, with the per-run budget
+   */
+  synchronized Map<String, String> usage() {
+    final Map<String, String> usage = new LinkedHashMap<>();
+    used.forEach((name, n) -> usage.put(name, n + "/" + perRun.get(name)));
+    return usage;
+  }
+}
@@ -0,0 +1,60 @@
+package com.example.market.api;
+
+import com.example.market.service.demand.SymbolDemand;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What clients ask for, as {@link SymbolDemand} estimates it.
+ */
+@RestController
+@RequestMapping("/market/stats")
+public final class SymbolStatsController {
+  /** Request counts by symbol. */
+  private final SymbolDemand demand;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisDemand request counts by symbol
+   */
+  public SymbolStatsController(final SymbolDemand thisDemand) {
+    this.demand = thisDemand;
+  }
+
+  /**
+   * The most requested symbols with their estimated recent requests.
+   *
+   * @param limit most symbols to list; all that are tracked by default
+   * @return {@code {"tracked": k, "symbols": [{"symbol", "requests"}]}},
+   *         most requested first, or a 400 for a limit below 1
+   */
+  @GetMapping("/top-symbols")
+  public ResponseEntity<?> topSymbols(
+      @RequestParam(required = false) final Integer limit) {
+    if (limit != null && limit < 1) {
+      return ResponseEntity.badRequest()
+          .body(Map.of("error", "limit must be at least 1"));
+    }
+    final List<Map<String, Object>> symbols = new ArrayList<>();
+    demand.top(limit != null ? limit : demand.capacity())
+        .forEach((symbol, requests) -> {
+          final Map<String, Object> entry = new LinkedHashMap<>();
+          entry.put("symbol", symbol);
+          entry.put("requests", requests);
+          symbols.add(entry);
+        });
+    final Map<String, Object> body = new LinkedHashMap<>();
+    body.put("tracked", demand.capacity());
+    body.put("symbols", symbols);
+    return ResponseEntity.ok(body);
+  }
+}
@@ -0,0 +1,446 @@
+package com.example.market.api;
+
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.Deadline;
+import com.example.market.service.stock.JsonStore;
+import com.example.market.service.upstream.Upstreams;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Refreshes, after the market closes, what the first requests of the next
+ * morning would otherwise wait for: each symbol's daily series, its
+ * forecasts for the common horizons and its sentiment, all written to the
+ * same {@link JsonStore} caches the endpoints answer from.
+ *
+ * <p>Configured under {@code market.prefetch}: the symbols are the
+ * {@code watchlist} followed by the {@code popular} most requested ones
+ * (see {@link InteractiveTraffic}), and runs fire on {@code cron} in
+ * {@code zone}. A run calls upstreams no faster and no more often than
+ * its {@link PrefetchQuota} allows, waits while {@code busy-requests} or
+ * more client requests are in flight, gives each step
+ * {@code step-timeout} and stops after {@code max-duration}. It runs on a
+ * single minimum-priority thread; a step that fails is counted and the
+ * run goes on. Progress is reported by the {@code prefetch} actuator
+ * endpoint.</p>
+ */
+@Component
+public class WatchlistPrefetcher implements DisposableBean {
+
+  /** Progress of the prefetcher. */
+  enum State {
+    /** Switched off. */
+    DISABLED,
+    /** Waiting for the next run. */
+    SCHEDULED,
+    /** Refreshing a symbol. */
+    RUNNING,
+    /** Waiting for client requests to finish. */
+    PAUSED
+  }
+
+  /** Configuration prefix. */
+  private static final String PREFIX = "market.prefetch.";
+  /** Default schedule: half an hour after the New York close. */
+  private static final String DEFAULT_CRON = "0 30 16 * * MON-FRI";
+  /** Default number of popular symbols added to the watchlist. */
+  private static final int DEFAULT_POPULAR = 300;
+  /** Default number of client requests in flight that pause a run. */
+  private static final int DEFAULT_BUSY_REQUESTS = 4;
+
+  /** Refreshes the caches. */
+  private final CompositeController controller;
+  /** Client traffic to stay behind, and the popular symbols. */
+  private final InteractiveTraffic traffic;
+  /** Where the daily series are cached. */
+  private final JsonStore store;
+  /** Upstream calls left to a run. */
+  private final PrefetchQuota quota;
+  /** Waits while clients are busy. */
+  private final PrefetchQuota.Sleeper sleeper;
+  /** Wall clock the schedule follows. */
+  private final Clock clock;
+  /** Whether runs are scheduled at all. */
+  private final boolean enabled;
+  /** When runs fire. */
+  private final CronExpression cron;
+  /** Time zone of {@link #cron}. */
+  private final ZoneId zone;
+  /** Symbols always refreshed. */
+  private final List<String> watchlist;
+  /** Most requested symbols added to the watchlist. */
+  private final int popular;
+  /** Forecast horizons refreshed, in days. */
+  private final List<Integer> horizons;
+  /** Whether sentiment is refreshed. */
+  private final boolean sentiment;
+  /** Client requests in flight that pause a run. */
+  private final int busyRequests;
+  /** Wait between checks while paused. */
+  private final Duration busyPoll;
+  /** Time each step may take. */
+  private final Duration stepTimeout;
+  /** Time a run may take. */
+  private final Duration maxDuration;
+  /** Runs the prefetch. */
+  private final ScheduledExecutorService runner;
+  /** Whether a run is queued or in progress. */
+  private final AtomicBoolean busy = new AtomicBoolean();
+
+  /** Current progress. */
+  private volatile State state;
+  /** When the next scheduled run fires, or {@code null}. */
+  private volatile Instant nextRun;
+  /** When the last run started, or {@code null}. */
+  private volatile Instant started;
+  /** When the last run finished, or {@code null} while it runs. */
+  private volatile Instant finished;
+  /** Symbols in the last run. */
+  private volatile int total;
+  /** Symbols fully refreshed in the last run. */
+  private volatile int done;
+  /** Symbols with a failed step in the last run. */
+  private volatile int failed;
+  /** Symbols, or their sentiment, left out for lack of quota or time. */
+  private volatile int skipped;
+  /** Symbol and step in progress, or {@code null}. */
+  private volatile String current;
+  /** Last failure of the last run, or {@code null}. */
+  private volatile String lastFailure;
+
+  /**
+   * Reads the settings from configuration.
+   *
+   * @param env            the application's environment
+   * @param thisController refreshes the caches
+   * @param thisTraffic    client traffic and popular symbols
+   * @param thisStore      where the daily series are cached
+   */
+  @Autowired
+  public WatchlistPrefetcher(final Environment env,
+                             final CompositeController thisController,
+                             final InteractiveTraffic thisTraffic,
+                             final JsonStore thisStore) {
+    this(env, thisController, thisTraffic, thisStore,
+        new PrefetchQuota(env), TimeUnit.NANOSECONDS::sleep,
+        Clock.systemUTC());
+  }
+
+  /**
+   * Reads the settings from configuration, with the given quota and
+   * clocks.
+   *
+   * @param env            the application's environment
+   * @param thisController refreshes the caches
+   * @param thisTraffic    client traffic and popular symbols
+   * @param thisStore      where the daily series are cached
+   * @param thisQuota      upstream calls left to a run
+   * @param thisSleeper    waits while clients are busy
+   * @param thisClock      wall clock the schedule follows
+   */
+  WatchlistPrefetcher(final Environment env,
+                      final CompositeController thisController,
+                      final InteractiveTraffic thisTraffic,
+                      final JsonStore thisStore,
+                      final PrefetchQuota thisQuota,
+                      final PrefetchQuota.Sleeper thisSleeper,
+                      final Clock thisClock) {
+    this.controller = thisController;
+    this.traffic = thisTraffic;
+    this.store = thisStore;
+    this.quota = thisQuota;
+    this.sleeper = thisSleeper;
+    this.clock = thisClock;
+    this.enabled = env.getProperty(PREFIX + "enabled", Boolean.class, true);
+    this.cron = CronExpression.parse(
+        env.getProperty(PREFIX + "cron", DEFAULT_CRON));
+    this.zone = ZoneId.of(
+        env.getProperty(PREFIX + "zone", "America/New_York"));
+    this.watchlist = symbols(env.getProperty(PREFIX + "watchlist", ""));
+    this.popular = env.getProperty(PREFIX + "popular", Integer.class,
+        DEFAULT_POPULAR);
+    this.horizons = Arrays.stream(
+            env.getProperty(PREFIX + "horizons", "10").split(","))
+        .map(String::trim).filter(h -> !h.isEmpty())
+        .map(Integer::valueOf).toList();
+    this.sentiment =
+        env.getProperty(PREFIX + "sentiment", Boolean.class, true);
+    this.busyRequests = env.getProperty(PREFIX + "busy-requests",
+        Integer.class, DEFAULT_BUSY_REQUESTS);
+    this.busyPoll = duration(env, "busy-poll", "PT1S");
+    this.stepTimeout = duration(env, "step-timeout", "PT5M");
+    this.maxDuration = duration(env, "max-duration", "PT6H");
+    if (popular < 0 || busyRequests < 1
+        || horizons.stream().anyMatch(h -> h < 1)) {
+      throw new IllegalArgumentException(PREFIX + "popular must not be "
+          + "negative, busy-requests and horizons must be positive");
+    }
+    this.state = enabled ? State.SCHEDULED : State.DISABLED;
+    this.runner = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread t = new Thread(r, "watchlist-prefetch");
+      t.setDaemon(true);
+      // behind request threads whenever the CPU is contended
+      t.setPriority(Thread.MIN_PRIORITY);
+      return t;
+    });
+  }
+
+  /** Schedule the first run once the application is ready. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (enabled) {
+      scheduleNext();
+    }
+  }
+
+  /**
+   * Start a run now, unless one is already queued or running.
+   *
+   * @return whether a run was started
+   */
+  public boolean runNow() {
+    if (!busy.compareAndSet(false, true)) {
+      return false;
+    }
+    runner.execute(() -> run(false));
+    return true;
+  }
+
+  /**
+   * What the prefetcher is doing and how the last run went.
+   *
+   * @return progress, by name
+   */
+  public Map<String, Object> progress() {
+    final Map<String, Object> progress = new LinkedHashMap<>();
+    progress.put("state", state.name().toLowerCase(Locale.ROOT));
+    progress.put("nextRun", nextRun);
+    progress.put("started", started);
+    progress.put("finished", finished);
+    progress.put("symbols", total);
+    progress.put("done", done);
+    progress.put("failed", failed);
+    progress.put("skipped", skipped);
+    progress.put("current", current);
+    progress.put("quota", quota.usage());
+    progress.put("lastFailure", lastFailure);
+    return progress;
+  }
+
+  /** Stops a running or scheduled run. */
+  @Override
+  public void destroy() {
+    runner.shutdownNow();
+  }
+
+  /** Queue the next run at the next time the schedule fires. */
+  private void scheduleNext() {
+    final ZonedDateTime now = ZonedDateTime.now(clock.withZone(zone));
+    final ZonedDateTime at = cron.next(now);
+    if (at == null || runner.isShutdown()) {
+      nextRun = null;
+      return;
+    }
+    nextRun = at.toInstant();
+    runner.schedule(() -> {
+      if (busy.compareAndSet(false, true)) {
+        run(true);
+      }
+      scheduleNext();
+    }, Duration.between(now, at).toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Refresh every symbol, in order, until done, out of time or stopped.
+   * A scheduled run then halves the request counts once it has taken its
+   * symbols, so each favours what was asked for since the one before; a
+   * run started by hand leaves them alone.
+   *
+   * @param scheduled whether the schedule started the run
+   */
+  void run(final boolean scheduled) {
+    final Instant start = clock.instant();
+    final List<String> symbols = targets();
+    if (scheduled) {
+      traffic.decay();
+    }
+    started = start;
+    finished = null;
+    total = symbols.size();
+    done = 0;
+    failed = 0;
+    skipped = 0;
+    lastFailure = null;
+    quota.reset();
+    try {
+      for (String symbol : symbols) {
+        if (clock.instant().isAfter(start.plus(maxDuration))) {
+          skipped++;
+          continue;
+        }
+        prefetch(symbol, start);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      current = null;
+      finished = clock.instant();
+      state = enabled ? State.SCHEDULED : State.DISABLED;
+      busy.set(false);
+    }
+  }
+
+  /**
+   * The symbols of a run: the watchlist, then the most requested others.
+   *
+   * @return the symbols, without duplicates
+   */
+  List<String> targets() {
+    final Set<String> symbols = new LinkedHashSet<>(watchlist);
+    symbols.addAll(traffic.popular(popular));
+    return new ArrayList<>(symbols);
+  }
+
+  /**
+   * Refresh one symbol's daily series, forecasts and sentiment.
+   *
+   * @param symbol the upper-case symbol
+   * @param since  when the run started; a daily series written since is
+   *               not fetched again
+   * @throws InterruptedException if the run is stopped
+   */
+  private void prefetch(final String symbol, final Instant since)
+      throws InterruptedException {
+    try {
+      final StockDailySeries series;
+      final boolean fetched = writtenSince(store.dailyPath(symbol), since);
+      if (!fetched && !quota.acquire(Upstreams.ALPHA_VANTAGE)) {
+        skipped++;
+        return;
+      }
+      awaitQuiet(symbol, "daily");
+      try (Deadline.Scope ignored = Deadline.after(stepTimeout).bind()) {
+        series = controller.getDailySeries(symbol, !fetched);
+      }
+      for (int horizon : horizons) {
+        awaitQuiet(symbol, "forecast-" + horizon);
+        try (Deadline.Scope ignored = Deadline.after(stepTimeout).bind()) {
+          controller.refreshForecast(symbol, horizon, series);
+        }
+      }
+      if (sentiment) {
+        if (!quota.acquire(Upstreams.FMP, Upstreams.NEWS_API)) {
+          skipped++;
+          return;
+        }
+        awaitQuiet(symbol, "sentiment");
+        try (Deadline.Scope ignored = Deadline.after(stepTimeout).bind()) {
+          controller.refreshSentiment(symbol);
+        }
+      }
+      done++;
+    } catch (InterruptedException e) {
+      throw e;
+    } catch (Exception e) {
+      failed++;
+      lastFailure = current + ": "
+          + (e.getMessage() != null ? e.getMessage() : e.toString());
+    }
+  }
+
+  /**
+   * Wait until fewer than {@code busy-requests} client requests are in
+   * flight, then mark the step as in progress.
+   *
+   * @param symbol the symbol about to be refreshed
+   * @param step   the step about to run
+   * @throws InterruptedException if the run is stopped
+   */
+  private void awaitQuiet(final String symbol, final String step)
+      throws InterruptedException {
+    current = symbol + " " + step;
+    while (traffic.inFlight() >= busyRequests) {
+      state = State.PAUSED;
+      sleeper.sleep(busyPoll.toNanos());
+    }
+    state = State.RUNNING;
+    // a step may have swallowed the interrupt that stops the run
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+  }
+
+  /**
+   * Whether a cache file has been written since the given time.
+   *
+   * @param file  the cache file
+   * @param since the time
+   * @return {@code false} if it is older or missing
+   */
+  private static boolean writtenSince(final Path file, final Instant since) {
+    try {
+      return Files.exists(file)
+          && !Files.getLastModifiedTime(file).toInstant().isBefore(since);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Parse a comma-separated symbol list.
+   *
+   * @param list the list
+   * @return the upper-case symbols, blanks dropped
+   */
+  private static List<String> symbols(final String list) {
+    return Arrays.stream(list.split(","))
+        .map(s -> s.trim().toUpperCase(Locale.ROOT))
+        .filter(s -> !s.isEmpty())
+        .toList();
+  }
+
+  /**
+   * Read a positive duration setting.
+   *
+   * @param env          the environment
+   * @param name         the setting, under {@value #PREFIX}
+   * @param defaultValue its default
+   * @return the duration
+   */
+  private static Duration duration(final Environment env, final String name,
+                                   final String defaultValue) {
+    final Duration d = DurationStyle.detectAndParse(
+        env.getProperty(PREFIX + name, defaultValue));
+    if (!d.isPositive()) {
+      throw new IllegalArgumentException(PREFIX + name + " must be positive");
+    }
+    return d;
+  }
+}
@@ -0,0 +1,117 @@
+package com.example.market.api.dto;
+
+import java.util.List;
+
+/**
+ * Body of the batch prediction endpoints: the symbols to forecast and the
+ * options shared by all of them.
+ */
+public final class BatchPredictionRequest {
+  /** Default forecast length in days. */
+  private static final int DEFAULT_HORIZON = 10;
+
+  /** Stock symbols to forecast. */
+  private List<String> symbols;
+  /** Number of days to predict. */
+  private int horizon = DEFAULT_HORIZON;
+  /** Whether to bypass cached daily series and forecasts. */
+  private boolean force;
+  /** {@code columnar} or {@code map}. */
+  private String shape = "columnar";
+  /** {@code none}, {@code 1d}, {@code 7d} or {@code 30d}. */
+  private String smoothing = "none";
+
+  /** Creates an empty {@code BatchPredictionRequest}. */
+  public BatchPredictionRequest() {
+  }
+
+  /**
+   * Getter of symbols.
+   *
+   * @return stock symbols to forecast
+   */
+  public List<String> getSymbols() {
+    return symbols;
+  }
+
+  /**
+   * Setter of symbols.
+   *
+   * @param thisSymbols stock symbols to forecast
+   */
+  public void setSymbols(final List<String> thisSymbols) {
+    this.symbols = thisSymbols;
+  }
+
+  /**
+   * Getter of horizon.
+   *
+   * @return number of days to predict
+   */
+  public int getHorizon() {
+    return horizon;
+  }
+
+  /**
+   * Setter of horizon.
+   *
+   * @param thisHorizon number of days to predict
+   */
+  public void setHorizon(final int thisHorizon) {
+    this.horizon = thisHorizon;
+  }
+
+  /**
+   * Getter of force.
+   *
+   * @return whether to bypass the caches
+   */
+  public boolean isForce() {
+    return force;
+  }
+
+  /**
+   * Setter of force.
+   *
+   * @param thisForce whether to bypass the caches
+   */
+  public void setForce(final boolean thisForce) {
+    this.force = thisForce;
+  }
+
+  /**
+   * Getter of shape.
+   *
+   * @return {@code columnar} or {@code map}
+   */
+  public String getShape() {
+    return shape;
+  }
+
+  /**
+   * Setter of shape.
+   *
+   * @param thisShape {@code columnar} or {@code map}
+   */
+  public void setShape(final String thisShape) {
+    this.shape = thisShape;
+  }
+
+  /**
+   * Getter of smoothing.
+   *
+   * @return sentiment smoothing window key, or {@code none}
+   */
+  public String getSmoothing() {
+    return smoothing;
+  }
+
+  /**
+   * Setter of smoothing.
+   *
+   * @param thisSmoothing sentiment smoothing window key, or {@code none}
+   */
+  public void setSmoothing(final String thisSmoothing) {
+    this.smoothing = thisSmoothing;
+  }
+}
@@ -0,0 +1,112 @@
+package com.example.market.api.dto;
+
+/**
+ * Optional projection and paging parameters of {@code GET /market/daily},
+ * bound from the query string. All are {@code null} when absent.
+ */
+public final class DailyQuery {
+  /** Comma-separated bar fields to keep. */
+  private String fields;
+  /** Number of most recent bars to start from. */
+  private Integer last;
+  /** Continuation token of a previous page. */
+  private String cursor;
+  /** Maximum number of bars to return. */
+  private Integer limit;
+  /** {@code rows} or {@code columnar}. */
+  private String shape;
+
+  /** Creates an empty {@code DailyQuery}. */
+  public DailyQuery() {
+  }
+
+  /**
+   * Getter of fields.
+   *
+   * @return comma-separated bar fields
+   */
+  public String getFields() {
+    return fields;
+  }
+
+  /**
+   * Setter of fields.
+   *
+   * @param thisFields comma-separated bar fields
+   */
+  public void setFields(final String thisFields) {
+    this.fields = thisFields;
+  }
+
+  /**
+   * Getter of last.
+   *
+   * @return number of most recent bars
+   */
+  public Integer getLast() {
+    return last;
+  }
+
+  /**
+   * Setter of last.
+   *
+   * @param thisLast number of most recent bars
+   */
+  public void setLast(final Integer thisLast) {
+    this.last = thisLast;
+  }
+
+  /**
+   * Getter of cursor.
+   *
+   * @return continuation token
+   */
+  public String getCursor() {
+    return cursor;
+  }
+
+  /**
+   * Setter of cursor.
+   *
+   * @param thisCursor continuation token
+   */
+  public void setCursor(final String thisCursor) {
+    this.cursor = thisCursor;
+  }
+
+  /**
+   * Getter of limit.
+   *
+   * @return maximum number of bars
+   */
+  public Integer getLimit() {
+    return limit;
+  }
+
+  /**
+   * Setter of limit.
+   *
+   * @param thisLimit maximum number of bars
+   */
+  public void setLimit(final Integer thisLimit) {
+    this.limit = thisLimit;
+  }
+
+  /**
+   * Getter of shape.
+   *
+   * @return response shape
+   */
+  public String getShape() {
+    return shape;
+  }
+
+  /**
+   * Setter of shape.
+   *
+   * @param thisShape response shape
+   */
+  public void setShape(final String thisShape) {
+    this.shape = thisShape;
+  }
+}
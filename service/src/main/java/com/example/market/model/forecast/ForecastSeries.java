@@ -0,0 +1,368 @@
+package com.example.market.model.forecast;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Date-ordered series of predicted prices backed by primitive arrays.
+ *
+ * <p>Dates are stored as epoch days and prices as doubles, so consumers
+ * can walk the series without parsing or boxing. A series may also carry
+ * lower and upper prediction bounds and the name and confidence of the
+ * model that produced it. Strings are only produced at the JSON boundary,
+ * either by {@link #toMap()} or by the columnar form written by
+ * {@link ForecastSeriesJson}.</p>
+ */
+@JsonSerialize(using = ForecastSeriesJson.Serializer.class)
+@JsonDeserialize(using = ForecastSeriesJson.Deserializer.class)
+public final class ForecastSeries {
+  /** Decimal places used when formatting prices. */
+  private static final int PRICE_SCALE = 2;
+  /** Shared empty series. */
+  private static final ForecastSeries EMPTY =
+      new ForecastSeries(new long[0], new double[0], false);
+
+  /** Epoch days, strictly increasing. */
+  private final long[] epochDays;
+  /** Predicted prices, parallel to {@link #epochDays}. */
+  private final double[] prices;
+  /** Lower prediction bounds, or {@code null} if the model gave none. */
+  private final double[] lower;
+  /** Upper prediction bounds, or {@code null} if the model gave none. */
+  private final double[] upper;
+  /** Name or version of the model, or {@code null} if unknown. */
+  private final String model;
+  /** Model confidence in {@code [0, 1]}, or {@code NaN} if unknown. */
+  private final double confidence;
+
+  /**
+   * All args constructor. The arrays are copied.
+   *
+   * @param thisEpochDays epoch days in strictly increasing order
+   * @param thisPrices    predicted prices, one per day
+   * @throws IllegalArgumentException if the lengths differ or the days
+   *         are not strictly increasing
+   */
+  public ForecastSeries(final long[] thisEpochDays,
+                        final double[] thisPrices) {
+    this(thisEpochDays.clone(), thisPrices.clone(), true);
+  }
+
+  private ForecastSeries(final long[] thisEpochDays,
+                         final double[] thisPrices,
+                         final boolean validate) {
+    if (validate) {
+      if (thisEpochDays.length != thisPrices.length) {
+        throw new IllegalArgumentException("Expected one price per day, got "
+            + thisEpochDays.length + " days and "
+            + thisPrices.length + " prices");
+      }
+      for (int i = 1; i < thisEpochDays.length; i++) {
+        if (thisEpochDays[i] <= thisEpochDays[i - 1]) {
+          throw new IllegalArgumentException(
+              "Forecast days must be strictly increasing");
+        }
+      }
+    }
+    this.epochDays = thisEpochDays;
+    this.prices = thisPrices;
+    this.lower = null;
+    this.upper = null;
+    this.model = null;
+    this.confidence = Double.NaN;
+  }
+
+  private ForecastSeries(final ForecastSeries base,
+                         final double[] thisPrices,
+                         final double[] thisLower,
+                         final double[] thisUpper,
+                         final String thisModel,
+                         final double thisConfidence) {
+    this.epochDays = base.epochDays;
+    this.prices = thisPrices;
+    this.lower = thisLower;
+    this.upper = thisUpper;
+    this.model = thisModel;
+    this.confidence = thisConfidence;
+  }
+
+  /**
+   * Empty series.
+   *
+   * @return a series with no points
+   */
+  public static ForecastSeries empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Parses a date to price map ({@code yyyy-MM-dd} keys, decimal values)
+   * into a series, rejecting any entry that does not parse.
+   *
+   * @param raw date to price map, in any order
+   * @return the series in date order
+   * @throws IllegalArgumentException if an entry cannot be parsed
+   */
+  public static ForecastSeries fromMap(final Map<String, String> raw) {
+    return fromMap(raw, (date, price) -> {
+      throw new IllegalArgumentException("Invalid forecast entry "
+          + date + "=" + price);
+    });
+  }
+
+  /**
+   * Parses a date to price map into a series. Entries whose date or price
+   * does not parse, or whose price is not finite, are handed to
+   * {@code invalid} and left out of the series.
+   *
+   * @param raw     date to price map, in any order
+   * @param invalid receives each rejected entry
+   * @return the series in date order
+   */
+  public static ForecastSeries fromMap(
+      final Map<String, String> raw,
+      final BiConsumer<String, String> invalid) {
+    if (raw == null || raw.isEmpty()) {
+      return EMPTY;
+    }
+    long[] days = new long[raw.size()];
+    double[] values = new double[raw.size()];
+    int n = 0;
+    for (Map.Entry<String, String> entry : raw.entrySet()) {
+      try {
+        final long day = LocalDate.parse(entry.getKey()).toEpochDay();
+        final double price = Double.parseDouble(entry.getValue());
+        if (!Double.isFinite(price)) {
+          throw new NumberFormatException("Non-finite price");
+        }
+        days[n] = day;
+        values[n] = price;
+        n++;
+      } catch (DateTimeParseException | NumberFormatException
+               | NullPointerException e) {
+        invalid.accept(entry.getKey(), entry.getValue());
+      }
+    }
+    return sorted(Arrays.copyOf(days, n), Arrays.copyOf(values, n));
+  }
+
+  private static ForecastSeries sorted(final long[] days,
+                                       final double[] values) {
+    // insertion sort: forecasts are short and usually nearly sorted
+    for (int i = 1; i < days.length; i++) {
+      final long day = days[i];
+      final double value = values[i];
+      int j = i - 1;
+      while (j >= 0 && days[j] > day) {
+        days[j + 1] = days[j];
+        values[j + 1] = values[j];
+        j--;
+      }
+      days[j + 1] = day;
+      values[j + 1] = value;
+    }
+    return new ForecastSeries(days, values, true);
+  }
+
+  /**
+   * Series with the same days and model metadata but new prices and no
+   * bounds. Takes ownership of {@code newPrices} without copying it.
+   *
+   * @param newPrices prices parallel to this series' days
+   * @return a series sharing this series' days
+   * @throws IllegalArgumentException if the length does not match
+   */
+  public ForecastSeries withPrices(final double[] newPrices) {
+    checkLength(newPrices, "prices");
+    return new ForecastSeries(this, newPrices, null, null, model,
+        confidence);
+  }
+
+  /**
+   * Series with prediction bounds. Takes ownership of the arrays without
+   * copying them.
+   *
+   * @param newLower lower bounds parallel to this series' days
+   * @param newUpper upper bounds parallel to this series' days
+   * @return a series with the given bounds
+   * @throws IllegalArgumentException if a length does not match
+   */
+  public ForecastSeries withBounds(final double[] newLower,
+                                   final double[] newUpper) {
+    checkLength(newLower, "lower bounds");
+    checkLength(newUpper, "upper bounds");
+    return new ForecastSeries(this, prices, newLower, newUpper, model,
+        confidence);
+  }
+
+  /**
+   * Series with model metadata.
+   *
+   * @param newModel      model name or version, or {@code null}
+   * @param newConfidence confidence in {@code [0, 1]}, or {@code NaN}
+   * @return a series with the given metadata
+   */
+  public ForecastSeries withModel(final String newModel,
+                                  final double newConfidence) {
+    return new ForecastSeries(this, prices, lower, upper, newModel,
+        newConfidence);
+  }
+
+  private void checkLength(final double[] values, final String what) {
+    if (values.length != prices.length) {
+      throw new IllegalArgumentException("Expected " + prices.length
+          + " " + what + ", got " + values.length);
+    }
+  }
+
+  /**
+   * Number of points.
+   *
+   * @return series length
+   */
+  public int size() {
+    return prices.length;
+  }
+
+  /**
+   * Whether the series has no points.
+   *
+   * @return {@code true} if empty
+   */
+  public boolean isEmpty() {
+    return prices.length == 0;
+  }
+
+  /**
+   * Epoch day of a point.
+   *
+   * @param index point index
+   * @return epoch day
+   */
+  public long epochDay(final int index) {
+    return epochDays[index];
+  }
+
+  /**
+   * Date of a point.
+   *
+   * @param index point index
+   * @return date
+   */
+  public LocalDate date(final int index) {
+    return LocalDate.ofEpochDay(epochDays[index]);
+  }
+
+  /**
+   * Price of a point.
+   *
+   * @param index point index
+   * @return predicted price
+   */
+  public double price(final int index) {
+    return prices[index];
+  }
+
+  /**
+   * Whether the series carries prediction bounds.
+   *
+   * @return {@code true} if {@link #lower(int)} and {@link #upper(int)}
+   *         may be called
+   */
+  public boolean hasBounds() {
+    return lower != null;
+  }
+
+  /**
+   * Lower prediction bound of a point.
+   *
+   * @param index point index
+   * @return lower bound
+   * @throws IllegalStateException if the series has no bounds
+   */
+  public double lower(final int index) {
+    requireBounds();
+    return lower[index];
+  }
+
+  /**
+   * Upper prediction bound of a point.
+   *
+   * @param index point index
+   * @return upper bound
+   * @throws IllegalStateException if the series has no bounds
+   */
+  public double upper(final int index) {
+    requireBounds();
+    return upper[index];
+  }
+
+  private void requireBounds() {
+    if (lower == null) {
+      throw new IllegalStateException("Forecast has no bounds");
+    }
+  }
+
+  /**
+   * Name or version of the model that produced the series.
+   *
+   * @return model name, or {@code null} if unknown
+   */
+  public String getModel() {
+    return model;
+  }
+
+  /**
+   * Confidence reported by the model.
+   *
+   * @return confidence in {@code [0, 1]}, or {@code NaN} if unknown
+   */
+  public double getConfidence() {
+    return confidence;
+  }
+
+  /**
+   * Formats the series as a date-ordered map of {@code yyyy-MM-dd} keys to
+   * prices with two decimals.
+   *
+   * @return an insertion-ordered map
+   */
+  public Map<String, String> toMap() {
+    Map<String, String> out = new LinkedHashMap<>();
+    for (int i = 0; i < prices.length; i++) {
+      out.put(date(i).toString(), formatPrice(prices[i]));
+    }
+    return out;
+  }
+
+  /**
+   * Formats a price with two decimals, rounding half up like
+   * {@code String.format("%.2f", price)} without the formatter overhead.
+   *
+   * @param price finite price
+   * @return formatted price
+   */
+  public static String formatPrice(final double price) {
+    return roundPrice(price).toPlainString();
+  }
+
+  /**
+   * Rounds a price half up to cents.
+   *
+   * @param price finite price
+   * @return the price with two decimals
+   */
+  public static BigDecimal roundPrice(final double price) {
+    return BigDecimal.valueOf(price)
+        .setScale(PRICE_SCALE, RoundingMode.HALF_UP);
+  }
+}
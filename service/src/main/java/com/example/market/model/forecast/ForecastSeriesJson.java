@@ -0,0 +1,123 @@
+package com.example.market.model.forecast;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Columnar JSON form of a {@link ForecastSeries}.
+ *
+ * <pre>
+ * {"model":"trendmaster",
+ *  "dates":["2025-12-01","2025-12-02"],
+ *  "values":[101.25,102.5],
+ *  "lower":[99.1,99.8],
+ *  "upper":[103.4,105.2]}
+ * </pre>
+ *
+ * <p>{@code model}, {@code confidence}, {@code lower} and {@code upper}
+ * are omitted when unknown. Prices are written as numbers rounded to
+ * cents.</p>
+ */
+public final class ForecastSeriesJson {
+
+  private ForecastSeriesJson() {
+  }
+
+  /** Writes a series in the columnar form. */
+  public static final class Serializer
+      extends JsonSerializer<ForecastSeries> {
+    @Override
+    public void serialize(final ForecastSeries series,
+                          final JsonGenerator gen,
+                          final SerializerProvider provider)
+        throws IOException {
+      final int n = series.size();
+      gen.writeStartObject();
+      if (series.getModel() != null) {
+        gen.writeStringField("model", series.getModel());
+      }
+      if (!Double.isNaN(series.getConfidence())) {
+        gen.writeNumberField("confidence", series.getConfidence());
+      }
+      gen.writeArrayFieldStart("dates");
+      for (int i = 0; i < n; i++) {
+        gen.writeString(series.date(i).toString());
+      }
+      gen.writeEndArray();
+      gen.writeArrayFieldStart("values");
+      for (int i = 0; i < n; i++) {
+        gen.writeNumber(ForecastSeries.roundPrice(series.price(i)));
+      }
+      gen.writeEndArray();
+      if (series.hasBounds()) {
+        gen.writeArrayFieldStart("lower");
+        for (int i = 0; i < n; i++) {
+          gen.writeNumber(ForecastSeries.roundPrice(series.lower(i)));
+        }
+        gen.writeEndArray();
+        gen.writeArrayFieldStart("upper");
+        for (int i = 0; i < n; i++) {
+          gen.writeNumber(ForecastSeries.roundPrice(series.upper(i)));
+        }
+        gen.writeEndArray();
+      }
+      gen.writeEndObject();
+    }
+  }
+
+  /** Reads a series from the columnar form. */
+  public static final class Deserializer
+      extends JsonDeserializer<ForecastSeries> {
+    @Override
+    public ForecastSeries deserialize(final JsonParser parser,
+                                      final DeserializationContext ctxt)
+        throws IOException {
+      final JsonNode root = parser.readValueAsTree();
+      final JsonNode dates = root.get("dates");
+      final JsonNode values = root.get("values");
+      if (dates == null || values == null
+          || dates.size() != values.size()) {
+        throw JsonMappingException.from(parser,
+            "Forecast needs 'dates' and 'values' of equal length");
+      }
+      ForecastSeries series;
+      try {
+        final long[] days = new long[dates.size()];
+        for (int i = 0; i < days.length; i++) {
+          days[i] = LocalDate.parse(dates.get(i).asText()).toEpochDay();
+        }
+        series = new ForecastSeries(days, doubles(values));
+        if (root.hasNonNull("lower") && root.hasNonNull("upper")) {
+          series = series.withBounds(doubles(root.get("lower")),
+              doubles(root.get("upper")));
+        }
+      } catch (IllegalArgumentException | DateTimeParseException e) {
+        throw JsonMappingException.from(parser, e.getMessage(), e);
+      }
+      final JsonNode model = root.get("model");
+      final JsonNode confidence = root.get("confidence");
+      return series.withModel(
+          model == null || model.isNull() ? null : model.asText(),
+          confidence == null || confidence.isNull()
+              ? Double.NaN : confidence.asDouble());
+    }
+
+    private static double[] doubles(final JsonNode array) {
+      final double[] out = new double[array.size()];
+      for (int i = 0; i < out.length; i++) {
+        out[i] = array.get(i).asDouble();
+      }
+      return out;
+    }
+  }
+}
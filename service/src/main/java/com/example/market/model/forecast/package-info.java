@@ -0,0 +1,4 @@
+/**
+ * Forecast data models.
+ */
+package com.example.market.model.forecast;
@@ -0,0 +1,114 @@
+package com.example.market.model.news;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of a symbol's rolling, exponentially decayed sentiment.
+ * Each window's value is a decay-weighted mean of every observation so
+ * far, so it stays on the 1-5 sentiment scale.
+ */
+public final class SentimentAggregates {
+  /** Stock symbol. */
+  private final String symbol;
+  /** Number of observations folded in. */
+  private final long observations;
+  /** ISO-8601 instant of the newest observation, or {@code null}. */
+  private final String lastObservedAt;
+  /** Score of the newest observation, or {@code 0} if none. */
+  private final int lastScore;
+  /** Decayed means indexed by {@link SentimentWindow#ordinal()}. */
+  private final double[] decayed;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisSymbol         stock symbol
+   * @param thisObservations   number of observations
+   * @param thisLastObservedAt instant of the newest observation
+   * @param thisLastScore      score of the newest observation
+   * @param thisDecayed        decayed means, one per {@link SentimentWindow}
+   */
+  public SentimentAggregates(final String thisSymbol,
+                             final long thisObservations,
+                             final String thisLastObservedAt,
+                             final int thisLastScore,
+                             final double[] thisDecayed) {
+    this.symbol = thisSymbol;
+    this.observations = thisObservations;
+    this.lastObservedAt = thisLastObservedAt;
+    this.lastScore = thisLastScore;
+    this.decayed = thisDecayed.clone();
+  }
+
+  /** Get the symbol.
+   *
+   * @return symbol
+   */
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /** Get the number of observations.
+   *
+   * @return observation count
+   */
+  public long getObservations() {
+    return observations;
+  }
+
+  /** Get the instant of the newest observation.
+   *
+   * @return ISO-8601 instant, or {@code null} if there is no history
+   */
+  public String getLastObservedAt() {
+    return lastObservedAt;
+  }
+
+  /** Get the score of the newest observation.
+   *
+   * @return last score, or {@code 0} if there is no history
+   */
+  public int getLastScore() {
+    return lastScore;
+  }
+
+  /**
+   * Decayed mean score for a window.
+   *
+   * @param window decay window
+   * @return decayed mean on the 1-5 scale, or {@code NaN} with no history
+   */
+  public double score(final SentimentWindow window) {
+    return decayed[window.ordinal()];
+  }
+
+  /**
+   * Decayed means keyed by window name ({@code 1d}, {@code 7d},
+   * {@code 30d}), for JSON output.
+   *
+   * @return ordered map of window name to decayed mean
+   */
+  public Map<String, Double> getDecayed() {
+    Map<String, Double> out = new LinkedHashMap<>();
+    if (observations == 0) {
+      return out;
+    }
+    for (SentimentWindow window : SentimentWindow.values()) {
+      out.put(window.getKey(), decayed[window.ordinal()]);
+    }
+    return out;
+  }
+
+  /**
+   * Whether any observation has been recorded.
+   *
+   * @return {@code true} if there is no history
+   */
+  @JsonIgnore
+  public boolean isEmpty() {
+    return observations == 0;
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.market.model.news;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** One sentiment reading for a symbol, as stored in its history log. */
+public final class SentimentObservation {
+  /** Stock symbol. */
+  private final String symbol;
+  /** ISO-8601 instant the reading was taken. */
+  private final String observedAt;
+  /** Sentiment score, 1 (negative) to 5 (positive). */
+  private final int sentimentScore;
+  /** Sentiment label. */
+  private final String sentimentLabel;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisSymbol         stock symbol
+   * @param thisObservedAt     ISO-8601 instant of the reading
+   * @param thisSentimentScore sentiment score (1-5)
+   * @param thisSentimentLabel sentiment label
+   */
+  @JsonCreator
+  public SentimentObservation(
+      @JsonProperty("symbol") final String thisSymbol,
+      @JsonProperty("observedAt") final String thisObservedAt,
+      @JsonProperty("sentimentScore") final int thisSentimentScore,
+      @JsonProperty("sentimentLabel") final String thisSentimentLabel) {
+    this.symbol = thisSymbol;
+    this.observedAt = thisObservedAt;
+    this.sentimentScore = thisSentimentScore;
+    this.sentimentLabel = thisSentimentLabel;
+  }
+
+  /** Get the symbol.
+   *
+   * @return symbol
+   */
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /** Get the instant of the reading.
+   *
+   * @return ISO-8601 instant
+   */
+  public String getObservedAt() {
+    return observedAt;
+  }
+
+  /** Get the sentiment score.
+   *
+   * @return sentiment score
+   */
+  public int getSentimentScore() {
+    return sentimentScore;
+  }
+
+  /** Get the sentiment label.
+   *
+   * @return sentiment label
+   */
+  public String getSentimentLabel() {
+    return sentimentLabel;
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.market.model.news;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/** Decay windows maintained for each symbol's sentiment history. */
+public enum SentimentWindow {
+  /** One-day decay window. */
+  ONE_DAY("1d", Duration.ofDays(1)),
+  /** Seven-day decay window. */
+  SEVEN_DAYS("7d", Duration.ofDays(7)),
+  /** Thirty-day decay window. */
+  THIRTY_DAYS("30d", Duration.ofDays(30));
+
+  /** Short name used in requests and JSON. */
+  private final String key;
+  /** Time constant of the exponential decay. */
+  private final Duration timeConstant;
+
+  SentimentWindow(final String thisKey, final Duration thisTimeConstant) {
+    this.key = thisKey;
+    this.timeConstant = thisTimeConstant;
+  }
+
+  /** Get the short name, e.g. {@code 7d}.
+   *
+   * @return short name
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /** Get the time constant of the decay.
+   *
+   * @return time constant
+   */
+  public Duration getTimeConstant() {
+    return timeConstant;
+  }
+
+  /**
+   * Parses a short window name such as {@code 7d}.
+   *
+   * @param value window name
+   * @return the matching window
+   * @throws IllegalArgumentException if the name is unknown
+   */
+  public static SentimentWindow fromKey(final String value) {
+    String normalized = value == null
+        ? "" : value.trim().toLowerCase(Locale.ROOT);
+    for (SentimentWindow window : values()) {
+      if (window.key.equals(normalized)) {
+        return window;
+      }
+    }
+    throw new IllegalArgumentException("Unknown sentiment window '" + value
+        + "'; expected 1d, 7d or 30d");
+  }
+}
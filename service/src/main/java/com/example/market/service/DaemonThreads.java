@@ -0,0 +1,44 @@
+package com.example.market.service;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Daemon threads for the service's background work, so that none of them
+ * keeps the JVM alive at shutdown.
+ */
+public final class DaemonThreads {
+
+  private DaemonThreads() {
+  }
+
+  /**
+   * A factory of daemon threads named with a prefix and a counter.
+   *
+   * @param prefix name prefix, e.g. {@code forecast-batch-}
+   * @return threads named {@code prefix1}, {@code prefix2}, ...
+   */
+  public static ThreadFactory numbered(final String prefix) {
+    final AtomicInteger n = new AtomicInteger();
+    return r -> create(r, prefix + n.incrementAndGet());
+  }
+
+  /**
+   * Start a task on a daemon thread of its own.
+   *
+   * @param name the thread's name
+   * @param task what it runs
+   * @return the started thread
+   */
+  public static Thread start(final String name, final Runnable task) {
+    final Thread t = create(task, name);
+    t.start();
+    return t;
+  }
+
+  private static Thread create(final Runnable task, final String name) {
+    final Thread t = new Thread(task, name);
+    t.setDaemon(true);
+    return t;
+  }
+}
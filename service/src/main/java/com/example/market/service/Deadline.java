@@ -0,0 +1,185 @@
+package com.example.market.service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time by which a request must be answered, carried along with the
+ * thread handling it.
+ *
+ * <p>The controller {@linkplain #bind() binds} a request's deadline to its
+ * thread; services then read {@link #current()} to cap their HTTP
+ * timeouts and waits with the
+ * {@linkplain #remaining(Duration) remaining budget}, and register
+ * {@linkplain #onExpiry(Runnable) expiry actions} that kill the Python
+ * processes they start, so nothing keeps running for a client that has
+ * already given up. A thread without a bound deadline sees
+ * {@link #none()}, which never expires.</p>
+ */
+public final class Deadline {
+  /** The deadline of the request each thread is handling. */
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+  /** A deadline that never expires. */
+  private static final Deadline NONE = new Deadline(0L, false);
+  /** Runs expiry actions. */
+  private static final ScheduledExecutorService TIMER =
+      Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread t = new Thread(r, "deadline-timer");
+        t.setDaemon(true);
+        return t;
+      });
+
+  /** {@link System#nanoTime()} at expiry; unused when unbounded. */
+  private final long expiresAt;
+  /** Whether this deadline expires at all. */
+  private final boolean bounded;
+
+  private Deadline(final long thisExpiresAt, final boolean thisBounded) {
+    this.expiresAt = thisExpiresAt;
+    this.bounded = thisBounded;
+  }
+
+  /**
+   * A deadline that never expires.
+   *
+   * @return the unbounded deadline
+   */
+  public static Deadline none() {
+    return NONE;
+  }
+
+  /**
+   * A deadline {@code budget} from now.
+   *
+   * @param budget time left to answer
+   * @return the deadline
+   * @throws IllegalArgumentException if the budget is not positive
+   */
+  public static Deadline after(final Duration budget) {
+    if (!budget.isPositive()) {
+      throw new IllegalArgumentException("deadline budget must be positive");
+    }
+    return new Deadline(System.nanoTime() + budget.toNanos(), true);
+  }
+
+  /**
+   * The deadline bound to the calling thread.
+   *
+   * @return the bound deadline, or {@link #none()}
+   */
+  public static Deadline current() {
+    final Deadline d = CURRENT.get();
+    return d == null ? NONE : d;
+  }
+
+  /**
+   * Make this the calling thread's deadline until the scope is closed.
+   *
+   * @return the scope; closing it restores the previous deadline
+   */
+  public Scope bind() {
+    final Deadline previous = CURRENT.get();
+    CURRENT.set(this);
+    return () -> {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  /**
+   * Whether this deadline expires at all.
+   *
+   * @return {@code false} for {@link #none()}
+   */
+  public boolean isBounded() {
+    return bounded;
+  }
+
+  /**
+   * Whether the deadline has passed.
+   *
+   * @return {@code true} once no budget is left
+   */
+  public boolean isExpired() {
+    return bounded && expiresAt - System.nanoTime() <= 0;
+  }
+
+  /**
+   * The budget left, for timed waits.
+   *
+   * @return nanoseconds until expiry, never negative; {@link Long#MAX_VALUE}
+   *         when unbounded
+   */
+  public long remainingNanos() {
+    return bounded ? Math.max(0L, expiresAt - System.nanoTime())
+        : Long.MAX_VALUE;
+  }
+
+  /**
+   * The budget left, capped at {@code limit}.
+   *
+   * @param limit the longest wait the caller would accept anyway
+   * @return the smaller of {@code limit} and the time left, never
+   *         negative
+   */
+  public Duration remaining(final Duration limit) {
+    final long left = remainingNanos();
+    return left < limit.toNanos() ? Duration.ofNanos(left) : limit;
+  }
+
+  /**
+   * Fail if the deadline has passed.
+   *
+   * @param stage what was about to start, for the message
+   * @throws DeadlineExceededException if no budget is left
+   */
+  public void check(final String stage) {
+    if (isExpired()) {
+      throw new DeadlineExceededException(stage);
+    }
+  }
+
+  /**
+   * Run an action when the deadline passes, typically killing a process
+   * whose output the caller is blocked reading.
+   *
+   * @param action what to do at expiry; runs right away if the deadline
+   *               has already passed, on a timer thread otherwise
+   * @return a registration; closing it cancels the action if it has not
+   *         run yet
+   */
+  public Registration onExpiry(final Runnable action) {
+    if (!bounded) {
+      return () -> { };
+    }
+    if (isExpired()) {
+      action.run();
+      return () -> { };
+    }
+    final ScheduledFuture<?> timer = TIMER.schedule(action,
+        expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+    return () -> timer.cancel(false);
+  }
+
+  /** A deadline bound to a thread. */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    /** Restore the thread's previous deadline. */
+    @Override
+    void close();
+  }
+
+  /** An expiry action waiting to run. */
+  @FunctionalInterface
+  public interface Registration extends AutoCloseable {
+    /** Cancel the action if it has not run yet. */
+    @Override
+    void close();
+  }
+}
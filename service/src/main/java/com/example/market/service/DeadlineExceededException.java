@@ -0,0 +1,18 @@
+package com.example.market.service;
+
+/**
+ * Thrown when a request's {@link Deadline} passes before a stage of it
+ * has finished.
+ */
+public class DeadlineExceededException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * All args constructor.
+   *
+   * @param stage the stage that ran out of time
+   */
+  public DeadlineExceededException(final String stage) {
+    super("Deadline exceeded during " + stage);
+  }
+}
@@ -0,0 +1,215 @@
+package com.example.market.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency of each stage of the composite pipeline, as Micrometer timers
+ * with percentile histograms.
+ *
+ * <p>Every stage is timed as {@value #STAGE_TIMER}, tagged with the
+ * {@code stage}, the {@code endpoint} whose request ran it and the
+ * {@code outcome}; cache file lookups are timed as {@value #CACHE_TIMER},
+ * tagged with the {@code cache}, its {@code tier}, the {@code endpoint}
+ * and whether it was a {@value #HIT} or a {@value #MISS}.</p>
+ *
+ * <p>The endpoint is carried along with the thread handling the request,
+ * like its {@link Deadline}: the web layer {@linkplain #bindEndpoint
+ * binds} it, and work done on shared threads, such as a TrendMaster run
+ * serving several requests at once, is tagged {@value #NO_ENDPOINT}.
+ * Meters go to {@link Metrics#globalRegistry}, which Spring Boot links to
+ * the registry the actuator exports. Each timer is built once per set of
+ * tags and then looked up, since building one with a histogram on every
+ * call costs more than the lookups it times.</p>
+ */
+public final class PipelineMetrics {
+  /** Stage timer name. */
+  public static final String STAGE_TIMER = "market.pipeline.stage";
+  /** Cache lookup timer name. */
+  public static final String CACHE_TIMER = "market.cache.lookup";
+  /** Endpoint tag of work done outside a request. */
+  public static final String NO_ENDPOINT = "none";
+
+  /** Outcome of a stage that finished normally. */
+  public static final String SUCCESS = "success";
+  /** Outcome of a stage that failed. */
+  public static final String ERROR = "error";
+  /** Outcome of a stage cut short by its request's deadline. */
+  public static final String TIMEOUT = "timeout";
+  /** Outcome of a call a dependency's guard turned away. */
+  public static final String REJECTED = "rejected";
+  /** Outcome of a lookup answered from cache. */
+  public static final String HIT = "hit";
+  /** Outcome of a lookup the cache could not answer. */
+  public static final String MISS = "miss";
+
+  /** Starting a Python process. */
+  public static final String PYTHON_SPAWN = "python-spawn";
+  /** Python imports and model weights, as reported by the script. */
+  public static final String MODEL_LOAD = "model-load";
+  /** Running the model, as reported by the script. */
+  public static final String INFERENCE = "inference";
+  /** Reading a forecast from the script's output. */
+  public static final String OUTPUT_PARSE = "output-parse";
+  /** Adjusting a forecast with a sentiment score. */
+  public static final String SENTIMENT_ADJUSTMENT = "sentiment-adjustment";
+  /** Cache files kept by the web layer. */
+  public static final String FILE_TIER = "file";
+
+  /** Longest stage the histograms resolve; a cold forecast takes minutes. */
+  private static final Duration MAX_EXPECTED = Duration.ofMinutes(10);
+
+  /** The endpoint of the request each thread is handling. */
+  private static final ThreadLocal<String> ENDPOINT = new ThreadLocal<>();
+
+  /** Stage timers keyed by stage, endpoint and outcome. */
+  private static final ConcurrentMap<List<String>, Timer> STAGES =
+      new ConcurrentHashMap<>();
+  /** Cache timers keyed by cache, tier, endpoint and outcome. */
+  private static final ConcurrentMap<List<String>, Timer> CACHES =
+      new ConcurrentHashMap<>();
+
+  private PipelineMetrics() {
+  }
+
+  /**
+   * Tag the calling thread's stages with an endpoint until the scope is
+   * closed.
+   *
+   * @param endpoint the endpoint's path pattern, e.g.
+   *                 {@code /market/predict}
+   * @return the scope; closing it restores the previous endpoint
+   */
+  public static Scope bindEndpoint(final String endpoint) {
+    final String previous = ENDPOINT.get();
+    ENDPOINT.set(endpoint);
+    return () -> {
+      if (previous == null) {
+        ENDPOINT.remove();
+      } else {
+        ENDPOINT.set(previous);
+      }
+    };
+  }
+
+  /**
+   * The endpoint bound to the calling thread.
+   *
+   * @return the endpoint, or {@value #NO_ENDPOINT}
+   */
+  public static String endpoint() {
+    final String e = ENDPOINT.get();
+    return e == null ? NO_ENDPOINT : e;
+  }
+
+  /**
+   * Record a stage that has already run.
+   *
+   * @param stage   the stage
+   * @param outcome how it ended, e.g. {@value #SUCCESS}
+   * @param nanos   how long it took
+   */
+  public static void record(final String stage, final String outcome,
+                            final long nanos) {
+    final String endpoint = endpoint();
+    STAGES.computeIfAbsent(List.of(stage, endpoint, outcome),
+        tags -> Timer.builder(STAGE_TIMER)
+            .description("Time spent in each stage of the market pipeline")
+            .tag("stage", stage)
+            .tag("endpoint", endpoint)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .maximumExpectedValue(MAX_EXPECTED)
+            .register(registry()))
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Record a cache lookup.
+   *
+   * @param cache what is cached, e.g. {@code daily}
+   * @param tier  where, e.g. {@value #FILE_TIER}
+   * @param hit   whether the cache answered
+   * @param nanos how long the lookup took
+   */
+  public static void recordCache(final String cache, final String tier,
+                                 final boolean hit, final long nanos) {
+    final String endpoint = endpoint();
+    final String outcome = hit ? HIT : MISS;
+    CACHES.computeIfAbsent(List.of(cache, tier, endpoint, outcome),
+        tags -> Timer.builder(CACHE_TIMER)
+            .description("Time spent looking up cached market data")
+            .tag("cache", cache)
+            .tag("tier", tier)
+            .tag("endpoint", endpoint)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(registry()))
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Run and time a stage.
+   *
+   * @param stage the stage
+   * @param call  the work
+   * @param <T>   its result type
+   * @return its result
+   * @throws Exception whatever the work throws
+   */
+  public static <T> T time(final String stage, final Callable<T> call)
+      throws Exception {
+    final long started = System.nanoTime();
+    String outcome = ERROR;
+    try {
+      final T result = call.call();
+      outcome = SUCCESS;
+      return result;
+    } catch (DeadlineExceededException e) {
+      outcome = TIMEOUT;
+      throw e;
+    } finally {
+      record(stage, outcome, System.nanoTime() - started);
+    }
+  }
+
+  /**
+   * Run and time a stage that throws no checked exceptions.
+   *
+   * @param stage the stage
+   * @param call  the work
+   * @param <T>   its result type
+   * @return its result
+   */
+  public static <T> T timed(final String stage, final Supplier<T> call) {
+    try {
+      return time(stage, call::get);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      // a Supplier cannot throw a checked exception
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MeterRegistry registry() {
+    return Metrics.globalRegistry;
+  }
+
+  /** An endpoint bound to a thread. */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    /** Restore the thread's previous endpoint. */
+    @Override
+    void close();
+  }
+}
@@ -1,13 +1,13 @@
 package com.example.market.service.analysis;
 
+import com.example.market.model.forecast.ForecastSeries;
 import com.example.market.model.news.SentimentResult;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.function.Function;
 
 /**
  * Service that adjusts stock price predictions based on news sentiment analysis
@@ -25,6 +25,18 @@ public class AdjustedPredictionService {
   /** Neutral sentiment score (no adjustment). */
   private static final int NEUTRAL_SENTIMENT = 3;
 
+  /** Horizons, in days, covered by the precomputed decay table. */
+  private static final int DECAY_TABLE_DAYS = 366;
+
+  /** {@code exp(-TIME_DECAY_RATE * d)} for every day {@code d} in a year. */
+  private static final double[] DECAY_TABLE = new double[DECAY_TABLE_DAYS];
+
+  static {
+    for (int d = 0; d < DECAY_TABLE_DAYS; d++) {
+      DECAY_TABLE[d] = Math.exp(-TIME_DECAY_RATE * d);
+    }
+  }
+
   /**
    * Adjusts stock price predictions based on news sentiment analysis.
    * Uses a sophisticated non-linear formula with time decay to model how
@@ -49,72 +61,150 @@ public class AdjustedPredictionService {
       return new HashMap<>(stockPricePredictions);
     }
 
-    final int sentimentScore = newsSentimentPrediction.getSentimentScore();
-
-    // Normalize sentiment to [-1, 1] range (-1 neg, 1 pos)
-    final double normalizedSentiment = normalizeSentiment(sentimentScore);
-
-    // Lambda for sentiment adjustment factor (non-linear, exponential)
-    final Function<Double, Double> sentimentAdjustmentFactor =
-        (sentiment) -> BASE_SENTIMENT_STRENGTH * Math.tanh(2.0 * sentiment);
+    return adjustPricesWithSentiment(stockPricePredictions,
+        (double) newsSentimentPrediction.getSentimentScore());
+  }
 
-    // Lambda function for time decay for a given day index
-    final Function<Integer, Double> timeDecayFactor =
-        (dayIndex) -> Math.exp(-TIME_DECAY_RATE * dayIndex);
+  /**
+   * Adjusts stock price predictions with a continuous sentiment score,
+   * such as a decayed mean from the sentiment history.
+   *
+   * <p>The map is parsed once into a {@link ForecastSeries}; entries whose
+   * date or price does not parse keep their original value and are listed
+   * after the adjusted ones.</p>
+   *
+   * @param stockPricePredictions a {@code Map} where keys are dates
+   *                              and values are predicted closing prices
+   * @param sentimentScore sentiment on the 1-5 scale; fractional values
+   *                       (e.g. a smoothed 3.6) are allowed
+   * @return a date-ordered {@code Map} with the same keys but
+   *         sentiment-adjusted prices (as strings)
+   */
+  public Map<String, String> adjustPricesWithSentiment(
+          final Map<String, String> stockPricePredictions,
+          final double sentimentScore) {
 
-    // Calculate base adjustment multiplier from sentiment
-    final double baseAdjustment =
-        sentimentAdjustmentFactor.apply(normalizedSentiment);
+    if (stockPricePredictions == null || stockPricePredictions.isEmpty()) {
+      return new HashMap<>();
+    }
 
-    final Map<String, String> adjustedPredictions = new HashMap<>();
-    final LocalDate today = LocalDate.now();
-    final DateTimeFormatter formatter =
-        DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    final Map<String, String> unparsed = new LinkedHashMap<>();
+    final ForecastSeries series =
+        ForecastSeries.fromMap(stockPricePredictions, unparsed::put);
 
-    int dayIndex = 0;
-    for (Map.Entry<String, String> entry : stockPricePredictions.entrySet()) {
-      try {
-        final String dateStr = entry.getKey();
-        final String priceStr = entry.getValue();
+    final Map<String, String> adjustedPredictions =
+        adjust(series, sentimentScore).toMap();
+    adjustedPredictions.putAll(unparsed);
+    return adjustedPredictions;
+  }
 
-        // Parse the date to calculate days from today
-        final LocalDate predictionDate = LocalDate.parse(dateStr, formatter);
-        final long daysFromToday = java.time.temporal.ChronoUnit.DAYS
-                .between(today, predictionDate);
-        dayIndex = (int) Math.max(0, daysFromToday);
+  /**
+   * Adjusts a typed forecast with a sentiment score, measuring horizons
+   * from today. Prediction bounds, if any, are scaled by the same factor
+   * as the price of their day, and the model metadata is kept.
+   *
+   * @param series forecast to adjust
+   * @param sentimentScore sentiment on the 1-5 scale
+   * @return a series with the same days and adjusted prices
+   */
+  public ForecastSeries adjust(final ForecastSeries series,
+                               final double sentimentScore) {
+    if (series.isEmpty()) {
+      return series;
+    }
+    final int n = series.size();
+    final long today = LocalDate.now().toEpochDay();
+    final double[] out = new double[n];
+    adjustInto(series, sentimentScore, today, out);
+    final ForecastSeries adjusted = series.withPrices(out);
+    if (!series.hasBounds()) {
+      return adjusted;
+    }
+    final double base = baseAdjustment(sentimentScore);
+    final double[] lower = new double[n];
+    final double[] upper = new double[n];
+    for (int i = 0; i < n; i++) {
+      final double factor = factor(base, series.epochDay(i) - today);
+      lower[i] = series.lower(i) * factor;
+      upper[i] = series.upper(i) * factor;
+    }
+    return adjusted.withBounds(lower, upper);
+  }
 
-        // Parse original price
-        final double originalPrice = Double.parseDouble(priceStr);
+  /**
+   * Writes sentiment-adjusted prices for {@code series} into {@code out}.
+   *
+   * <p>This is the hot loop: it neither allocates nor boxes. The
+   * sentiment factor is computed once per call and the time decay comes
+   * from a precomputed table.</p>
+   *
+   * @param series forecast to adjust
+   * @param sentimentScore sentiment on the 1-5 scale
+   * @param todayEpochDay epoch day horizons are measured from; earlier
+   *                      days count as day 0 (maximum impact)
+   * @param out receives one adjusted price per point
+   * @throws IllegalArgumentException if {@code out} is too short
+   */
+  public void adjustInto(final ForecastSeries series,
+                         final double sentimentScore,
+                         final long todayEpochDay,
+                         final double[] out) {
+    final int n = series.size();
+    if (out.length < n) {
+      throw new IllegalArgumentException("Output holds " + out.length
+          + " prices but the forecast has " + n);
+    }
 
-        // Calculate time-decayed adjustment factor
-        final double decayFactor = timeDecayFactor.apply(dayIndex);
-        final double effectiveAdjustment = baseAdjustment * decayFactor;
+    final double base = baseAdjustment(sentimentScore);
+    for (int i = 0; i < n; i++) {
+      out[i] = series.price(i)
+          * factor(base, series.epochDay(i) - todayEpochDay);
+    }
+  }
 
-        // Apply adjustment: positive sentiment increases price,
-        // negative decreases. Uses multiplicative adjustment.
-        final double adjustedPrice =
-            originalPrice * (1.0 + effectiveAdjustment);
+  /**
+   * Non-linear (tanh) sentiment factor on the [-1, 1] normalised score.
+   *
+   * @param sentimentScore sentiment on the 1-5 scale
+   * @return relative adjustment on day 0
+   */
+  private static double baseAdjustment(final double sentimentScore) {
+    return BASE_SENTIMENT_STRENGTH
+        * Math.tanh(2.0 * normalizeSentiment(sentimentScore));
+  }
 
-        // Format adjusted price to 2 decimal places
-        adjustedPredictions.put(dateStr,
-            String.format("%.2f", adjustedPrice));
+  /**
+   * Multiplicative adjustment for one day. Positive sentiment increases
+   * price, negative decreases, and the effect fades with the horizon.
+   *
+   * @param base relative adjustment on day 0
+   * @param daysFromToday horizon; past days count as day 0
+   * @return price multiplier
+   */
+  private static double factor(final double base, final long daysFromToday) {
+    return 1.0 + base * timeDecay(Math.max(0L, daysFromToday));
+  }
 
-      } catch (Exception e) {
-        // If parsing fails, keep original value
-        adjustedPredictions.put(entry.getKey(), entry.getValue());
-      }
+  /**
+   * Time decay factor {@code exp(-TIME_DECAY_RATE * dayIndex)}.
+   *
+   * @param dayIndex days from today, non-negative
+   * @return decay factor in {@code (0, 1]}
+   */
+  static double timeDecay(final long dayIndex) {
+    if (dayIndex < DECAY_TABLE.length) {
+      return DECAY_TABLE[(int) dayIndex];
     }
-
-    return adjustedPredictions;
+    return Math.exp(-TIME_DECAY_RATE * dayIndex);
   }
 
   /**
    * @param sentimentScore the raw sentiment score (1-5)
    * @return normalized sentiment in [-1, 1] range
    */
-  private double normalizeSentiment(final int sentimentScore) {
+  private static double normalizeSentiment(final double sentimentScore) {
     // Clamp to valid range
-    final int clamped = Math.max(1, Math.min(5, sentimentScore));
+    final double clamped = Math.max(1.0, Math.min(5.0, sentimentScore));
     // Linear mapping: 1 -> -1, 3 -> 0, 5 -> 1
     return (clamped - NEUTRAL_SENTIMENT) / 2.0;
   }
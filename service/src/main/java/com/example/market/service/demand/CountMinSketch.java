@@ -0,0 +1,135 @@
+package com.example.market.service.demand;
+
+/**
+ * Approximate counts of many keys in fixed memory: {@code depth} rows of
+ * {@code width} counters, each key counted in one counter per row, picked
+ * by a row-specific hash. Each row hashes the key's characters to 64 bits
+ * from its own seed, so keys that share a {@code String.hashCode()} still
+ * land apart, and two keys colliding in one row rarely collide in the
+ * others. A key's estimate is the smallest of its
+ * counters, so it is never below the true count and only above it by
+ * what colliding keys added.
+ *
+ * <p>Increments are conservative: only the counters holding the current
+ * minimum are raised, which keeps collisions from inflating the others.
+ * Not thread-safe; {@link SymbolDemand} serializes access.</p>
+ */
+final class CountMinSketch {
+  /** Row seed step, from the golden ratio. */
+  private static final long SEED = 0x9E3779B97F4A7C15L;
+  /** FNV-1a's 64-bit prime, folding in one character at a time. */
+  private static final long PRIME = 0x100000001B3L;
+  /** First multiplier of MurmurHash3's 64-bit finalizer. */
+  private static final long MIX1 = 0xFF51AFD7ED558CCDL;
+  /** Second multiplier of MurmurHash3's 64-bit finalizer. */
+  private static final long MIX2 = 0xC4CEB9FE1A85EC53L;
+  /** Shift of MurmurHash3's 64-bit finalizer. */
+  private static final int SHIFT = 33;
+
+  /** Counters by row and column. */
+  private final int[][] counters;
+  /** Column mask; the width is a power of two. */
+  private final int mask;
+  /** The last key's column in each row, reused between calls. */
+  private final int[] columns;
+
+  /**
+   * Empty sketch.
+   *
+   * @param width counters per row, rounded up to a power of two
+   * @param depth rows
+   * @throws IllegalArgumentException if either is not positive
+   */
+  CountMinSketch(final int width, final int depth) {
+    if (width < 1 || depth < 1) {
+      throw new IllegalArgumentException(
+          "sketch width and depth must be positive");
+    }
+    final int rounded = Integer.highestOneBit(width) == width
+        ? width : Integer.highestOneBit(width) << 1;
+    this.counters = new int[depth][rounded];
+    this.mask = rounded - 1;
+    this.columns = new int[depth];
+  }
+
+  /**
+   * Count one occurrence of a key.
+   *
+   * @param key the key
+   * @return the key's estimate, including this occurrence
+   */
+  int add(final String key) {
+    final int estimate = locate(key) + 1;
+    for (int row = 0; row < counters.length; row++) {
+      final int[] r = counters[row];
+      if (r[columns[row]] < estimate) {
+        r[columns[row]] = estimate;
+      }
+    }
+    return estimate;
+  }
+
+  /**
+   * Estimated occurrences of a key.
+   *
+   * @param key the key
+   * @return at least the number of times it was added since the counts
+   *         were last halved
+   */
+  int estimate(final String key) {
+    return locate(key);
+  }
+
+  /** Halve every counter, so older occurrences weigh less. */
+  void halve() {
+    for (int[] row : counters) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] >>>= 1;
+      }
+    }
+  }
+
+  /**
+   * Counters per row.
+   *
+   * @return the width after rounding
+   */
+  int width() {
+    return mask + 1;
+  }
+
+  /**
+   * Finds a key's column in every row, leaving them in {@link #columns},
+   * and returns the smallest of its counters.
+   *
+   * @param key the key
+   * @return the estimate
+   */
+  private int locate(final String key) {
+    int min = Integer.MAX_VALUE;
+    for (int row = 0; row < counters.length; row++) {
+      columns[row] = column(key, row);
+      min = Math.min(min, counters[row][columns[row]]);
+    }
+    return min;
+  }
+
+  /**
+   * A key's counter in one row: FNV-1a over the key's characters, started
+   * from a row seed, then put through MurmurHash3's finalizer so the low
+   * bits used as the column depend on every character.
+   *
+   * @param key the key
+   * @param row the row
+   * @return the column
+   */
+  private int column(final String key, final int row) {
+    long h = (row + 1) * SEED;
+    for (int i = 0; i < key.length(); i++) {
+      h = (h ^ key.charAt(i)) * PRIME;
+    }
+    h = (h ^ (h >>> SHIFT)) * MIX1;
+    h = (h ^ (h >>> SHIFT)) * MIX2;
+    return (int) (h ^ (h >>> SHIFT)) & mask;
+  }
+}
@@ -0,0 +1,225 @@
+package com.example.market.service.demand;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * How often each symbol is requested, in fixed memory however many
+ * different symbols clients ask for.
+ *
+ * <p>Requests are counted in a {@link CountMinSketch}, and the
+ * {@code top} most requested symbols are kept in a min-heap of their
+ * estimates, so the heaviest hitters can be listed without scanning every
+ * symbol ever seen. Both decay: every {@code sample} requests, and
+ * whenever {@link #decay()} is called, all counts are halved, so demand
+ * follows recent traffic and a symbol that stops being asked for drops
+ * out. Configured under {@code market.demand}: the sketch's
+ * {@code width} and {@code depth}, {@code top} and {@code sample}.</p>
+ *
+ * <p>A request for a symbol already kept only updates its estimate; the
+ * heap goes on ordering it by the older, lower one until that entry
+ * reaches the top and would be evicted, when it is moved down to its
+ * current estimate instead. Estimates only grow between halvings, so the
+ * symbol evicted is still the least requested.</p>
+ *
+ * <p>Estimates never undercount; they may overcount by what other symbols
+ * sharing every one of a symbol's counters added.</p>
+ */
+@Component
+public class SymbolDemand {
+  /** Configuration prefix. */
+  private static final String PREFIX = "market.demand.";
+  /** Default counters per sketch row. */
+  private static final int DEFAULT_WIDTH = 4096;
+  /** Default sketch rows. */
+  private static final int DEFAULT_DEPTH = 4;
+  /** Default number of heavy hitters kept. */
+  private static final int DEFAULT_TOP = 500;
+  /** Default requests between halvings, per sketch counter. */
+  private static final int SAMPLE_PER_COUNTER = 10;
+
+  /** A symbol among the heaviest hitters, with its estimate. */
+  private static final class Hitter {
+    /** The symbol. */
+    private final String symbol;
+    /** Its estimate when last requested or halved. */
+    private long count;
+    /** The estimate that orders it in the heap; at most {@link #count}. */
+    private long queued;
+
+    /**
+     * New hitter.
+     *
+     * @param thisSymbol the symbol
+     * @param thisCount  its estimate
+     */
+    Hitter(final String thisSymbol, final long thisCount) {
+      this.symbol = thisSymbol;
+      this.count = thisCount;
+      this.queued = thisCount;
+    }
+  }
+
+  /** Request counts. */
+  private final CountMinSketch sketch;
+  /** Heavy hitters kept. */
+  private final int top;
+  /** Requests between halvings. */
+  private final long sample;
+  /** Heavy hitters, least requested first. */
+  private final PriorityQueue<Hitter> heap = new PriorityQueue<>(
+      Comparator.comparingLong((Hitter h) -> h.queued));
+  /** Heavy hitters by symbol. */
+  private final Map<String, Hitter> hitters = new HashMap<>();
+  /** Requests counted since the last halving. */
+  private long recorded;
+
+  /**
+   * Reads the settings from configuration.
+   *
+   * @param env the application's environment
+   */
+  @Autowired
+  public SymbolDemand(final Environment env) {
+    this(env.getProperty(PREFIX + "width", Integer.class, DEFAULT_WIDTH),
+        env.getProperty(PREFIX + "depth", Integer.class, DEFAULT_DEPTH),
+        env.getProperty(PREFIX + "top", Integer.class, DEFAULT_TOP),
+        env.getProperty(PREFIX + "sample", Long.class, 0L));
+  }
+
+  /**
+   * All args constructor.
+   *
+   * @param width      counters per sketch row
+   * @param depth      sketch rows
+   * @param thisTop    heavy hitters kept
+   * @param thisSample requests between halvings; 0 for ten per counter
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public SymbolDemand(final int width, final int depth, final int thisTop,
+                      final long thisSample) {
+    if (thisTop < 1 || thisSample < 0) {
+      throw new IllegalArgumentException(PREFIX + "top must be positive "
+          + "and " + PREFIX + "sample must not be negative");
+    }
+    this.sketch = new CountMinSketch(width, depth);
+    this.top = thisTop;
+    this.sample = thisSample > 0 ? thisSample
+        : (long) SAMPLE_PER_COUNTER * sketch.width();
+  }
+
+  /**
+   * Count one request for a symbol.
+   *
+   * @param symbol the normalized symbol
+   */
+  public synchronized void record(final String symbol) {
+    final long estimate = sketch.add(symbol);
+    final Hitter known = hitters.get(symbol);
+    if (known != null) {
+      known.count = estimate;
+    } else if (hitters.size() < top) {
+      admit(symbol, estimate);
+    } else if (estimate > least().count) {
+      hitters.remove(heap.poll().symbol);
+      admit(symbol, estimate);
+    }
+    if (++recorded >= sample) {
+      decay();
+    }
+  }
+
+  /**
+   * Estimated recent requests for a symbol.
+   *
+   * @param symbol the normalized symbol
+   * @return the estimate; never below the true count since the counts
+   *         were last halved
+   */
+  public synchronized long estimate(final String symbol) {
+    return sketch.estimate(symbol);
+  }
+
+  /**
+   * The most requested symbols with their estimates.
+   *
+   * @param limit most symbols to return
+   * @return estimates by symbol, most requested first; ties in name
+   *         order
+   */
+  public synchronized Map<String, Long> top(final int limit) {
+    final List<Hitter> sorted = new ArrayList<>(heap);
+    sorted.sort(Comparator.comparingLong((Hitter h) -> -h.count)
+        .thenComparing(h -> h.symbol));
+    final Map<String, Long> out = new LinkedHashMap<>();
+    for (Hitter h : sorted.subList(0, Math.min(limit, sorted.size()))) {
+      out.put(h.symbol, h.count);
+    }
+    return out;
+  }
+
+  /**
+   * Heavy hitters kept.
+   *
+   * @return the configured {@code top}
+   */
+  public int capacity() {
+    return top;
+  }
+
+  /**
+   * Halve every count, dropping heavy hitters no longer requested.
+   * Halving keeps the heap's order, so it needs no rebuilding.
+   */
+  public synchronized void decay() {
+    sketch.halve();
+    recorded = 0;
+    heap.removeIf(h -> {
+      h.count /= 2;
+      h.queued /= 2;
+      if (h.count == 0) {
+        hitters.remove(h.symbol);
+        return true;
+      }
+      return false;
+    });
+  }
+
+  /**
+   * The least requested heavy hitter, first moving any entries at the top
+   * of the heap whose estimate has grown since they were queued.
+   *
+   * @return the heap's head, queued at its current estimate
+   */
+  private Hitter least() {
+    Hitter head = heap.peek();
+    while (head.queued < head.count) {
+      heap.poll();
+      head.queued = head.count;
+      heap.add(head);
+      head = heap.peek();
+    }
+    return head;
+  }
+
+  /**
+   * Add a heavy hitter.
+   *
+   * @param symbol   the symbol
+   * @param estimate its estimate
+   */
+  private void admit(final String symbol, final long estimate) {
+    final Hitter h = new Hitter(symbol, estimate);
+    hitters.put(symbol, h);
+    heap.add(h);
+  }
+}
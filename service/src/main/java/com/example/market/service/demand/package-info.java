@@ -0,0 +1,5 @@
+/**
+ * Estimates of how often each symbol is requested, for deciding what to
+ * cache and what to refresh ahead of demand.
+ */
+package com.example.market.service.demand;
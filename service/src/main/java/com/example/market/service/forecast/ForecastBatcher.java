@@ -0,0 +1,286 @@
+package com.example.market.service.forecast;
+
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.DaemonThreads;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
+import com.example.market.service.forecast.python.PythonService;
+import com.example.market.service.forecast.python.TrendMasterWorkerPool;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Gathers concurrent forecast requests into one TrendMaster run.
+ *
+ * <p>The first request for a horizon opens a batch; requests arriving
+ * within the batching window join it, and the batch is sent as soon as
+ * the window ends or it holds {@code maxSize} symbols. Requests for the
+ * same symbol and horizon share one slot. Each caller blocks until its
+ * own symbol's result is parsed from the batch output, so a symbol the
+ * script fails on fails only its own callers.</p>
+ *
+ * <p>Interrupting a caller, or its request {@link Deadline} passing,
+ * abandons its wait. When every caller of a batch has given up, the batch
+ * is withdrawn, or its run is interrupted: a worker finishes the request
+ * and keeps its state, while an isolated Python process is killed.</p>
+ *
+ * <p>Batches run on the {@link TrendMasterWorkerPool}, which splits them
+ * by the worker holding each symbol's state.</p>
+ */
+@Service
+public class ForecastBatcher implements DisposableBean {
+
+  /** Default time a batch stays open for more requests. */
+  private static final Duration DEFAULT_WINDOW = Duration.ofMillis(5);
+  /** Default most symbols per run. */
+  private static final int DEFAULT_MAX_SIZE = 8;
+
+  /** Parses the batch output. */
+  private final PythonService pythonService;
+  /** Runs the batches. */
+  private final TrendMasterWorkerPool workers;
+  /** Time a batch stays open for more requests. */
+  private final Duration window;
+  /** Most symbols per run. */
+  private final int maxSize;
+  /** Batches still accepting requests, by horizon. */
+  private final Map<Integer, Batch> open = new HashMap<>();
+  /** Guards {@link #open} and the batches' bookkeeping. */
+  private final Object lock = new Object();
+  /** Runs the batches that are sent. */
+  private final ExecutorService runners;
+  /** Closes batching windows. */
+  private final ScheduledExecutorService timer;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisPythonService parses the batch output
+   * @param thisWorkers       runs the batches
+   * @param thisWindow        time a batch stays open for more requests;
+   *                          zero sends every request on its own
+   * @param thisMaxSize       most symbols per run
+   */
+  @Autowired
+  public ForecastBatcher(
+      final PythonService thisPythonService,
+      final TrendMasterWorkerPool thisWorkers,
+      @Value("${market.forecast.batch.window:PT0.005S}")
+      final Duration thisWindow,
+      @Value("${market.forecast.batch.max-size:8}") final int thisMaxSize) {
+    if (thisWindow.isNegative() || thisMaxSize < 1) {
+      throw new IllegalArgumentException("market.forecast.batch window "
+          + "must not be negative and max-size must be positive");
+    }
+    this.pythonService = thisPythonService;
+    this.workers = thisWorkers;
+    this.window = thisWindow;
+    this.maxSize = thisMaxSize;
+    this.runners = Executors.newCachedThreadPool(
+        DaemonThreads.numbered("forecast-batch-"));
+    this.timer = Executors.newSingleThreadScheduledExecutor(
+        DaemonThreads.numbered("forecast-batch-window-"));
+  }
+
+  /**
+   * Constructor running every batch isolated, without workers.
+   *
+   * @param thisPythonService runs the batches
+   * @param thisWindow        time a batch stays open for more requests
+   * @param thisMaxSize       most symbols per run
+   */
+  public ForecastBatcher(final PythonService thisPythonService,
+                         final Duration thisWindow, final int thisMaxSize) {
+    this(thisPythonService, new TrendMasterWorkerPool(thisPythonService),
+        thisWindow, thisMaxSize);
+  }
+
+  /**
+   * Constructor running every batch isolated, with the default window and
+   * batch size.
+   *
+   * @param thisPythonService runs the batches
+   */
+  public ForecastBatcher(final PythonService thisPythonService) {
+    this(thisPythonService, DEFAULT_WINDOW, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Forecast a series as part of the next batch for its horizon.
+   *
+   * @param symbol  the stock symbol
+   * @param horizon number of days to predict
+   * @param series  the symbol's daily series; if the symbol is already in
+   *                the open batch, the series sent first is used
+   * @return the forecast in date order
+   * @throws DeadlineExceededException if the calling thread's deadline
+   *            passes first
+   * @throws RuntimeException if the run or this symbol's result fails,
+   *            or the calling thread is interrupted
+   */
+  public ForecastSeries predict(final String symbol, final int horizon,
+                                final StockDailySeries series) {
+    final Batch batch;
+    final CompletableFuture<ForecastSeries> result;
+    synchronized (lock) {
+      batch = open.computeIfAbsent(horizon, Batch::new);
+      result = batch.slots.computeIfAbsent(symbol, s -> new Slot(series))
+          .result;
+      batch.waiting++;
+      if (batch.slots.size() >= maxSize || window.isZero()) {
+        send(batch);
+      } else if (batch.flush == null) {
+        batch.flush = timer.schedule(() -> close(batch), window.toNanos(),
+            TimeUnit.NANOSECONDS);
+      }
+    }
+    final Deadline deadline = Deadline.current();
+    try {
+      return result.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      abandon(batch);
+      throw new DeadlineExceededException("forecast");
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause.getMessage(), cause);
+    } catch (InterruptedException e) {
+      abandon(batch);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Forecast interrupted", e);
+    }
+  }
+
+  /** Stops running batches and discards open ones. */
+  @Override
+  public void destroy() {
+    runners.shutdownNow();
+    timer.shutdownNow();
+  }
+
+  /**
+   * End a batch's window.
+   *
+   * @param batch the batch
+   */
+  private void close(final Batch batch) {
+    synchronized (lock) {
+      if (open.get(batch.horizon) == batch) {
+        send(batch);
+      }
+    }
+  }
+
+  /**
+   * Stop accepting requests into a batch and run it. Callers hold
+   * {@link #lock}.
+   *
+   * @param batch the batch
+   */
+  private void send(final Batch batch) {
+    open.remove(batch.horizon, batch);
+    if (batch.flush != null) {
+      batch.flush.cancel(false);
+    }
+    batch.run = runners.submit(() -> run(batch));
+  }
+
+  /**
+   * Give up one caller's wait, withdrawing or stopping the batch if no
+   * caller is left.
+   *
+   * @param batch the caller's batch
+   */
+  private void abandon(final Batch batch) {
+    synchronized (lock) {
+      if (--batch.waiting > 0) {
+        return;
+      }
+      if (batch.run != null) {
+        batch.run.cancel(true);
+      } else {
+        open.remove(batch.horizon, batch);
+        batch.flush.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Run a sent batch and hand each caller its symbol's result.
+   *
+   * @param batch the batch; no longer modified by other threads
+   */
+  private void run(final Batch batch) {
+    final Map<String, StockDailySeries> input = new LinkedHashMap<>();
+    batch.slots.forEach((symbol, slot) -> input.put(symbol, slot.series));
+    final Map<String, String> output;
+    try {
+      output = workers.run(input, batch.horizon);
+    } catch (RuntimeException e) {
+      batch.slots.values().forEach(s -> s.result.completeExceptionally(e));
+      return;
+    }
+    batch.slots.forEach((symbol, slot) -> {
+      final String raw = output.get(symbol);
+      try {
+        if (raw == null) {
+          throw new RuntimeException("No forecast for " + symbol
+              + " in batch output");
+        }
+        slot.result.complete(pythonService.parseForecastSeries(raw));
+      } catch (RuntimeException e) {
+        slot.result.completeExceptionally(e);
+      }
+    });
+  }
+
+  /** Requests sharing one run. */
+  private static final class Batch {
+    /** Horizon of every request in the batch. */
+    private final int horizon;
+    /** One slot per symbol, in arrival order. */
+    private final Map<String, Slot> slots = new LinkedHashMap<>();
+    /** Callers still waiting. */
+    private int waiting;
+    /** Closes the window, or {@code null} before it is scheduled. */
+    private ScheduledFuture<?> flush;
+    /** The run, or {@code null} while the batch is open. */
+    private Future<?> run;
+
+    Batch(final int thisHorizon) {
+      this.horizon = thisHorizon;
+    }
+  }
+
+  /** One symbol of a batch. */
+  private static final class Slot {
+    /** The series to forecast. */
+    private final StockDailySeries series;
+    /** Its forecast, shared by every caller asking for it. */
+    private final CompletableFuture<ForecastSeries> result =
+        new CompletableFuture<>();
+
+    Slot(final StockDailySeries thisSeries) {
+      this.series = thisSeries;
+    }
+  }
+}
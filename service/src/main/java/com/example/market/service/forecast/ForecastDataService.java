@@ -1,23 +1,21 @@
 package com.example.market.service.forecast;
 
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.stock.StockDailySeries;
 import com.example.market.service.forecast.python.PythonService;
+import com.example.market.service.upstream.Upstream;
+import com.example.market.service.upstream.Upstreams;
 
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-
 @Service
 public class ForecastDataService {
-  /**
-   * Service responsible for executing Python-based forecasting scripts
-   * and returning their parsed prediction results.
-   */
-  @Qualifier("trendmasterPythonService")
-  private final PythonService pythonService;
+  /** Batches concurrent series forecasts into one script run. */
+  private final ForecastBatcher batcher;
 
-  /** Default horizon setting. */
-  private static final int DEFAULT_HORIZON = 10;
+  /** Breaker and bulkhead for forecasts. */
+  private final Upstream upstream;
 
   /**
    * Creates a new {@code ForecastDataService} that uses the specified
@@ -27,40 +25,58 @@ public class ForecastDataService {
    *                  must not be {@code null}
    */
   public ForecastDataService(final PythonService pyService) {
-    this.pythonService = pyService;
+    this(new ForecastBatcher(pyService));
   }
 
   /**
-   * Creates a new {@code ForecastDataService} with its own internally
-   * constructed {@link PythonService}.
+   * Creates a new {@code ForecastDataService} whose series forecasts are
+   * micro-batched by the given {@link ForecastBatcher}.
+   *
+   * @param thisBatcher gathers concurrent series forecasts into one run
    */
-  public ForecastDataService() {
-    this.pythonService = new PythonService();
+  public ForecastDataService(final ForecastBatcher thisBatcher) {
+    this(thisBatcher, new Upstreams());
   }
 
   /**
-   * Predicts what the stock price will be over the course of 10 days.
+   * Creates a new {@code ForecastDataService} whose series forecasts are
+   * micro-batched by the given {@link ForecastBatcher} and guarded by the
+   * {@value Upstreams#FORECAST} breaker and bulkhead.
    *
-   * @param companyName A {@code String} object containing the company name
-   * @return a {@code Map} where each key is a date (as a {@code String}) and
-   *                    each value is the corresponding predicted closing price
-   *                    (also as a {@code String})
+   * @param thisBatcher gathers concurrent series forecasts
+   * @param upstreams   the service's upstream dependencies
    */
-  public Map<String, String> predictFuturePrices(final String companyName) {
-    return pythonService.predictFuturePrices(companyName, DEFAULT_HORIZON);
+  @Autowired
+  public ForecastDataService(final ForecastBatcher thisBatcher,
+                             final Upstreams upstreams) {
+    this.batcher = thisBatcher;
+    this.upstream = upstreams.get(Upstreams.FORECAST);
+  }
+
+  /**
+   * Creates a new {@code ForecastDataService} with its own internally
+   * constructed {@link PythonService}.
+   */
+  public ForecastDataService() {
+    this(new PythonService());
   }
 
   /**
-   * Predicts what the stock price will be over the course of 10 days.
+   * Predicts the stock price over the next {@code horizon} days from a
+   * daily series the caller already holds. Concurrent calls are gathered
+   * into one TrendMaster run by the {@link ForecastBatcher}, which sends
+   * each symbol to the worker holding its state.
    *
    * @param companyName A {@code String} object containing the company name
    * @param horizon X amount of days to predict into the future
-   * @return a {@code Map} where each key is a date (as a {@code String}) and
-   *                    each value is the corresponding predicted closing price
-   *                    (also as a {@code String})
+   * @param series the company's daily series
+   * @return the forecast with model metadata and, when the model provides
+   *                    them, prediction bounds
    */
-  public Map<String, String> predictFuturePrices(final String companyName,
-                                                 final int horizon) {
-    return pythonService.predictFuturePrices(companyName, horizon);
+  public ForecastSeries predictSeries(final String companyName,
+                                      final int horizon,
+                                      final StockDailySeries series) {
+    return upstream.get(
+        () -> batcher.predict(companyName, horizon, series));
   }
 }
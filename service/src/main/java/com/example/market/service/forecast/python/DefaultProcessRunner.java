@@ -1,8 +1,11 @@
 package com.example.market.service.forecast.python;
 
+import org.springframework.stereotype.Component;
+
 /**
  * Default implementation of {@link ProcessRunner}.
  */
+@Component
 public class DefaultProcessRunner implements ProcessRunner {
   /**
    * Uses {@link ProcessRunner} to start a process.
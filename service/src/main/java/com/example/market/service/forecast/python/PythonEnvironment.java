@@ -0,0 +1,246 @@
+package com.example.market.service.forecast.python;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Python interpreter the forecast scripts run on, located and checked
+ * once at startup instead of on every request.
+ *
+ * <p>{@link #bootstrap()} finds the interpreter, imports every required
+ * package in one throwaway process, which also warms the interpreter's
+ * bytecode caches, and byte-compiles the TrendMaster scripts. Nothing is
+ * installed: a missing package is reported, and installing it is left to
+ * whoever provisions the host.</p>
+ */
+@Component
+public class PythonEnvironment {
+  /** Packages the forecast scripts import. */
+  static final List<String> DEFAULT_PACKAGES =
+      List.of("trendmaster", "torch", "transformers", "pandas");
+  /** Default time the package check may take; importing torch is slow. */
+  private static final Duration DEFAULT_CHECK_TIMEOUT = Duration.ofMinutes(5);
+  /** Executable names tried on {@code PATH}. */
+  private static final List<String> NAMES = List.of("python3", "python");
+  /** Usual install locations tried after {@code PATH}. */
+  private static final List<String> FALLBACKS = List.of(
+      "/usr/local/bin/python3",
+      "/opt/homebrew/bin/python3",
+      "/Library/Frameworks/Python.framework/Versions/3.10/bin/python3");
+  /** Interpreter used when none can be found. */
+  private static final String LAST_RESORT = "python3";
+  /** File receiving the check's output. */
+  private static final String CHECK_OUTPUT = "check.out";
+  /**
+   * Imports each package named after the script directory, byte-compiles
+   * that directory and prints {@code {"version", "missing": {name: why}}}.
+   */
+  static final String CHECK_SCRIPT = String.join("\n",
+      "import compileall, importlib, json, sys",
+      "missing = {}",
+      "for name in sys.argv[2:]:",
+      "    try:",
+      "        importlib.import_module(name)",
+      "    except Exception as e:",
+      "        missing[name] = '%s: %s' % (type(e).__name__, e)",
+      "compileall.compile_dir(sys.argv[1], quiet=1)",
+      "print(json.dumps({'version': sys.version.split()[0],",
+      "                  'missing': missing}))");
+
+  /** Starts the check. */
+  private final ProcessRunner processRunner;
+  /** Configured interpreter; blank to search for one. */
+  private final String configured;
+  /** Packages to verify. */
+  private final List<String> packages;
+  /** Time the package check may take. */
+  private final Duration checkTimeout;
+  /** The interpreter in use, once located. */
+  private volatile String interpreter;
+  /** Its version, once checked. */
+  private volatile String version;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisProcessRunner starts the check
+   * @param thisInterpreter   interpreter to use; blank searches
+   *                          {@code PATH} and the usual install locations
+   * @param thisPackages      packages to verify
+   * @param thisCheckTimeout  time the package check may take
+   */
+  public PythonEnvironment(final ProcessRunner thisProcessRunner,
+                           final String thisInterpreter,
+                           final List<String> thisPackages,
+                           final Duration thisCheckTimeout) {
+    this.processRunner = thisProcessRunner;
+    this.configured = thisInterpreter == null ? "" : thisInterpreter.trim();
+    this.packages = List.copyOf(thisPackages);
+    this.checkTimeout = thisCheckTimeout;
+  }
+
+  /**
+   * Constructor starting the check as a real process.
+   *
+   * @param thisInterpreter  interpreter to use; blank to search
+   * @param thisPackages     packages to verify
+   * @param thisCheckTimeout time the package check may take
+   */
+  @Autowired
+  public PythonEnvironment(
+      @Value("${market.python.interpreter:}") final String thisInterpreter,
+      @Value("${market.python.packages:trendmaster,torch,transformers,"
+          + "pandas}") final List<String> thisPackages,
+      @Value("${market.python.check-timeout:PT5M}")
+      final Duration thisCheckTimeout) {
+    this(new DefaultProcessRunner(), thisInterpreter, thisPackages,
+        thisCheckTimeout);
+  }
+
+  /** Constructor searching for the interpreter and the default packages. */
+  public PythonEnvironment() {
+    this("", DEFAULT_PACKAGES, DEFAULT_CHECK_TIMEOUT);
+  }
+
+  /**
+   * The interpreter to start scripts with, located on first use.
+   *
+   * @return the configured interpreter, the first one found, or
+   *         {@code python3} to let the operating system search
+   */
+  public String interpreter() {
+    String found = interpreter;
+    if (found == null) {
+      found = configured.isEmpty() ? locate(System.getenv("PATH"))
+          : configured;
+      interpreter = found;
+    }
+    return found;
+  }
+
+  /**
+   * The interpreter's version.
+   *
+   * @return the version {@link #bootstrap()} saw, or {@code null} before
+   */
+  public String version() {
+    return version;
+  }
+
+  /**
+   * Packages {@link #bootstrap()} verifies.
+   *
+   * @return the package names
+   */
+  public List<String> packages() {
+    return packages;
+  }
+
+  /**
+   * Locate the interpreter, import every required package and
+   * byte-compile the TrendMaster scripts.
+   *
+   * @throws IllegalStateException if the check cannot run, times out, or
+   *            a package cannot be imported
+   * @throws RuntimeException      if the calling thread is interrupted
+   */
+  public void bootstrap() {
+    final String scripts = Paths.get(PythonService.TRENDMASTER_SCRIPT)
+        .toAbsolutePath().getParent().toString();
+    final List<String> command = new ArrayList<>(
+        List.of(interpreter(), "-c", CHECK_SCRIPT, scripts));
+    command.addAll(packages);
+    Path workDir = null;
+    try {
+      workDir = Files.createTempDirectory("python-check-");
+      final Path output = workDir.resolve(CHECK_OUTPUT);
+      final ProcessBuilder pb = new ProcessBuilder(command);
+      pb.directory(workDir.toFile());
+      pb.redirectErrorStream(true);
+      pb.redirectOutput(output.toFile());
+      final Process process = processRunner.start(pb);
+      if (!process.waitFor(checkTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+        PythonService.kill(process);
+        throw new IllegalStateException("Python package check did not "
+            + "finish within " + checkTimeout);
+      }
+      final String printed =
+          Files.exists(output) ? Files.readString(output) : "";
+      if (process.exitValue() != 0) {
+        throw new IllegalStateException(interpreter() + " failed with exit "
+            + "code " + process.exitValue() + ": " + printed.trim());
+      }
+      check(printed);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Python package check interrupted", e);
+    } catch (IllegalStateException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException("Cannot run " + interpreter() + ": "
+          + e.getMessage(), e);
+    } finally {
+      PythonService.deleteQuietly(workDir);
+    }
+  }
+
+  /**
+   * Read the check's result line.
+   *
+   * @param printed everything the check printed
+   * @throws IllegalStateException if a package is missing or the output
+   *            is unreadable
+   */
+  private void check(final String printed) {
+    final String last = printed.lines().reduce((a, b) -> b).orElse("");
+    final JsonNode result;
+    try {
+      result = PythonService.readObject(last);
+    } catch (RuntimeException e) {
+      throw new IllegalStateException("Unexpected package check output: "
+          + printed.trim(), e);
+    }
+    version = result.path("version").asText(null);
+    final Map<String, String> missing = new TreeMap<>();
+    result.path("missing").fields().forEachRemaining(
+        e -> missing.put(e.getKey(), e.getValue().asText()));
+    if (!missing.isEmpty()) {
+      throw new IllegalStateException("Missing Python packages for "
+          + interpreter() + ": " + missing);
+    }
+  }
+
+  /**
+   * Search {@code PATH}, then the usual install locations.
+   *
+   * @param path the {@code PATH} value, or {@code null}
+   * @return the first executable found, or {@value #LAST_RESORT}
+   */
+  static String locate(final String path) {
+    final List<Path> candidates = new ArrayList<>();
+    if (path != null) {
+      for (String dir : path.split(File.pathSeparator)) {
+        if (!dir.isEmpty()) {
+          NAMES.forEach(name -> candidates.add(Paths.get(dir, name)));
+        }
+      }
+    }
+    FALLBACKS.forEach(f -> candidates.add(Paths.get(f)));
+    return candidates.stream()
+        .filter(p -> Files.isRegularFile(p) && Files.isExecutable(p))
+        .map(Path::toString).findFirst().orElse(LAST_RESORT);
+  }
+}
@@ -1,20 +1,34 @@
 package com.example.market.service.forecast.python;
 
+import com.example.market.model.forecast.ForecastSeries;
 import com.example.market.model.stock.StockDailySeries;
-import com.example.market.service.stock.AlphaVantageService;
+import com.example.market.service.DaemonThreads;
+import com.example.market.service.Deadline;
+import com.example.market.service.PipelineMetrics;
+import com.example.market.service.jfr.PythonProcessEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.BufferedReader;
-import java.io.File;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import io.micrometer.core.instrument.Metrics;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
@@ -31,186 +45,514 @@ public class PythonService {
   /** used to run python processes. */
   private final ProcessRunner processRunner;
 
-  /** used to get up-to-date stock data. */
-  private AlphaVantageService stockDataService;
+  /** The interpreter scripts run on. */
+  private final PythonEnvironment environment;
 
-  /** Default horizon setting. */
-  private static final int DEFAULT_HORIZON = 10;
+  /** Model name reported with TrendMaster forecasts. */
+  static final String MODEL_NAME = "trendmaster";
+  /** Optional column with lower prediction bounds. */
+  private static final String LOWER_BOUND = "Lower_Bound";
+  /** Optional column with upper prediction bounds. */
+  private static final String UPPER_BOUND = "Upper_Bound";
+  /** TrendMaster script name, as recorded in {@link PythonProcessEvent}s. */
+  static final String TRENDMASTER_NAME = "main.py";
+  /** TrendMaster entry point, relative to the service directory. */
+  static final String TRENDMASTER_SCRIPT = "src/main/java"
+      + "/com/example/market/service/forecast/trendmaster/"
+      + TRENDMASTER_NAME;
+  /** Bars main.py feeds the model per forecast. */
+  static final int INPUT_WINDOW = 30;
+  /** Environment variable naming the input format of an isolated run. */
+  static final String INPUT_ENV = "TRENDMASTER_INPUT";
+  /** Input format value for a {@link TrendMasterInput} block on stdin. */
+  static final String BINARY_INPUT = "binary";
+  /** Environment variable carrying {@link #INPUT_WINDOW}. */
+  static final String INPUT_WINDOW_ENV = "TRENDMASTER_INPUT_WINDOW";
+  /** Name of the only series of a single isolated run. */
+  private static final String SINGLE_KEY = "STOCK";
+  /** Stage name reported when a forecast overruns its deadline. */
+  static final String FORECAST_STAGE = "forecast";
+  /** Nanoseconds in a second, for the timings the script reports. */
+  private static final double NANOS_PER_SECOND = 1e9;
+  /** Counter of run working directories that could not be deleted. */
+  public static final String LEFTOVER_DIRS_METER =
+      "market.python.workdir.leftover";
+  /** Environment variable carrying the horizon of an isolated run. */
+  static final String HORIZON_ENV = "TRENDMASTER_FUTURE_STEPS";
 
   /**
-   * All-args constructor.
+   * Constructor with the default interpreter.
    *
    * @param thisProcessRunner {@link ProcessRunner} object.
-   * @param thisStockDataService {@link AlphaVantageService} object.
    * */
+  public PythonService(final ProcessRunner thisProcessRunner) {
+    this(thisProcessRunner, new PythonEnvironment());
+  }
+
+  /**
+   * All-args constructor.
+   *
+   * @param thisProcessRunner {@link ProcessRunner} object.
+   * @param thisEnvironment   the interpreter scripts run on
+   */
+  @Autowired
   public PythonService(final ProcessRunner thisProcessRunner,
-                       final AlphaVantageService thisStockDataService) {
+                       final PythonEnvironment thisEnvironment) {
     this.processRunner = thisProcessRunner;
-    this.stockDataService = thisStockDataService;
+    this.environment = thisEnvironment;
+  }
+
+  /**
+   * Constructs a {@code PythonService} running scripts on the given
+   * interpreter.
+   *
+   * @param thisEnvironment the interpreter scripts run on
+   */
+  public PythonService(final PythonEnvironment thisEnvironment) {
+    this(new DefaultProcessRunner(), thisEnvironment);
   }
 
   /**
    * Constructs a new {@code PythonService}.
    */
   public PythonService() {
-    this.processRunner = new DefaultProcessRunner();
-    this.stockDataService = new AlphaVantageService();
+    this(new PythonEnvironment());
   }
 
   /**
-   * Gets current stock data from StockDataService.
+   * Predicts the next X stock prices of a company from a daily series the
+   * caller already has, without touching shared files. Safe to call from
+   * several threads at once.
    *
-   * @param companyName Symbol representing company.
+   * @param companyName An {@code String} representing the selected company.
+   * @param horizon X amount of days in the future to predict.
+   * @param series the company's daily series to forecast from
+   * @return the forecast in date order
+   * @throws RuntimeException if the script fails, is interrupted, or
+   *            prints a malformed forecast
    */
-  public void getStockData(final String companyName) {
-    System.out.println("Getting stock data for " + companyName);
-    String key = System.getenv("ALPHAVANTAGE_API_KEY");
+  public ForecastSeries predictSeries(final String companyName,
+                                      final int horizon,
+                                      final StockDailySeries series) {
+    return parseForecastSeries(runTrendMaster(series, horizon));
+  }
+
+  /**
+   * Runs TrendMaster on the given series in a private working directory.
+   * The horizon is passed through {@value #HORIZON_ENV} instead of being
+   * written into the script, so concurrent runs do not interfere.
+   * Interrupting the calling thread kills the Python process.
+   *
+   * @param series  the daily series to forecast from
+   * @param horizon number of days to predict
+   * @return the forecast the script printed, in the form
+   *         {@link #parseForecastSeries(String)} reads
+   * @throws RuntimeException if the script cannot be started, exits with
+   *            an error, prints nothing, or is interrupted
+   */
+  public String runTrendMaster(final StockDailySeries series,
+                               final int horizon) {
+    final String out = runTrendMasterBatch(Map.of(SINGLE_KEY, series),
+        horizon).get(SINGLE_KEY);
+    if (out == null) {
+      throw new RuntimeException("No output from Python script");
+    }
+    return out;
+  }
+
+  /**
+   * Runs TrendMaster once for several series, so the interpreter start,
+   * imports and model load are paid once per batch instead of once per
+   * symbol. Runs like {@link #runTrendMaster(StockDailySeries, int)}.
+   *
+   * <p>Only the last {@value #INPUT_WINDOW} bars of each series reach the
+   * script, packed by {@link TrendMasterInput} and written to its standard
+   * input, and the results are read back from its standard output; no
+   * JSON input or output file is involved. The one file left is the
+   * window the script hands TrendMaster's loader, which only reads a
+   * {@code <name>_data.joblib} dump; it stays in the run's private
+   * directory.</p>
+   *
+   * @param series  the daily series to forecast, by symbol
+   * @param horizon number of days to predict for every symbol
+   * @return each symbol's output, in the form
+   *         {@link #parseForecastSeries(String)} reads; symbols the script
+   *         failed on map to an {@code {"error": ...}} object that it
+   *         rejects with the script's message
+   * @throws RuntimeException if the script cannot be started, exits with
+   *            an error, prints nothing or no JSON object, or is
+   *            interrupted
+   */
+  public Map<String, String> runTrendMasterBatch(
+      final Map<String, StockDailySeries> series, final int horizon) {
+    return bySymbol(readObject(runIsolated(series.keySet(),
+        TrendMasterInput.encode(series, INPUT_WINDOW), horizon)));
+  }
+
+  /**
+   * Parse a line of batch output.
+   *
+   * @param line what the script printed
+   * @return the JSON object
+   * @throws RuntimeException if the line is not a JSON object
+   */
+  static JsonNode readObject(final String line) {
+    final JsonNode root;
     try {
-      StockDailySeries stockDailySeries = stockDataService
-              .fetchDaily(companyName, key);
-      // convert to JSON string
-      ObjectMapper mapper = new ObjectMapper();
-
-      // write to file
-      mapper.writerWithDefaultPrettyPrinter()
-              .writeValue(new File("stock_daily.json"), stockDailySeries);
-    } catch (Exception e) {
-      e.printStackTrace();
+      root = new ObjectMapper().readTree(line);
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException("Batch output is not JSON: "
+          + e.getOriginalMessage(), e);
+    }
+    if (root == null || !root.isObject()) {
+      throw new RuntimeException("Batch output is not a JSON object");
     }
+    return root;
   }
+
   /**
-   * Updates Python model predictions based on given horizon.
+   * Split batch results by symbol.
    *
-   * @param horizon X amount of days into the future to predict.
+   * @param results the object of per-symbol results
+   * @return each symbol's result as JSON text
    */
-  public void updatePythonScript(final int horizon) {
-    // Update python script based on given horizon
+  static Map<String, String> bySymbol(final JsonNode results) {
+    final Map<String, String> out = new HashMap<>();
+    results.fields().forEachRemaining(
+        e -> out.put(e.getKey(), e.getValue().toString()));
+    return out;
+  }
+
+  /**
+   * Runs TrendMaster in a private working directory, feeding it a packed
+   * input block on standard input. Its output is drained on another
+   * thread while the input is written, as for the worker pool, so neither
+   * side can stall on a full pipe.
+   *
+   * @param symbols the symbols in the block
+   * @param input   the block from {@link TrendMasterInput}
+   * @param horizon number of days to predict
+   * @return the last line the script printed
+   */
+  private String runIsolated(final Collection<String> symbols,
+                             final byte[] input, final int horizon) {
+    Path workDir = null;
     try {
-      Path pythonScript = Paths.get(
-          "src/main/java/com/example/"
-                  + "market/service/forecast/trendmaster/main.py"
-      );
-      List<String> lines = Files.readAllLines(pythonScript);
-      for (int i = 0; i < lines.size(); i++) {
-        if (lines.get(i).contains("future_steps=")) {
-          lines.set(i, "future_steps=" + horizon);
-          break;
-        }
+      workDir = Files.createTempDirectory("trendmaster-");
+      final ProcessBuilder pb = trendMasterProcess(workDir, BINARY_INPUT);
+      pb.environment().put(HORIZON_ENV, Integer.toString(horizon));
+      final Deadline deadline = Deadline.current();
+      deadline.check(FORECAST_STAGE);
+      final PythonProcessEvent event =
+          PythonProcessEvent.start(TRENDMASTER_NAME, "isolated", symbols);
+      final Process process = start(pb);
+      final IOException notSent;
+      final String printed;
+      final int exitCode;
+      try (Deadline.Registration ignored =
+               deadline.onExpiry(() -> kill(process))) {
+        final Future<String> output = drain(process);
+        notSent = send(process, input);
+        printed = awaitOutput(process, output);
+        exitCode = awaitExit(process);
+      } finally {
+        killIfAlive(process);
       }
-      Files.write(pythonScript, lines);
-    } catch (IOException e) {
-      e.printStackTrace();
+      event.finish(exitCode, input.length, printed.length());
+      deadline.check(FORECAST_STAGE);
+      if (notSent != null && exitCode == 0) {
+        throw new RuntimeException("Failed to send input to TrendMaster: "
+            + notSent.getMessage(), notSent);
+      }
+      final String result = lastLine(exitCode, printed);
+      recordTimings(printed);
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("TrendMaster run interrupted", e);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to run TrendMaster script: "
+          + e.getMessage(), e);
+    } finally {
+      deleteQuietly(workDir);
     }
   }
 
+  /**
+   * Prepare a TrendMaster process that works in its own directory and
+   * reads its input in the given format from standard input. Standard
+   * error is merged into standard output.
+   *
+   * @param workDir the process's working directory
+   * @param format  value of {@value #INPUT_ENV}
+   * @return the builder, ready to be started or adjusted
+   */
+  ProcessBuilder trendMasterProcess(final Path workDir, final String format) {
+    final ProcessBuilder pb = new ProcessBuilder(environment.interpreter(),
+        Paths.get(TRENDMASTER_SCRIPT).toAbsolutePath().toString());
+    pb.directory(workDir.toFile());
+    final Map<String, String> env = pb.environment();
+    env.put(INPUT_ENV, format);
+    env.put(INPUT_WINDOW_ENV, Integer.toString(INPUT_WINDOW));
+    pb.redirectErrorStream(true);
+    return pb;
+  }
+
+  /**
+   * Start a process with this service's {@link ProcessRunner}, timed as
+   * the {@value PipelineMetrics#PYTHON_SPAWN} stage.
+   *
+   * @param pb the process to start
+   * @return the running process
+   * @throws Exception if it cannot be started
+   */
+  Process start(final ProcessBuilder pb) throws Exception {
+    return PipelineMetrics.time(PipelineMetrics.PYTHON_SPAWN,
+        () -> processRunner.start(pb));
+  }
 
   /**
-   * Predicts the next 10 stock prices of a company.
+   * Record the stage timings an isolated run printed on a
+   * {@value TrendMasterWorkerPool#REPLY_MARKER} line before its result.
    *
-   * @param companyName An {@code String} representing the selected company.
-   * @return a {@code Map} where each key is a date (as a {@code String}) and
-   *                    each value is the corresponding predicted closing price
-   *                    (also as a {@code String})
+   * @param output everything the script printed
    */
-  public Map<String, String> predictFuturePrices(final String companyName) {
-    return predictFuturePrices(companyName, DEFAULT_HORIZON);
+  private static void recordTimings(final String output) {
+    final String marker = TrendMasterWorkerPool.REPLY_MARKER;
+    // TrendMaster may print progress without a newline first
+    output.lines().filter(line -> line.contains(marker))
+        .reduce((first, second) -> second)
+        .ifPresent(line -> {
+          JsonNode reported;
+          try {
+            reported = new ObjectMapper().readTree(line.substring(
+                line.indexOf(marker) + marker.length()));
+          } catch (JsonProcessingException e) {
+            // timings are informative only; the result line decides
+            reported = MissingNode.getInstance();
+          }
+          recordTimings(reported.path("timings"));
+        });
   }
+
   /**
-   * Predicts the next X stock prices of a company.
+   * Record the model load and inference times TrendMaster reported.
    *
-   * @param companyName An {@code String} representing the selected company.
-   * @param horizon X amount of days in the future to predict.
-   * @return a {@code Map} where each key is a date (as a {@code String}) and
-   *                    each value is the corresponding predicted closing price
-   *                    (also as a {@code String})
+   * @param timings a {@code {"load": s, "inference": s}} object; either
+   *                may be missing, as the load is only reported once per
+   *                process
    */
-  public Map<String, String> predictFuturePrices(final String companyName,
-                                                 final int horizon) {
-    // create stock_daily.json in directory
-    try {
-      getStockData(companyName);
-      updatePythonScript(horizon);
-    } catch (Exception e) {
-      e.printStackTrace();
+  static void recordTimings(final JsonNode timings) {
+    record(PipelineMetrics.MODEL_LOAD, timings.path("load"));
+    record(PipelineMetrics.INFERENCE, timings.path("inference"));
+  }
+
+  private static void record(final String stage, final JsonNode seconds) {
+    if (seconds.isNumber()) {
+      PipelineMetrics.record(stage, PipelineMetrics.SUCCESS,
+          (long) (seconds.asDouble() * NANOS_PER_SECOND));
     }
+  }
 
+  /**
+   * Write a script's whole input and close its standard input. A script
+   * that exits early closes the pipe; its exit code and output then say
+   * more than the write error, so the error is returned, not thrown.
+   *
+   * @param process the running script
+   * @param input   the bytes to send
+   * @return {@code null}, or the error if not everything was sent
+   */
+  private static IOException send(final Process process,
+                                  final byte[] input) {
+    try (OutputStream stdin = process.getOutputStream()) {
+      stdin.write(input);
+      return null;
+    } catch (IOException e) {
+      return e;
+    }
+  }
 
+  /**
+   * Read everything a script prints to standard output on a daemon
+   * thread, until the pipe closes.
+   *
+   * @param process the running script
+   * @return what it printed, once it closes its output
+   */
+  private static Future<String> drain(final Process process) {
+    final FutureTask<String> output = new FutureTask<>(() -> new String(
+        process.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    DaemonThreads.start("trendmaster-output", output);
+    return output;
+  }
 
-    String trendMasterResponse = runTrendMaster();
-    return parseTrendMasterResponse(trendMasterResponse);
+  /**
+   * Wait for a script's output to close, killing it and anything it
+   * started if the wait is interrupted.
+   *
+   * @param process the running script
+   * @param output  its output, from {@link #drain(Process)}
+   * @return everything it printed
+   * @throws InterruptedException if the calling thread is interrupted
+   * @throws IOException          if the output cannot be read
+   */
+  private static String awaitOutput(final Process process,
+                                    final Future<String> output)
+      throws InterruptedException, IOException {
+    try {
+      return output.get();
+    } catch (InterruptedException e) {
+      kill(process);
+      throw e;
+    } catch (ExecutionException e) {
+      throw new IOException("Cannot read TrendMaster output: "
+          + e.getCause().getMessage(), e.getCause());
+    }
   }
 
   /**
-   * Executes a Python script responsible for forecasting the
-   * next 10 stock prices.
+   * Wait for a script to exit, killing it and anything it started if the
+   * wait is interrupted.
    *
-   * @return the standard output from the executed Python script
-   *            as a {@code String}
-   * @throws RuntimeException if the Python script fails to
-   *            execute or produces no output
+   * @param process the running script
+   * @return its exit code
+   * @throws InterruptedException if the calling thread is interrupted
    */
-  public String runTrendMaster() {
-    String result = "";
-    StringBuilder allOutput = new StringBuilder();
+  private static int awaitExit(final Process process)
+      throws InterruptedException {
     try {
-      System.out.println("Working directory: "
-              + new File(".").getAbsolutePath());
-      ProcessBuilder pb = new ProcessBuilder(
-          "/bin/bash", "-c",
-          "python3 -m pip install --quiet trendmaster && "
-          + "python3 src/main/java"
-          + "/com/example/market/service/forecast/"
-          + "trendmaster/main.py"
-      );
-      Map<String, String> env = pb.environment();
-      String oldPath = env.get("PATH");
-      env.put("PATH", oldPath
-              + ":/Library/Frameworks/Python.framework/Versions/3.10/bin");
-      pb.redirectErrorStream(true);
-      //Process process = pb.start();
-      Process process = processRunner.start(pb);
-
-      BufferedReader reader = new BufferedReader(
-              new InputStreamReader(process.getInputStream()));
-      String lastLine = null;
-      String line;
-      while ((line = reader.readLine()) != null) {
-        allOutput.append(line).append("\n");
-        lastLine = line;
-      }
+      return process.waitFor();
+    } catch (InterruptedException e) {
+      kill(process);
+      throw e;
+    }
+  }
 
-      int exitCode = process.waitFor();
+  /**
+   * Kill a script and anything it started.
+   *
+   * @param process the script
+   */
+  static void kill(final Process process) {
+    // the interpreter runs directly; anything it spawned dies first
+    process.descendants().forEach(ProcessHandle::destroyForcibly);
+    process.destroyForcibly();
+  }
 
-      if (exitCode != 0) {
-        throw new RuntimeException("Python script failed with exit code "
-            + exitCode + ". Output: " + allOutput.toString());
-      }
+  /**
+   * Kill a script that is still running because its caller gave up on it
+   * early, so no process outlives the request that started it.
+   *
+   * @param process the script
+   */
+  static void killIfAlive(final Process process) {
+    if (process.isAlive()) {
+      kill(process);
+    }
+  }
 
-      if (lastLine == null) {
-        throw new RuntimeException("No output from Python script. "
-            + "Full output: " + allOutput.toString());
-      }
-      result = lastLine;
-    } catch (Exception e) {
-      throw new RuntimeException("Failed to run TrendMaster script: "
-          + e.getMessage() + ". Output: " + allOutput.toString(), e);
+  /**
+   * The result line of a finished script.
+   *
+   * @param exitCode the script's exit code
+   * @param output   everything the script printed
+   * @return the last line of {@code output}
+   * @throws RuntimeException if the script failed or printed nothing
+   */
+  static String lastLine(final int exitCode, final String output) {
+    if (exitCode != 0) {
+      throw new RuntimeException("Python script failed with exit code "
+          + exitCode + ". Output: " + output);
     }
+    return output.lines().reduce((first, second) -> second)
+        .orElseThrow(() -> new RuntimeException(
+            "No output from Python script. Full output: " + output));
+  }
 
-    return result;
+  /**
+   * Delete a run's working directory. A leftover temp directory is
+   * harmless, so failures are only counted as
+   * {@value #LEFTOVER_DIRS_METER}, never thrown.
+   *
+   * @param dir the directory, or {@code null}
+   * @return whether everything was deleted
+   */
+  static boolean deleteQuietly(final Path dir) {
+    if (dir == null || !Files.exists(dir)) {
+      return true;
+    }
+    boolean deleted;
+    try (Stream<Path> paths = Files.walk(dir)) {
+      deleted = paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+          .filter(f -> !f.delete()).count() == 0;
+    } catch (IOException | UncheckedIOException e) {
+      deleted = false;
+    }
+    if (!deleted) {
+      Metrics.counter(LEFTOVER_DIRS_METER).increment();
+    }
+    return deleted;
   }
 
   /**
-   * Predicts the next 10 stock prices of a company.
+   * Parses TrendMaster output straight into a {@link ForecastSeries},
+   * without going through date and price strings.
    *
-   * @param response An {@code String} representing the standard output from
-   *                 TrendMaster Python script.
-   * @return a {@code Map} generated from TrendMaster where each key is a date
-   *                 (as a {@code String}) and each value is the corresponding
-   *                 predicted closing price (also as a {@code String})
-   * @throws RuntimeException if the Python script fails to execute
-   *                 or produces no output
+   * <p>Optional {@code Lower_Bound} and {@code Upper_Bound} columns become
+   * the series' prediction bounds. Timed as the
+   * {@value PipelineMetrics#OUTPUT_PARSE} stage.</p>
+   *
+   * @param response the standard output from the TrendMaster script
+   * @return the forecast in date order, tagged with the model name
+   * @throws RuntimeException if the output is empty, not JSON, or has
+   *                 missing or malformed columns
    */
-  public Map<String, String> parseTrendMasterResponse(final String response) {
+  public ForecastSeries parseForecastSeries(final String response) {
+    return PipelineMetrics.timed(PipelineMetrics.OUTPUT_PARSE,
+        () -> parse(response));
+  }
+
+  private ForecastSeries parse(final String response) {
+    JsonNode rootNode = readTrendMasterJson(response);
+    JsonNode dateNode = rootNode.get("Date");
+    int n = dateNode.size();
+    long[] days = new long[n];
+    try {
+      for (int i = 0; i < n; i++) {
+        days[i] = LocalDate.parse(
+            dateNode.get(Integer.toString(i)).asText()).toEpochDay();
+      }
+      double[] prices = column(rootNode, "Predicted_Close", n);
+      // rows come back keyed by position, which is already date order
+      ForecastSeries series = new ForecastSeries(days, prices);
+      if (rootNode.has(LOWER_BOUND) && rootNode.has(UPPER_BOUND)) {
+        series = series.withBounds(column(rootNode, LOWER_BOUND, n),
+            column(rootNode, UPPER_BOUND, n));
+      }
+      return series.withModel(MODEL_NAME, Double.NaN);
+    } catch (DateTimeParseException | IllegalArgumentException
+             | NullPointerException e) {
+      throw new RuntimeException("Malformed forecast from Python script: "
+          + e.getMessage(), e);
+    }
+  }
+
+  private static double[] column(final JsonNode root, final String name,
+                                 final int n) {
+    JsonNode node = root.get(name);
+    double[] out = new double[n];
+    for (int i = 0; i < n; i++) {
+      JsonNode cell = node.get(Integer.toString(i));
+      out[i] = cell.isNumber()
+          ? cell.asDouble() : Double.parseDouble(cell.asText());
+    }
+    return out;
+  }
+
+  private JsonNode readTrendMasterJson(final String response) {
     if (response == null || response.trim().isEmpty()) {
       throw new RuntimeException("Empty response from Python script");
     }
@@ -225,7 +567,6 @@ public class PythonService {
           + "Response starts with: " + preview);
     }
 
-    Map<String, String> result = new HashMap<>();
     ObjectMapper mapper = new ObjectMapper();
     try {
       JsonNode outer = mapper.readTree(response);
@@ -235,19 +576,16 @@ public class PythonService {
       } else {
         rootNode = outer;
       }
-      JsonNode dateNode = rootNode.get("Date");
-      JsonNode predictionNode = rootNode.get("Predicted_Close");
-
-      if (dateNode == null || predictionNode == null) {
+      if (rootNode.has("error")) {
+        throw new RuntimeException("TrendMaster failed: "
+            + rootNode.get("error").asText());
+      }
+      if (rootNode.get("Date") == null
+          || rootNode.get("Predicted_Close") == null) {
         throw new RuntimeException("Missing 'Date' or 'Predicted_Close' "
             + "in JSON response");
       }
-
-      for (int i = 0; i < dateNode.size(); i++) {
-        result.put(dateNode.get(Integer.toString(i)).asText(),
-                predictionNode.get(Integer.toString(i)).asText());
-      }
-
+      return rootNode;
     } catch (JsonProcessingException e) {
       String preview = response.length() > JSON_PREVIEW_LENGTH
           ? response.substring(0, JSON_PREVIEW_LENGTH) + "..."
@@ -255,7 +593,5 @@ public class PythonService {
       throw new RuntimeException("Failed to parse JSON from Python script. "
           + "Response: " + preview, e);
     }
-
-    return result;
   }
 }
@@ -0,0 +1,1045 @@
+package com.example.market.service.forecast.python;
+
+import com.example.market.service.replay.InjectedFaults;
+import com.example.market.service.replay.ReplayFixtures;
+import com.example.market.service.upstream.Upstreams;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Python stand-in, active whenever {@code market.replay.mode} is set.
+ *
+ * <p>Recording starts the real script and saves what it printed once it
+ * exits. Replaying starts nothing: the returned process takes the input,
+ * waits out the injected latency, and prints the saved output, or exits
+ * with 1 as often as configured. Destroying it ends the wait with exit
+ * code {@value #KILLED}, so deadlines cut replayed runs short as they do
+ * real ones.</p>
+ *
+ * <p>A run is saved under a hash of the script's name, arguments,
+ * {@code TRENDMASTER_*} settings and input. TrendMaster's binary runs are
+ * saved per series instead, under a hash of the horizon and the series'
+ * bars, so a replay answers whatever batches the forecasts are grouped
+ * into.</p>
+ *
+ * <p>TrendMaster workers are emulated too. While recording, each request
+ * framed to a worker is paired with the reply it gets, in order, and each
+ * series' result is saved as for a binary run. A replayed worker answers
+ * the same frames with the same marked reply lines and keeps per-symbol
+ * state as the real one does: a symbol whose window and horizon it has
+ * answered before is a hit, answered without latency; a known window
+ * with a new horizon is warm; anything else is cold. A request with a
+ * warm or cold symbol waits out the injected latency, and an injected
+ * failure ends the worker, so the pool falls back to an isolated run as
+ * it does when a real worker dies.</p>
+ */
+@Primary
+@Component
+@ConditionalOnProperty("market.replay.mode")
+public class ReplayProcessRunner implements ProcessRunner {
+  /** Fixture kind of whole runs. */
+  static final String RUNS = "python";
+  /** Fixture kind of TrendMaster series results. */
+  static final String SERIES = "trendmaster";
+  /** Exit code of a destroyed process, as for SIGKILL. */
+  static final int KILLED = 137;
+  /** Hex digits of a fixture name. */
+  private static final int KEY_LENGTH = 16;
+  /** Prefix of the settings a TrendMaster run reads. */
+  private static final String SETTINGS = "TRENDMASTER_";
+  /** Nanoseconds in a second. */
+  private static final double NANOS_PER_SECOND = 1e9;
+  /** Mask of a byte read as an unsigned value. */
+  private static final int BYTE = 0xFF;
+  /** Reads and writes the saved output. */
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /** Where runs are saved and read. */
+  private final ReplayFixtures fixtures;
+  /** Starts real scripts while recording. */
+  private final ProcessRunner delegate;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisFixtures where runs are saved and read
+   * @param thisDelegate starts real scripts while recording
+   */
+  public ReplayProcessRunner(final ReplayFixtures thisFixtures,
+                             final ProcessRunner thisDelegate) {
+    this.fixtures = thisFixtures;
+    this.delegate = thisDelegate;
+  }
+
+  /**
+   * Constructor recording with a {@link DefaultProcessRunner}.
+   *
+   * @param thisFixtures where runs are saved and read
+   */
+  @Autowired
+  public ReplayProcessRunner(final ReplayFixtures thisFixtures) {
+    this(thisFixtures, new DefaultProcessRunner());
+  }
+
+  /**
+   * Starts the script while recording, or its stand-in while replaying.
+   *
+   * @param pb the script to run
+   * @return the process
+   * @throws Exception if the real script cannot be started
+   */
+  @Override
+  public Process start(final ProcessBuilder pb) throws Exception {
+    final Run run = new Run(pb);
+    if (fixtures.isRecording()) {
+      return new RecordingProcess(delegate.start(pb), run);
+    }
+    if (run.isWorker()) {
+      return new ReplayedWorker(run, fixtures.faults(Upstreams.FORECAST));
+    }
+    return new ReplayedProcess(run, fixtures.faults(
+        run.isTrendMaster() ? Upstreams.FORECAST : Upstreams.SENTIMENT));
+  }
+
+  /** What a started script was asked to do. */
+  private final class Run {
+    /** The script's file name. */
+    private final String script;
+    /** Arguments after the script. */
+    private final List<String> args;
+    /** TrendMaster settings, sorted. */
+    private final Map<String, String> settings = new TreeMap<>();
+    /** Where standard output goes; {@code null} for a pipe. */
+    private final File outputFile;
+
+    Run(final ProcessBuilder pb) {
+      final List<String> command = pb.command();
+      this.script = command.size() > 1
+          ? Paths.get(command.get(1)).getFileName().toString() : "";
+      this.args = command.size() > 2
+          ? List.copyOf(command.subList(2, command.size())) : List.of();
+      pb.environment().forEach((k, v) -> {
+        if (k.startsWith(SETTINGS)) {
+          settings.put(k, v);
+        }
+      });
+      this.outputFile = pb.redirectOutput().file();
+    }
+
+    boolean isTrendMaster() {
+      return PythonService.TRENDMASTER_NAME.equals(script);
+    }
+
+    boolean isBinary() {
+      return isTrendMaster() && PythonService.BINARY_INPUT.equals(
+          settings.get(PythonService.INPUT_ENV));
+    }
+
+    boolean isWorker() {
+      return isTrendMaster() && TrendMasterWorkerPool.WORKER_INPUT.equals(
+          settings.get(PythonService.INPUT_ENV));
+    }
+
+    String horizon() {
+      return settings.getOrDefault(PythonService.HORIZON_ENV, "");
+    }
+
+    int capacity() {
+      return Integer.parseInt(settings.getOrDefault(
+          TrendMasterWorkerPool.CAPACITY_ENV, "0"));
+    }
+
+    /**
+     * Save each series' result of a worker reply.
+     *
+     * @param request the request it answers
+     * @param reply   the reply object
+     * @throws IOException if a fixture cannot be written
+     */
+    void save(final Request request, final JsonNode reply)
+        throws IOException {
+      final JsonNode results = reply.path("results");
+      for (Map.Entry<String, byte[]> s : request.series.entrySet()) {
+        final JsonNode result = results.get(s.getKey());
+        if (result != null) {
+          fixtures.write(SERIES, seriesKey(request.horizon(), s.getValue()),
+              Map.of("result", result));
+        }
+      }
+    }
+
+    /**
+     * A series' saved result.
+     *
+     * @param horizon the horizon setting
+     * @param series  the series' bytes after its name
+     * @return the result, or {@code null} if it was never recorded
+     * @throws IOException if the fixture cannot be read
+     */
+    JsonNode result(final String horizon, final byte[] series)
+        throws IOException {
+      final JsonNode saved =
+          fixtures.read(SERIES, seriesKey(horizon, series), JsonNode.class);
+      return saved == null ? null : saved.get("result");
+    }
+
+    /**
+     * Name of the whole run's fixture.
+     *
+     * @param input what the script read
+     * @return the name
+     */
+    String key(final byte[] input) {
+      final MessageDigest digest = sha256();
+      update(digest, script);
+      args.forEach(a -> update(digest, a));
+      settings.forEach((k, v) -> update(digest, k + '=' + v));
+      digest.update(input);
+      return hex(digest);
+    }
+
+    /**
+     * Save what the script printed.
+     *
+     * @param input    what the script read
+     * @param exitCode its exit code
+     * @param output   everything it printed
+     * @throws IOException if the fixture cannot be written
+     */
+    void save(final byte[] input, final int exitCode, final String output)
+        throws IOException {
+      if (isBinary() && exitCode == 0) {
+        final JsonNode results = PythonService.readObject(
+            PythonService.lastLine(exitCode, output));
+        for (Map.Entry<String, byte[]> s
+            : TrendMasterInput.split(input).entrySet()) {
+          final JsonNode result = results.get(s.getKey());
+          if (result != null) {
+            fixtures.write(SERIES, seriesKey(horizon(), s.getValue()),
+                Map.of("result", result));
+          }
+        }
+        return;
+      }
+      fixtures.write(RUNS, key(input),
+          Map.of("exitCode", exitCode, "output", output));
+    }
+
+    /**
+     * What the script printed when recorded, or a failure naming what is
+     * missing.
+     *
+     * @param input   what the script read
+     * @param latency the injected latency, reported as inference time
+     * @return the exit code and output
+     * @throws IOException if a fixture cannot be read
+     */
+    Replay replay(final byte[] input, final Duration latency)
+        throws IOException {
+      if (isBinary()) {
+        final ObjectNode results = MAPPER.createObjectNode();
+        for (Map.Entry<String, byte[]> s
+            : TrendMasterInput.split(input).entrySet()) {
+          final JsonNode result = result(horizon(), s.getValue());
+          if (result == null) {
+            results.putObject(s.getKey())
+                .put("error", "no recording for " + s.getKey());
+          } else {
+            results.set(s.getKey(), result);
+          }
+        }
+        final ObjectNode timings = MAPPER.createObjectNode();
+        timings.putObject("timings").put("inference",
+            latency.toNanos() / NANOS_PER_SECOND);
+        return new Replay(0, TrendMasterWorkerPool.REPLY_MARKER + timings
+            + '\n' + results + '\n');
+      }
+      final JsonNode saved = fixtures.read(RUNS, key(input), JsonNode.class);
+      if (saved == null) {
+        return new Replay(1, "No recording of " + script + '\n');
+      }
+      return new Replay(saved.path("exitCode").asInt(),
+          saved.path("output").asText());
+    }
+  }
+
+  /**
+   * Name of one series' fixture.
+   *
+   * @param horizon the run's horizon setting
+   * @param series  the series' bytes after its name
+   * @return the name
+   */
+  static String seriesKey(final String horizon, final byte[] series) {
+    final MessageDigest digest = sha256();
+    update(digest, horizon);
+    digest.update(series);
+    return hex(digest);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void update(final MessageDigest digest, final String s) {
+    digest.update(s.getBytes(StandardCharsets.UTF_8));
+    // a separator, so ("ab", "c") and ("a", "bc") differ
+    digest.update((byte) 0);
+  }
+
+  private static String hex(final MessageDigest digest) {
+    return HexFormat.of().formatHex(digest.digest()).substring(0, KEY_LENGTH);
+  }
+
+  /** A replayed exit code and output. */
+  private static final class Replay {
+    /** Exit code. */
+    private final int exitCode;
+    /** Everything printed. */
+    private final String output;
+
+    Replay(final int thisExitCode, final String thisOutput) {
+      this.exitCode = thisExitCode;
+      this.output = thisOutput;
+    }
+  }
+
+  /** One request framed to a worker. */
+  private static final class Request {
+    /** Number of days to predict. */
+    private final int days;
+    /** Each series' bytes after its name, by name, in block order. */
+    private final Map<String, byte[]> series;
+    /** Whether each series may evict another's state, in block order. */
+    private final byte[] admitted;
+
+    /**
+     * Decode a request as {@link TrendMasterWorkerPool} frames it.
+     *
+     * @param body the request after its length
+     */
+    Request(final byte[] body) {
+      final ByteBuffer in = ByteBuffer.wrap(body)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      this.days = in.getInt();
+      final int count =
+          in.getInt(Integer.BYTES + TrendMasterInput.MAGIC.length);
+      this.series = TrendMasterInput.split(
+          Arrays.copyOfRange(body, Integer.BYTES, body.length - count));
+      this.admitted =
+          Arrays.copyOfRange(body, body.length - count, body.length);
+    }
+
+    String horizon() {
+      return Integer.toString(days);
+    }
+  }
+
+  /** Hands each length-prefixed request written to it to a consumer. */
+  private static final class Frames extends OutputStream {
+    /** Receives each request after its length. */
+    private final Consumer<byte[]> requests;
+    /** Bytes of a request not yet complete. */
+    private byte[] pending = new byte[0];
+
+    Frames(final Consumer<byte[]> thisRequests) {
+      this.requests = thisRequests;
+    }
+
+    @Override
+    public void write(final int b) {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      final byte[] all = Arrays.copyOf(pending, pending.length + len);
+      System.arraycopy(b, off, all, pending.length, len);
+      final ByteBuffer in = ByteBuffer.wrap(all)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      int at = 0;
+      while (all.length - at >= Integer.BYTES
+          && all.length - at - Integer.BYTES >= in.getInt(at)) {
+        final int end = at + Integer.BYTES + in.getInt(at);
+        requests.accept(
+            Arrays.copyOfRange(all, at + Integer.BYTES, end));
+        at = end;
+      }
+      pending = Arrays.copyOfRange(all, at, all.length);
+    }
+  }
+
+  /** A real script whose input and output are copied and saved. */
+  private static final class RecordingProcess extends Process {
+    /** The real script. */
+    private final Process process;
+    /** What it was asked to do. */
+    private final Run run;
+    /** Copy of its input. */
+    private final ByteArrayOutputStream input = new ByteArrayOutputStream();
+    /** Copy of the output read from its pipe. */
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    /** Whether the run was saved. */
+    private final AtomicBoolean saved = new AtomicBoolean();
+    /** A worker's requests still waiting for their replies, oldest first. */
+    private final Queue<Request> unanswered = new ConcurrentLinkedQueue<>();
+    /** Splits a worker's input into requests; {@code null} for a script. */
+    private final Frames frames;
+    /** The worker output line being read. */
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    RecordingProcess(final Process thisProcess, final Run thisRun) {
+      this.process = thisProcess;
+      this.run = thisRun;
+      this.frames = thisRun.isWorker()
+          ? new Frames(body -> unanswered.add(new Request(body))) : null;
+    }
+
+    /**
+     * Copy what was sent: a script's whole input, or a worker's requests.
+     *
+     * @param b   the bytes
+     * @param off first byte
+     * @param len number of bytes
+     */
+    private void sent(final byte[] b, final int off, final int len) {
+      if (frames != null) {
+        frames.write(b, off, len);
+      } else {
+        input.write(b, off, len);
+      }
+    }
+
+    /**
+     * Copy what was printed: a script's whole output, or each worker reply
+     * saved as it arrives.
+     *
+     * @param b   the bytes
+     * @param off first byte
+     * @param len number of bytes
+     * @throws IOException if a reply cannot be saved
+     */
+    private void printed(final byte[] b, final int off, final int len)
+        throws IOException {
+      if (frames == null) {
+        output.write(b, off, len);
+        return;
+      }
+      for (int i = off; i < off + len; i++) {
+        if (b[i] != '\n') {
+          line.write(b[i]);
+          continue;
+        }
+        final String text = line.toString(StandardCharsets.UTF_8);
+        line.reset();
+        final int at = text.indexOf(TrendMasterWorkerPool.REPLY_MARKER);
+        final Request request = at < 0 ? null : unanswered.poll();
+        if (request != null) {
+          run.save(request, MAPPER.readTree(text.substring(
+              at + TrendMasterWorkerPool.REPLY_MARKER.length())));
+        }
+      }
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return new FilterOutputStream(process.getOutputStream()) {
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+            throws IOException {
+          // queued first, so the reply always finds its request
+          sent(b, off, len);
+          out.write(b, off, len);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+          sent(new byte[] {(byte) b}, 0, 1);
+          out.write(b);
+        }
+      };
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new FilterInputStream(process.getInputStream()) {
+        @Override
+        public int read() throws IOException {
+          final int b = in.read();
+          if (b >= 0) {
+            printed(new byte[] {(byte) b}, 0, 1);
+          }
+          return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+          final int n = in.read(b, off, len);
+          if (n > 0) {
+            printed(b, off, n);
+          }
+          return n;
+        }
+      };
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return process.getErrorStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+      final int exitCode = process.waitFor();
+      save(exitCode);
+      return exitCode;
+    }
+
+    @Override
+    public boolean waitFor(final long timeout, final TimeUnit unit)
+        throws InterruptedException {
+      final boolean exited = process.waitFor(timeout, unit);
+      if (exited) {
+        save(process.exitValue());
+      }
+      return exited;
+    }
+
+    /**
+     * Save the run once, unless it was killed or is a worker, whose
+     * replies were saved as they arrived.
+     *
+     * @param exitCode the script's exit code
+     */
+    private void save(final int exitCode) {
+      if (exitCode == KILLED || frames != null
+          || !saved.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        final String printed = run.outputFile != null
+            ? Files.readString(run.outputFile.toPath())
+            : output.toString(StandardCharsets.UTF_8);
+        run.save(input.toByteArray(), exitCode, printed);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public int exitValue() {
+      return process.exitValue();
+    }
+
+    @Override
+    public boolean isAlive() {
+      return process.isAlive();
+    }
+
+    @Override
+    public void destroy() {
+      process.destroy();
+    }
+
+    @Override
+    public Process destroyForcibly() {
+      process.destroyForcibly();
+      return this;
+    }
+
+    @Override
+    public long pid() {
+      return process.pid();
+    }
+
+    @Override
+    public ProcessHandle toHandle() {
+      return process.toHandle();
+    }
+
+    @Override
+    public Stream<ProcessHandle> descendants() {
+      return process.descendants();
+    }
+  }
+
+  /**
+   * A stand-in that answers from fixtures once its input is complete:
+   * when its output is first read or it is waited for. TrendMaster's
+   * output is drained while its input is still being written, so reading
+   * it also waits for the input to be closed.
+   */
+  private static final class ReplayedProcess extends Process {
+    /** What it was asked to do. */
+    private final Run run;
+    /** Latency and errors to inject. */
+    private final InjectedFaults faults;
+    /** The input written to it. */
+    private final ByteArrayOutputStream input = new ByteArrayOutputStream();
+    /** Released when destroyed. */
+    private final CountDownLatch killed = new CountDownLatch(1);
+    /** Released when the input is closed, or the process destroyed. */
+    private final CountDownLatch written = new CountDownLatch(1);
+    /** Output, once answered; guarded by {@code this}. */
+    private byte[] output;
+    /** Exit code, once answered; written under {@code this}. */
+    private volatile Integer exitCode;
+
+    ReplayedProcess(final Run thisRun, final InjectedFaults thisFaults) {
+      this.run = thisRun;
+      this.faults = thisFaults;
+    }
+
+    /** Answer, once: wait out the latency, then print. */
+    private synchronized void answer() throws InterruptedException {
+      if (exitCode != null) {
+        return;
+      }
+      final Duration latency = faults.nextLatency();
+      final Replay replay;
+      if (killed.await(latency.toNanos(), TimeUnit.NANOSECONDS)) {
+        replay = new Replay(KILLED, "");
+      } else if (faults.nextFails()) {
+        replay = new Replay(1, "Injected failure\n");
+      } else {
+        try {
+          replay = run.replay(input.toByteArray(), latency);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      output = replay.output.getBytes(StandardCharsets.UTF_8);
+      if (run.outputFile != null) {
+        try {
+          Files.write(run.outputFile.toPath(), output);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        output = new byte[0];
+      }
+      exitCode = replay.exitCode;
+    }
+
+    private byte[] printed() throws IOException {
+      try {
+        if (run.isTrendMaster()) {
+          written.await();
+        }
+        answer();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted", e);
+      }
+      synchronized (this) {
+        return output;
+      }
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return new FilterOutputStream(input) {
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+          input.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+          written.countDown();
+        }
+      };
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new InputStream() {
+        /** The output, once answered. */
+        private InputStream printed;
+
+        private InputStream printed() throws IOException {
+          if (printed == null) {
+            printed = new ByteArrayInputStream(ReplayedProcess.this.printed());
+          }
+          return printed;
+        }
+
+        @Override
+        public int read() throws IOException {
+          return printed().read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+          return printed().read(b, off, len);
+        }
+      };
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return InputStream.nullInputStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+      answer();
+      return exitCode;
+    }
+
+    @Override
+    public boolean waitFor(final long timeout, final TimeUnit unit)
+        throws InterruptedException {
+      // the answer is ready within the injected latency, not the timeout
+      answer();
+      return true;
+    }
+
+    @Override
+    public int exitValue() {
+      final Integer code = exitCode;
+      if (code == null) {
+        throw new IllegalThreadStateException("process hasn't exited");
+      }
+      return code;
+    }
+
+    @Override
+    public boolean isAlive() {
+      return exitCode == null;
+    }
+
+    @Override
+    public void destroy() {
+      killed.countDown();
+      written.countDown();
+    }
+
+    @Override
+    public Stream<ProcessHandle> descendants() {
+      return Stream.empty();
+    }
+  }
+
+  /**
+   * A stand-in TrendMaster worker: it reads framed requests and prints one
+   * marked reply line for each, until its input is closed or it is
+   * destroyed. Requests are answered on the thread reading its output, as
+   * a real worker answers while its output is drained.
+   */
+  private static final class ReplayedWorker extends Process {
+    /** What it was asked to do. */
+    private final Run run;
+    /** Latency and errors to inject. */
+    private final InjectedFaults faults;
+    /** Requests to answer; empty once the input is closed or destroyed. */
+    private final BlockingQueue<Optional<Request>> requests =
+        new LinkedBlockingQueue<>();
+    /** Released when destroyed. */
+    private final CountDownLatch killed = new CountDownLatch(1);
+    /** Released on exit. */
+    private final CountDownLatch exited = new CountDownLatch(1);
+    /** Window key and horizons answered, by symbol, least recent first. */
+    private final Map<String, Held> states = new LinkedHashMap<>();
+    /** Its standard input. */
+    private final OutputStream stdin;
+    /** Its standard output. */
+    private final InputStream stdout;
+    /** Exit code, once exited; written under {@code this}. */
+    private volatile Integer exitCode;
+
+    ReplayedWorker(final Run thisRun, final InjectedFaults thisFaults) {
+      this.run = thisRun;
+      this.faults = thisFaults;
+      this.stdin = new FilterOutputStream(new Frames(
+          body -> requests.add(Optional.of(new Request(body))))) {
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+            throws IOException {
+          out.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+          requests.add(Optional.empty());
+        }
+      };
+      this.stdout = new InputStream() {
+        /** The reply being read. */
+        private byte[] reply = new byte[0];
+        /** Position in it. */
+        private int at;
+
+        @Override
+        public int read() throws IOException {
+          final byte[] one = new byte[1];
+          return read(one, 0, 1) < 0 ? -1 : one[0] & BYTE;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+          while (at == reply.length) {
+            final byte[] next = nextReply();
+            if (next == null) {
+              return -1;
+            }
+            reply = next;
+            at = 0;
+          }
+          final int n = Math.min(len, reply.length - at);
+          System.arraycopy(reply, at, b, off, n);
+          at += n;
+          return n;
+        }
+      };
+    }
+
+    /**
+     * Wait for the next request and answer it.
+     *
+     * @return the reply line, or {@code null} once the worker has exited
+     * @throws IOException if interrupted or a fixture cannot be read
+     */
+    private byte[] nextReply() throws IOException {
+      try {
+        final Optional<Request> next = requests.take();
+        if (next.isEmpty() || exitCode != null) {
+          exit(0);
+          return null;
+        }
+        return answer(next.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted");
+      }
+    }
+
+    /**
+     * Answer one request from the fixtures, as the real worker would.
+     *
+     * @param request the request
+     * @return the reply line, or {@code null} if the worker died first
+     * @throws IOException          if a fixture cannot be read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private byte[] answer(final Request request)
+        throws IOException, InterruptedException {
+      final String horizon = request.horizon();
+      final Map<String, String> windows = new LinkedHashMap<>();
+      boolean computes = false;
+      for (Map.Entry<String, byte[]> s : request.series.entrySet()) {
+        final String window = seriesKey("", s.getValue());
+        windows.put(s.getKey(), window);
+        final Held held = states.get(s.getKey());
+        computes |= held == null || !held.answers(window, horizon);
+      }
+      Duration latency = Duration.ZERO;
+      if (computes) {
+        latency = faults.nextLatency();
+        if (killed.await(latency.toNanos(), TimeUnit.NANOSECONDS)) {
+          return null;
+        }
+        if (faults.nextFails()) {
+          exit(1);
+          return null;
+        }
+      }
+      final ObjectNode reply = MAPPER.createObjectNode();
+      final ObjectNode results = reply.putObject("results");
+      final ObjectNode kinds = reply.putObject("state");
+      int i = 0;
+      for (Map.Entry<String, byte[]> s : request.series.entrySet()) {
+        final String symbol = s.getKey();
+        final JsonNode result = run.result(horizon, s.getValue());
+        final Held held = states.remove(symbol);
+        if (result == null) {
+          results.putObject(symbol).put("error", "no recording for " + symbol);
+        } else {
+          results.set(symbol, result);
+          kinds.put(symbol, held == null ? "cold" : held.kind(
+              windows.get(symbol), horizon));
+          keep(symbol, held, windows.get(symbol), horizon,
+              request.admitted[i] == 1);
+        }
+        i++;
+      }
+      if (!request.series.isEmpty()) {
+        reply.putObject("timings").put("inference",
+            latency.toNanos() / NANOS_PER_SECOND);
+      }
+      return ("\n" + TrendMasterWorkerPool.REPLY_MARKER + reply + "\n")
+          .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Keep a symbol's state as most recently used, if it is admitted or
+     * there is room, evicting the least recently used past the capacity.
+     *
+     * @param symbol   the symbol
+     * @param held     its earlier state, already removed, or {@code null}
+     * @param window   the window it was sent
+     * @param horizon  the horizon answered
+     * @param admitted whether it may evict another's state
+     */
+    private void keep(final String symbol, final Held held,
+                      final String window, final String horizon,
+                      final boolean admitted) {
+      if (!admitted && states.size() >= run.capacity()) {
+        return;
+      }
+      final Held now = held != null && held.window.equals(window)
+          ? held : new Held(window);
+      now.horizons.add(horizon);
+      states.put(symbol, now);
+      final Iterator<String> eldest = states.keySet().iterator();
+      while (states.size() > run.capacity()) {
+        eldest.next();
+        eldest.remove();
+      }
+    }
+
+    /**
+     * Exit with a code, unless already exited.
+     *
+     * @param code the exit code
+     */
+    private synchronized void exit(final int code) {
+      if (exitCode == null) {
+        exitCode = code;
+        exited.countDown();
+      }
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return stdin;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return stdout;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return InputStream.nullInputStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+      exited.await();
+      return exitCode;
+    }
+
+    @Override
+    public boolean waitFor(final long timeout, final TimeUnit unit)
+        throws InterruptedException {
+      return exited.await(timeout, unit);
+    }
+
+    @Override
+    public int exitValue() {
+      final Integer code = exitCode;
+      if (code == null) {
+        throw new IllegalThreadStateException("process hasn't exited");
+      }
+      return code;
+    }
+
+    @Override
+    public boolean isAlive() {
+      return exitCode == null;
+    }
+
+    @Override
+    public void destroy() {
+      exit(KILLED);
+      killed.countDown();
+      requests.add(Optional.empty());
+    }
+
+    @Override
+    public Stream<ProcessHandle> descendants() {
+      return Stream.empty();
+    }
+  }
+
+  /** What a replayed worker holds for one symbol. */
+  private static final class Held {
+    /** Key of the window it was last sent. */
+    private final String window;
+    /** Horizons answered from that window. */
+    private final Set<String> horizons = new HashSet<>();
+
+    Held(final String thisWindow) {
+      this.window = thisWindow;
+    }
+
+    /**
+     * How a request for a window and horizon is answered.
+     *
+     * @param thisWindow the window sent
+     * @param horizon    the horizon asked for
+     * @return {@code hit}, {@code warm} or {@code cold}
+     */
+    String kind(final String thisWindow, final String horizon) {
+      if (!window.equals(thisWindow)) {
+        return "cold";
+      }
+      return horizons.contains(horizon) ? "hit" : "warm";
+    }
+
+    boolean answers(final String thisWindow, final String horizon) {
+      return "hit".equals(kind(thisWindow, horizon));
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.example.market.service.forecast.python;
+
+import com.example.market.service.upstream.Upstreams;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares the forecast workers once the application is up and reports
+ * whether they are ready, as the {@code trendMaster} health component.
+ *
+ * <p>Startup checks the {@link PythonEnvironment}, then starts every
+ * {@link TrendMasterWorkerPool} worker and waits for it to load the
+ * model, all on a background thread. Until that has succeeded,
+ * {@link #isReady()} is false and forecast endpoints turn requests away,
+ * so no user pays for the cold start. Until then the component is
+ * {@link Upstreams#DEGRADED}, with a failed attempt's error, and a failure
+ * is retried after {@code market.python.bootstrap-retry}. Every other
+ * endpoint keeps working meanwhile, so overall health is not affected.
+ * With {@code market.python.bootstrap} off, nothing is checked ahead of
+ * time and forecasts start Python on first use.</p>
+ */
+@Component
+public class TrendMasterHealthIndicator implements HealthIndicator,
+    DisposableBean {
+
+  /** Progress of the bootstrap. */
+  enum State {
+    /** Bootstrap off: forecasts are served and start Python lazily. */
+    DISABLED,
+    /** Checking the environment or warming the workers. */
+    STARTING,
+    /** Environment checked and workers warm. */
+    READY,
+    /** The last attempt failed; another is scheduled. */
+    FAILED
+  }
+
+  /** The interpreter to check. */
+  private final PythonEnvironment environment;
+  /** The workers to warm. */
+  private final TrendMasterWorkerPool workers;
+  /** Whether to bootstrap at all. */
+  private final boolean enabled;
+  /** Delay before retrying a failed bootstrap. */
+  private final Duration retry;
+  /** Runs the bootstrap off the startup thread. */
+  private final ScheduledExecutorService bootstrapper;
+  /** Current progress. */
+  private volatile State state;
+  /** Why the last attempt failed, or {@code null}. */
+  private volatile String failure;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisEnvironment the interpreter to check
+   * @param thisWorkers     the workers to warm
+   * @param thisEnabled     whether to bootstrap at startup
+   * @param thisRetry       delay before retrying a failed bootstrap
+   */
+  @Autowired
+  public TrendMasterHealthIndicator(
+      final PythonEnvironment thisEnvironment,
+      final TrendMasterWorkerPool thisWorkers,
+      @Value("${market.python.bootstrap:true}") final boolean thisEnabled,
+      @Value("${market.python.bootstrap-retry:PT5M}")
+      final Duration thisRetry) {
+    if (!thisRetry.isPositive()) {
+      throw new IllegalArgumentException(
+          "market.python.bootstrap-retry must be positive");
+    }
+    this.environment = thisEnvironment;
+    this.workers = thisWorkers;
+    this.enabled = thisEnabled;
+    this.retry = thisRetry;
+    this.state = thisEnabled ? State.STARTING : State.DISABLED;
+    this.bootstrapper = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread t = new Thread(r, "trendmaster-bootstrap");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /** Start the bootstrap once the application is ready. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (enabled) {
+      bootstrapper.execute(this::bootstrap);
+    }
+  }
+
+  /**
+   * Whether forecasts may be served.
+   *
+   * @return {@code true} once the workers are warm, or when the bootstrap
+   *         is off
+   */
+  public boolean isReady() {
+    final State s = state;
+    return s == State.READY || s == State.DISABLED;
+  }
+
+  /**
+   * Why forecasts are not served yet.
+   *
+   * @return the failure of the last attempt, or a warming-up note
+   */
+  public String reason() {
+    final String why = failure;
+    return why != null ? why : "TrendMaster workers are warming up";
+  }
+
+  /**
+   * Current progress.
+   *
+   * @return the state
+   */
+  State state() {
+    return state;
+  }
+
+  /**
+   * Report the bootstrap's progress.
+   *
+   * @return {@code UP} when ready or off, else
+   *         {@link Upstreams#DEGRADED}, with the error after a failure
+   */
+  @Override
+  public Health health() {
+    final Health.Builder health = switch (state) {
+      case READY, DISABLED -> Health.up();
+      case STARTING -> Health.status(Upstreams.DEGRADED);
+      default -> Health.status(Upstreams.DEGRADED)
+          .withDetail("error", reason());
+    };
+    health.withDetail("bootstrap", state.name().toLowerCase(Locale.ROOT))
+        .withDetail("interpreter", environment.interpreter())
+        .withDetail("packages", environment.packages())
+        .withDetail("workers", workers.size());
+    if (environment.version() != null) {
+      health.withDetail("pythonVersion", environment.version());
+    }
+    return health.build();
+  }
+
+  /** Stops a running or scheduled bootstrap. */
+  @Override
+  public void destroy() {
+    bootstrapper.shutdownNow();
+  }
+
+  /** Check the environment and warm the workers, retrying on failure. */
+  void bootstrap() {
+    state = State.STARTING;
+    try {
+      environment.bootstrap();
+      workers.warmUp();
+      failure = null;
+      state = State.READY;
+    } catch (RuntimeException e) {
+      failure = e.getMessage();
+      state = State.FAILED;
+      if (!bootstrapper.isShutdown()) {
+        bootstrapper.schedule(this::bootstrap, retry.toNanos(),
+            TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+}
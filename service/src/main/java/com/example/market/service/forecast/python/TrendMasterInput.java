@@ -0,0 +1,142 @@
+package com.example.market.service.forecast.python;
+
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs the input windows of a TrendMaster run into one binary block that
+ * main.py reads from standard input straight into NumPy arrays.
+ *
+ * <p>Only the last {@code window} bars of each series are sent. The block
+ * is little-endian: the magic {@code TMB1}, an int32 series count, then
+ * per series an int32 byte length and the UTF-8 name, an int32 bar count
+ * {@code n}, {@code n} int64 epoch days and {@code n} float64 closes, both
+ * oldest first.</p>
+ */
+final class TrendMasterInput {
+  /** Leading bytes of every block. */
+  static final byte[] MAGIC = {'T', 'M', 'B', '1'};
+  /** Length of a timestamp's date part. */
+  private static final int DATE_LENGTH = 10;
+
+  private TrendMasterInput() {
+  }
+
+  /**
+   * Encode the trailing window of each series.
+   *
+   * @param series the daily series by name, each oldest bar first
+   * @param window most bars to send per series
+   * @return the block
+   * @throws IllegalArgumentException if a bar has a malformed timestamp
+   */
+  static byte[] encode(final Map<String, StockDailySeries> series,
+                       final int window) {
+    final int count = series.size();
+    final byte[][] names = new byte[count][];
+    final long[][] days = new long[count][];
+    final double[][] closes = new double[count][];
+    int size = MAGIC.length + Integer.BYTES;
+    int i = 0;
+    for (Map.Entry<String, StockDailySeries> e : series.entrySet()) {
+      names[i] = e.getKey().getBytes(StandardCharsets.UTF_8);
+      final List<StockBar> bars = e.getValue().getBars() == null
+          ? List.of() : e.getValue().getBars();
+      select(bars, window, days, closes, i);
+      size += 2 * Integer.BYTES + names[i].length
+          + days[i].length * (Long.BYTES + Double.BYTES);
+      i++;
+    }
+
+    final ByteBuffer out = ByteBuffer.allocate(size)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    out.put(MAGIC).putInt(count);
+    for (int s = 0; s < count; s++) {
+      out.putInt(names[s].length).put(names[s]).putInt(days[s].length);
+      for (long day : days[s]) {
+        out.putLong(day);
+      }
+      for (double close : closes[s]) {
+        out.putDouble(close);
+      }
+    }
+    return out.array();
+  }
+
+  /**
+   * Split a block into its series, the inverse of {@link #encode}.
+   *
+   * @param block a block from {@link #encode}
+   * @return each series' bytes after its name, by name, in block order
+   * @throws IllegalArgumentException if the block is malformed
+   */
+  static Map<String, byte[]> split(final byte[] block) {
+    if (!Arrays.equals(Arrays.copyOf(block, MAGIC.length), MAGIC)) {
+      throw new IllegalArgumentException("Not a TrendMaster input block");
+    }
+    final ByteBuffer in = ByteBuffer.wrap(block)
+        .order(ByteOrder.LITTLE_ENDIAN).position(MAGIC.length);
+    final Map<String, byte[]> out = new LinkedHashMap<>();
+    try {
+      final int count = in.getInt();
+      for (int s = 0; s < count; s++) {
+        final byte[] name = new byte[in.getInt()];
+        in.get(name);
+        final int from = in.position();
+        final int n = in.getInt();
+        in.position(from + Integer.BYTES + n * (Long.BYTES + Double.BYTES));
+        out.put(new String(name, StandardCharsets.UTF_8),
+            Arrays.copyOfRange(block, from, in.position()));
+      }
+    } catch (BufferUnderflowException | IllegalArgumentException
+             | NegativeArraySizeException e) {
+      throw new IllegalArgumentException(
+          "Truncated TrendMaster input block", e);
+    }
+    return out;
+  }
+
+  /**
+   * Copy the last {@code window} bars.
+   *
+   * @param bars   the series' bars, oldest first
+   * @param window most bars to keep
+   * @param days   receives the epoch days at {@code index}
+   * @param closes receives the closes at {@code index}
+   * @param index  slot of this series
+   */
+  private static void select(final List<StockBar> bars, final int window,
+                             final long[][] days, final double[][] closes,
+                             final int index) {
+    final int from = Math.max(0, bars.size() - window);
+    final int n = bars.size() - from;
+    days[index] = new long[n];
+    closes[index] = new double[n];
+    for (int k = 0; k < n; k++) {
+      final StockBar bar = bars.get(from + k);
+      days[index][k] = epochDay(bar.getTimestamp());
+      closes[index][k] = bar.getClose().doubleValue();
+    }
+  }
+
+  private static long epochDay(final String timestamp) {
+    try {
+      return LocalDate.parse(timestamp.length() > DATE_LENGTH
+          ? timestamp.substring(0, DATE_LENGTH) : timestamp).toEpochDay();
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Bad bar timestamp: " + timestamp,
+          e);
+    }
+  }
+}
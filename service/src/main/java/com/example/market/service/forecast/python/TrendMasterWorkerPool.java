@@ -0,0 +1,613 @@
+package com.example.market.service.forecast.python;
+
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.DaemonThreads;
+import com.example.market.service.demand.SymbolDemand;
+import com.example.market.service.jfr.PythonProcessEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Long-lived TrendMaster processes that keep per-symbol state between
+ * forecasts.
+ *
+ * <p>Each worker runs main.py in worker mode: it loads the model once, then
+ * answers length-prefixed requests on standard input with one line each on
+ * standard output, marked with {@value #REPLY_MARKER}. A request is an
+ * int32 horizon followed by a {@link TrendMasterInput} block. A worker
+ * keeps a bounded LRU of per-symbol state: the last window it was sent,
+ * the model input built from it and the forecasts already made from it.
+ * A symbol whose window has not changed is answered from memory, and a
+ * new horizon over an unchanged window reuses the built input.</p>
+ *
+ * <p>Only symbols clients asked for at least
+ * {@code market.forecast.workers.admit-after} times recently, by
+ * {@link SymbolDemand}'s estimate, may push another symbol out of a full
+ * worker; the others are kept only while the worker has room, so a burst
+ * of one-off symbols does not evict the ones asked for every day. Each
+ * request carries, after the input block, one byte per series telling
+ * the worker whether that symbol is admitted.</p>
+ *
+ * <p>A symbol always goes to the same worker, picked by hashing it, so its
+ * next request lands where its state is. Requests always carry the full
+ * window, so a worker that evicted a symbol, or restarted and lost its
+ * state, just forecasts it cold. A worker that fails to start, dies,
+ * stops answering or breaks the protocol is stopped and its part of the
+ * batch falls back to an isolated run; it is restarted by its next
+ * request. A caller that is interrupted only stops waiting: the worker
+ * finishes the request, and its reply is read and discarded before the
+ * next request's, so the worker and its state are kept.</p>
+ *
+ * <p>Replies also carry the time the worker spent on inference and, in
+ * its first reply, on loading the model; both are recorded as pipeline
+ * stages. How each symbol was answered is exported as
+ * {@value #SYMBOLS_METER}, the worker tier of the forecast cache.</p>
+ */
+@Service
+public class TrendMasterWorkerPool implements DisposableBean, MeterBinder {
+  /** Marks the line that carries a worker's reply. */
+  static final String REPLY_MARKER = "@@TM ";
+  /** Input format value that starts main.py as a worker. */
+  static final String WORKER_INPUT = "worker";
+  /** Environment variable carrying the per-worker state capacity. */
+  static final String CAPACITY_ENV = "TRENDMASTER_STATE_CAPACITY";
+  /** Default symbols a worker keeps state for. */
+  private static final int DEFAULT_CAPACITY = 256;
+  /** Default requests before a symbol may evict another's state. */
+  private static final int DEFAULT_ADMIT_AFTER = 2;
+  /** Default time to wait for one reply, including a cold start. */
+  private static final Duration DEFAULT_REPLY_TIMEOUT = Duration.ofMinutes(5);
+  /** Bytes of the length and horizon prefix of a request. */
+  private static final int HEADER = 2 * Integer.BYTES;
+  /** Counter of symbols answered, by the state they were answered from. */
+  static final String SYMBOLS_METER = "market.forecast.worker.symbols";
+  /** Counter of batch parts that fell back to an isolated run. */
+  static final String FALLBACKS_METER = "market.forecast.worker.fallbacks";
+
+  /** Starts workers and runs the isolated fallback. */
+  private final PythonService python;
+  /** The workers; empty runs every batch isolated. */
+  private final Worker[] workers;
+  /** Symbols each worker keeps state for. */
+  private final int capacity;
+  /** Time to wait for one reply. */
+  private final Duration replyTimeout;
+  /** Whether a symbol may evict another's state. */
+  private final Predicate<String> admission;
+  /** Sends the parts of a batch that spans workers. */
+  private final ExecutorService fanOut;
+  /** Symbols answered from a worker's memory. */
+  private final AtomicLong hits = new AtomicLong();
+  /** Symbols forecast from a window the worker already held. */
+  private final AtomicLong warm = new AtomicLong();
+  /** Symbols forecast from a window the worker did not hold. */
+  private final AtomicLong cold = new AtomicLong();
+  /** Batch parts that fell back to an isolated run. */
+  private final AtomicLong fallbacks = new AtomicLong();
+  /** Set once the pool is shut down. */
+  private volatile boolean closed;
+
+  /**
+   * Constructor admitting symbols by how often clients ask for them.
+   *
+   * @param thisPython       starts workers and runs the isolated fallback
+   * @param thisCount        number of workers; zero runs every batch
+   *                         isolated
+   * @param thisCapacity     symbols each worker keeps state for
+   * @param thisReplyTimeout time to wait for one reply, including a
+   *                         worker's start
+   * @param demand           how often each symbol is requested
+   * @param admitAfter       requests before a symbol may evict another's
+   *                         state; 1 or less admits every symbol
+   */
+  @Autowired
+  public TrendMasterWorkerPool(
+      final PythonService thisPython,
+      @Value("${market.forecast.workers.count:2}") final int thisCount,
+      @Value("${market.forecast.workers.state-capacity:256}")
+      final int thisCapacity,
+      @Value("${market.forecast.workers.reply-timeout:PT5M}")
+      final Duration thisReplyTimeout,
+      final SymbolDemand demand,
+      @Value("${market.forecast.workers.admit-after:"
+          + DEFAULT_ADMIT_AFTER + "}") final int admitAfter) {
+    this(thisPython, thisCount, thisCapacity, thisReplyTimeout,
+        admitAfter <= 1 ? symbol -> true
+            : symbol -> demand.estimate(symbol) >= admitAfter);
+  }
+
+  /**
+   * Constructor admitting every symbol.
+   *
+   * @param thisPython       starts workers and runs the isolated fallback
+   * @param thisCount        number of workers; zero runs every batch
+   *                         isolated
+   * @param thisCapacity     symbols each worker keeps state for
+   * @param thisReplyTimeout time to wait for one reply, including a
+   *                         worker's start
+   */
+  public TrendMasterWorkerPool(final PythonService thisPython,
+                               final int thisCount, final int thisCapacity,
+                               final Duration thisReplyTimeout) {
+    this(thisPython, thisCount, thisCapacity, thisReplyTimeout,
+        symbol -> true);
+  }
+
+  /**
+   * All args constructor.
+   *
+   * @param thisPython       starts workers and runs the isolated fallback
+   * @param thisCount        number of workers; zero runs every batch
+   *                         isolated
+   * @param thisCapacity     symbols each worker keeps state for
+   * @param thisReplyTimeout time to wait for one reply, including a
+   *                         worker's start
+   * @param thisAdmission    whether a symbol may evict another's state
+   */
+  TrendMasterWorkerPool(final PythonService thisPython, final int thisCount,
+                        final int thisCapacity,
+                        final Duration thisReplyTimeout,
+                        final Predicate<String> thisAdmission) {
+    if (thisCount < 0 || thisCapacity < 1 || !thisReplyTimeout.isPositive()) {
+      throw new IllegalArgumentException("market.forecast.workers count "
+          + "must not be negative and state-capacity and reply-timeout "
+          + "must be positive");
+    }
+    this.python = thisPython;
+    this.capacity = thisCapacity;
+    this.replyTimeout = thisReplyTimeout;
+    this.admission = thisAdmission;
+    this.workers = new Worker[thisCount];
+    for (int i = 0; i < thisCount; i++) {
+      workers[i] = new Worker(i);
+    }
+    this.fanOut = Executors.newCachedThreadPool(
+        DaemonThreads.numbered("trendmaster-fan-out-"));
+  }
+
+  /**
+   * Constructor without workers: every batch runs isolated.
+   *
+   * @param thisPython runs the batches
+   */
+  public TrendMasterWorkerPool(final PythonService thisPython) {
+    this(thisPython, 0, DEFAULT_CAPACITY, DEFAULT_REPLY_TIMEOUT);
+  }
+
+  /**
+   * Forecast several series, each on the worker that owns its symbol.
+   * Returns like {@link PythonService#runTrendMasterBatch(Map, int)}.
+   * Interrupting the calling thread ends its wait but keeps the workers.
+   *
+   * @param series  the daily series to forecast, by symbol
+   * @param horizon number of days to predict for every symbol
+   * @return each symbol's output, in the form
+   *         {@link PythonService#parseForecastSeries(String)} reads
+   * @throws RuntimeException if the isolated fallback fails, the pool is
+   *            shut down, or the calling thread is interrupted
+   */
+  public Map<String, String> run(final Map<String, StockDailySeries> series,
+                                 final int horizon) {
+    if (workers.length == 0) {
+      return python.runTrendMasterBatch(series, horizon);
+    }
+    final Map<Integer, Map<String, StockDailySeries>> parts = new TreeMap<>();
+    series.forEach((symbol, s) -> parts.computeIfAbsent(route(symbol),
+        w -> new LinkedHashMap<>()).put(symbol, s));
+    if (parts.size() == 1) {
+      final Map.Entry<Integer, Map<String, StockDailySeries>> only =
+          parts.entrySet().iterator().next();
+      return call(workers[only.getKey()], only.getValue(), horizon);
+    }
+    final List<Future<Map<String, String>>> calls = new ArrayList<>();
+    parts.forEach((w, part) -> calls.add(
+        fanOut.submit(() -> call(workers[w], part, horizon))));
+    final Map<String, String> out = new HashMap<>();
+    try {
+      for (Future<Map<String, String>> f : calls) {
+        out.putAll(f.get());
+      }
+      return out;
+    } catch (ExecutionException e) {
+      calls.forEach(f -> f.cancel(true));
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause.getMessage(), cause);
+    } catch (InterruptedException e) {
+      calls.forEach(f -> f.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("TrendMaster run interrupted", e);
+    }
+  }
+
+  /**
+   * Start every worker and wait until each has loaded the model, by
+   * sending it an empty request.
+   *
+   * @throws IllegalStateException if a worker fails to start or answer
+   * @throws RuntimeException      if the calling thread is interrupted
+   */
+  public void warmUp() {
+    final byte[] ping = frame(Map.of(), 0, symbol -> true);
+    for (Worker worker : workers) {
+      worker.lock.lock();
+      try {
+        PythonService.recordTimings(
+            worker.request(ping, List.of()).path("timings"));
+      } catch (InterruptedException e) {
+        worker.stop();
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("TrendMaster warm-up interrupted", e);
+      } catch (Exception e) {
+        worker.stop();
+        throw new IllegalStateException("TrendMaster worker " + worker.index
+            + " did not start: " + e.getMessage(), e);
+      } finally {
+        worker.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Number of workers.
+   *
+   * @return the configured count; zero runs every batch isolated
+   */
+  public int size() {
+    return workers.length;
+  }
+
+  /**
+   * The worker that owns a symbol's state.
+   *
+   * @param symbol the symbol
+   * @return the worker's index
+   */
+  int route(final String symbol) {
+    return Math.floorMod(symbol.hashCode(), workers.length);
+  }
+
+  /**
+   * Symbols answered from a worker's memory.
+   *
+   * @return the count since start
+   */
+  public long hits() {
+    return hits.get();
+  }
+
+  /**
+   * Symbols forecast from a window the worker already held.
+   *
+   * @return the count since start
+   */
+  public long warmForecasts() {
+    return warm.get();
+  }
+
+  /**
+   * Symbols forecast from a window the worker did not hold, because it
+   * was new, changed, evicted or lost with a restart.
+   *
+   * @return the count since start
+   */
+  public long coldForecasts() {
+    return cold.get();
+  }
+
+  /**
+   * Batch parts that fell back to an isolated run.
+   *
+   * @return the count since start
+   */
+  public long fallbacks() {
+    return fallbacks.get();
+  }
+
+  /**
+   * Export the answer and fallback counts.
+   *
+   * @param registry the registry to export to
+   */
+  @Override
+  public void bindTo(final MeterRegistry registry) {
+    symbols(registry, "hit", TrendMasterWorkerPool::hits);
+    symbols(registry, "warm", TrendMasterWorkerPool::warmForecasts);
+    symbols(registry, "cold", TrendMasterWorkerPool::coldForecasts);
+    FunctionCounter.builder(FALLBACKS_METER, this,
+            TrendMasterWorkerPool::fallbacks)
+        .description("TrendMaster batch parts run isolated after a worker "
+            + "failed")
+        .register(registry);
+  }
+
+  private void symbols(final MeterRegistry registry, final String state,
+                       final ToDoubleFunction<TrendMasterWorkerPool> count) {
+    FunctionCounter.builder(SYMBOLS_METER, this, count)
+        .description("Symbols forecast by the TrendMaster workers, by the "
+            + "state they were answered from")
+        .tag("state", state)
+        .register(registry);
+  }
+
+  /** Stops every worker. */
+  @Override
+  public void destroy() {
+    closed = true;
+    fanOut.shutdownNow();
+    for (Worker worker : workers) {
+      if (worker.lock.tryLock()) {
+        try {
+          worker.stop();
+        } finally {
+          worker.lock.unlock();
+        }
+      } else {
+        // the holder sees the process die and cleans up
+        worker.kill();
+      }
+    }
+  }
+
+  /**
+   * Send one worker its part of a batch, falling back to an isolated run
+   * if the worker fails.
+   *
+   * @param worker  the worker owning every symbol of the part
+   * @param part    the series to forecast, by symbol
+   * @param horizon number of days to predict
+   * @return each symbol's output
+   */
+  private Map<String, String> call(final Worker worker,
+                                   final Map<String, StockDailySeries> part,
+                                   final int horizon) {
+    if (closed) {
+      throw new RuntimeException("TrendMaster workers are shut down");
+    }
+    final Exception failure;
+    try {
+      worker.lock.lockInterruptibly();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("TrendMaster run interrupted", e);
+    }
+    try {
+      final JsonNode reply =
+          worker.request(frame(part, horizon, admission), part.keySet());
+      count(reply.path("state"));
+      PythonService.recordTimings(reply.path("timings"));
+      final JsonNode results = reply.get("results");
+      if (results == null || !results.isObject()) {
+        throw new IOException("Worker reply has no results");
+      }
+      return PythonService.bySymbol(results);
+    } catch (InterruptedException e) {
+      // the request is still owed a reply, which the next one discards
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("TrendMaster run interrupted", e);
+    } catch (Exception e) {
+      worker.stop();
+      failure = e;
+    } finally {
+      worker.lock.unlock();
+    }
+    if (closed) {
+      throw new RuntimeException("TrendMaster workers are shut down",
+          failure);
+    }
+    fallbacks.incrementAndGet();
+    return python.runTrendMasterBatch(part, horizon);
+  }
+
+  /**
+   * Tally how a worker answered each symbol.
+   *
+   * @param state the reply's {@code symbol -> hit|warm|cold} object
+   */
+  private void count(final JsonNode state) {
+    state.forEach(kind -> {
+      switch (kind.asText()) {
+        case "hit" -> hits.incrementAndGet();
+        case "warm" -> warm.incrementAndGet();
+        default -> cold.incrementAndGet();
+      }
+    });
+  }
+
+  /**
+   * Encode one request: its length, the horizon, the input block and
+   * each series' admission, 1 or 0, in the block's order.
+   *
+   * @param part      the series to forecast, by symbol
+   * @param horizon   number of days to predict
+   * @param admission whether a symbol may evict another's state
+   * @return the request bytes
+   */
+  static byte[] frame(final Map<String, StockDailySeries> part,
+                      final int horizon,
+                      final Predicate<String> admission) {
+    final byte[] block =
+        TrendMasterInput.encode(part, PythonService.INPUT_WINDOW);
+    final ByteBuffer frame =
+        ByteBuffer.allocate(HEADER + block.length + part.size())
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(Integer.BYTES + block.length + part.size())
+            .putInt(horizon).put(block);
+    part.keySet().forEach(
+        symbol -> frame.put((byte) (admission.test(symbol) ? 1 : 0)));
+    return frame.array();
+  }
+
+  /**
+   * Queue a worker's replies until its output ends.
+   *
+   * @param output  the worker's standard output
+   * @param replies receives each reply, then an empty value at the end
+   * @param worker  remembers the last other line, for error messages
+   */
+  private static void pump(final InputStream output,
+                           final BlockingQueue<Optional<String>> replies,
+                           final Worker worker) {
+    try (BufferedReader in = new BufferedReader(
+        new InputStreamReader(output, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        // TrendMaster may print progress without a newline first
+        final int at = line.indexOf(REPLY_MARKER);
+        if (at < 0) {
+          worker.lastOutput = line;
+        } else {
+          replies.add(Optional.of(
+              line.substring(at + REPLY_MARKER.length())));
+        }
+      }
+    } catch (IOException e) {
+      worker.lastOutput = e.getMessage();
+    }
+    replies.add(Optional.empty());
+  }
+
+  /** One worker process; its fields are guarded by {@link #lock}. */
+  private final class Worker {
+    /** Position in {@link #workers}. */
+    private final int index;
+    /** Held for a whole request. */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** The running process, or {@code null} when stopped. */
+    private volatile Process process;
+    /** Its standard input. */
+    private OutputStream stdin;
+    /** Its replies, in order. */
+    private BlockingQueue<Optional<String>> replies;
+    /** Its working directory. */
+    private Path workDir;
+    /** Last line it printed that was not a reply. */
+    private volatile String lastOutput = "";
+    /** Requests sent whose callers stopped waiting before the reply. */
+    private int owed;
+
+    Worker(final int thisIndex) {
+      this.index = thisIndex;
+    }
+
+    /**
+     * Send a request and wait for its reply, starting the process first
+     * if it is not running. Replies still owed to earlier callers that
+     * were interrupted arrive first and are discarded, each within the
+     * reply timeout.
+     *
+     * @param frame   the request from {@link #frame(Map, int, Predicate)}
+     * @param symbols the symbols in it, for its {@link PythonProcessEvent}
+     * @return the reply object
+     * @throws InterruptedException if the calling thread is interrupted;
+     *                              the reply is then owed to the next
+     *                              request
+     * @throws Exception            if the process cannot be started,
+     *                              exits, times out or replies with
+     *                              something that is not a JSON object
+     */
+    JsonNode request(final byte[] frame, final Collection<String> symbols)
+        throws Exception {
+      final PythonProcessEvent event = PythonProcessEvent.start(
+          PythonService.TRENDMASTER_NAME, "worker", symbols);
+      if (process == null || !process.isAlive()) {
+        stop();
+        start();
+      }
+      stdin.write(frame);
+      stdin.flush();
+      owed++;
+      Optional<String> reply;
+      do {
+        reply = replies.poll(replyTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        if (reply == null || reply.isEmpty()) {
+          break;
+        }
+        owed--;
+      } while (owed > 0);
+      event.finish(PythonProcessEvent.STILL_RUNNING, frame.length,
+          reply == null || reply.isEmpty() ? 0 : reply.get().length());
+      if (reply == null) {
+        throw new IOException("TrendMaster worker " + index
+            + " did not reply within " + replyTimeout);
+      }
+      return PythonService.readObject(reply.orElseThrow(
+          () -> new IOException("TrendMaster worker " + index
+              + " exited: " + lastOutput)));
+    }
+
+    private void start() throws Exception {
+      workDir = Files.createTempDirectory("trendmaster-worker-");
+      final ProcessBuilder pb =
+          python.trendMasterProcess(workDir, WORKER_INPUT);
+      pb.environment().put(CAPACITY_ENV, Integer.toString(capacity));
+      final Process started = python.start(pb);
+      final BlockingQueue<Optional<String>> queue =
+          new LinkedBlockingQueue<>();
+      DaemonThreads.start("trendmaster-worker-" + index,
+          () -> pump(started.getInputStream(), queue, this));
+      lastOutput = "";
+      replies = queue;
+      stdin = started.getOutputStream();
+      process = started;
+    }
+
+    /** Kill the process, losing its state, and remove its directory. */
+    void stop() {
+      kill();
+      process = null;
+      stdin = null;
+      replies = null;
+      owed = 0;
+      PythonService.deleteQuietly(workDir);
+      workDir = null;
+    }
+
+    /** Kill the process, if any, without touching guarded fields. */
+    void kill() {
+      final Process p = process;
+      if (p != null) {
+        PythonService.kill(p);
+      }
+    }
+  }
+}
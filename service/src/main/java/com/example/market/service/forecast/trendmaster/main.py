@@ -1,3 +1,7 @@
+import time
+# Model load time reported to Java counts from here: imports and weights
+started = time.perf_counter()
+
 from trendmaster import (
     DataLoader,
     TransAm,
@@ -9,38 +13,190 @@ import json
 import matplotlib
 import joblib
 import os
+import itertools
+import struct
+from collections import OrderedDict
+import sys
+import numpy as np
 import pandas as pd
 
 matplotlib.use('Agg')
 import matplotlib.pyplot as plt
 plt.ioff()
 
-# Dates for prediction window
-from_date = '2025-01-01'
-to_date = '2025-12-01'
-pd_from = pd.to_datetime(from_date)
-pd_to = pd.to_datetime(to_date)
+# Forecast length of an isolated run; a worker is sent one per request
+future_steps = int(os.environ.get("TRENDMASTER_FUTURE_STEPS", 10))
 
 # Data loader (TrendMaster utility)
 data_loader = DataLoader()  # TODO: adjust if your version needs args
 
-# Create joblib file from json
-stock_data_json = "stock_daily.json"
-with open(stock_data_json, 'r') as fh:
-    result_dict = json.load(fh)
+# Bars fed to the model per forecast; PythonService sends exactly these
+input_window = int(os.environ.get("TRENDMASTER_INPUT_WINDOW", 30))
+
+# Symbols a worker keeps state for (TrendMasterWorkerPool.java)
+state_capacity = int(os.environ.get("TRENDMASTER_STATE_CAPACITY", 256))
+
+
+def read_windows(data):
+    """Decode the block PythonService writes to stdin (see
+    TrendMasterInput.java): b"TMB1", int32 count, then per series an int32
+    length and UTF-8 name, int32 n, n int64 epoch days and n float64
+    closes, all little-endian. Returns {name: DataFrame}."""
+    if data[:4] != b"TMB1":
+        raise ValueError("stdin is not a TrendMaster input block")
+    (count,) = struct.unpack_from("<i", data, 4)
+    pos = 8
+    frames = {}
+    for _ in range(count):
+        (size,) = struct.unpack_from("<i", data, pos)
+        name = data[pos + 4:pos + 4 + size].decode("utf-8")
+        pos += 4 + size
+        (n,) = struct.unpack_from("<i", data, pos)
+        pos += 4
+        days = np.frombuffer(data, dtype="<i8", count=n, offset=pos)
+        pos += 8 * n
+        closes = np.frombuffer(data, dtype="<f8", count=n, offset=pos)
+        pos += 8 * n
+        df = pd.DataFrame({"close": closes},
+                          index=pd.to_datetime(days, unit="D"))
+        df.index.name = "date"
+        frames[name] = df
+    return frames
+
+
+def predict(df, name, start, end):
+    """Forecast one frame; returns the predictions as a JSON string."""
+    # TrendMaster's DataLoader only reads `<name>_data.joblib`
+    joblib.dump(df, name + "_data.joblib")
+    return infer(name, start, end, future_steps)
+
+
+def infer(name, start, end, steps):
+    """Forecast from the `<name>_data.joblib` already on disk."""
+    predictions = inferencer.predict(
+        symbol=name,
+        from_date=start,
+        to_date=end,
+        input_window=input_window,
+        future_steps=steps
+    )
+    predictions['Date'] = predictions['Date'].dt.strftime('%Y-%m-%d')
+    return predictions.to_json(date_format='iso')
+
+
+def window_dates(df):
+    """First and last date of a window sent by Java."""
+    if df.empty:
+        raise ValueError("no bars to forecast from")
+    return (df.index[0].strftime('%Y-%m-%d'),
+            df.index[-1].strftime('%Y-%m-%d'))
+
+
+def predict_window(df, name):
+    """Forecast a window sent by Java, over exactly its dates."""
+    start, end = window_dates(df)
+    return predict(df, name, start, end)
 
-df_data = {"close": [], "date": []}
-for bar in result_dict['bars']:
-    ts = pd.to_datetime(bar["timestamp"])
-    if pd_from <= ts <= pd_to:
-        df_data["close"].append(bar["close"])
-        df_data["date"].append(bar["timestamp"])
 
-df = pd.DataFrame(df_data)
-df['date'] = pd.to_datetime(df['date'])
-df.set_index('date', inplace=True)
-filename = "STOCK_data.joblib"
-joblib.dump(df, filename)
+def read_exact(stream, size):
+    """Read exactly size bytes, or None at end of input."""
+    data = b""
+    while len(data) < size:
+        chunk = stream.read(size - len(data))
+        if not chunk:
+            return None
+        data += chunk
+    return data
+
+
+class SymbolStates:
+    """Per-symbol state of a worker, least recently used first.
+
+    A symbol's state is the window it was last sent (dates and closes),
+    the joblib input file built from it and the forecasts already made
+    from it by horizon. An unchanged window answers a known horizon from
+    memory ("hit") and a new horizon without rebuilding the input
+    ("warm"); anything else replaces the state ("cold"). TrendMaster's
+    Inferencer has no incremental update, so a window that moved by a bar
+    still runs a full forward pass, just without the process start and
+    model load. A symbol that is not admitted is only kept while there is
+    room, so it never evicts another."""
+
+    def __init__(self, capacity):
+        self.capacity = capacity
+        self.states = OrderedDict()
+        self.names = itertools.count()
+
+    def forecast(self, symbol, df, steps, admit=True):
+        start, end = window_dates(df)
+        key = (start, end, df["close"].to_numpy().tobytes())
+        state = self.states.pop(symbol, None)
+        if state is not None and state["key"] == key:
+            kind = "hit" if steps in state["memo"] else "warm"
+        else:
+            # positional names keep user input out of file names
+            name = state["name"] if state else "W%d" % next(self.names)
+            state = {"name": name, "key": key, "memo": {}}
+            joblib.dump(df, name + "_data.joblib")
+            kind = "cold"
+        try:
+            if kind != "hit":
+                state["memo"][steps] = infer(state["name"], start, end,
+                                             steps)
+        except Exception:
+            self.drop(state)
+            raise
+        if admit or len(self.states) < self.capacity:
+            self.states[symbol] = state
+        else:
+            self.drop(state)
+        while len(self.states) > self.capacity:
+            self.drop(self.states.popitem(last=False)[1])
+        return state["memo"][steps], kind
+
+    @staticmethod
+    def drop(state):
+        try:
+            os.remove(state["name"] + "_data.joblib")
+        except OSError:
+            pass
+
+
+def serve(stream, load_seconds):
+    """Worker loop: answer each request on stream with one marked line of
+    {"results": {symbol: predictions | {"error": message}},
+     "state": {symbol: "hit" | "warm" | "cold"},
+     "timings": {"load": seconds, "inference": seconds}}
+    until the input ends; the load is only reported in the first reply,
+    the inference only for requests with symbols. A request is an int32
+    length, then an int32 horizon, the block read_windows decodes and one
+    byte per series in the block's order, 1 if it is admitted."""
+    states = SymbolStates(state_capacity)
+    timings = {"load": load_seconds}
+    while True:
+        head = read_exact(stream, 4)
+        body = head and read_exact(stream, struct.unpack("<i", head)[0])
+        if not body:
+            return
+        (steps,) = struct.unpack_from("<i", body, 0)
+        results, kinds = {}, {}
+        began = time.perf_counter()
+        windows = read_windows(body[4:])
+        admit = body[len(body) - len(windows):]
+        for (symbol, df), keep in zip(windows.items(), admit):
+            try:
+                results[symbol], kinds[symbol] = states.forecast(
+                    symbol, df, steps, keep == 1)
+            except Exception as e:
+                results[symbol] = {"error": str(e)}
+        if results:
+            timings["inference"] = time.perf_counter() - began
+        sys.stdout.write("\n@@TM " + json.dumps(
+            {"results": results, "state": kinds,
+             "timings": timings}) + "\n")
+        sys.stdout.flush()
+        timings = {}
+
 
 # Initialize model and load weights relative to this script's directory
 script_dir = os.path.dirname(os.path.abspath(__file__))
@@ -50,18 +206,28 @@ device = torch.device('cuda' if torch.cuda.is_available() else 'cpu')
 model = TransAm()
 model.load_state_dict(torch.load(model_path, map_location="cpu"))
 
-# Initialize inferencer and make predictions
+# Initialize inferencer once; a batch reuses it for every symbol
 inferencer = Inferencer(model, device, data_loader)
-predictions = inferencer.predict(
-    symbol='STOCK',
-    from_date=from_date,
-    to_date=to_date,
-    input_window=30,
-future_steps=10
-)
-
-# Format and print JSON for Java to consume
-predictions['Date'] = predictions['Date'].dt.strftime('%Y-%m-%d')
-json_str = json.dumps(predictions.to_json(date_format='iso'), indent=4)
-print(json_str)
+load_seconds = time.perf_counter() - started
 
+if os.environ.get("TRENDMASTER_INPUT") == "worker":
+    # Long-lived worker started by TrendMasterWorkerPool
+    serve(sys.stdin.buffer, load_seconds)
+elif os.environ.get("TRENDMASTER_INPUT") == "binary":
+    # Isolated run: packed windows on stdin, one line of
+    # {"SYMBOL": predictions | {"error": message}, ...} out
+    windows = read_windows(sys.stdin.buffer.read())
+    results = {}
+    began = time.perf_counter()
+    for i, (symbol, df) in enumerate(windows.items()):
+        try:
+            # positional names keep user input out of file names
+            results[symbol] = predict_window(df, "S%d" % i)
+        except Exception as e:
+            results[symbol] = {"error": str(e)}
+    # stage timings on a marked line; the last line stays the result
+    print("@@TM " + json.dumps({"timings": {
+        "load": load_seconds, "inference": time.perf_counter() - began}}))
+    print(json.dumps(results))
+else:
+    sys.exit("TRENDMASTER_INPUT must be 'worker' or 'binary'")
@@ -0,0 +1,68 @@
+package com.example.market.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One read or write of a cache file.
+ *
+ * <p>Created with {@link #start} and ended with {@link #finish}; fields
+ * are only filled in when the event is going to be committed.</p>
+ */
+@Name(CacheOperationEvent.NAME)
+@Label("Cache Operation")
+@Category({"Market", "Cache"})
+@Description("A read or write of a cached JSON file")
+@StackTrace(false)
+public final class CacheOperationEvent extends Event {
+  /** Event type name, as used in JFR settings. */
+  public static final String NAME = "com.example.market.CacheOperation";
+
+  /** What was done: {@code read}, {@code write}, {@code append}. */
+  @Label("Operation")
+  private String operation;
+
+  /** The file, whose name carries the symbol. */
+  @Label("File")
+  private String file;
+
+  /** Bytes read or written. */
+  @Label("Bytes")
+  @DataAmount
+  private long bytes;
+
+  /**
+   * Begin timing an operation.
+   *
+   * @param thisOperation what is done
+   * @param thisFile      the file
+   * @return the started event
+   */
+  public static CacheOperationEvent start(final String thisOperation,
+                                          final Object thisFile) {
+    final CacheOperationEvent event = new CacheOperationEvent();
+    event.operation = thisOperation;
+    event.begin();
+    if (event.isEnabled()) {
+      event.file = String.valueOf(thisFile);
+    }
+    return event;
+  }
+
+  /**
+   * End an operation.
+   *
+   * @param thisBytes bytes read or written
+   */
+  public void finish(final long thisBytes) {
+    if (shouldCommit()) {
+      this.bytes = thisBytes;
+      commit();
+    }
+  }
+}
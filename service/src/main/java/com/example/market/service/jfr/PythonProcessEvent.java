@@ -0,0 +1,98 @@
+package com.example.market.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Collection;
+
+/**
+ * One Python run: a whole process, or one request to a long-lived
+ * TrendMaster worker.
+ *
+ * <p>Created with {@link #start} and ended with {@link #finish}; fields
+ * are only filled in when the event is going to be committed.</p>
+ */
+@Name(PythonProcessEvent.NAME)
+@Label("Python Process")
+@Category({"Market", "Python"})
+@Description("A Python forecast or sentiment run, or one request to a "
+    + "TrendMaster worker")
+@StackTrace(false)
+public final class PythonProcessEvent extends Event {
+  /** Event type name, as used in JFR settings. */
+  public static final String NAME = "com.example.market.PythonProcess";
+  /** Exit code of a run whose process has not exited. */
+  public static final int STILL_RUNNING = -1;
+
+  /** Script that ran, e.g. {@code main.py}. */
+  @Label("Script")
+  private String script;
+
+  /** How it ran: {@code isolated}, {@code worker}. */
+  @Label("Mode")
+  private String mode;
+
+  /** Symbols it was sent, comma-separated. */
+  @Label("Symbols")
+  private String symbols;
+
+  /**
+   * Exit code; {@value #STILL_RUNNING} for a worker request or a run that
+   * was abandoned before it exited.
+   */
+  @Label("Exit Code")
+  private int exitCode;
+
+  /** Bytes sent to the script. */
+  @Label("Bytes Written")
+  @DataAmount
+  private long bytesIn;
+
+  /** Bytes the script printed. */
+  @Label("Bytes Read")
+  @DataAmount
+  private long bytesOut;
+
+  /**
+   * Begin timing a run.
+   *
+   * @param thisScript  the script
+   * @param thisMode    how it runs
+   * @param thisSymbols symbols it is sent; only joined when recording
+   * @return the started event
+   */
+  public static PythonProcessEvent start(
+      final String thisScript, final String thisMode,
+      final Collection<String> thisSymbols) {
+    final PythonProcessEvent event = new PythonProcessEvent();
+    event.script = thisScript;
+    event.mode = thisMode;
+    event.begin();
+    if (event.isEnabled()) {
+      event.symbols = String.join(",", thisSymbols);
+    }
+    return event;
+  }
+
+  /**
+   * End a run.
+   *
+   * @param thisExitCode exit code, or {@value #STILL_RUNNING}
+   * @param thisBytesIn  bytes sent to the script
+   * @param thisBytesOut bytes it printed
+   */
+  public void finish(final int thisExitCode, final long thisBytesIn,
+                     final long thisBytesOut) {
+    if (shouldCommit()) {
+      this.exitCode = thisExitCode;
+      this.bytesIn = thisBytesIn;
+      this.bytesOut = thisBytesOut;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.example.market.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One HTTP call to an upstream API.
+ *
+ * <p>Created with {@link #start}, which also begins timing, and ended with
+ * {@link #finish} or {@link #fail}. Fields are only filled in when the
+ * event is going to be committed, so a disabled event costs a timestamp
+ * and nothing else.</p>
+ */
+@Name(UpstreamCallEvent.NAME)
+@Label("Upstream Call")
+@Category({"Market", "Upstream"})
+@Description("An HTTP call to a market data or news API")
+@StackTrace(false)
+public final class UpstreamCallEvent extends Event {
+  /** Event type name, as used in JFR settings. */
+  public static final String NAME = "com.example.market.UpstreamCall";
+
+  /** Upstream name, e.g. {@code alpha-vantage}. */
+  @Label("Upstream")
+  private String upstream;
+
+  /** Symbol or query the call was for. */
+  @Label("Symbol")
+  private String symbol;
+
+  /** HTTP status; 0 if no response arrived. */
+  @Label("HTTP Status")
+  private int status;
+
+  /** Response body size. */
+  @Label("Bytes Read")
+  @DataAmount
+  private long bytes;
+
+  /** Why the call failed without a response, if it did. */
+  @Label("Failure")
+  private String failure;
+
+  /**
+   * Begin timing a call.
+   *
+   * @param thisUpstream upstream name
+   * @param thisSymbol   symbol or query the call is for
+   * @return the started event
+   */
+  public static UpstreamCallEvent start(final String thisUpstream,
+                                        final String thisSymbol) {
+    final UpstreamCallEvent event = new UpstreamCallEvent();
+    event.upstream = thisUpstream;
+    event.symbol = thisSymbol;
+    event.begin();
+    return event;
+  }
+
+  /**
+   * End a call that got a response.
+   *
+   * @param thisStatus HTTP status
+   * @param thisBytes  response body size
+   */
+  public void finish(final int thisStatus, final long thisBytes) {
+    if (shouldCommit()) {
+      this.status = thisStatus;
+      this.bytes = thisBytes;
+      commit();
+    }
+  }
+
+  /**
+   * End a call that got no response.
+   *
+   * @param cause what went wrong
+   */
+  public void fail(final Throwable cause) {
+    if (shouldCommit()) {
+      this.failure = cause.toString();
+      commit();
+    }
+  }
+}
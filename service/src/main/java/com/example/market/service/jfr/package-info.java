@@ -0,0 +1,5 @@
+/**
+ * Java Flight Recorder events for the time the market service spends
+ * waiting on upstream APIs, Python processes and its file cache.
+ */
+package com.example.market.service.jfr;
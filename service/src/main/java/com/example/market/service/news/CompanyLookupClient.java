@@ -1,5 +1,6 @@
 package com.example.market.service.news;
 
+import com.example.market.service.upstream.Upstreams;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -25,14 +26,15 @@ public class CompanyLookupClient {
      * @return A company's full name
      * */
     public String lookupCompanyName(final String symbol) {
-        RestTemplate rest = new RestTemplate();
+        RestTemplate rest = RestTemplates.forDeadline("company lookup");
 
         String url = UriComponentsBuilder.fromHttpUrl(BASE_URL)
                 .queryParam("query", symbol)
                 .queryParam("apikey", API_KEY)
                 .toUriString();
 
-        List<Map<String, Object>> response = rest.getForObject(url, List.class);
+        List<Map<String, Object>> response = RestTemplates.getJson(rest, url,
+                List.class, Upstreams.FMP, symbol);
 
         if (response == null || response.isEmpty()) {
             return null;
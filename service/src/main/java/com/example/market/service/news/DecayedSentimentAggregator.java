@@ -0,0 +1,92 @@
+package com.example.market.service.news;
+
+import com.example.market.model.news.SentimentAggregates;
+import com.example.market.model.news.SentimentWindow;
+
+import java.time.Instant;
+
+/**
+ * Rolling exponentially decayed sentiment means for one symbol.
+ *
+ * <p>For every {@link SentimentWindow} it keeps a decayed sum of scores and
+ * a decayed sum of weights. A new observation multiplies both by
+ * {@code exp(-dt / tau)} and adds itself, so each update is O(1) no matter
+ * how long the history is. Observations older than the newest one are
+ * decayed into the sums instead, which keeps late writes correct.</p>
+ */
+final class DecayedSentimentAggregator {
+
+    /** Number of windows tracked. */
+    private static final int WINDOWS = SentimentWindow.values().length;
+
+    /** Symbol the aggregates belong to. */
+    private final String symbol;
+    /** Decayed score sums, one per window. */
+    private final double[] sums = new double[WINDOWS];
+    /** Decayed weight sums, one per window. */
+    private final double[] weights = new double[WINDOWS];
+    /** Time constants in milliseconds, one per window. */
+    private final double[] tauMillis = new double[WINDOWS];
+    /** Epoch millis of the newest observation. */
+    private long lastMillis;
+    /** Score of the newest observation. */
+    private int lastScore;
+    /** Number of observations folded in. */
+    private long count;
+
+    /**
+     * Creates an empty aggregator.
+     *
+     * @param thisSymbol symbol the aggregates belong to
+     */
+    DecayedSentimentAggregator(final String thisSymbol) {
+        this.symbol = thisSymbol;
+        for (SentimentWindow window : SentimentWindow.values()) {
+            tauMillis[window.ordinal()] =
+                    window.getTimeConstant().toMillis();
+        }
+    }
+
+    /**
+     * Folds one observation into every window.
+     *
+     * @param at    when the observation was taken
+     * @param score sentiment score (1-5)
+     */
+    synchronized void add(final Instant at, final int score) {
+        final long millis = at.toEpochMilli();
+        if (count == 0 || millis >= lastMillis) {
+            final long dt = count == 0 ? 0 : millis - lastMillis;
+            for (int i = 0; i < WINDOWS; i++) {
+                final double decay = Math.exp(-dt / tauMillis[i]);
+                sums[i] = sums[i] * decay + score;
+                weights[i] = weights[i] * decay + 1.0;
+            }
+            lastMillis = millis;
+            lastScore = score;
+        } else {
+            final long age = lastMillis - millis;
+            for (int i = 0; i < WINDOWS; i++) {
+                final double decay = Math.exp(-age / tauMillis[i]);
+                sums[i] += score * decay;
+                weights[i] += decay;
+            }
+        }
+        count++;
+    }
+
+    /**
+     * Returns a consistent snapshot of the current aggregates.
+     *
+     * @return snapshot
+     */
+    synchronized SentimentAggregates snapshot() {
+        final double[] means = new double[WINDOWS];
+        for (int i = 0; i < WINDOWS; i++) {
+            means[i] = count == 0 ? Double.NaN : sums[i] / weights[i];
+        }
+        final String last = count == 0
+                ? null : Instant.ofEpochMilli(lastMillis).toString();
+        return new SentimentAggregates(symbol, count, last, lastScore, means);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.market.service.news;
+
+import com.example.market.model.news.SentimentResult;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-JVM sentiment engine backed by a finance lexicon.
+ *
+ * <p>Text is scanned once, character by character, while walking the
+ * {@link SentimentLexicon} trie. Negators flip the polarity of the next
+ * few words, intensifiers boost the next polar word, and the summed
+ * weights are squashed into {@code [-1, 1]} before being mapped onto the
+ * same 1–5 scale the Python model reports.</p>
+ */
+@Service
+public class LexiconSentimentService implements SentimentAnalysisPort {
+
+    /** Given labels to categorize the sentiment of a company. */
+    private static final String[] LABELS = {
+        "very negative", "negative", "neutral", "positive", "very positive"
+    };
+    /** How many tokens a negator reaches forward. */
+    private static final int NEGATION_SCOPE = 3;
+    /** Factor applied to a negated word (flips and dampens it). */
+    private static final double NEGATION_FACTOR = -0.74;
+    /** Factor applied to a polar word right after an intensifier. */
+    private static final double BOOST_FACTOR = 1.5;
+    /** Normalisation constant for the squashing function. */
+    private static final double ALPHA = 15.0;
+    /** Compound score at or below which the result is very negative. */
+    private static final double VERY_NEGATIVE = -0.55;
+    /** Compound score at or below which the result is negative. */
+    private static final double NEGATIVE = -0.15;
+    /** Compound score below which the result is neutral. */
+    private static final double POSITIVE = 0.15;
+    /** Compound score below which the result is positive. */
+    private static final double VERY_POSITIVE = 0.55;
+    /** Score reported for the neutral bucket. */
+    private static final int NEUTRAL_SCORE = 3;
+
+    /** Compiled lexicon. */
+    private final SentimentLexicon lexicon;
+
+    /** Creates an engine using the bundled lexicon. */
+    public LexiconSentimentService() {
+        this(SentimentLexicon.loadDefault());
+    }
+
+    /**
+     * Creates an engine using the given lexicon.
+     *
+     * @param thisLexicon compiled lexicon
+     */
+    public LexiconSentimentService(final SentimentLexicon thisLexicon) {
+        this.lexicon = thisLexicon;
+    }
+
+    /**
+     * Runs lexicon sentiment analysis on a given text.
+     *
+     * @param text The content of an article.
+     * @return {@link SentimentResult} with a {@code null} company, like
+     *         {@link SentimentPythonService}
+     */
+    @Override
+    public SentimentResult analyzeSentiment(final String text) {
+        return toResult(score(text));
+    }
+
+    /**
+     * Scores a text without mapping it onto the 1–5 scale.
+     *
+     * @param text text to score; {@code null} is treated as empty
+     * @return the raw lexicon score
+     */
+    public LexiconScore score(final CharSequence text) {
+        if (text == null) {
+            return new LexiconScore(0.0, 0);
+        }
+        double sum = 0.0;
+        int hits = 0;
+        int negationLeft = 0;
+        boolean boost = false;
+
+        int node = SentimentLexicon.ROOT;
+        boolean inToken = false;
+        final int len = text.length();
+        for (int i = 0; i <= len; i++) {
+            final char c = i < len ? text.charAt(i) : ' ';
+            if (SentimentLexicon.letterIndex(c) >= 0) {
+                node = lexicon.step(node, c);
+                inToken = true;
+                continue;
+            }
+            if (inToken) {
+                switch (lexicon.kind(node)) {
+                    case SentimentLexicon.NEGATOR:
+                        negationLeft = NEGATION_SCOPE + 1;
+                        break;
+                    case SentimentLexicon.BOOSTER:
+                        boost = true;
+                        break;
+                    case SentimentLexicon.POLAR:
+                        double w = lexicon.weight(node);
+                        if (boost) {
+                            w *= BOOST_FACTOR;
+                        }
+                        if (negationLeft > 0) {
+                            w *= NEGATION_FACTOR;
+                        }
+                        sum += w;
+                        hits++;
+                        boost = false;
+                        break;
+                    default:
+                        break;
+                }
+                if (negationLeft > 0) {
+                    negationLeft--;
+                }
+                node = SentimentLexicon.ROOT;
+                inToken = false;
+            }
+            if (isClauseBreak(c)) {
+                negationLeft = 0;
+                boost = false;
+            }
+        }
+        double compound = sum
+                / Math.sqrt(sum * sum + ALPHA * Math.max(1, hits));
+        return new LexiconScore(compound, hits);
+    }
+
+    /**
+     * Maps a raw lexicon score onto a {@link SentimentResult}.
+     *
+     * @param score raw score
+     * @return a result with a 1–5 score and matching label
+     */
+    public static SentimentResult toResult(final LexiconScore score) {
+        int stars = stars(score.getCompound());
+        return new SentimentResult(null, stars, LABELS[stars - 1]);
+    }
+
+    /**
+     * Buckets a compound score into the 1–5 scale.
+     *
+     * @param compound score in {@code [-1, 1]}
+     * @return 1 (very negative) to 5 (very positive)
+     */
+    static int stars(final double compound) {
+        if (compound <= VERY_NEGATIVE) {
+            return 1;
+        }
+        if (compound <= NEGATIVE) {
+            return 2;
+        }
+        if (compound < POSITIVE) {
+            return NEUTRAL_SCORE;
+        }
+        if (compound < VERY_POSITIVE) {
+            return NEUTRAL_SCORE + 1;
+        }
+        return NEUTRAL_SCORE + 2;
+    }
+
+    private static boolean isClauseBreak(final char c) {
+        return c == '.' || c == '!' || c == '?' || c == ';' || c == ':';
+    }
+
+    /** Raw output of the lexicon scorer. */
+    public static final class LexiconScore {
+        /** Squashed score in {@code [-1, 1]}. */
+        private final double compound;
+        /** Number of polar words that contributed. */
+        private final int hits;
+
+        /**
+         * All args constructor.
+         *
+         * @param thisCompound squashed score in {@code [-1, 1]}
+         * @param thisHits     number of polar words found
+         */
+        public LexiconScore(final double thisCompound, final int thisHits) {
+            this.compound = thisCompound;
+            this.hits = thisHits;
+        }
+
+        /** Get the compound score.
+         *
+         * @return compound score in {@code [-1, 1]}
+         */
+        public double getCompound() {
+            return compound;
+        }
+
+        /** Get the number of polar words found.
+         *
+         * @return polar word count
+         */
+        public int getHits() {
+            return hits;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.market.service.news;
 
+import com.example.market.service.upstream.Upstreams;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -23,7 +24,7 @@ public class NewsApiClient {
      * */
     public Map<String, Object> fetchNews(final String query) {
 
-        RestTemplate rest = new RestTemplate();
+        RestTemplate rest = RestTemplates.forDeadline("news search");
 
         String url = UriComponentsBuilder.fromHttpUrl(BASE_URL)
                 .queryParam("q", query)
@@ -32,6 +33,7 @@ public class NewsApiClient {
                 .queryParam("apiKey", API_KEY)
                 .toUriString();
 
-        return rest.getForObject(url, Map.class);
+        return RestTemplates.getJson(rest, url, Map.class,
+                Upstreams.NEWS_API, query);
     }
 }
@@ -1,6 +1,9 @@
 package com.example.market.service.news;
 
 import com.example.market.model.news.SentimentResult;
+import com.example.market.service.Deadline;
+import com.example.market.service.upstream.Upstreams;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -9,12 +12,14 @@ import java.util.Map;
 @Service
 public class NewsDataService {
 
-    /** Python service that analyzes sentiment. */
-    private final SentimentPythonService sentimentPythonService;
+    /** Engine that analyzes sentiment (Python model or lexicon). */
+    private final SentimentAnalysisPort sentimentEngine;
     /** Client that connects to News API. */
     private final NewsApiClient newsApiClient;
     /** Client that connects to Lookup API. */
     private final CompanyLookupClient lookupClient;
+    /** Breakers and bulkheads for the lookup, news and sentiment calls. */
+    private final Upstreams upstreams;
     /** Maximum length of each article pulled. */
     private static final int MAX_ARTICLE_LEN = 2000;
     /** Default sentiment score of company. */
@@ -23,26 +28,44 @@ public class NewsDataService {
     /**
      * All args constructor.
      *
-     * @param thisSentimentPythonService service used to analyze sentiment
+     * @param thisSentimentEngine service used to analyze sentiment
      * @param thisNewsApiClient API used to look up news articles
      * @param thisLookupClient Used to look up a company name and symbol
+     * @param thisUpstreams breakers and bulkheads for those calls
      * */
-    public NewsDataService(final SentimentPythonService
-                                   thisSentimentPythonService,
+    @Autowired
+    public NewsDataService(final SentimentAnalysisPort
+                                   thisSentimentEngine,
                            final NewsApiClient thisNewsApiClient,
-                           final CompanyLookupClient thisLookupClient) {
-        this.sentimentPythonService = thisSentimentPythonService;
+                           final CompanyLookupClient thisLookupClient,
+                           final Upstreams thisUpstreams) {
+        this.sentimentEngine = thisSentimentEngine;
         this.newsApiClient = thisNewsApiClient;
         this.lookupClient = thisLookupClient;
+        this.upstreams = thisUpstreams;
+    }
+
+    /**
+     * Constructor with breakers and bulkheads of its own.
+     *
+     * @param thisSentimentEngine service used to analyze sentiment
+     * @param thisNewsApiClient API used to look up news articles
+     * @param thisLookupClient Used to look up a company name and symbol
+     * */
+    public NewsDataService(final SentimentAnalysisPort
+                                   thisSentimentEngine,
+                           final NewsApiClient thisNewsApiClient,
+                           final CompanyLookupClient thisLookupClient) {
+        this(thisSentimentEngine, thisNewsApiClient, thisLookupClient,
+                new Upstreams());
     }
 
     /**
      * No args constructor.
      * */
     public NewsDataService() {
-        this.sentimentPythonService = new SentimentPythonService();
-        this.newsApiClient = new NewsApiClient();
-        this.lookupClient = new CompanyLookupClient();
+        this(new SentimentPythonService(), new NewsApiClient(),
+                new CompanyLookupClient());
     }
 
     /**
@@ -55,8 +78,10 @@ public class NewsDataService {
     public SentimentResult analyzeSentiment(final String symbol)
             throws Exception {
 
-        // 1. Lookup company name using FMP
-        String companyName = lookupClient.lookupCompanyName(symbol);
+        // 1. Lookup company name using FMP; a symbol it found nothing for
+        //    is remembered, and not looked up again for a while
+        String companyName = upstreams.get(Upstreams.FMP)
+                .call(symbol, () -> lookupClient.lookupCompanyName(symbol));
 
         // Clean fallback
         String query;
@@ -67,7 +92,9 @@ public class NewsDataService {
         }
 
         // 2. Fetch news using company name
-        Map<String, Object> response = newsApiClient.fetchNews(query);
+        final String search = query;
+        Map<String, Object> response = upstreams.get(Upstreams.NEWS_API)
+                .call(() -> newsApiClient.fetchNews(search));
         List<Map<String, Object>> articles =
                 (List<Map<String, Object>>) response.get("articles");
 
@@ -95,9 +122,11 @@ public class NewsDataService {
             text = query;
         }
 
-        // 4. Sentiment from Python
-        SentimentResult pythonResult = sentimentPythonService
-                .analyzeSentiment(text);
+        // 4. Sentiment from the configured engine
+        Deadline.current().check("sentiment");
+        final String articleText = text;
+        SentimentResult pythonResult = upstreams.get(Upstreams.SENTIMENT)
+                .call(() -> sentimentEngine.analyzeSentiment(articleText));
 
         // 5. Final result → include original stock symbol
         return new SentimentResult(symbol,
@@ -0,0 +1,71 @@
+package com.example.market.service.news;
+
+import com.example.market.service.replay.ReplayFixtures;
+import com.example.market.service.upstream.Upstreams;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Company lookup stand-in, active whenever {@code market.replay.mode} is
+ * set. Recording saves each symbol's company name, an unknown symbol's
+ * included; replaying answers from them after the injected latency, or
+ * fails as often as configured.
+ */
+@Primary
+@Service
+@ConditionalOnProperty("market.replay.mode")
+public class ReplayCompanyLookupClient extends CompanyLookupClient {
+
+    /** Fixture kind of the names. */
+    static final String KIND = "fmp";
+    /** Field holding the name, which may be {@code null}. */
+    private static final String NAME = "name";
+
+    /** Where names are saved and read. */
+    private final ReplayFixtures fixtures;
+
+    /**
+     * All args constructor.
+     *
+     * @param thisFixtures where names are saved and read
+     */
+    @Autowired
+    public ReplayCompanyLookupClient(final ReplayFixtures thisFixtures) {
+        this.fixtures = thisFixtures;
+    }
+
+    /**
+     * Records or replays one lookup.
+     *
+     * @param symbol company stock symbol
+     * @return A company's full name
+     */
+    @Override
+    public String lookupCompanyName(final String symbol) {
+        try {
+            if (fixtures.isRecording()) {
+                final String name = super.lookupCompanyName(symbol);
+                fixtures.write(KIND, symbol,
+                        Collections.singletonMap(NAME, name));
+                return name;
+            }
+            Replays.await(fixtures.faults(Upstreams.FMP), "company lookup");
+            final Map<?, ?> saved = fixtures.read(KIND, symbol, Map.class);
+            if (saved == null) {
+                throw new IllegalStateException(
+                        "No recorded company for " + symbol);
+            }
+            final Object name = saved.get(NAME);
+            return name != null ? name.toString() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
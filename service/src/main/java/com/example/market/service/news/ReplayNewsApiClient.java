@@ -0,0 +1,68 @@
+package com.example.market.service.news;
+
+import com.example.market.service.replay.ReplayFixtures;
+import com.example.market.service.upstream.Upstreams;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * NewsAPI stand-in, active whenever {@code market.replay.mode} is set.
+ * Recording saves each search's response under its query; replaying
+ * answers from them after the injected latency, or fails as often as
+ * configured.
+ */
+@Primary
+@Service
+@ConditionalOnProperty("market.replay.mode")
+public class ReplayNewsApiClient extends NewsApiClient {
+
+    /** Fixture kind of the responses. */
+    static final String KIND = "news-api";
+
+    /** Where responses are saved and read. */
+    private final ReplayFixtures fixtures;
+
+    /**
+     * All args constructor.
+     *
+     * @param thisFixtures where responses are saved and read
+     */
+    @Autowired
+    public ReplayNewsApiClient(final ReplayFixtures thisFixtures) {
+        this.fixtures = thisFixtures;
+    }
+
+    /**
+     * Records or replays one search.
+     *
+     * @param query A query used to determine what articles to look for
+     * @return the response, as NewsAPI sent it
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> fetchNews(final String query) {
+        try {
+            if (fixtures.isRecording()) {
+                final Map<String, Object> news = super.fetchNews(query);
+                fixtures.write(KIND, query, news);
+                return news;
+            }
+            Replays.await(fixtures.faults(Upstreams.NEWS_API), "news search");
+            final Map<String, Object> news =
+                    fixtures.read(KIND, query, Map.class);
+            if (news == null) {
+                throw new IllegalStateException(
+                        "No recorded news for " + query);
+            }
+            return news;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
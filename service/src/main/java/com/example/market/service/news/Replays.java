@@ -0,0 +1,33 @@
+package com.example.market.service.news;
+
+import com.example.market.service.replay.InjectedFaults;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Fault injection shared by the HTTP stand-ins.
+ */
+final class Replays {
+
+    private Replays() {
+    }
+
+    /**
+     * Wait out the latency of one call and fail it if it is drawn to.
+     *
+     * @param faults the dependency's faults
+     * @param stage  what is waited for
+     * @throws ResourceAccessException if the call fails, as a refused
+     *                                 connection would
+     */
+    static void await(final InjectedFaults faults, final String stage) {
+        try {
+            faults.await(stage);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException(stage + " interrupted");
+        }
+        if (faults.nextFails()) {
+            throw new ResourceAccessException("Injected failure");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.market.service.news;
+
+import com.example.market.service.Deadline;
+import com.example.market.service.jfr.UpstreamCallEvent;
+import com.example.market.service.upstream.NegativeCache;
+import com.example.market.service.upstream.UpstreamRefusedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Creates the {@link RestTemplate}s the news clients call out with.
+ */
+final class RestTemplates {
+
+    /** Longest wait for one news API request. */
+    private static final Duration MAX_WAIT = Duration.ofSeconds(10);
+
+    /** Status of a rate limited request. */
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /** Parses response bodies. */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private RestTemplates() {
+    }
+
+    /**
+     * A template whose connect and read timeouts are {@link #MAX_WAIT}, or
+     * the budget left on the calling thread's {@link Deadline} if that is
+     * shorter, so a hung API cannot hold the thread indefinitely.
+     *
+     * @param stage what the template is for, for the deadline message
+     * @return the template
+     */
+    static RestTemplate forDeadline(final String stage) {
+        final Deadline deadline = Deadline.current();
+        deadline.check(stage);
+        final SimpleClientHttpRequestFactory factory =
+                new SimpleClientHttpRequestFactory();
+        // rounded up, so a timeout means the deadline really passed
+        final int millis = (int) deadline.remaining(MAX_WAIT)
+                .plusMillis(1).toMillis();
+        factory.setConnectTimeout(millis);
+        factory.setReadTimeout(millis);
+        return new RestTemplate(factory);
+    }
+
+    /**
+     * GETs a URL and parses its JSON body, recording the call as an
+     * {@link UpstreamCallEvent}. The body is read as bytes first so the
+     * event can carry its size.
+     *
+     * @param rest     the template
+     * @param url      request URL
+     * @param type     type to parse the body as
+     * @param upstream upstream name, for the event
+     * @param symbol   symbol or query the call is for, for the event
+     * @param <T>      the body type
+     * @return the parsed body, or {@code null} if there was none
+     * @throws UpstreamRefusedException if the API is rate limiting
+     * @throws RestClientException if the call fails or the body is not
+     *                             JSON of that type
+     */
+    static <T> T getJson(final RestTemplate rest, final String url,
+                         final Class<T> type, final String upstream,
+                         final String symbol) {
+        final UpstreamCallEvent event =
+                UpstreamCallEvent.start(upstream, symbol);
+        final ResponseEntity<byte[]> resp;
+        try {
+            resp = rest.getForEntity(url, byte[].class);
+        } catch (RestClientResponseException e) {
+            event.finish(e.getStatusCode().value(),
+                    e.getResponseBodyAsByteArray().length);
+            if (e.getStatusCode().value() == TOO_MANY_REQUESTS) {
+                final UpstreamRefusedException refused =
+                        new UpstreamRefusedException(upstream,
+                                NegativeCache.Kind.THROTTLED,
+                                upstream + " rate limit: " + e.getMessage());
+                refused.initCause(e);
+                throw refused;
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            event.fail(e);
+            throw e;
+        }
+        final byte[] body = resp.getBody();
+        event.finish(resp.getStatusCode().value(),
+                body == null ? 0 : body.length);
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(body, type);
+        } catch (IOException e) {
+            throw new RestClientException("unreadable " + upstream
+                    + " response", e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.market.service.news;
+
+import com.example.market.model.news.SentimentResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * {@link SentimentAnalysisPort} that dispatches to the engine selected by
+ * {@code market.sentiment.engine}.
+ *
+ * <p>In {@code lexicon-then-python-refine} mode the lexicon answers on its
+ * own whenever it is confident, and only ambiguous texts pay for a Python
+ * run. If that refinement fails the lexicon answer is returned instead of
+ * an error.</p>
+ */
+@Primary
+@Service
+public class RoutingSentimentService implements SentimentAnalysisPort {
+
+    /** Minimum number of polar words for the lexicon to be confident. */
+    private static final int MIN_CONFIDENT_HITS = 2;
+
+    /** Transformer model run through Python. */
+    private final SentimentAnalysisPort python;
+    /** In-JVM lexicon engine. */
+    private final LexiconSentimentService lexicon;
+    /** Engine selected by configuration. */
+    private final SentimentEngine engine;
+    /** Confidence threshold for the refine mode. */
+    private final double refineBelow;
+
+    /**
+     * All args constructor.
+     *
+     * @param thisPython      Python-backed sentiment service
+     * @param thisLexicon     lexicon-backed sentiment service
+     * @param thisEngine      configured engine name
+     * @param thisRefineBelow lexicon confidence below which Python is asked
+     */
+    @Autowired
+    public RoutingSentimentService(
+            final SentimentPythonService thisPython,
+            final LexiconSentimentService thisLexicon,
+            @Value("${market.sentiment.engine:python}")
+            final String thisEngine,
+            @Value("${market.sentiment.refine-below-confidence:0.35}")
+            final double thisRefineBelow) {
+        this(thisPython, thisLexicon, SentimentEngine.fromConfig(thisEngine),
+                thisRefineBelow);
+    }
+
+    /**
+     * Creates a router over arbitrary engines.
+     *
+     * @param thisPython      engine used for the Python modes
+     * @param thisLexicon     lexicon-backed sentiment service
+     * @param thisEngine      engine to route to
+     * @param thisRefineBelow lexicon confidence below which Python is asked
+     */
+    public RoutingSentimentService(final SentimentAnalysisPort thisPython,
+                                   final LexiconSentimentService thisLexicon,
+                                   final SentimentEngine thisEngine,
+                                   final double thisRefineBelow) {
+        this.python = thisPython;
+        this.lexicon = thisLexicon;
+        this.engine = thisEngine;
+        this.refineBelow = thisRefineBelow;
+    }
+
+    /**
+     * Runs sentiment analysis with the configured engine.
+     *
+     * @param text The content of an article.
+     * @return {@link SentimentResult} object contain sentiment score.
+     */
+    @Override
+    public SentimentResult analyzeSentiment(final String text)
+            throws Exception {
+        switch (engine) {
+            case LEXICON:
+                return lexicon.analyzeSentiment(text);
+            case LEXICON_THEN_PYTHON_REFINE:
+                return lexiconThenRefine(text);
+            default:
+                return python.analyzeSentiment(text);
+        }
+    }
+
+    /**
+     * Engine this router dispatches to.
+     *
+     * @return selected engine
+     */
+    public SentimentEngine getEngine() {
+        return engine;
+    }
+
+    private SentimentResult lexiconThenRefine(final String text) {
+        LexiconSentimentService.LexiconScore score = lexicon.score(text);
+        SentimentResult fast = LexiconSentimentService.toResult(score);
+        if (confidence(score) >= refineBelow) {
+            return fast;
+        }
+        try {
+            return python.analyzeSentiment(text);
+        } catch (Exception e) {
+            return fast;
+        }
+    }
+
+    /**
+     * Confidence of a lexicon score: its magnitude, or zero when too few
+     * polar words were found to trust it.
+     *
+     * @param score raw lexicon score
+     * @return confidence in {@code [0, 1]}
+     */
+    static double confidence(final LexiconSentimentService.LexiconScore score) {
+        if (score.getHits() < MIN_CONFIDENT_HITS) {
+            return 0.0;
+        }
+        return Math.abs(score.getCompound());
+    }
+}
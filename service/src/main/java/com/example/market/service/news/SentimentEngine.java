@@ -0,0 +1,53 @@
+package com.example.market.service.news;
+
+import java.util.Locale;
+
+/**
+ * Sentiment engines that {@link RoutingSentimentService} can select.
+ */
+public enum SentimentEngine {
+    /** Always run the transformer model through Python. */
+    PYTHON("python"),
+    /** Always run the in-JVM lexicon engine. */
+    LEXICON("lexicon"),
+    /** Run the lexicon and fall back to Python on low confidence. */
+    LEXICON_THEN_PYTHON_REFINE("lexicon-then-python-refine");
+
+    /** Name used in configuration. */
+    private final String configName;
+
+    SentimentEngine(final String thisConfigName) {
+        this.configName = thisConfigName;
+    }
+
+    /**
+     * Name used in configuration.
+     *
+     * @return configuration name
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Parses a configuration value such as {@code lexicon-then-python-refine}.
+     *
+     * @param value configured engine name; blank selects {@link #PYTHON}
+     * @return the matching engine
+     * @throws IllegalArgumentException if the value is not recognised
+     */
+    public static SentimentEngine fromConfig(final String value) {
+        if (value == null || value.isBlank()) {
+            return PYTHON;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        for (SentimentEngine engine : values()) {
+            if (engine.configName.equals(normalized)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sentiment engine '"
+                + value + "'; expected python, lexicon or "
+                + "lexicon-then-python-refine");
+    }
+}
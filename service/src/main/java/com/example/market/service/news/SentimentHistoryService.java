@@ -0,0 +1,153 @@
+package com.example.market.service.news;
+
+import com.example.market.model.news.SentimentAggregates;
+import com.example.market.model.news.SentimentObservation;
+import com.example.market.model.news.SentimentResult;
+import com.example.market.service.stock.JsonStore;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Append-only sentiment history per symbol, with rolling decayed
+ * aggregates kept in memory.
+ *
+ * <p>Every observation is appended as one JSON line to
+ * {@code data/news/history/<symbol>.ndjson}. The first time a symbol is
+ * recorded its log is replayed once to rebuild the aggregates; after that
+ * each new observation updates them in O(1), and reading them is a
+ * snapshot copy. Reads never add a symbol: aggregates of a symbol that has
+ * not been recorded since start are replayed from its log and discarded,
+ * so the map only holds symbols that were actually analysed. Recent
+ * observations are read from the tail of the log.</p>
+ */
+@Service
+public class SentimentHistoryService {
+
+    /** Storage for history logs. */
+    private final JsonStore store;
+    /** In-memory aggregates keyed by upper-case symbol. */
+    private final ConcurrentMap<String, DecayedSentimentAggregator>
+            aggregators = new ConcurrentHashMap<>();
+
+    /**
+     * All args constructor.
+     *
+     * @param thisStore storage for history logs
+     */
+    public SentimentHistoryService(final JsonStore thisStore) {
+        this.store = thisStore;
+    }
+
+    /**
+     * Records a sentiment reading taken now.
+     *
+     * @param symbol stock symbol
+     * @param result sentiment result to record
+     * @return the updated aggregates for the symbol
+     * @throws IOException if the history log cannot be written
+     */
+    public SentimentAggregates record(final String symbol,
+                                      final SentimentResult result)
+            throws IOException {
+        return record(symbol, result, Instant.now());
+    }
+
+    /**
+     * Records a sentiment reading taken at a given instant.
+     *
+     * @param symbol stock symbol
+     * @param result sentiment result to record
+     * @param at     when the reading was taken
+     * @return the updated aggregates for the symbol
+     * @throws IOException if the history log cannot be written
+     */
+    public SentimentAggregates record(final String symbol,
+                                      final SentimentResult result,
+                                      final Instant at) throws IOException {
+        final String key = key(symbol);
+        final DecayedSentimentAggregator aggregator = recording(key);
+        final SentimentObservation observation = new SentimentObservation(
+                key, at.toString(), result.getSentimentScore(),
+                result.getSentimentLabel());
+        // hold the aggregator while appending so log order matches updates
+        synchronized (aggregator) {
+            store.append(store.newsHistoryPath(key), observation);
+            aggregator.add(at, observation.getSentimentScore());
+            return aggregator.snapshot();
+        }
+    }
+
+    /**
+     * Current decayed aggregates for a symbol.
+     *
+     * @param symbol stock symbol
+     * @return aggregates; empty if the symbol has no history
+     */
+    public SentimentAggregates aggregates(final String symbol) {
+        final String key = key(symbol);
+        final DecayedSentimentAggregator aggregator = aggregators.get(key);
+        return (aggregator != null ? aggregator : replay(key)).snapshot();
+    }
+
+    /**
+     * Most recent observations for a symbol, oldest first.
+     *
+     * @param symbol stock symbol
+     * @param limit  maximum number of observations to return
+     * @return up to {@code limit} observations
+     * @throws IOException if the history log cannot be read
+     */
+    public List<SentimentObservation> recent(final String symbol,
+                                             final int limit)
+            throws IOException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return store.readLastLines(store.newsHistoryPath(key(symbol)),
+                SentimentObservation.class, limit);
+    }
+
+    private DecayedSentimentAggregator recording(final String key) {
+        final DecayedSentimentAggregator known = aggregators.get(key);
+        if (known != null) {
+            return known;
+        }
+        // replay outside the map; a racing recorder's aggregator wins
+        final DecayedSentimentAggregator replayed = replay(key);
+        final DecayedSentimentAggregator raced =
+                aggregators.putIfAbsent(key, replayed);
+        return raced != null ? raced : replayed;
+    }
+
+    private DecayedSentimentAggregator replay(final String key) {
+        final DecayedSentimentAggregator aggregator =
+                new DecayedSentimentAggregator(key);
+        final Path log = store.newsHistoryPath(key);
+        try {
+            for (SentimentObservation o
+                    : store.readLines(log, SentimentObservation.class)) {
+                aggregator.add(Instant.parse(o.getObservedAt()),
+                        o.getSentimentScore());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(
+                    "Failed to replay sentiment history " + log, e);
+        }
+        return aggregator;
+    }
+
+    private static String key(final String symbol) {
+        if (symbol == null || symbol.isBlank()) {
+            throw new IllegalArgumentException("symbol is required");
+        }
+        return symbol.trim().toUpperCase(Locale.ROOT);
+    }
+}
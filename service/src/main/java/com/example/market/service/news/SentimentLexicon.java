@@ -0,0 +1,239 @@
+package com.example.market.service.news;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Finance-oriented sentiment lexicon compiled into a flat array trie.
+ *
+ * <p>Every term of the lexicon (polar words, negators and intensifiers)
+ * lives in the same trie, so a tokenizer can walk it one character at a
+ * time while scanning text and never has to allocate a substring for a
+ * lookup. Nodes are stored as rows of a single {@code int[]} transition
+ * table indexed by {@code node * ALPHABET + letter}.</p>
+ */
+public final class SentimentLexicon {
+
+    /** Entry kind: node is not the end of any term. */
+    public static final byte NONE = 0;
+    /** Entry kind: polar word carrying a signed weight. */
+    public static final byte POLAR = 1;
+    /** Entry kind: negator that flips the polarity of following words. */
+    public static final byte NEGATOR = 2;
+    /** Entry kind: intensifier that boosts the next polar word. */
+    public static final byte BOOSTER = 3;
+
+    /** Transition value meaning "no child". */
+    public static final int NO_NODE = -1;
+    /** Root node of the trie. */
+    public static final int ROOT = 0;
+
+    /** Classpath location of the bundled lexicon. */
+    public static final String DEFAULT_RESOURCE =
+            "/sentiment/finance-lexicon.tsv";
+
+    /** Letters a-z plus the apostrophe. */
+    private static final int ALPHABET = 27;
+    /** Alphabet slot used for the apostrophe. */
+    private static final int APOSTROPHE = 26;
+    /** Initial node capacity before the tables grow. */
+    private static final int INITIAL_NODES = 1024;
+
+    /** Transition table: {@code next[node * ALPHABET + letter]}. */
+    private int[] next;
+    /** Kind of term terminating at each node. */
+    private byte[] kinds;
+    /** Weight of the polar word terminating at each node. */
+    private float[] weights;
+    /** Number of nodes in use. */
+    private int size;
+    /** Number of terms inserted. */
+    private int terms;
+
+    private SentimentLexicon() {
+        this.next = new int[INITIAL_NODES * ALPHABET];
+        Arrays.fill(this.next, NO_NODE);
+        this.kinds = new byte[INITIAL_NODES];
+        this.weights = new float[INITIAL_NODES];
+        this.size = 1;
+    }
+
+    /**
+     * Loads the lexicon bundled with the service.
+     *
+     * @return the compiled lexicon
+     */
+    public static SentimentLexicon loadDefault() {
+        try (InputStream in = SentimentLexicon.class
+                .getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException(
+                        "Missing lexicon resource " + DEFAULT_RESOURCE);
+            }
+            return parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Compiles a lexicon from tab-separated lines of {@code term value},
+     * where value is a signed weight, {@code NEG} or {@code BOOST}.
+     * Blank lines and lines starting with {@code #} are ignored.
+     *
+     * @param in stream of UTF-8 lexicon lines
+     * @return the compiled lexicon
+     * @throws IOException if the stream cannot be read
+     */
+    public static SentimentLexicon parse(final InputStream in)
+            throws IOException {
+        SentimentLexicon lexicon = new SentimentLexicon();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(
+                        "Malformed lexicon line " + lineNo + ": " + line);
+            }
+            lexicon.add(parts[0], parts[1], lineNo);
+        }
+        return lexicon;
+    }
+
+    /**
+     * Follows one character from the given node.
+     *
+     * @param node current node, or {@link #NO_NODE}
+     * @param c    next character of the token (any case)
+     * @return the child node, or {@link #NO_NODE} if no term continues
+     */
+    public int step(final int node, final char c) {
+        if (node == NO_NODE) {
+            return NO_NODE;
+        }
+        int letter = letterIndex(c);
+        if (letter < 0) {
+            return NO_NODE;
+        }
+        return next[node * ALPHABET + letter];
+    }
+
+    /**
+     * Returns the kind of term ending at a node.
+     *
+     * @param node trie node, or {@link #NO_NODE}
+     * @return one of {@link #NONE}, {@link #POLAR}, {@link #NEGATOR}
+     *         or {@link #BOOSTER}
+     */
+    public byte kind(final int node) {
+        return node == NO_NODE ? NONE : kinds[node];
+    }
+
+    /**
+     * Returns the weight of the polar word ending at a node.
+     *
+     * @param node trie node
+     * @return signed weight, {@code 0} if the node is not a polar word
+     */
+    public float weight(final int node) {
+        return node == NO_NODE ? 0f : weights[node];
+    }
+
+    /**
+     * Looks up a whole term.
+     *
+     * @param term term to look up
+     * @return the node the term ends at, or {@link #NO_NODE}
+     */
+    public int find(final CharSequence term) {
+        int node = ROOT;
+        for (int i = 0; i < term.length() && node != NO_NODE; i++) {
+            node = step(node, term.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Number of terms in the lexicon.
+     *
+     * @return term count
+     */
+    public int termCount() {
+        return terms;
+    }
+
+    /**
+     * Maps a character to its alphabet slot. ASCII letters are folded to
+     * lower case and the typographic apostrophe is treated like {@code '}.
+     *
+     * @param c character to map
+     * @return alphabet slot, or {@code -1} if the character ends a token
+     */
+    public static int letterIndex(final char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c == '\'' || c == '\u2019') {
+            return APOSTROPHE;
+        }
+        return -1;
+    }
+
+    private void add(final String term, final String value,
+                     final int lineNo) {
+        int node = ROOT;
+        for (int i = 0; i < term.length(); i++) {
+            int letter = letterIndex(term.charAt(i));
+            if (letter < 0) {
+                throw new IllegalArgumentException("Unsupported character in"
+                        + " lexicon term '" + term + "' on line " + lineNo);
+            }
+            int slot = node * ALPHABET + letter;
+            if (next[slot] == NO_NODE) {
+                // newNode() may grow the table, so store into the new one
+                int child = newNode();
+                next[slot] = child;
+            }
+            node = next[slot];
+        }
+        if (kinds[node] == NONE) {
+            terms++;
+        }
+        if ("NEG".equals(value)) {
+            kinds[node] = NEGATOR;
+        } else if ("BOOST".equals(value)) {
+            kinds[node] = BOOSTER;
+        } else {
+            kinds[node] = POLAR;
+            weights[node] = Float.parseFloat(value);
+        }
+    }
+
+    private int newNode() {
+        if (size == kinds.length) {
+            int capacity = kinds.length * 2;
+            int oldLength = next.length;
+            next = Arrays.copyOf(next, capacity * ALPHABET);
+            Arrays.fill(next, oldLength, next.length, NO_NODE);
+            kinds = Arrays.copyOf(kinds, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        return size++;
+    }
+}
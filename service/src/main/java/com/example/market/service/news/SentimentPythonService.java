@@ -1,34 +1,59 @@
 package com.example.market.service.news;
 
 import com.example.market.model.news.SentimentResult;
+import com.example.market.service.Deadline;
 import com.example.market.service.forecast.python.DefaultProcessRunner;
 import com.example.market.service.forecast.python.ProcessRunner;
+import com.example.market.service.forecast.python.PythonEnvironment;
+import com.example.market.service.jfr.PythonProcessEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class SentimentPythonService implements SentimentAnalysisPort {
 
+    /** The sentiment script. */
+    private static final String SCRIPT = "sentiment_model.py";
+    /** Run mode recorded in {@link PythonProcessEvent}s. */
+    private static final String SENTIMENT_MODE = "sentiment";
+
     /** Object to run Python service. */
     private final ProcessRunner processRunner;
+    /** The interpreter the script runs on. */
+    private final PythonEnvironment environment;
 
     /**
      * All args constructor.
      *
      * @param thisProcessRunner {@link ProcessRunner} object.
+     * @param thisEnvironment   the interpreter the script runs on
      * */
-    public SentimentPythonService(final ProcessRunner thisProcessRunner) {
+    @Autowired
+    public SentimentPythonService(final ProcessRunner thisProcessRunner,
+                                  final PythonEnvironment thisEnvironment) {
         this.processRunner = thisProcessRunner;
+        this.environment = thisEnvironment;
+    }
+
+    /**
+     * Constructor with the default interpreter.
+     *
+     * @param thisProcessRunner {@link ProcessRunner} object.
+     * */
+    public SentimentPythonService(final ProcessRunner thisProcessRunner) {
+        this(thisProcessRunner, new PythonEnvironment());
     }
 
     /** No args constructor. */
     public SentimentPythonService() {
-        this.processRunner = new DefaultProcessRunner();
+        this(new DefaultProcessRunner());
     }
 
     /**
@@ -42,22 +67,41 @@ public class SentimentPythonService implements SentimentAnalysisPort {
             throws Exception {
 
         ProcessBuilder pb = new ProcessBuilder(
-                "python3",
+                environment.interpreter(),
                 "src/main/java/com/example/market/"
-                + "service/news/python/sentiment_model.py",
+                + "service/news/python/" + SCRIPT,
                 text
         );
         pb.redirectErrorStream(true);
 
+        Deadline deadline = Deadline.current();
+        deadline.check("sentiment");
+        PythonProcessEvent event = PythonProcessEvent.start(
+                SCRIPT, SENTIMENT_MODE, List.of());
         Process process = processRunner.start(pb);
 
+        // the model is killed once the request's deadline passes, which
+        // ends the read below instead of leaving the caller blocked on it
+        Runnable kill = () -> {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        };
         String output;
-        try (BufferedReader reader = new BufferedReader(
+        int exitCode;
+        try (Deadline.Registration ignored = deadline.onExpiry(kill);
+             BufferedReader reader = new BufferedReader(
                 new InputStreamReader(process.getInputStream()))) {
             output = reader.lines().collect(Collectors.joining("\n"));
+            exitCode = process.waitFor();
+        } finally {
+            // an interrupted wait or a failed read must not leave the
+            // model running with nobody to reap it
+            if (process.isAlive()) {
+                kill.run();
+            }
         }
-
-        int exitCode = process.waitFor();
+        event.finish(exitCode, text.length(), output.length());
+        deadline.check("sentiment");
         if (exitCode != 0) {
             throw new RuntimeException("Python process failed: " + output);
         }
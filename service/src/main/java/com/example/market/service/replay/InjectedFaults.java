@@ -0,0 +1,129 @@
+package com.example.market.service.replay;
+
+import com.example.market.service.Deadline;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and errors injected into one replayed dependency.
+ *
+ * <p>Latency is log-normal, fitted to a {@code median} and a {@code p99},
+ * the shape remote calls and model runs usually have; a zero median
+ * answers at once. Each call fails with probability {@code errorRate}.
+ * Draws come from a generator seeded per dependency, so a run with the
+ * same calls in the same order sees the same latencies and errors.</p>
+ */
+public final class InjectedFaults {
+  /** No latency and no errors. */
+  public static final InjectedFaults NONE =
+      new InjectedFaults(Duration.ZERO, Duration.ZERO, 0, 0);
+
+  /** Standard normal quantile of the 99th percentile. */
+  private static final double Z_99 = 2.3263478740408408;
+
+  /** A full turn, in radians. */
+  private static final double TWO_PI = 2 * Math.PI;
+
+  /** Median latency, in nanoseconds. */
+  private final long medianNanos;
+  /** Log-normal shape, from the median to p99 spread. */
+  private final double sigma;
+  /** Share of calls that fail. */
+  private final double errorRate;
+  /** Draws latencies and errors; guarded by {@code this}. */
+  private final SplittableRandom random;
+
+  /**
+   * All args constructor.
+   *
+   * @param median        median latency
+   * @param p99           99th percentile latency, at least the median
+   * @param thisErrorRate share of calls that fail, from 0 to 1
+   * @param seed          seed of the draws
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public InjectedFaults(final Duration median, final Duration p99,
+                        final double thisErrorRate, final long seed) {
+    if (median.isNegative() || p99.compareTo(median) < 0
+        || !(thisErrorRate >= 0 && thisErrorRate <= 1)) {
+      throw new IllegalArgumentException("invalid injected faults: median "
+          + median + ", p99 " + p99 + ", error rate " + thisErrorRate);
+    }
+    this.medianNanos = median.toNanos();
+    this.sigma = median.isZero() ? 0
+        : Math.log((double) p99.toNanos() / medianNanos) / Z_99;
+    this.errorRate = thisErrorRate;
+    this.random = new SplittableRandom(seed);
+  }
+
+  /**
+   * Draw the next call's latency.
+   *
+   * @return the latency
+   */
+  public synchronized Duration nextLatency() {
+    if (medianNanos == 0) {
+      return Duration.ZERO;
+    }
+    final double z = gaussian();
+    return Duration.ofNanos((long) (medianNanos * Math.exp(sigma * z)));
+  }
+
+  /**
+   * Draw whether the next call fails.
+   *
+   * @return {@code true} if it should fail
+   */
+  public synchronized boolean nextFails() {
+    return errorRate > 0 && random.nextDouble() < errorRate;
+  }
+
+  /**
+   * Wait out the next call's latency, cut short by the calling thread's
+   * {@link Deadline} as a real call's timeout would be.
+   *
+   * @param stage what is waited for, for the deadline message
+   * @throws InterruptedException if the thread is interrupted
+   * @throws com.example.market.service.DeadlineExceededException if the
+   *         deadline passed while waiting
+   */
+  public void await(final String stage) throws InterruptedException {
+    final Deadline deadline = Deadline.current();
+    TimeUnit.NANOSECONDS.sleep(
+        deadline.remaining(nextLatency()).toNanos());
+    deadline.check(stage);
+  }
+
+  /**
+   * Median latency.
+   *
+   * @return the median
+   */
+  public Duration median() {
+    return Duration.ofNanos(medianNanos);
+  }
+
+  /**
+   * Share of calls that fail.
+   *
+   * @return the rate
+   */
+  public double errorRate() {
+    return errorRate;
+  }
+
+  /**
+   * A standard normal draw, by Box-Muller; the second of the pair is
+   * dropped to keep the state simple.
+   *
+   * @return the draw
+   */
+  private double gaussian() {
+    // 1 - u, so the log never sees zero
+    final double u = 1.0 - random.nextDouble();
+    final double v = random.nextDouble();
+    return Math.sqrt(2 * -Math.log(u)) * Math.cos(TWO_PI * v);
+  }
+}
@@ -0,0 +1,185 @@
+package com.example.market.service.replay;
+
+import com.example.market.service.stock.JsonStore;
+import com.example.market.service.upstream.Upstreams;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fixtures the stand-ins record to and replay from, and the faults they
+ * inject.
+ *
+ * <p>Configured under {@code market.replay}: the {@code mode}
+ * ({@code record} or {@code replay}; unset, the real upstreams and models
+ * are used and nothing here is consulted), the fixture {@code dir}, and
+ * per dependency, under {@code faults.<name>}, a {@code latency-median},
+ * a {@code latency-p99} and an {@code error-rate}, all applied when
+ * replaying only. Draws are seeded from {@code seed}.</p>
+ *
+ * <p>Each response is one JSON file, {@code <dir>/<kind>/<name>.json},
+ * named after what was asked for, so fixtures can be read, edited and
+ * checked in.</p>
+ */
+@Component
+public class ReplayFixtures {
+  /** Configuration prefix. */
+  private static final String PREFIX = "market.replay.";
+  /** Default fixture directory. */
+  private static final String DEFAULT_DIR = "data/replay";
+  /** Default seed of the injected faults. */
+  private static final long DEFAULT_SEED = 42;
+  /** Dependencies faults can be injected into. */
+  private static final List<String> DEPENDENCIES = List.of(
+      Upstreams.ALPHA_VANTAGE, Upstreams.NEWS_API, Upstreams.FMP,
+      Upstreams.FORECAST, Upstreams.SENTIMENT);
+
+  /** Mode; {@code null} when off. */
+  private final ReplayMode mode;
+  /** Fixture root. */
+  private final Path dir;
+  /** Reads and writes the files. */
+  private final JsonStore store;
+  /** Faults by dependency. */
+  private final Map<String, InjectedFaults> faults;
+
+  /**
+   * Reads the settings from configuration.
+   *
+   * @param env       the application's environment
+   * @param thisStore reads and writes the files
+   */
+  @Autowired
+  public ReplayFixtures(final Environment env, final JsonStore thisStore) {
+    final String configured = env.getProperty(PREFIX + "mode", "");
+    this.mode = configured.isBlank() ? null
+        : ReplayMode.fromConfig(configured);
+    this.dir = Paths.get(env.getProperty(PREFIX + "dir", DEFAULT_DIR));
+    this.store = thisStore;
+    final long seed =
+        env.getProperty(PREFIX + "seed", Long.class, DEFAULT_SEED);
+    this.faults = new HashMap<>();
+    for (String name : DEPENDENCIES) {
+      final String p = PREFIX + "faults." + name + ".";
+      final Duration median = duration(env, p + "latency-median", "PT0S");
+      faults.put(name, new InjectedFaults(median,
+          env.containsProperty(p + "latency-p99")
+              ? duration(env, p + "latency-p99", "PT0S") : median,
+          env.getProperty(p + "error-rate", Double.class, 0.0),
+          seed ^ name.hashCode()));
+    }
+  }
+
+  /**
+   * All args constructor.
+   *
+   * @param thisMode   the mode, or {@code null} when off
+   * @param thisDir    fixture root
+   * @param thisStore  reads and writes the files
+   * @param thisFaults faults by dependency; others get none
+   */
+  public ReplayFixtures(final ReplayMode thisMode, final Path thisDir,
+                        final JsonStore thisStore,
+                        final Map<String, InjectedFaults> thisFaults) {
+    this.mode = thisMode;
+    this.dir = thisDir;
+    this.store = thisStore;
+    this.faults = new HashMap<>(thisFaults);
+  }
+
+  private static Duration duration(final Environment env, final String key,
+                                   final String fallback) {
+    return DurationStyle.detectAndParse(env.getProperty(key, fallback));
+  }
+
+  /**
+   * The configured mode.
+   *
+   * @return the mode, or {@code null} when off
+   */
+  public ReplayMode mode() {
+    return mode;
+  }
+
+  /**
+   * Whether responses are being recorded.
+   *
+   * @return {@code true} in {@link ReplayMode#RECORD}
+   */
+  public boolean isRecording() {
+    return mode == ReplayMode.RECORD;
+  }
+
+  /**
+   * Faults injected into a dependency.
+   *
+   * @param dependency an {@link Upstreams} name
+   * @return its faults; {@link InjectedFaults#NONE} if none are set
+   */
+  public InjectedFaults faults(final String dependency) {
+    return faults.getOrDefault(dependency, InjectedFaults.NONE);
+  }
+
+  /**
+   * The file of one fixture.
+   *
+   * @param kind what was recorded, e.g. {@code alpha-vantage}
+   * @param name what it was asked for, e.g. a symbol
+   * @return the path
+   */
+  public Path path(final String kind, final String name) {
+    return dir.resolve(kind).resolve(fileName(name) + ".json");
+  }
+
+  /**
+   * Read a fixture.
+   *
+   * @param kind what was recorded
+   * @param name what it was asked for
+   * @param type type to read it as
+   * @param <T>  that type
+   * @return the fixture, or {@code null} if none was recorded
+   * @throws IOException if the file cannot be read or parsed
+   */
+  public <T> T read(final String kind, final String name,
+                    final Class<T> type) throws IOException {
+    final Path file = path(kind, name);
+    return store.exists(file) ? store.read(file, type) : null;
+  }
+
+  /**
+   * Save a fixture, replacing an earlier recording.
+   *
+   * @param kind  what was recorded
+   * @param name  what it was asked for
+   * @param value the response
+   * @throws IOException if the file cannot be written
+   */
+  public void write(final String kind, final String name,
+                    final Object value) throws IOException {
+    store.write(path(kind, name), value);
+  }
+
+  /**
+   * A name as a file name: lower case, with anything but letters, digits,
+   * dots and dashes replaced.
+   *
+   * @param name the name
+   * @return the file name, without extension
+   */
+  static String fileName(final String name) {
+    final String lower = name == null ? "" : name.trim()
+        .toLowerCase(Locale.ROOT);
+    return lower.isEmpty() ? "_" : lower.replaceAll("[^a-z0-9.-]", "_");
+  }
+}
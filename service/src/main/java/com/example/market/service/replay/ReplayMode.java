@@ -0,0 +1,48 @@
+package com.example.market.service.replay;
+
+import java.util.Locale;
+
+/**
+ * What the stand-ins do, as set by {@code market.replay.mode}.
+ */
+public enum ReplayMode {
+  /** Call the real upstreams and models and save what they answer. */
+  RECORD("record"),
+  /** Answer from saved fixtures, with injected latency and errors. */
+  REPLAY("replay");
+
+  /** Name used in configuration. */
+  private final String configName;
+
+  ReplayMode(final String thisConfigName) {
+    this.configName = thisConfigName;
+  }
+
+  /**
+   * Name used in configuration.
+   *
+   * @return configuration name
+   */
+  public String getConfigName() {
+    return configName;
+  }
+
+  /**
+   * Parses a configuration value such as {@code replay}.
+   *
+   * @param value configured mode
+   * @return the matching mode
+   * @throws IllegalArgumentException if the value is not recognised
+   */
+  public static ReplayMode fromConfig(final String value) {
+    final String normalized = value == null ? ""
+        : value.trim().toLowerCase(Locale.ROOT);
+    for (ReplayMode mode : values()) {
+      if (mode.configName.equals(normalized)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("Unknown replay mode '" + value
+        + "'; expected record or replay");
+  }
+}
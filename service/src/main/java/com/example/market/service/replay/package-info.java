@@ -0,0 +1,5 @@
+/**
+ * Record and replay of upstream responses and Python output, so the
+ * service can run, and be load-tested, without network or models.
+ */
+package com.example.market.service.replay;
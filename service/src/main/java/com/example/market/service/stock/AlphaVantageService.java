@@ -2,18 +2,28 @@ package com.example.market.service.stock;
 
 import com.example.market.model.stock.StockBar;
 import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.Deadline;
+import com.example.market.service.jfr.UpstreamCallEvent;
+import com.example.market.service.upstream.NegativeCache;
+import com.example.market.service.upstream.Upstream;
+import com.example.market.service.upstream.UpstreamRefusedException;
+import com.example.market.service.upstream.Upstreams;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Service for fetching stock data from the Alpha Vantage API.
@@ -29,9 +39,35 @@ public class AlphaVantageService implements StockDataService {
 
     /** Value for success. */
     private static final int HTTP_SUCCESS = 200;
+    /** Value for a rate limited request. */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    /** Query parameter carrying the symbol. */
+    private static final String SYMBOL_PARAM = "symbol=";
+    /** Longest wait for one Alpha Vantage request. */
+    private static final Duration MAX_WAIT = Duration.ofSeconds(30);
+
+    /** Breaker and bulkhead for Alpha Vantage. */
+    private final Upstream upstream;
+
+    /**
+     * All args constructor.
+     *
+     * @param upstreams the service's upstream dependencies
+     */
+    @Autowired
+    public AlphaVantageService(final Upstreams upstreams) {
+        this.upstream = upstreams.get(Upstreams.ALPHA_VANTAGE);
+    }
+
+    /** No args constructor, with a breaker of its own. */
+    public AlphaVantageService() {
+        this(new Upstreams());
+    }
 
     /**
-     * Fetches the Alpha Vantage {@code TIME_SERIES_DAILY} for a symbol.
+     * Fetches the Alpha Vantage {@code TIME_SERIES_DAILY} for a symbol. A
+     * symbol Alpha Vantage did not know, or a rate limit it reported, is
+     * remembered for a while and answered without calling it again.
      */
     @Override
     public StockDailySeries fetchDaily(
@@ -46,24 +82,41 @@ public class AlphaVantageService implements StockDataService {
 
         // Use 'compact' instead of 'full' - 'full' is a premium feature
         // 'compact' returns the last 100 data points (free tier)
-        final String url = "https://www.alphavantage.co/query"
+        final String query = "https://www.alphavantage.co/query"
                 + "?function=TIME_SERIES_DAILY&outputsize=compact"
-                + "&symbol=" + enc(symbol)
-                + "&apikey=" + enc(apiKey);
+                + "&symbol=" + enc(symbol);
+        final String url = query + "&apikey=" + enc(apiKey);
+        return upstream.call(symbol.trim().toUpperCase(Locale.ROOT),
+            () -> fetch(symbol, query, url));
+    }
 
+    /**
+     * Fetches and parses one daily series. Error payloads fail the call:
+     * an unknown symbol or a rate limit note as an
+     * {@link UpstreamRefusedException}, so it is negatively cached.
+     *
+     * @param symbol the stock symbol
+     * @param query  the request URL without the key, for the series source
+     * @param url    the request URL
+     * @return the series
+     * @throws Exception on IO errors or an unusable response
+     */
+    private StockDailySeries fetch(final String symbol, final String query,
+                                   final String url) throws Exception {
         final JsonNode root = getJson(url);
 
         // Check for error messages first
         if (root.hasNonNull("Error Message")) {
-            throw new IllegalStateException(
+            throw refused(NegativeCache.Kind.INVALID,
                 root.get("Error Message").asText());
         }
         if (root.hasNonNull("Note")) {
-            throw new IllegalStateException(root.get("Note").asText());
+            throw refused(NegativeCache.Kind.THROTTLED,
+                root.get("Note").asText());
         }
-        // Check for Information field (premium feature requirement)
+        // Information: the daily limit, or a premium feature requirement
         if (root.hasNonNull("Information")) {
-            throw new IllegalStateException(
+            throw refused(NegativeCache.Kind.THROTTLED,
                 root.get("Information").asText());
         }
 
@@ -86,13 +139,28 @@ public class AlphaVantageService implements StockDataService {
         return new StockDailySeries(
                 symbol.toUpperCase(),
                 Instant.now().toString(),
-                "alphavantage: TIME_SERIES_DAILY, url=" + url,
+                // the key stays out of the series: it is cached and served
+                "alphavantage: TIME_SERIES_DAILY, url=" + query,
                 bars
         );
     }
 
     /* ---------- helpers ---------- */
 
+    /**
+     * An Alpha Vantage refusal.
+     *
+     * @param kind    what it refused with
+     * @param message its message
+     * @return the exception to throw
+     */
+    private static UpstreamRefusedException refused(
+        final NegativeCache.Kind kind, final String message
+    ) {
+        return new UpstreamRefusedException(Upstreams.ALPHA_VANTAGE, kind,
+            message);
+    }
+
     /**
    * Fetches JSON data from a URL.
    *
@@ -101,19 +169,65 @@ public class AlphaVantageService implements StockDataService {
    * @throws Exception on IO or non-200 status
    */
     protected JsonNode getJson(final String url) throws Exception {
-        final HttpRequest req =
-            HttpRequest.newBuilder(URI.create(url))
-                .GET()
-                .build();
-
-        final HttpResponse<String> resp =
-            http.send(req, HttpResponse.BodyHandlers.ofString());
+        final UpstreamCallEvent event =
+            UpstreamCallEvent.start(Upstreams.ALPHA_VANTAGE, symbolOf(url));
+        final HttpResponse<byte[]> resp;
+        try {
+            resp = http.send(request(url),
+                HttpResponse.BodyHandlers.ofByteArray());
+        } catch (HttpTimeoutException e) {
+            event.fail(e);
+            Deadline.current().check("daily series");
+            throw e;
+        } catch (Exception e) {
+            event.fail(e);
+            throw e;
+        }
+        event.finish(resp.statusCode(), resp.body().length);
+        if (resp.statusCode() == HTTP_TOO_MANY_REQUESTS) {
+            throw refused(NegativeCache.Kind.THROTTLED,
+                "HTTP " + resp.statusCode());
+        }
         if (resp.statusCode() != HTTP_SUCCESS) {
             throw new IllegalStateException("HTTP " + resp.statusCode());
         }
         return mapper.readTree(resp.body());
     }
 
+    /**
+     * The symbol a request URL is for, without the key that follows it.
+     *
+     * @param url request URL
+     * @return the encoded symbol, or an empty string
+     */
+    static String symbolOf(final String url) {
+        int from = url.indexOf("&" + SYMBOL_PARAM);
+        if (from < 0) {
+            from = url.indexOf("?" + SYMBOL_PARAM);
+        }
+        if (from < 0) {
+            return "";
+        }
+        final int start = from + 1 + SYMBOL_PARAM.length();
+        final int end = url.indexOf('&', start);
+        return end < 0 ? url.substring(start) : url.substring(start, end);
+    }
+
+    /**
+     * Builds the GET request for a URL, timing out after {@link #MAX_WAIT}
+     * or when the request's {@link Deadline} passes, if sooner.
+     *
+     * @param url request URL
+     * @return the request
+     */
+    static HttpRequest request(final String url) {
+        final Deadline deadline = Deadline.current();
+        deadline.check("daily series");
+        return HttpRequest.newBuilder(URI.create(url)).GET()
+            .timeout(deadline.remaining(MAX_WAIT).plus(Duration.ofMillis(1)))
+            .build();
+    }
+
    /**
    * Parses the "Time Series" object into StockBars.
    *
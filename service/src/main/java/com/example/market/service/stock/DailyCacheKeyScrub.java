@@ -0,0 +1,124 @@
+package com.example.market.service.stock;
+
+import com.example.market.model.stock.StockDailySeries;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.regex.Pattern;
+
+/**
+ * Removes the Alpha Vantage key from daily cache files written before the
+ * key was left out of their {@code source}, once, before the application
+ * serves requests, so a cache hit can send a file as it is.
+ *
+ * <p>A file whose source carries an {@code apikey} parameter is rewritten
+ * without it, keeping its modification time so its freshness is
+ * unchanged. A file that cannot be rewritten is deleted instead; it is
+ * only a cache, and is fetched again on its next request.</p>
+ */
+@Component
+public class DailyCacheKeyScrub implements InitializingBean {
+  /** API key parameter that older daily cache files kept in the source. */
+  private static final String API_KEY = "apikey=";
+  /** {@link #API_KEY} and its value inside a query string. */
+  private static final Pattern API_KEY_PARAM =
+      Pattern.compile("[?&]" + API_KEY + "[^&]*");
+
+  /** Storage of the daily cache files. */
+  private final JsonStore store;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisStore storage of the daily cache files
+   */
+  public DailyCacheKeyScrub(final JsonStore thisStore) {
+    this.store = thisStore;
+  }
+
+  /**
+   * Scrub the daily cache at startup.
+   *
+   * @throws IOException if the cache directory cannot be listed
+   */
+  @Override
+  public void afterPropertiesSet() throws IOException {
+    scrub();
+  }
+
+  /**
+   * Remove the key from every daily cache file that still has it.
+   *
+   * @return the number of files rewritten or deleted
+   * @throws IOException if the cache directory cannot be listed
+   */
+  public int scrub() throws IOException {
+    final Path dir = store.dailyDir();
+    if (!Files.isDirectory(dir)) {
+      return 0;
+    }
+    int scrubbed = 0;
+    try (DirectoryStream<Path> files =
+             Files.newDirectoryStream(dir, "*-daily.json")) {
+      for (Path file : files) {
+        if (scrub(file)) {
+          scrubbed++;
+        }
+      }
+    }
+    return scrubbed;
+  }
+
+  /**
+   * Remove the key from one daily cache file.
+   *
+   * @param file the file
+   * @return whether it had the key
+   */
+  private boolean scrub(final Path file) {
+    try {
+      if (!new String(Files.readAllBytes(file), StandardCharsets.UTF_8)
+          .contains(API_KEY)) {
+        return false;
+      }
+      final StockDailySeries series =
+          store.read(file, StockDailySeries.class);
+      final String source = series.getSource();
+      if (source == null || !API_KEY_PARAM.matcher(source).find()) {
+        return false;
+      }
+      final FileTime modified = Files.getLastModifiedTime(file);
+      store.write(file, new StockDailySeries(series.getSymbol(),
+          series.getAsOfIso(), API_KEY_PARAM.matcher(source).replaceAll(""),
+          series.getBars()));
+      Files.setLastModifiedTime(file, modified);
+      return true;
+    } catch (IOException e) {
+      return delete(file);
+    }
+  }
+
+  /**
+   * Delete a cache file that could not be scrubbed.
+   *
+   * @param file the file
+   * @return {@code true}, as the key is gone with it
+   * @throws UncheckedIOException if it cannot be deleted either
+   */
+  private static boolean delete(final Path file) {
+    try {
+      Files.deleteIfExists(file);
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          "Cannot scrub the API key from " + file, e);
+    }
+  }
+}
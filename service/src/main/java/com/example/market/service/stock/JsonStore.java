@@ -1,16 +1,44 @@
 package com.example.market.service.stock; // keep for now; you can move to infra later
 
+import com.example.market.service.jfr.CacheOperationEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Metrics;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.stereotype.Component;
 
 @Component
 public class JsonStore {
+  /** Operation recorded for a read in {@link CacheOperationEvent}s. */
+  private static final String READ = "read";
+  /** Operation recorded for a replacing write. */
+  private static final String WRITE = "write";
+  /** Operation recorded for an appended line. */
+  private static final String APPEND = "append";
+  /** Bytes read per step when scanning a JSON-lines file backwards. */
+  private static final int TAIL_CHUNK = 8192;
+  /** Counter of JSON lines skipped because they could not be parsed. */
+  public static final String MALFORMED_LINES_METER =
+      "market.store.malformed.lines";
+
+  /** JSON lines skipped because they could not be parsed. */
+  private final AtomicLong malformedLines = new AtomicLong();
+
   /**
    * The JSON object mapper used for serializing and deserializing model data
    * to and from JSON files.
@@ -34,7 +62,16 @@ public class JsonStore {
    * stock data for the given symbol
    */
   public Path dailyPath(final String symbol) {
-    return base.resolve(Paths.get("stocks", norm(symbol) + "-daily.json"));
+    return dailyDir().resolve(norm(symbol) + "-daily.json");
+  }
+
+  /**
+   * Returns the directory holding every daily stock data file.
+   *
+   * @return the parent of every {@link #dailyPath(String)}
+   */
+  public Path dailyDir() {
+    return base.resolve("stocks");
   }
 
   /**
@@ -50,6 +87,35 @@ public class JsonStore {
     return base.resolve(Paths.get("news", norm(symbol) + ".json"));
   }
 
+  /**
+   * Returns the file system path to the append-only sentiment history
+   * log for the specified symbol.
+   *
+   * @param symbol the stock or asset symbol whose history log path
+   *               is to be returned
+   * @return the {@link Path} to the JSON-lines file holding every
+   * sentiment observation for the given symbol
+   */
+  public Path newsHistoryPath(final String symbol) {
+    return base.resolve(Paths.get("news", "history",
+        norm(symbol) + ".ndjson"));
+  }
+
+  /**
+   * Returns the file system path to the cached forecast for the
+   * specified symbol and horizon.
+   *
+   * @param symbol  the stock or asset symbol whose forecast path
+   *                is to be returned
+   * @param horizon the number of forecast days
+   * @return the {@link Path} to the JSON file holding the forecast
+   * for the given symbol and horizon
+   */
+  public Path forecastPath(final String symbol, final int horizon) {
+    return base.resolve(Paths.get("forecasts",
+        norm(symbol) + "-" + horizon + "d.json"));
+  }
+
   /**
    * Checks whether a file exists at the specified path.
    *
@@ -72,10 +138,14 @@ public class JsonStore {
    * or parsing its contents
    */
   public <T> T read(final Path file, final Class<T> type) throws IOException {
-    return mapper.readValue(Files.readAllBytes(file), type);
+    CacheOperationEvent event = CacheOperationEvent.start(READ, file);
+    byte[] bytes = Files.readAllBytes(file);
+    event.finish(bytes.length);
+    return mapper.readValue(bytes, type);
   }
   /**
    * Writes the specified object as a formatted JSON file to the given path.
+   * An existing file is replaced atomically.
    *
    * @param file  the target {@link Path} where the JSON file will be written
    * @param value the object to serialize and write to the file
@@ -83,11 +153,196 @@ public class JsonStore {
    * or writing the file
    */
   public void write(final Path file, final Object value) throws IOException {
+    CacheOperationEvent event = CacheOperationEvent.start(WRITE, file);
     Files.createDirectories(file.getParent());
     byte[] bytes = mapper.writerWithDefaultPrettyPrinter()
             .writeValueAsBytes(value);
-    Files.write(file, bytes, StandardOpenOption.CREATE,
-            StandardOpenOption.TRUNCATE_EXISTING);
+    // write aside and rename so readers streaming the old file never see
+    // a truncated or half-written one
+    Path tmp = Files.createTempFile(file.getParent(),
+            file.getFileName().toString(), ".tmp");
+    try {
+      Files.write(tmp, bytes);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+      event.finish(bytes.length);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Appends the specified object as one compact JSON line to the given
+   * file, creating the file and its directories if needed. If an earlier
+   * append was torn, leaving the file without a final newline, the line
+   * starts on a new one so only the torn line is lost.
+   *
+   * @param file  the target JSON-lines file
+   * @param value the object to serialize and append
+   * @throws IOException if an I/O error occurs while writing
+   */
+  public void append(final Path file, final Object value) throws IOException {
+    CacheOperationEvent event = CacheOperationEvent.start(APPEND, file);
+    Files.createDirectories(file.getParent());
+    byte[] json = mapper.writeValueAsBytes(value);
+    int at = endsLine(file) ? 0 : 1;
+    byte[] line = new byte[at + json.length + 1];
+    if (at > 0) {
+      line[0] = '\n';
+    }
+    System.arraycopy(json, 0, line, at, json.length);
+    line[line.length - 1] = '\n';
+    Files.write(file, line, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+    event.finish(line.length);
+  }
+
+  /**
+   * Reads every line of a JSON-lines file written by
+   * {@link #append(Path, Object)}. A line that cannot be parsed, such as
+   * one torn by a crash during an append, is skipped and counted as
+   * {@value #MALFORMED_LINES_METER} rather than failing the whole read.
+   *
+   * @param <T>  the type of object each line deserializes to
+   * @param file the JSON-lines file; a missing file reads as empty
+   * @param type the target class of each line
+   * @return the deserialized lines in file order
+   * @throws IOException if an I/O error occurs
+   */
+  public <T> List<T> readLines(final Path file, final Class<T> type)
+      throws IOException {
+    List<T> out = new ArrayList<>();
+    if (!Files.exists(file)) {
+      return out;
+    }
+    CacheOperationEvent event = CacheOperationEvent.start(READ, file);
+    List<String> lines = Files.readAllLines(file);
+    long bytes = 0;
+    for (String line : lines) {
+      bytes += line.length() + 1;
+    }
+    event.finish(bytes);
+    for (String line : lines) {
+      parseLine(line, type, out);
+    }
+    return out;
+  }
+
+  /**
+   * Reads the last lines of a JSON-lines file written by
+   * {@link #append(Path, Object)}, scanning backwards from the end so
+   * only the tail is read however long the file has grown. Unparseable
+   * lines are skipped and counted as in {@link #readLines(Path, Class)}.
+   *
+   * @param <T>   the type of object each line deserializes to
+   * @param file  the JSON-lines file; a missing file reads as empty
+   * @param type  the target class of each line
+   * @param limit the maximum number of values to return
+   * @return up to {@code limit} of the last values, in file order
+   * @throws IOException if an I/O error occurs
+   */
+  public <T> List<T> readLastLines(final Path file, final Class<T> type,
+      final int limit) throws IOException {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit must be positive");
+    }
+    List<T> out = new ArrayList<>();
+    if (!Files.exists(file)) {
+      return out;
+    }
+    CacheOperationEvent event = CacheOperationEvent.start(READ, file);
+    long bytes = 0;
+    try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+      long pos = channel.size();
+      // the start of a line whose beginning has not been read yet
+      byte[] carry = new byte[0];
+      while (out.size() < limit && pos > 0) {
+        int n = (int) Math.min(TAIL_CHUNK, pos);
+        pos -= n;
+        ByteBuffer chunk = ByteBuffer.allocate(n + carry.length);
+        chunk.limit(n);
+        channel.position(pos);
+        while (chunk.hasRemaining()) {
+          if (channel.read(chunk) < 0) {
+            throw new EOFException("Truncated while reading " + file);
+          }
+        }
+        bytes += n;
+        chunk.limit(chunk.capacity());
+        chunk.put(carry);
+        byte[] buf = chunk.array();
+        int end = buf.length;
+        for (int i = end - 1; i >= 0 && out.size() < limit; i--) {
+          if (buf[i] == '\n') {
+            parseLine(new String(buf, i + 1, end - i - 1,
+                StandardCharsets.UTF_8), type, out);
+            end = i;
+          }
+        }
+        carry = Arrays.copyOf(buf, end);
+      }
+      if (pos == 0 && out.size() < limit) {
+        parseLine(new String(carry, StandardCharsets.UTF_8), type, out);
+      }
+    }
+    event.finish(bytes);
+    Collections.reverse(out);
+    return out;
+  }
+
+  /**
+   * Parses one line of a JSON-lines file into {@code out}, skipping a
+   * blank line and counting one that cannot be parsed.
+   *
+   * @param <T>  the type the line deserializes to
+   * @param line the line
+   * @param type the target class
+   * @param out  where a parsed value is added
+   * @throws IOException if the line cannot be read
+   */
+  private <T> void parseLine(final String line, final Class<T> type,
+      final List<T> out) throws IOException {
+    if (line.isBlank()) {
+      return;
+    }
+    try {
+      out.add(mapper.readValue(line, type));
+    } catch (JsonProcessingException e) {
+      malformedLines.incrementAndGet();
+      Metrics.counter(MALFORMED_LINES_METER).increment();
+    }
+  }
+
+  /**
+   * JSON lines {@link #readLines(Path, Class)} skipped because they could
+   * not be parsed.
+   *
+   * @return the count since start
+   */
+  public long malformedLines() {
+    return malformedLines.get();
+  }
+
+  /**
+   * Whether a file is empty, missing or ends with a newline.
+   *
+   * @param file the file
+   * @return {@code false} if its last byte is anything but a newline
+   * @throws IOException if the file cannot be read
+   */
+  private static boolean endsLine(final Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return true;
+    }
+    try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+      long size = channel.size();
+      if (size == 0) {
+        return true;
+      }
+      ByteBuffer last = ByteBuffer.allocate(1);
+      channel.position(size - 1).read(last);
+      return last.get(0) == '\n';
+    }
   }
 
   private static String norm(final String s) {
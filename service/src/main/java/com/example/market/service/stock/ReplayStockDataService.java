@@ -0,0 +1,75 @@
+package com.example.market.service.stock;
+
+import com.example.market.service.replay.InjectedFaults;
+import com.example.market.service.replay.ReplayFixtures;
+import com.example.market.service.upstream.Upstreams;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Alpha Vantage stand-in, active whenever {@code market.replay.mode} is
+ * set.
+ *
+ * <p>Only the HTTP exchange is swapped: recording passes each response
+ * through and saves it per symbol; replaying answers from the saved
+ * responses after the injected latency, or fails as often as configured.
+ * Breaker, bulkhead and parsing run as they do against the real API.</p>
+ */
+@Primary
+@Service
+@ConditionalOnProperty("market.replay.mode")
+public class ReplayStockDataService extends AlphaVantageService {
+
+    /** Fixture kind of the responses. */
+    static final String KIND = "alpha-vantage";
+
+    /** Where responses are saved and read. */
+    private final ReplayFixtures fixtures;
+
+    /**
+     * All args constructor.
+     *
+     * @param upstreams    the service's upstream dependencies
+     * @param thisFixtures where responses are saved and read
+     */
+    @Autowired
+    public ReplayStockDataService(final Upstreams upstreams,
+                                  final ReplayFixtures thisFixtures) {
+        super(upstreams);
+        this.fixtures = thisFixtures;
+    }
+
+    /**
+     * Records or replays the response for the URL's symbol.
+     *
+     * @param url request URL
+     * @return parsed JSON root node
+     * @throws Exception on IO errors, an injected failure or, replaying, a
+     *                   symbol that was never recorded
+     */
+    @Override
+    protected JsonNode getJson(final String url) throws Exception {
+        final String symbol = symbolOf(url);
+        if (fixtures.isRecording()) {
+            final JsonNode root = super.getJson(url);
+            fixtures.write(KIND, symbol, root);
+            return root;
+        }
+        final InjectedFaults faults = fixtures.faults(Upstreams.ALPHA_VANTAGE);
+        faults.await("daily series");
+        if (faults.nextFails()) {
+            throw new IOException("Injected failure");
+        }
+        final JsonNode root = fixtures.read(KIND, symbol, JsonNode.class);
+        if (root == null) {
+            throw new IllegalStateException(
+                "No recorded daily series for " + symbol);
+        }
+        return root;
+    }
+}
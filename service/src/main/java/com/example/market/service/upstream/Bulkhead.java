@@ -0,0 +1,94 @@
+package com.example.market.service.upstream;
+
+import com.example.market.service.Deadline;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the calls in flight to one dependency, so a dependency that hangs
+ * ties up at most {@code maxConcurrent} request threads instead of all of
+ * them. A caller waits at most {@code maxWait}, and never past its request
+ * {@link Deadline}, for a free slot.
+ */
+public final class Bulkhead {
+  /** Free slots. */
+  private final Semaphore slots;
+  /** Most calls in flight. */
+  private final int maxConcurrent;
+  /** Longest wait for a slot, in nanoseconds. */
+  private final long maxWaitNanos;
+  /** Callers turned away because no slot came free. */
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * All args constructor.
+   *
+   * @param thisMaxConcurrent most calls in flight
+   * @param maxWait           longest wait for a slot; zero does not wait
+   * @throws IllegalArgumentException if a limit is not positive
+   */
+  public Bulkhead(final int thisMaxConcurrent, final Duration maxWait) {
+    if (thisMaxConcurrent < 1 || maxWait.isNegative()) {
+      throw new IllegalArgumentException(
+          "bulkhead size must be positive and its wait not negative");
+    }
+    this.maxConcurrent = thisMaxConcurrent;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.slots = new Semaphore(thisMaxConcurrent, true);
+  }
+
+  /**
+   * Take a slot, waiting a bounded time for one.
+   *
+   * @return {@code true} if a slot was taken; release it with
+   *         {@link #exit()}
+   */
+  public boolean tryEnter() {
+    final long wait =
+        Math.min(maxWaitNanos, Deadline.current().remainingNanos());
+    try {
+      if (slots.tryAcquire(wait, TimeUnit.NANOSECONDS)) {
+        return true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    rejected.incrementAndGet();
+    return false;
+  }
+
+  /** Release a slot taken by {@link #tryEnter()}. */
+  public void exit() {
+    slots.release();
+  }
+
+  /**
+   * Calls in flight.
+   *
+   * @return slots taken
+   */
+  public int inFlight() {
+    return maxConcurrent - slots.availablePermits();
+  }
+
+  /**
+   * Most calls in flight.
+   *
+   * @return the bulkhead's size
+   */
+  public int maxConcurrent() {
+    return maxConcurrent;
+  }
+
+  /**
+   * Callers turned away so far.
+   *
+   * @return the number of rejected calls
+   */
+  public long rejected() {
+    return rejected.get();
+  }
+}
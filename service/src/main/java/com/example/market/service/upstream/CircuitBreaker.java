@@ -0,0 +1,217 @@
+package com.example.market.service.upstream;
+
+import java.time.Duration;
+
+/**
+ * Stops calling a dependency that keeps failing or answering slowly.
+ *
+ * <p>The outcomes of the last {@code window} calls are kept. A call is
+ * unhealthy if it failed or took {@code slowCall} or longer; once at least
+ * {@code minimumCalls} are recorded and the unhealthy share reaches
+ * {@code failureRate}, the breaker opens and rejects every call for
+ * {@code openFor}. It then lets a single probe through: a healthy probe
+ * closes the breaker with a clean window, an unhealthy one opens it
+ * again.</p>
+ */
+public final class CircuitBreaker {
+
+  /** Whether calls get through. */
+  public enum State {
+    /** Calls get through and are recorded. */
+    CLOSED,
+    /** Calls are rejected. */
+    OPEN,
+    /** One probe call is let through to test the dependency. */
+    HALF_OPEN
+  }
+
+  /** What {@link #tryAcquire()} allows. */
+  public enum Permit {
+    /** The call must not be made. */
+    REJECTED,
+    /** An ordinary call. */
+    CALL,
+    /** The half-open probe. */
+    PROBE
+  }
+
+  /** Duration from which a call counts as unhealthy, in nanoseconds. */
+  private final long slowCallNanos;
+  /** Unhealthy share of the window that opens the breaker. */
+  private final double failureRate;
+  /** Calls recorded before the breaker may open. */
+  private final int minimumCalls;
+  /** Time the breaker stays open, in nanoseconds. */
+  private final long openForNanos;
+  /** Ring of recent outcomes; {@code true} is unhealthy. */
+  private final boolean[] window;
+
+  /** Outcomes in the window. */
+  private int recorded;
+  /** Slot of the next outcome. */
+  private int next;
+  /** Unhealthy outcomes in the window. */
+  private int unhealthy;
+  /** Current state. */
+  private State state = State.CLOSED;
+  /** {@link System#nanoTime()} when the breaker last opened. */
+  private long openedAt;
+  /** Whether the half-open probe is out. */
+  private boolean probing;
+  /** Times the breaker opened. */
+  private long opened;
+
+  /**
+   * All args constructor.
+   *
+   * @param slowCall     duration from which a call counts as unhealthy
+   * @param thisFailureRate unhealthy share, above 0 and at most 1, that
+   *                     opens the breaker
+   * @param windowSize   number of recent calls considered
+   * @param thisMinimumCalls calls recorded before the breaker may open, at
+   *                     most {@code windowSize}
+   * @param openFor      time the breaker stays open before probing
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public CircuitBreaker(final Duration slowCall,
+                        final double thisFailureRate,
+                        final int windowSize, final int thisMinimumCalls,
+                        final Duration openFor) {
+    if (!slowCall.isPositive() || !openFor.isPositive()
+        || !(thisFailureRate > 0 && thisFailureRate <= 1)
+        || thisMinimumCalls < 1 || thisMinimumCalls > windowSize) {
+      throw new IllegalArgumentException("invalid circuit breaker settings");
+    }
+    this.slowCallNanos = slowCall.toNanos();
+    this.failureRate = thisFailureRate;
+    this.minimumCalls = thisMinimumCalls;
+    this.openForNanos = openFor.toNanos();
+    this.window = new boolean[windowSize];
+  }
+
+  /**
+   * Ask to make a call. A granted permit must be followed by
+   * {@link #onResult} or, if the call is not made after all,
+   * {@link #release}.
+   *
+   * @return whether and how the call may be made
+   */
+  public synchronized Permit tryAcquire() {
+    if (state == State.CLOSED) {
+      return Permit.CALL;
+    }
+    if (state == State.OPEN) {
+      if (System.nanoTime() - openedAt < openForNanos) {
+        return Permit.REJECTED;
+      }
+      state = State.HALF_OPEN;
+      probing = false;
+    }
+    if (probing) {
+      return Permit.REJECTED;
+    }
+    probing = true;
+    return Permit.PROBE;
+  }
+
+  /**
+   * Give back a permit whose call was not made.
+   *
+   * @param permit the permit from {@link #tryAcquire()}
+   */
+  public synchronized void release(final Permit permit) {
+    if (permit == Permit.PROBE && state == State.HALF_OPEN) {
+      probing = false;
+    }
+  }
+
+  /**
+   * Record the outcome of a call.
+   *
+   * @param permit  the call's permit
+   * @param elapsed how long it took, in nanoseconds
+   * @param failed  whether it failed
+   */
+  public synchronized void onResult(final Permit permit, final long elapsed,
+                                    final boolean failed) {
+    final boolean bad = failed || elapsed >= slowCallNanos;
+    if (permit == Permit.PROBE) {
+      if (state != State.HALF_OPEN) {
+        return;
+      }
+      probing = false;
+      if (bad) {
+        open();
+      } else {
+        state = State.CLOSED;
+      }
+      return;
+    }
+    if (permit != Permit.CALL || state != State.CLOSED) {
+      // admitted before the breaker opened; the probe decides now
+      return;
+    }
+    if (recorded == window.length) {
+      if (window[next]) {
+        unhealthy--;
+      }
+    } else {
+      recorded++;
+    }
+    window[next] = bad;
+    if (bad) {
+      unhealthy++;
+    }
+    next = (next + 1) % window.length;
+    if (recorded >= minimumCalls && unhealthy >= failureRate * recorded) {
+      open();
+    }
+  }
+
+  /** Open the breaker and start a clean window. */
+  private void open() {
+    state = State.OPEN;
+    openedAt = System.nanoTime();
+    opened++;
+    recorded = 0;
+    next = 0;
+    unhealthy = 0;
+  }
+
+  /**
+   * Current state. An open breaker whose time is up still reads
+   * {@link State#OPEN} until the next call probes.
+   *
+   * @return the state
+   */
+  public synchronized State state() {
+    return state;
+  }
+
+  /**
+   * Unhealthy share of the calls in the window.
+   *
+   * @return a rate from 0 to 1; 0 while the window is empty
+   */
+  public synchronized double unhealthyRate() {
+    return recorded == 0 ? 0 : (double) unhealthy / recorded;
+  }
+
+  /**
+   * Calls in the window.
+   *
+   * @return recorded outcomes
+   */
+  public synchronized int calls() {
+    return recorded;
+  }
+
+  /**
+   * Times the breaker opened.
+   *
+   * @return the count
+   */
+  public synchronized long timesOpened() {
+    return opened;
+  }
+}
@@ -0,0 +1,219 @@
+package com.example.market.service.upstream;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Recent answers from an upstream dependency that are not worth asking
+ * for again soon: a symbol it does not know, a lookup that came back
+ * empty, or a request to slow down.
+ *
+ * <p>Each {@link Kind} is remembered for its own time to live, and a
+ * {@linkplain Kind#THROTTLED throttle} stands for every key, since the
+ * dependency is refusing all of them. At most {@code maxEntries} keys are
+ * kept; the oldest is forgotten first. Nothing here holds a successful
+ * result: those belong in the positive caches.</p>
+ */
+public final class NegativeCache {
+  /** What the dependency answered. */
+  public enum Kind {
+    /** The key, e.g. a symbol, does not exist upstream. */
+    INVALID,
+    /** The lookup succeeded but found nothing. */
+    EMPTY,
+    /** The dependency asked its callers to slow down. */
+    THROTTLED
+  }
+
+  /** A remembered answer. */
+  public static final class Entry {
+    /** What was answered. */
+    private final Kind kind;
+    /** The dependency's message, if any. */
+    private final String message;
+    /** {@link System#nanoTime()} from which the entry no longer holds. */
+    private final long expires;
+
+    /**
+     * All args constructor.
+     *
+     * @param thisKind    what was answered
+     * @param thisMessage the dependency's message
+     * @param thisExpires when it no longer holds
+     */
+    Entry(final Kind thisKind, final String thisMessage,
+          final long thisExpires) {
+      this.kind = thisKind;
+      this.message = thisMessage;
+      this.expires = thisExpires;
+    }
+
+    /**
+     * What was answered.
+     *
+     * @return the kind
+     */
+    public Kind kind() {
+      return kind;
+    }
+
+    /**
+     * The dependency's message.
+     *
+     * @return the message, or {@code null}
+     */
+    public String message() {
+      return message;
+    }
+  }
+
+  /** Key of a throttle, which holds for every key. */
+  static final String ANY = "*";
+  /** Default keys remembered. */
+  static final int DEFAULT_MAX_ENTRIES = 1000;
+  /** Default time an unknown symbol or empty lookup is remembered. */
+  static final Duration DEFAULT_INVALID_FOR = Duration.ofHours(1);
+  /** Default time a throttle is remembered. */
+  static final Duration DEFAULT_THROTTLED_FOR = Duration.ofMinutes(1);
+
+  /** Keys remembered. */
+  private final int maxEntries;
+  /** Time to live by kind, in nanoseconds. */
+  private final Map<Kind, Long> ttl = new EnumMap<>(Kind.class);
+  /** Source of {@link System#nanoTime()}. */
+  private final LongSupplier clock;
+  /** Remembered answers, oldest first. */
+  private final LinkedHashMap<String, Entry> entries;
+  /** Calls answered from here. */
+  private final AtomicLong hits = new AtomicLong();
+
+  /** Creates a cache with the defaults. */
+  public NegativeCache() {
+    this(DEFAULT_MAX_ENTRIES, DEFAULT_INVALID_FOR, DEFAULT_INVALID_FOR,
+        DEFAULT_THROTTLED_FOR);
+  }
+
+  /**
+   * Creates a cache on the system clock.
+   *
+   * @param thisMaxEntries keys remembered
+   * @param invalidFor     time an unknown key is remembered; zero for never
+   * @param emptyFor       time an empty lookup is remembered; zero for never
+   * @param throttledFor   time a throttle is remembered; zero for never
+   */
+  public NegativeCache(final int thisMaxEntries, final Duration invalidFor,
+                       final Duration emptyFor, final Duration throttledFor) {
+    this(thisMaxEntries, invalidFor, emptyFor, throttledFor,
+        System::nanoTime);
+  }
+
+  /**
+   * All args constructor.
+   *
+   * @param thisMaxEntries keys remembered
+   * @param invalidFor     time an unknown key is remembered; zero for never
+   * @param emptyFor       time an empty lookup is remembered; zero for never
+   * @param throttledFor   time a throttle is remembered; zero for never
+   * @param thisClock      source of {@link System#nanoTime()}
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  NegativeCache(final int thisMaxEntries, final Duration invalidFor,
+                final Duration emptyFor, final Duration throttledFor,
+                final LongSupplier thisClock) {
+    if (thisMaxEntries < 1 || invalidFor.isNegative()
+        || emptyFor.isNegative() || throttledFor.isNegative()) {
+      throw new IllegalArgumentException("negative cache needs at least "
+          + "one entry and no negative time to live");
+    }
+    this.maxEntries = thisMaxEntries;
+    ttl.put(Kind.INVALID, invalidFor.toNanos());
+    ttl.put(Kind.EMPTY, emptyFor.toNanos());
+    ttl.put(Kind.THROTTLED, throttledFor.toNanos());
+    this.clock = thisClock;
+    this.entries = new LinkedHashMap<>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          final Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * The answer remembered for a key: a throttle, which holds for every
+   * key, else the key's own entry.
+   *
+   * @param key the key, e.g. a normalized symbol; {@code null} to check
+   *            for a throttle only
+   * @return the entry, or {@code null} if nothing current is remembered
+   */
+  public synchronized Entry get(final String key) {
+    Entry e = current(ANY);
+    if (e == null && key != null) {
+      e = current(key);
+    }
+    if (e != null) {
+      hits.incrementAndGet();
+    }
+    return e;
+  }
+
+  /**
+   * Remember an answer. A throttle is remembered for every key.
+   *
+   * @param key     the key the answer was for
+   * @param kind    what was answered
+   * @param message the dependency's message, if any
+   */
+  public synchronized void put(final String key, final Kind kind,
+                               final String message) {
+    final long live = ttl.get(kind);
+    final String k = kind == Kind.THROTTLED ? ANY : key;
+    if (live == 0 || k == null) {
+      return;
+    }
+    // re-inserted, so a refreshed entry is the newest
+    entries.remove(k);
+    entries.put(k, new Entry(kind, message, clock.getAsLong() + live));
+  }
+
+  /**
+   * Keys remembered, expired ones included until they are next looked up
+   * or pushed out.
+   *
+   * @return the number of entries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Calls answered from here.
+   *
+   * @return the number of hits
+   */
+  public long hits() {
+    return hits.get();
+  }
+
+  /**
+   * The unexpired entry for a key, dropping an expired one.
+   *
+   * @param key the key
+   * @return the entry, or {@code null}
+   */
+  private Entry current(final String key) {
+    final Entry e = entries.get(key);
+    if (e != null && clock.getAsLong() - e.expires >= 0) {
+      entries.remove(key);
+      return null;
+    }
+    return e;
+  }
+}
@@ -0,0 +1,269 @@
+package com.example.market.service.upstream;
+
+import com.example.market.service.DeadlineExceededException;
+import com.example.market.service.PipelineMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * One upstream dependency, called through its own {@link CircuitBreaker}
+ * and {@link Bulkhead}.
+ *
+ * <p>A call is rejected with {@link UpstreamUnavailableException}, without
+ * reaching the dependency, while the breaker is open or when no bulkhead
+ * slot comes free in time. Failures count against the breaker, except
+ * {@link IllegalArgumentException}s, which are the caller's mistake rather
+ * than the dependency's, and {@link DeadlineExceededException}s, which
+ * say more about the caller's budget than the dependency's health.</p>
+ *
+ * <p>Refusals and empty answers are remembered in a {@link NegativeCache}
+ * for a short while: a call for a key the dependency did not know, or
+ * found nothing for, is answered the same way again without reaching it,
+ * and while it is throttling its callers every call is rejected. An
+ * unknown key does not count against the breaker either.</p>
+ *
+ * <p>Every call, rejected ones included, is timed as a
+ * {@linkplain PipelineMetrics pipeline stage} named after the
+ * dependency, from the moment it was asked for.</p>
+ */
+public final class Upstream {
+  /** Name, e.g. {@value Upstreams#NEWS_API}. */
+  private final String name;
+  /** Bounds calls in flight. */
+  private final Bulkhead bulkhead;
+  /** Stops calls while the dependency is unhealthy. */
+  private final CircuitBreaker breaker;
+  /** Remembers refusals and empty answers. */
+  private final NegativeCache negative;
+  /** Calls rejected by the open breaker. */
+  private final AtomicLong shortCircuited = new AtomicLong();
+
+  /**
+   * Creates a dependency whose negative cache has the defaults.
+   *
+   * @param thisName     name of the dependency
+   * @param thisBulkhead bounds its calls in flight
+   * @param thisBreaker  stops calls while it is unhealthy
+   */
+  public Upstream(final String thisName, final Bulkhead thisBulkhead,
+                  final CircuitBreaker thisBreaker) {
+    this(thisName, thisBulkhead, thisBreaker, new NegativeCache());
+  }
+
+  /**
+   * All args constructor.
+   *
+   * @param thisName     name of the dependency
+   * @param thisBulkhead bounds its calls in flight
+   * @param thisBreaker  stops calls while it is unhealthy
+   * @param thisNegative remembers its refusals and empty answers
+   */
+  public Upstream(final String thisName, final Bulkhead thisBulkhead,
+                  final CircuitBreaker thisBreaker,
+                  final NegativeCache thisNegative) {
+    this.name = thisName;
+    this.bulkhead = thisBulkhead;
+    this.breaker = thisBreaker;
+    this.negative = thisNegative;
+  }
+
+  /**
+   * Call the dependency for no key in particular. Only throttles are
+   * remembered.
+   *
+   * @param call the call
+   * @param <T>  its result type
+   * @return its result
+   * @throws UpstreamUnavailableException if the call was not made
+   * @throws Exception whatever the call throws
+   */
+  public <T> T call(final Callable<T> call) throws Exception {
+    return call(null, call);
+  }
+
+  /**
+   * Call the dependency for a key, unless its {@link NegativeCache}
+   * already holds the answer. A {@code null} result is remembered as
+   * {@linkplain NegativeCache.Kind#EMPTY empty}, and an
+   * {@link UpstreamRefusedException} as what it refused with.
+   *
+   * @param key  what the call is for, e.g. a normalized symbol;
+   *             {@code null} for nothing in particular
+   * @param call the call
+   * @param <T>  its result type
+   * @return its result, or {@code null} if the key's lookup was recently
+   *         empty
+   * @throws UpstreamUnavailableException if the call was not made
+   * @throws UpstreamRefusedException if the key is not known upstream
+   * @throws Exception whatever the call throws
+   */
+  public <T> T call(final String key, final Callable<T> call)
+      throws Exception {
+    final long requested = System.nanoTime();
+    final NegativeCache.Entry known = negative.get(key);
+    if (known != null) {
+      return remembered(known, requested);
+    }
+    final CircuitBreaker.Permit permit = breaker.tryAcquire();
+    if (permit == CircuitBreaker.Permit.REJECTED) {
+      shortCircuited.incrementAndGet();
+      throw rejected(requested, "circuit open");
+    }
+    if (!bulkhead.tryEnter()) {
+      breaker.release(permit);
+      throw rejected(requested, "too many concurrent calls");
+    }
+    final long started = System.nanoTime();
+    boolean failed = true;
+    boolean counted = true;
+    String outcome = PipelineMetrics.ERROR;
+    try {
+      final T result = call.call();
+      failed = false;
+      outcome = PipelineMetrics.SUCCESS;
+      if (result == null) {
+        negative.put(key, NegativeCache.Kind.EMPTY, null);
+      }
+      return result;
+    } catch (UpstreamRefusedException e) {
+      negative.put(key, e.kind(), e.getMessage());
+      // an unknown key is no sign of an unhealthy dependency
+      failed = e.kind() == NegativeCache.Kind.THROTTLED;
+      throw e;
+    } catch (IllegalArgumentException e) {
+      failed = false;
+      throw e;
+    } catch (DeadlineExceededException e) {
+      counted = false;
+      outcome = PipelineMetrics.TIMEOUT;
+      throw e;
+    } finally {
+      bulkhead.exit();
+      final long elapsed = System.nanoTime() - started;
+      if (counted) {
+        breaker.onResult(permit, elapsed, failed);
+      } else {
+        breaker.release(permit);
+      }
+      PipelineMetrics.record(name, outcome, System.nanoTime() - requested);
+    }
+  }
+
+  /**
+   * Answer a call from its negative cache entry.
+   *
+   * @param known     the entry
+   * @param requested {@link System#nanoTime()} when it was asked for
+   * @param <T>       the call's result type
+   * @return {@code null}, for a recently empty lookup
+   * @throws UpstreamUnavailableException while the dependency throttles
+   * @throws UpstreamRefusedException for a key it does not know
+   */
+  private <T> T remembered(final NegativeCache.Entry known,
+                           final long requested) {
+    if (known.kind() == NegativeCache.Kind.THROTTLED) {
+      throw rejected(requested, "throttled");
+    }
+    PipelineMetrics.record(name, PipelineMetrics.HIT,
+        System.nanoTime() - requested);
+    if (known.kind() == NegativeCache.Kind.INVALID) {
+      throw new UpstreamRefusedException(name, known.kind(),
+          known.message());
+    }
+    return null;
+  }
+
+  /**
+   * Record a call that was turned away.
+   *
+   * @param requested {@link System#nanoTime()} when it was asked for
+   * @param reason    why it was turned away
+   * @return the exception to throw
+   */
+  private UpstreamUnavailableException rejected(final long requested,
+                                                final String reason) {
+    PipelineMetrics.record(name, PipelineMetrics.REJECTED,
+        System.nanoTime() - requested);
+    return new UpstreamUnavailableException(name, reason);
+  }
+
+  /**
+   * Call the dependency with a call that throws no checked exceptions.
+   *
+   * @param call the call
+   * @param <T>  its result type
+   * @return its result
+   * @throws UpstreamUnavailableException if the call was not made
+   */
+  public <T> T get(final Supplier<T> call) {
+    try {
+      return call(call::get);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      // a Supplier cannot throw a checked exception
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Name of the dependency.
+   *
+   * @return the name
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * The dependency's breaker.
+   *
+   * @return the breaker
+   */
+  public CircuitBreaker breaker() {
+    return breaker;
+  }
+
+  /**
+   * The dependency's bulkhead.
+   *
+   * @return the bulkhead
+   */
+  public Bulkhead bulkhead() {
+    return bulkhead;
+  }
+
+  /**
+   * The dependency's negative cache.
+   *
+   * @return the cache
+   */
+  public NegativeCache negative() {
+    return negative;
+  }
+
+  /**
+   * State of the breaker, bulkhead and negative cache, for health
+   * details.
+   *
+   * @return the details
+   */
+  public Map<String, Object> details() {
+    final Map<String, Object> d = new LinkedHashMap<>();
+    d.put("state", breaker.state().name());
+    d.put("calls", breaker.calls());
+    d.put("unhealthyRate", breaker.unhealthyRate());
+    d.put("timesOpened", breaker.timesOpened());
+    d.put("shortCircuited", shortCircuited.get());
+    d.put("inFlight", bulkhead.inFlight());
+    d.put("maxConcurrent", bulkhead.maxConcurrent());
+    d.put("rejected", bulkhead.rejected());
+    d.put("negativeEntries", negative.size());
+    d.put("negativeHits", negative.hits());
+    return d;
+  }
+}
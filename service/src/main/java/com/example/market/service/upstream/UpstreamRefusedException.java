@@ -0,0 +1,49 @@
+package com.example.market.service.upstream;
+
+/**
+ * Thrown when an upstream dependency answers, but with a refusal worth
+ * remembering in its {@link NegativeCache}: an unknown symbol or a request
+ * to slow down.
+ */
+public class UpstreamRefusedException extends IllegalStateException {
+  private static final long serialVersionUID = 1L;
+
+  /** Name of the dependency that refused. */
+  private final String upstream;
+  /** What it refused with. */
+  private final NegativeCache.Kind kind;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisUpstream name of the dependency
+   * @param thisKind     {@link NegativeCache.Kind#INVALID} or
+   *                     {@link NegativeCache.Kind#THROTTLED}
+   * @param message      the dependency's message
+   */
+  public UpstreamRefusedException(final String thisUpstream,
+                                  final NegativeCache.Kind thisKind,
+                                  final String message) {
+    super(message);
+    this.upstream = thisUpstream;
+    this.kind = thisKind;
+  }
+
+  /**
+   * Name of the dependency that refused.
+   *
+   * @return the name, e.g. {@value Upstreams#ALPHA_VANTAGE}
+   */
+  public String upstream() {
+    return upstream;
+  }
+
+  /**
+   * What the dependency refused with.
+   *
+   * @return the kind
+   */
+  public NegativeCache.Kind kind() {
+    return kind;
+  }
+}
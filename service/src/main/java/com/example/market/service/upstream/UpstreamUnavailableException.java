@@ -0,0 +1,33 @@
+package com.example.market.service.upstream;
+
+/**
+ * Thrown instead of calling an upstream dependency whose circuit is open
+ * or whose bulkhead is full.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  /** Name of the dependency that was not called. */
+  private final String upstream;
+
+  /**
+   * All args constructor.
+   *
+   * @param thisUpstream name of the dependency
+   * @param reason       why it was not called
+   */
+  public UpstreamUnavailableException(final String thisUpstream,
+                                      final String reason) {
+    super(thisUpstream + " unavailable: " + reason);
+    this.upstream = thisUpstream;
+  }
+
+  /**
+   * Name of the dependency that was not called.
+   *
+   * @return the name, e.g. {@value Upstreams#NEWS_API}
+   */
+  public String upstream() {
+    return upstream;
+  }
+}
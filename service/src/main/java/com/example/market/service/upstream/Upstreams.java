@@ -0,0 +1,177 @@
+package com.example.market.service.upstream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The market service's upstream dependencies, each with its own circuit
+ * breaker and bulkhead, and their state as the {@code upstreams} health
+ * component.
+ *
+ * <p>Each dependency is configured under
+ * {@code market.upstreams.<name>}: {@code max-concurrent} calls in flight,
+ * {@code max-wait} for a free slot, {@code slow-call} duration from which a
+ * call counts as unhealthy, the unhealthy {@code failure-rate} over the last
+ * {@code window} calls (once {@code minimum-calls} are recorded) that opens
+ * the breaker, and {@code open-for}, how long it stays open.</p>
+ *
+ * <p>Refusals and empty answers are remembered per dependency in a
+ * {@link NegativeCache} configured under
+ * {@code market.upstreams.negative-cache}: at most {@code max-entries}
+ * keys, an unknown key for {@code invalid-for}, an empty lookup for
+ * {@code empty-for} and a throttle for {@code throttled-for}.</p>
+ *
+ * <p>An open breaker turns the component {@link #DEGRADED}; the service
+ * still works, on stale or partial data, so overall health is not
+ * affected.</p>
+ */
+@Component("upstreams")
+public class Upstreams implements HealthIndicator {
+  /** Alpha Vantage daily series. */
+  public static final String ALPHA_VANTAGE = "alpha-vantage";
+  /** NewsAPI article search. */
+  public static final String NEWS_API = "news-api";
+  /** Financial Modeling Prep company lookup. */
+  public static final String FMP = "fmp";
+  /** TrendMaster forecasts. */
+  public static final String FORECAST = "forecast";
+  /** The sentiment model. */
+  public static final String SENTIMENT = "sentiment";
+  /** Health status while any breaker is open. */
+  public static final Status DEGRADED =
+      new Status("DEGRADED", "Serving stale or partial data");
+
+  /** Configuration prefix. */
+  private static final String PREFIX = "market.upstreams.";
+  /** Default slots for the HTTP dependencies and the sentiment model. */
+  private static final int SMALL_BULKHEAD = 4;
+  /** Default slots for forecasts, above the batch concurrency. */
+  private static final int FORECAST_BULKHEAD = 16;
+  /** Default unhealthy share that opens a breaker. */
+  private static final double FAILURE_RATE = 0.5;
+  /** Default calls per breaker window. */
+  private static final int WINDOW = 20;
+  /** Default calls recorded before a breaker may open. */
+  private static final int MINIMUM_CALLS = 10;
+  /** Negative cache configuration prefix. */
+  private static final String NEGATIVE = PREFIX + "negative-cache.";
+
+  /** Dependencies by name, in a stable order. */
+  private final Map<String, Upstream> byName = new LinkedHashMap<>();
+  /** Keys each negative cache remembers. */
+  private final int negativeMax;
+  /** How long an unknown key is remembered. */
+  private final Duration invalidFor;
+  /** How long an empty lookup is remembered. */
+  private final Duration emptyFor;
+  /** How long a throttle is remembered. */
+  private final Duration throttledFor;
+
+  /**
+   * Creates the dependencies from configuration.
+   *
+   * @param env the application's environment
+   */
+  @Autowired
+  public Upstreams(final Environment env) {
+    this.negativeMax = env.getProperty(NEGATIVE + "max-entries",
+        Integer.class, NegativeCache.DEFAULT_MAX_ENTRIES);
+    this.invalidFor = duration(env, NEGATIVE + "invalid-for",
+        NegativeCache.DEFAULT_INVALID_FOR.toString());
+    this.emptyFor = duration(env, NEGATIVE + "empty-for",
+        NegativeCache.DEFAULT_INVALID_FOR.toString());
+    this.throttledFor = duration(env, NEGATIVE + "throttled-for",
+        NegativeCache.DEFAULT_THROTTLED_FOR.toString());
+    add(env, ALPHA_VANTAGE, SMALL_BULKHEAD, "PT0.1S", "PT10S");
+    add(env, NEWS_API, SMALL_BULKHEAD, "PT0.1S", "PT5S");
+    add(env, FMP, SMALL_BULKHEAD, "PT0.1S", "PT5S");
+    add(env, FORECAST, FORECAST_BULKHEAD, "PT30S", "PT5M");
+    add(env, SENTIMENT, SMALL_BULKHEAD, "PT0.1S", "PT1M");
+  }
+
+  /** Creates the dependencies with their defaults. */
+  public Upstreams() {
+    this(new StandardEnvironment());
+  }
+
+  private void add(final Environment env, final String name,
+                   final int maxConcurrent, final String maxWait,
+                   final String slowCall) {
+    final String p = PREFIX + name + ".";
+    final Bulkhead bulkhead = new Bulkhead(
+        env.getProperty(p + "max-concurrent", Integer.class, maxConcurrent),
+        duration(env, p + "max-wait", maxWait));
+    final CircuitBreaker breaker = new CircuitBreaker(
+        duration(env, p + "slow-call", slowCall),
+        env.getProperty(p + "failure-rate", Double.class, FAILURE_RATE),
+        env.getProperty(p + "window", Integer.class, WINDOW),
+        env.getProperty(p + "minimum-calls", Integer.class, MINIMUM_CALLS),
+        duration(env, p + "open-for", "PT30S"));
+    byName.put(name, new Upstream(name, bulkhead, breaker,
+        new NegativeCache(negativeMax, invalidFor, emptyFor,
+            throttledFor)));
+  }
+
+  private static Duration duration(final Environment env, final String key,
+                                   final String fallback) {
+    return DurationStyle.detectAndParse(env.getProperty(key, fallback));
+  }
+
+  /**
+   * A dependency by name.
+   *
+   * @param name one of the names defined here
+   * @return the dependency
+   * @throws IllegalArgumentException if there is no such dependency
+   */
+  public Upstream get(final String name) {
+    final Upstream u = byName.get(name);
+    if (u == null) {
+      throw new IllegalArgumentException("Unknown upstream: " + name);
+    }
+    return u;
+  }
+
+  /**
+   * Every dependency.
+   *
+   * @return the dependencies by name
+   */
+  public Map<String, Upstream> all() {
+    return Collections.unmodifiableMap(byName);
+  }
+
+  /**
+   * Breaker and bulkhead state of every dependency.
+   *
+   * @return up, or {@link #DEGRADED} listing the open breakers
+   */
+  @Override
+  public Health health() {
+    final List<String> open = new ArrayList<>();
+    final Health.Builder health = Health.up();
+    byName.forEach((name, u) -> {
+      health.withDetail(name, u.details());
+      if (u.breaker().state() != CircuitBreaker.State.CLOSED) {
+        open.add(name);
+      }
+    });
+    if (!open.isEmpty()) {
+      health.status(DEGRADED).withDetail("open", open);
+    }
+    return health.build();
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * Circuit breakers, bulkheads and negative caches guarding the market
+ * service's upstream dependencies.
+ */
+package com.example.market.service.upstream;
@@ -0,0 +1,110 @@
+package com.example.market.bench;
+
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.service.analysis.AdjustedPredictionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sentiment adjustment of a forecast, comparing the original string-map
+ * implementation with the typed {@link ForecastSeries} path.
+ *
+ * <p>Run with {@code -prof gc} to see allocation per operation;
+ * {@code typedInto} should report close to zero bytes.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdjustedPredictionBenchmark {
+
+  /** Number of forecast days. */
+  @Param({"10", "250"})
+  public int horizon;
+
+  private AdjustedPredictionService service;
+  private Map<String, String> predictions;
+  private ForecastSeries series;
+  private double[] out;
+  private long today;
+
+  @Setup
+  public void setUp() {
+    service = new AdjustedPredictionService();
+    predictions = new HashMap<>();
+    LocalDate start = LocalDate.now();
+    for (int d = 1; d <= horizon; d++) {
+      predictions.put(start.plusDays(d).toString(),
+          Double.toString(200.0 + d * 0.37));
+    }
+    series = ForecastSeries.fromMap(predictions);
+    out = new double[horizon];
+    today = start.toEpochDay();
+  }
+
+  /** The implementation before the typed series, kept as the baseline. */
+  @Benchmark
+  public Map<String, String> legacyMap() {
+    return legacyAdjust(predictions, 4);
+  }
+
+  /** Public map API: parse once, typed loop, format at the end. */
+  @Benchmark
+  public Map<String, String> mapApi() {
+    return service.adjustPricesWithSentiment(predictions, 4.0);
+  }
+
+  /** Typed series in, typed series out (one output array). */
+  @Benchmark
+  public ForecastSeries typed() {
+    return service.adjust(series, 4.0);
+  }
+
+  /** The hot loop alone, writing into a reused array. */
+  @Benchmark
+  public double[] typedInto() {
+    service.adjustInto(series, 4.0, today, out);
+    return out;
+  }
+
+  private static Map<String, String> legacyAdjust(
+      final Map<String, String> predictions, final int score) {
+    final double normalized = (Math.max(1, Math.min(5, score)) - 3) / 2.0;
+    final Function<Double, Double> factor =
+        (s) -> 0.15 * Math.tanh(2.0 * s);
+    final Function<Integer, Double> decay =
+        (d) -> Math.exp(-0.12 * d);
+    final double base = factor.apply(normalized);
+    final Map<String, String> result = new HashMap<>();
+    final LocalDate now = LocalDate.now();
+    final DateTimeFormatter formatter =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    for (Map.Entry<String, String> e : predictions.entrySet()) {
+      final LocalDate date = LocalDate.parse(e.getKey(), formatter);
+      final int day = (int) Math.max(0, ChronoUnit.DAYS.between(now, date));
+      final double price = Double.parseDouble(e.getValue());
+      result.put(e.getKey(), String.format("%.2f",
+          price * (1.0 + base * decay.apply(day))));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,101 @@
+package com.example.market.bench;
+
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.stock.AlphaVantageService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing an Alpha Vantage {@code TIME_SERIES_DAILY} response, the work
+ * {@code /market/daily} does on every cache miss.
+ *
+ * <p>{@code fromAlphaDaily} converts already-parsed bars one by one;
+ * {@code fetchDaily} is the whole service path from the response bytes
+ * (JSON tree, error checks, bars, sorting) with only the HTTP call
+ * replaced. {@code compact} is what the free tier returns; 5,000 bars is
+ * a full history.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AlphaVantageParsingBenchmark {
+
+  /** Bars in the response. */
+  @Param({"100", "5000"})
+  public int bars;
+
+  private JsonNode series;
+  private AlphaVantageService service;
+
+  /** The real service, answering from a canned response body. */
+  static final class CannedAlphaVantageService extends AlphaVantageService {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final byte[] body;
+
+    CannedAlphaVantageService(byte[] body) {
+      this.body = body;
+    }
+
+    @Override
+    protected JsonNode getJson(String url) throws IOException {
+      return mapper.readTree(body);
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = mapper.createObjectNode();
+    root.putObject("Meta Data").put("2. Symbol", "MSFT");
+    ObjectNode daily = root.putObject("Time Series (Daily)");
+    LocalDate day = LocalDate.of(2025, 10, 22);
+    for (int i = 0; i < bars; i++) {
+      double close = 400 + (i * 37 % 500) / 10.0;
+      daily.putObject(day.minusDays(i).toString())
+          .put("1. open", String.format("%.4f", close - 1))
+          .put("2. high", String.format("%.4f", close + 2))
+          .put("3. low", String.format("%.4f", close - 3))
+          .put("4. close", String.format("%.4f", close))
+          .put("5. volume", Integer.toString(20_000_000 + i * 13));
+    }
+    series = daily;
+    service = new CannedAlphaVantageService(mapper.writeValueAsBytes(root));
+  }
+
+  @Benchmark
+  public void fromAlphaDaily(Blackhole bh) {
+    Iterator<Map.Entry<String, JsonNode>> it = series.fields();
+    while (it.hasNext()) {
+      Map.Entry<String, JsonNode> e = it.next();
+      bh.consume(StockBar.fromAlphaDaily(e.getKey(), e.getValue()));
+    }
+  }
+
+  @Benchmark
+  public StockDailySeries fetchDaily() throws Exception {
+    return service.fetchDaily("MSFT", "demo");
+  }
+}
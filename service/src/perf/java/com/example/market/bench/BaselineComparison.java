@@ -0,0 +1,159 @@
+package com.example.market.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result against a saved baseline.
+ *
+ * <p>Benchmarks are matched by name and parameters. A benchmark regresses
+ * when its score is worse than the baseline's by more than the tolerance
+ * (slower in the time modes, fewer operations in throughput mode), or
+ * when it allocates more per operation by more than the tolerance, given
+ * the run used {@code -prof gc}. The table goes to standard output and
+ * the exit code is 1 if anything regressed, so a build can fail on
+ * it.</p>
+ *
+ * <pre>
+ * java ... BaselineComparison baseline.json result.json [tolerance]
+ * </pre>
+ */
+public final class BaselineComparison {
+
+  /** Default tolerance, as a fraction of the baseline. */
+  static final double DEFAULT_TOLERANCE = 0.10;
+  /** Allocation noise ignored whatever the tolerance, in bytes per op. */
+  static final double ALLOCATION_SLACK = 16;
+  /** Allocation per operation, as {@code -prof gc} reports it. */
+  private static final String[] ALLOCATION_METRICS =
+      {"gc.alloc.rate.norm", "·gc.alloc.rate.norm"};
+
+  private BaselineComparison() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: BaselineComparison <baseline.json> "
+          + "<result.json> [tolerance]");
+      System.exit(2);
+    }
+    double tolerance = args.length > 2 && !args[2].isBlank()
+        ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+    int regressions = compare(read(Path.of(args[0])), read(Path.of(args[1])),
+        tolerance, System.out);
+    System.exit(regressions == 0 ? 0 : 1);
+  }
+
+  /** One benchmark's numbers. */
+  static final class Result {
+    final String mode;
+    final double score;
+    final String unit;
+    /** Bytes per operation; NaN without {@code -prof gc}. */
+    final double allocated;
+
+    Result(String mode, double score, String unit, double allocated) {
+      this.mode = mode;
+      this.score = score;
+      this.unit = unit;
+      this.allocated = allocated;
+    }
+  }
+
+  /**
+   * Read a JMH JSON result file, keyed by benchmark name and parameters.
+   */
+  static Map<String, Result> read(Path file) throws IOException {
+    Map<String, Result> out = new LinkedHashMap<>();
+    JsonNode runs = new ObjectMapper().readTree(Files.readAllBytes(file));
+    for (JsonNode run : runs) {
+      JsonNode primary = run.path("primaryMetric");
+      double allocated = Double.NaN;
+      for (String metric : ALLOCATION_METRICS) {
+        JsonNode m = run.path("secondaryMetrics").path(metric);
+        if (!m.isMissingNode()) {
+          allocated = m.path("score").asDouble();
+        }
+      }
+      out.put(key(run), new Result(run.path("mode").asText(),
+          primary.path("score").asDouble(),
+          primary.path("scoreUnit").asText(), allocated));
+    }
+    return out;
+  }
+
+  private static String key(JsonNode run) {
+    // Class.method, without the package
+    String name = run.path("benchmark").asText();
+    name = name.substring(
+        name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+    Map<String, String> params = new TreeMap<>();
+    Iterator<Map.Entry<String, JsonNode>> it = run.path("params").fields();
+    while (it.hasNext()) {
+      Map.Entry<String, JsonNode> p = it.next();
+      params.put(p.getKey(), p.getValue().asText());
+    }
+    return params.isEmpty() ? name : name + " " + params;
+  }
+
+  /**
+   * Print the comparison and count the regressions.
+   *
+   * @param out where the table goes
+   * @return the number of regressed benchmarks
+   */
+  static int compare(Map<String, Result> baseline,
+                     Map<String, Result> current, double tolerance,
+                     PrintStream out) {
+    int regressions = 0;
+    StringBuilder flags = new StringBuilder();
+    out.printf("%-70s %14s %14s %8s %12s %12s%n", "benchmark", "baseline",
+        "current", "change", "B/op before", "B/op now");
+    for (Map.Entry<String, Result> e : current.entrySet()) {
+      Result now = e.getValue();
+      Result before = baseline.get(e.getKey());
+      if (before == null) {
+        out.printf("%-70s %14s %14.3f %8s%n", e.getKey(), "-", now.score,
+            "new");
+        continue;
+      }
+      double change = (now.score - before.score) / before.score;
+      // throughput is better when higher, every other mode when lower
+      boolean slower = "thrpt".equals(now.mode)
+          ? change < -tolerance : change > tolerance;
+      boolean allocates = now.allocated > before.allocated
+          * (1 + tolerance) + ALLOCATION_SLACK;
+      flags.setLength(0);
+      if (slower) {
+        flags.append(" SLOWER");
+      }
+      if (allocates) {
+        flags.append(" ALLOCATES MORE");
+      }
+      if (slower || allocates) {
+        regressions++;
+      }
+      out.printf("%-70s %14.3f %14.3f %+7.1f%% %12.0f %12.0f %s%s%n",
+          e.getKey(), before.score, now.score, change * 100,
+          before.allocated, now.allocated, now.unit, flags);
+    }
+    for (String gone : baseline.keySet()) {
+      if (!current.containsKey(gone)) {
+        out.printf("%-70s %14.3f %14s %8s%n", gone,
+            baseline.get(gone).score, "-", "not run");
+      }
+    }
+    out.printf("%d regression(s) beyond %.0f%%%n", regressions,
+        tolerance * 100);
+    return regressions;
+  }
+}
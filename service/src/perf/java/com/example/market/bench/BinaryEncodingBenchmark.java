@@ -0,0 +1,82 @@
+package com.example.market.bench;
+
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a 5,000-bar daily series in each response
+ * encoding a client can negotiate on {@code /market/daily}.
+ *
+ * <p>The encoded size is printed once per fork, before the first
+ * iteration.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryEncodingBenchmark {
+
+  private static final int BARS = 5_000;
+
+  @Param({"json", "smile", "cbor"})
+  public String encoding;
+
+  private ObjectMapper mapper;
+  private StockDailySeries series;
+  private byte[] encoded;
+
+  @Setup
+  public void setUp() throws IOException {
+    mapper = switch (encoding) {
+      case "smile" -> new SmileMapper();
+      case "cbor" -> new CBORMapper();
+      default -> new ObjectMapper();
+    };
+    List<StockBar> bars = new ArrayList<>(BARS);
+    LocalDate day = LocalDate.of(2006, 1, 2);
+    for (int i = 0; i < BARS; i++) {
+      BigDecimal close = BigDecimal.valueOf(10_000 + (i * 37L) % 5_000, 2);
+      bars.add(new StockBar(day.plusDays(i).toString(),
+          close.subtract(BigDecimal.ONE), close.add(BigDecimal.TEN),
+          close.subtract(BigDecimal.TEN), close, 1_000_000L + i * 13L));
+    }
+    series = new StockDailySeries("AMZN", "2025-10-22T00:00:00Z",
+        "alphavantage: TIME_SERIES_DAILY", bars);
+    encoded = mapper.writeValueAsBytes(series);
+    System.out.printf("%n%s payload: %,d bytes for %,d bars%n",
+        encoding, encoded.length, BARS);
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return mapper.writeValueAsBytes(series);
+  }
+
+  @Benchmark
+  public StockDailySeries decode() throws IOException {
+    return mapper.readValue(encoded, StockDailySeries.class);
+  }
+}
@@ -0,0 +1,132 @@
+package com.example.market.bench;
+
+import com.example.market.api.CompositeController;
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.analysis.AdjustedPredictionService;
+import com.example.market.service.forecast.ForecastDataService;
+import com.example.market.service.news.NewsDataService;
+import com.example.market.service.stock.JsonStore;
+import com.example.market.service.stock.StockDataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * {@code GET /market/daily} answered from a fresh cache file, through
+ * MockMvc, so request mapping, validators and response writing are all
+ * measured but no socket is.
+ *
+ * <p>{@code full} streams the file as-is, {@code last30} projects it,
+ * {@code smile} transcodes it and {@code notModified} answers a
+ * revalidation with 304. The services behind a cache miss are mocks and
+ * are never reached.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DailyCacheHitBenchmark {
+
+  private static final int BARS = 100;
+
+  @Param({"full", "last30", "smile", "notModified"})
+  public String request;
+
+  private Path dir;
+  private MockMvc mvc;
+  private MockHttpServletRequestBuilder get;
+
+  /** A store whose daily cache lives in the benchmark's directory. */
+  static final class TempJsonStore extends JsonStore {
+    private final Path base;
+
+    TempJsonStore(Path base) {
+      this.base = base;
+    }
+
+    @Override
+    public Path dailyPath(String symbol) {
+      return base.resolve(symbol.trim().toLowerCase() + "-daily.json");
+    }
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("daily-bench-");
+    JsonStore store = new TempJsonStore(dir);
+    List<StockBar> bars = new ArrayList<>(BARS);
+    LocalDate day = LocalDate.now().minusDays(BARS);
+    for (int i = 0; i < BARS; i++) {
+      BigDecimal close = BigDecimal.valueOf(40_000 + (i * 37L) % 5_000, 2);
+      bars.add(new StockBar(day.plusDays(i).toString(),
+          close.subtract(BigDecimal.ONE), close.add(BigDecimal.TEN),
+          close.subtract(BigDecimal.TEN), close, 20_000_000L + i * 13L));
+    }
+    store.write(store.dailyPath("MSFT"), new StockDailySeries("MSFT",
+        Instant.now().toString(), "alphavantage: TIME_SERIES_DAILY", bars));
+
+    mvc = MockMvcBuilders.standaloneSetup(new CompositeController(
+        mock(StockDataService.class), mock(ForecastDataService.class),
+        mock(NewsDataService.class), new AdjustedPredictionService(),
+        store)).build();
+    get = get("/market/daily").param("symbol", "MSFT");
+    switch (request) {
+      case "last30" -> get.param("last", "30");
+      case "smile" -> get.accept("application/x-jackson-smile");
+      case "notModified" -> get.header(HttpHeaders.IF_NONE_MATCH,
+          mvc.perform(get("/market/daily").param("symbol", "MSFT"))
+              .andReturn().getResponse().getHeader(HttpHeaders.ETAG));
+      default -> { }
+    }
+    int status = daily().getStatus();
+    if (status != ("notModified".equals(request) ? 304 : 200)) {
+      throw new IllegalStateException("Cache was not hit: " + status);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(p);
+      }
+    }
+  }
+
+  @Benchmark
+  public MockHttpServletResponse daily() throws Exception {
+    return mvc.perform(get).andReturn().getResponse();
+  }
+}
@@ -0,0 +1,116 @@
+package com.example.market.bench;
+
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.forecast.ForecastBatcher;
+import com.example.market.service.forecast.python.PythonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput and latency of 16 concurrent forecast callers for several
+ * micro-batch sizes.
+ *
+ * <p>The Python run is simulated with a fixed cost per run (interpreter
+ * start, imports, model load) plus a cost per symbol (the forward pass),
+ * and at most {@code cores} runs make progress at once, as CPU-bound
+ * processes would. The numbers show what batching amortizes rather than
+ * TrendMaster's own speed. {@code maxSize=1} is the unbatched baseline.
+ * Throughput is in forecasts per second; the sample mode reports latency
+ * percentiles.</p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ForecastBatcherBenchmark {
+
+  /** Simulated fixed cost of one Python run. */
+  private static final long RUN_NANOS = TimeUnit.MILLISECONDS.toNanos(40);
+  /** Simulated cost of one symbol within a run. */
+  private static final long SYMBOL_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+  /** One-day forecast every run returns. */
+  private static final String FORECAST =
+      "{\"Date\":{\"0\":\"2025-01-02\"},\"Predicted_Close\":{\"0\":\"1.5\"}}";
+
+  /** Most symbols per run. */
+  @Param({"1", "4", "16"})
+  public int maxSize;
+
+  /** Runs that can make progress at once. */
+  @Param({"4"})
+  public int cores;
+
+  /** Batching window in milliseconds. */
+  @Param({"5"})
+  public int windowMillis;
+
+  private ForecastBatcher batcher;
+  private final AtomicInteger next = new AtomicInteger();
+  private final StockDailySeries series =
+      new StockDailySeries("SYM", "t", "bench", List.of());
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    batcher = new ForecastBatcher(new SimulatedPython(new Semaphore(cores)),
+        Duration.ofMillis(windowMillis), maxSize);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    batcher.destroy();
+  }
+
+  @Benchmark
+  public ForecastSeries predict() {
+    // distinct symbols, so requests are not coalesced into one slot
+    return batcher.predict("S" + next.incrementAndGet(), 10, series);
+  }
+
+  /** Python stand-in with a fixed per-run and per-symbol cost. */
+  static final class SimulatedPython extends PythonService {
+    private final Semaphore cpus;
+
+    SimulatedPython(final Semaphore thisCpus) {
+      this.cpus = thisCpus;
+    }
+
+    @Override
+    public Map<String, String> runTrendMasterBatch(
+        final Map<String, StockDailySeries> in, final int horizon) {
+      cpus.acquireUninterruptibly();
+      try {
+        LockSupport.parkNanos(RUN_NANOS + SYMBOL_NANOS * in.size());
+      } finally {
+        cpus.release();
+      }
+      Map<String, String> out = new HashMap<>();
+      in.keySet().forEach(s -> out.put(s, FORECAST));
+      return out;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.market.bench;
+
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.stock.JsonStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writing and reading a cached daily series through {@link JsonStore},
+ * as a fetch and a later cache read do.
+ *
+ * <p>Files go to a temporary directory, so the numbers include the page
+ * cache but rarely the disk. {@code write} includes the write-aside and
+ * atomic rename.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonStoreBenchmark {
+
+  /** Bars in the series. */
+  @Param({"100", "5000"})
+  public int bars;
+
+  private JsonStore store;
+  private Path dir;
+  private Path written;
+  private Path roundTrip;
+  private StockDailySeries series;
+
+  @Setup
+  public void setUp() throws IOException {
+    store = new JsonStore();
+    dir = Files.createTempDirectory("jsonstore-bench-");
+    written = dir.resolve("msft-daily.json");
+    roundTrip = dir.resolve("aapl-daily.json");
+    List<StockBar> list = new ArrayList<>(bars);
+    LocalDate day = LocalDate.of(2006, 1, 2);
+    for (int i = 0; i < bars; i++) {
+      BigDecimal close = BigDecimal.valueOf(10_000 + (i * 37L) % 5_000, 2);
+      list.add(new StockBar(day.plusDays(i).toString(),
+          close.subtract(BigDecimal.ONE), close.add(BigDecimal.TEN),
+          close.subtract(BigDecimal.TEN), close, 1_000_000L + i * 13L));
+    }
+    series = new StockDailySeries("MSFT", "2025-10-22T00:00:00Z",
+        "alphavantage: TIME_SERIES_DAILY", list);
+    store.write(written, series);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(p);
+      }
+    }
+  }
+
+  @Benchmark
+  public StockDailySeries read() throws IOException {
+    return store.read(written, StockDailySeries.class);
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+    store.write(roundTrip, series);
+  }
+
+  @Benchmark
+  public StockDailySeries writeThenRead() throws IOException {
+    store.write(roundTrip, series);
+    return store.read(roundTrip, StockDailySeries.class);
+  }
+}
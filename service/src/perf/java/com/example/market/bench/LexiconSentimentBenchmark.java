@@ -0,0 +1,75 @@
+package com.example.market.bench;
+
+import com.example.market.model.news.SentimentResult;
+import com.example.market.service.news.LexiconSentimentService;
+import com.example.market.service.news.SentimentLexicon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the in-JVM lexicon engine on NewsDataService-sized inputs
+ * (NewsDataService stops appending articles at about 2,000 characters).
+ *
+ * <p>For comparison, one {@code SentimentPythonService} call spawns a
+ * Python process and loads the transformer, which takes seconds.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexiconSentimentBenchmark {
+
+  private static final String[] HEADLINES = {
+      "Amazon shares soar after blowout quarter as cloud profits surge.",
+      "Retailer cuts full-year forecast on soft demand and rising costs.",
+      "Analysts were not impressed by the product launch.",
+      "Microsoft to report quarterly earnings on Tuesday.",
+      "Chipmaker warns of headwinds from new tariffs; shares slide.",
+      "Alphabet climbs as ad revenue recovers and margins improve.",
+  };
+
+  /** Approximate length of the scored text in characters. */
+  @Param({"200", "2000"})
+  public int length;
+
+  private LexiconSentimentService service;
+  private String text;
+
+  @Setup
+  public void setUp() {
+    service = new LexiconSentimentService(SentimentLexicon.loadDefault());
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; sb.length() < length; i++) {
+      sb.append(HEADLINES[i % HEADLINES.length]).append(' ');
+    }
+    text = sb.toString();
+  }
+
+  @Benchmark
+  public LexiconSentimentService.LexiconScore score() {
+    return service.score(text);
+  }
+
+  @Benchmark
+  public SentimentResult analyzeSentiment() {
+    return service.analyzeSentiment(text);
+  }
+
+  @Benchmark
+  public SentimentLexicon compileLexicon() {
+    return SentimentLexicon.loadDefault();
+  }
+}
@@ -0,0 +1,77 @@
+package com.example.market.bench;
+
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.service.forecast.python.DefaultProcessRunner;
+import com.example.market.service.forecast.python.PythonService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a forecast from the line TrendMaster prints with
+ * {@code parseForecastSeries}, the parse the endpoints use.
+ *
+ * <p>The output is in pandas' column-oriented shape, with bounds, and
+ * given once as a JSON object and once JSON-encoded as a string, which
+ * older scripts print.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrendMasterParsingBenchmark {
+
+  /** Number of forecast days. */
+  @Param({"10", "250"})
+  public int horizon;
+
+  /** Whether the object is printed as a JSON string. */
+  @Param({"false", "true"})
+  public boolean quoted;
+
+  private PythonService python;
+  private String response;
+
+  @Setup
+  public void setUp() throws IOException {
+    python = new PythonService(new DefaultProcessRunner());
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = mapper.createObjectNode();
+    ObjectNode dates = root.putObject("Date");
+    ObjectNode close = root.putObject("Predicted_Close");
+    ObjectNode lower = root.putObject("Lower_Bound");
+    ObjectNode upper = root.putObject("Upper_Bound");
+    LocalDate day = LocalDate.of(2025, 10, 23);
+    for (int i = 0; i < horizon; i++) {
+      String key = Integer.toString(i);
+      double price = 412.5 + i * 0.37;
+      dates.put(key, day.plusDays(i).toString());
+      close.put(key, price);
+      lower.put(key, price - 4);
+      upper.put(key, price + 4);
+    }
+    String json = mapper.writeValueAsString(root);
+    response = quoted ? mapper.writeValueAsString(json) : json;
+  }
+
+  @Benchmark
+  public ForecastSeries parseForecastSeries() {
+    return python.parseForecastSeries(response);
+  }
+}
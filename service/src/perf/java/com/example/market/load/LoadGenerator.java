@@ -0,0 +1,270 @@
+package com.example.market.load;
+
+import com.example.market.MarketApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop load against the service, replaying a request log or a
+ * synthetic mix, with a latency report per endpoint.
+ *
+ * <p>Requests go out at a fixed rate whatever the service's latency, as
+ * independent users' requests would, instead of each waiting for the
+ * previous one. A service that cannot keep up then shows growing
+ * latency rather than a quietly lower request rate. Without
+ * {@code --base-url} the service is started in this JVM on a free port
+ * with the {@code replay} profile, so no upstream or Python install is
+ * needed.</p>
+ *
+ * <pre>
+ * java ... LoadGenerator [--option=value ...]
+ *   --base-url=URL        service to load; default: start one here
+ *   --profiles=replay     profiles of the service started here
+ *   --rps=10              requests per second
+ *   --duration=PT1M       how long requests are recorded
+ *   --warmup=PT10S        load sent before recording starts
+ *   --timeout=PT30S       longest wait for one response
+ *   --max-in-flight=1000  requests outstanding before new ones are
+ *                         dropped (and counted as errors)
+ *   --log=FILE            replay this request log, in order
+ *   --mix=predict=1,sentiment=1,combined-prediction=2
+ *                         endpoint weights of the synthetic mix
+ *   --symbols=50          symbol count, or a comma-separated list, most
+ *                         popular first
+ *   --zipf=1.0            Zipf exponent of symbol popularity
+ *   --clients=8           distinct X-Client-Id values
+ *   --horizon=10          forecast horizon
+ *   --seed=42             seed of the mix
+ *   --report=FILE         where the JSON report is saved
+ *   --baseline=FILE       compare against a saved report; exit code 1 on
+ *                         a regression
+ *   --tolerance=0.10      allowed latency and throughput change
+ * </pre>
+ */
+public final class LoadGenerator {
+
+  private static final Map<String, String> DEFAULTS = defaults();
+  /** Extra wait for the last responses, on top of the timeout. */
+  private static final Duration DRAIN_SLACK = Duration.ofSeconds(1);
+
+  private LoadGenerator() {
+  }
+
+  private static Map<String, String> defaults() {
+    Map<String, String> d = new LinkedHashMap<>();
+    d.put("base-url", "");
+    d.put("profiles", "replay");
+    d.put("rps", "10");
+    d.put("duration", "PT1M");
+    d.put("warmup", "PT10S");
+    d.put("timeout", "PT30S");
+    d.put("max-in-flight", "1000");
+    d.put("log", "");
+    d.put("mix", "predict=1,sentiment=1,combined-prediction=2");
+    d.put("symbols", "50");
+    d.put("zipf", "1.0");
+    d.put("clients", "8");
+    d.put("horizon", "10");
+    d.put("seed", "42");
+    d.put("report", "target/load-report.json");
+    d.put("baseline", "");
+    d.put("tolerance", Double.toString(
+        LoadReportComparison.DEFAULT_TOLERANCE));
+    return d;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parse(args);
+    ConfigurableApplicationContext service = null;
+    String baseUrl = options.get("base-url");
+    if (baseUrl.isBlank()) {
+      // replayed upstreams need no key, but the daily endpoint asks for one
+      if (System.getenv("ALPHAVANTAGE_API_KEY") == null) {
+        System.setProperty("alphavantage.api.key", "replay");
+      }
+      service = new SpringApplicationBuilder(MarketApplication.class)
+          .profiles(options.get("profiles").split(","))
+          .run("--server.port=0");
+      baseUrl = "http://localhost:"
+          + service.getEnvironment().getProperty("local.server.port");
+      options.put("base-url", baseUrl);
+    }
+    ObjectNode report;
+    try {
+      report = run(options, source(options));
+    } finally {
+      if (service != null) {
+        service.close();
+      }
+    }
+    ObjectMapper mapper = new ObjectMapper();
+    Path file = Path.of(options.get("report"));
+    LoadReport.save(mapper, report, file);
+    LoadReport.print(report, System.out);
+    System.out.println("Report saved to " + file);
+    if (!options.get("baseline").isBlank()) {
+      int regressions = LoadReportComparison.compare(
+          mapper.readTree(Path.of(options.get("baseline")).toFile()), report,
+          Double.parseDouble(options.get("tolerance")), System.out);
+      System.exit(regressions == 0 ? 0 : 1);
+    }
+    System.exit(0);
+  }
+
+  /** Read {@code --name=value} options over the defaults. */
+  static Map<String, String> parse(String[] args) {
+    Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+    for (String arg : args) {
+      if (arg.isBlank()) {
+        continue;
+      }
+      int eq = arg.indexOf('=');
+      String name = arg.startsWith("--") && eq > 2
+          ? arg.substring(2, eq) : null;
+      if (name == null || !options.containsKey(name)) {
+        throw new IllegalArgumentException("Unknown option " + arg
+            + "; expected one of --" + String.join(", --", DEFAULTS.keySet()));
+      }
+      options.put(name, arg.substring(eq + 1));
+    }
+    return options;
+  }
+
+  /** The request log, or the synthetic mix if no log is given. */
+  static Supplier<LoadRequest> source(Map<String, String> options)
+      throws IOException {
+    if (!options.get("log").isBlank()) {
+      return RequestLog.read(Path.of(options.get("log")));
+    }
+    String symbols = options.get("symbols");
+    List<String> universe = symbols.chars().allMatch(Character::isDigit)
+        ? SyntheticMix.universe(Integer.parseInt(symbols))
+        : Arrays.asList(symbols.split(","));
+    return new SyntheticMix(SyntheticMix.parseWeights(options.get("mix")),
+        universe, Double.parseDouble(options.get("zipf")),
+        Integer.parseInt(options.get("clients")),
+        Integer.parseInt(options.get("horizon")),
+        Long.parseLong(options.get("seed")));
+  }
+
+  /**
+   * Send requests at the configured rate for the warmup and the
+   * duration, and report on those due after the warmup.
+   */
+  static ObjectNode run(Map<String, String> options,
+                        Supplier<LoadRequest> source)
+      throws InterruptedException {
+    double rps = Double.parseDouble(options.get("rps"));
+    Duration warmup = Duration.parse(options.get("warmup"));
+    Duration duration = Duration.parse(options.get("duration"));
+    Duration timeout = Duration.parse(options.get("timeout"));
+    int maxInFlight = Integer.parseInt(options.get("max-in-flight"));
+    URI base = URI.create(options.get("base-url"));
+    if (!(rps > 0)) {
+      throw new IllegalArgumentException("--rps must be positive");
+    }
+
+    LoadReport report = new LoadReport();
+    AtomicInteger inFlight = new AtomicInteger();
+    long maxLag = 0;
+    String startedAt = Instant.now().toString();
+    try (ExecutorService executor =
+             Executors.newVirtualThreadPerTaskExecutor()) {
+      HttpClient http = HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_1_1)
+          .connectTimeout(timeout).executor(executor).build();
+      double interval = TimeUnit.SECONDS.toNanos(1) / rps;
+      long start = System.nanoTime();
+      long recordFrom = start + warmup.toNanos();
+      long end = recordFrom + duration.toNanos();
+      for (long i = 0;; i++) {
+        long due = start + (long) (i * interval);
+        if (due >= end) {
+          break;
+        }
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+          LockSupport.parkNanos(wait);
+        }
+        maxLag = Math.max(maxLag, -wait);
+        LoadRequest request = source.get();
+        boolean recorded = due >= recordFrom;
+        if (inFlight.get() >= maxInFlight) {
+          if (recorded) {
+            report.failure(request.endpoint, 0, "dropped");
+          }
+          continue;
+        }
+        inFlight.incrementAndGet();
+        http.sendAsync(httpRequest(base, request, timeout),
+                HttpResponse.BodyHandlers.discarding())
+            .whenComplete((response, error) -> {
+              long nanos = System.nanoTime() - due;
+              if (recorded) {
+                if (response != null) {
+                  report.response(request.endpoint, nanos,
+                      response.statusCode());
+                } else {
+                  report.failure(request.endpoint, nanos, cause(error));
+                }
+              }
+              inFlight.decrementAndGet();
+            });
+      }
+      long drainUntil = System.nanoTime() + timeout.plus(DRAIN_SLACK)
+          .toNanos();
+      while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+    }
+
+    Map<String, String> settings = new LinkedHashMap<>(options);
+    settings.remove("baseline");
+    settings.remove("tolerance");
+    settings.put("startedAt", startedAt);
+    settings.put("maxSendLagMs",
+        Double.toString(maxLag / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+    return report.toJson(new ObjectMapper(), settings,
+        duration.toNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private static HttpRequest httpRequest(URI base, LoadRequest request,
+                                         Duration timeout) {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(
+            base.resolve(request.pathAndQuery))
+        .timeout(timeout).GET();
+    if (request.clientId != null) {
+      builder.header("X-Client-Id", request.clientId);
+    }
+    return builder.build();
+  }
+
+  private static String cause(Throwable error) {
+    Throwable e = error instanceof CompletionException
+        && error.getCause() != null ? error.getCause() : error;
+    return e instanceof HttpTimeoutException ? "timeout" : "io";
+  }
+}
@@ -0,0 +1,159 @@
+package com.example.market.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcomes of one run, per endpoint and overall.
+ *
+ * <p>Latencies are recorded in microseconds into HdrHistograms with three
+ * significant digits. A request's latency counts from when it was due to
+ * be sent, not from when it was sent, so a stalled service or generator
+ * shows up in the percentiles instead of hiding behind fewer requests
+ * (coordinated omission). Requests that failed are recorded too, and also
+ * counted by cause: the HTTP status, {@code timeout}, {@code io}, or
+ * {@code dropped} for requests not sent because too many were still
+ * outstanding.</p>
+ */
+final class LoadReport {
+  /** Name of the all-endpoints row. */
+  static final String TOTAL = "total";
+  private static final int DIGITS = 3;
+  private static final double MICROS_PER_MILLI = 1000.0;
+
+  private final Map<String, Endpoint> endpoints =
+      new ConcurrentSkipListMap<>();
+  private final Endpoint total = new Endpoint();
+
+  /** One endpoint's numbers. */
+  static final class Endpoint {
+    final Histogram latency = new ConcurrentHistogram(DIGITS);
+    final LongAdder ok = new LongAdder();
+    final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    long requests() {
+      return ok.sum() + errors();
+    }
+
+    long errors() {
+      return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+  }
+
+  private Endpoint endpoint(String name) {
+    return endpoints.computeIfAbsent(name, n -> new Endpoint());
+  }
+
+  /**
+   * Record a response.
+   *
+   * @param nanos  time from when the request was due to its response
+   * @param status the HTTP status; 4xx and 5xx count as errors
+   */
+  void response(String endpoint, long nanos, int status) {
+    if (status < 400) {
+      record(endpoint, nanos, null);
+    } else {
+      record(endpoint, nanos, Integer.toString(status));
+    }
+  }
+
+  /**
+   * Record a request that got no response, or was not sent.
+   *
+   * @param nanos time from when the request was due until it failed
+   * @param cause {@code timeout}, {@code io} or {@code dropped}
+   */
+  void failure(String endpoint, long nanos, String cause) {
+    record(endpoint, nanos, cause);
+  }
+
+  private void record(String name, long nanos, String error) {
+    long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+    for (Endpoint e : new Endpoint[] {endpoint(name), total}) {
+      e.latency.recordValue(micros);
+      if (error == null) {
+        e.ok.increment();
+      } else {
+        e.errors.computeIfAbsent(error, k -> new LongAdder()).increment();
+      }
+    }
+  }
+
+  /**
+   * The report as JSON: the run's settings, then per endpoint and in
+   * {@value #TOTAL} the request count, throughput, error rate, errors by
+   * cause and latency percentiles in milliseconds.
+   *
+   * @param seconds how long requests were recorded for
+   */
+  ObjectNode toJson(ObjectMapper mapper, Map<String, String> settings,
+                    double seconds) {
+    ObjectNode root = mapper.createObjectNode();
+    ObjectNode run = root.putObject("run");
+    settings.forEach(run::put);
+    run.put("seconds", seconds);
+    ObjectNode rows = root.putObject("endpoints");
+    endpoints.forEach((name, e) -> row(rows.putObject(name), e, seconds));
+    row(rows.putObject(TOTAL), total, seconds);
+    return root;
+  }
+
+  private static void row(ObjectNode row, Endpoint e, double seconds) {
+    long requests = e.requests();
+    row.put("requests", requests);
+    row.put("throughput", seconds > 0 ? e.ok.sum() / seconds : 0);
+    row.put("errorRate", requests > 0 ? (double) e.errors() / requests : 0);
+    ObjectNode causes = row.putObject("errors");
+    new TreeMap<>(e.errors).forEach((k, v) -> causes.put(k, v.sum()));
+    row.put("p50", millis(e.latency, 50));
+    row.put("p90", millis(e.latency, 90));
+    row.put("p99", millis(e.latency, 99));
+    row.put("p999", millis(e.latency, 99.9));
+    row.put("max", e.latency.getMaxValue() / MICROS_PER_MILLI);
+  }
+
+  private static double millis(Histogram h, double percentile) {
+    return h.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+  }
+
+  /** Print a saved report as a table. */
+  static void print(ObjectNode report, PrintStream out) {
+    out.printf("%-22s %9s %9s %8s %10s %10s %10s %10s%n", "endpoint",
+        "requests", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms",
+        "max ms");
+    report.path("endpoints").fields().forEachRemaining(e -> {
+      ObjectNode r = (ObjectNode) e.getValue();
+      out.printf("%-22s %9d %9.1f %7.2f%% %10.1f %10.1f %10.1f %10.1f%s%n",
+          e.getKey(), r.path("requests").asLong(),
+          r.path("throughput").asDouble(),
+          r.path("errorRate").asDouble() * 100, r.path("p50").asDouble(),
+          r.path("p99").asDouble(), r.path("p999").asDouble(),
+          r.path("max").asDouble(),
+          r.path("errors").isEmpty() ? "" : "  " + r.path("errors"));
+    });
+  }
+
+  /** Save a report, creating its directory. */
+  static void save(ObjectMapper mapper, ObjectNode report, Path file)
+      throws IOException {
+    Path dir = file.toAbsolutePath().getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+    mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+  }
+}
@@ -0,0 +1,107 @@
+package com.example.market.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Compares a load report against a saved baseline, endpoint by endpoint.
+ *
+ * <p>An endpoint regresses when its p50, p99 or p99.9 latency is higher
+ * than the baseline's by more than the tolerance, its throughput is lower
+ * by more than the tolerance, or its error rate is higher by more than
+ * {@value #ERROR_RATE_SLACK} outright. The table goes to standard output
+ * and the exit code is 1 if anything regressed. Compare runs made at the
+ * same rate, mix and duration only.</p>
+ *
+ * <pre>
+ * java ... LoadReportComparison baseline.json report.json [tolerance]
+ * </pre>
+ */
+public final class LoadReportComparison {
+
+  /** Default tolerance, as a fraction of the baseline. */
+  static final double DEFAULT_TOLERANCE = 0.10;
+  /** Latency noise ignored whatever the tolerance, in milliseconds. */
+  static final double LATENCY_SLACK = 1;
+  /** Error rate increase tolerated, as a fraction of requests. */
+  static final double ERROR_RATE_SLACK = 0.01;
+  private static final String[] PERCENTILES = {"p50", "p99", "p999"};
+
+  private LoadReportComparison() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: LoadReportComparison <baseline.json> "
+          + "<report.json> [tolerance]");
+      System.exit(2);
+    }
+    double tolerance = args.length > 2 && !args[2].isBlank()
+        ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+    ObjectMapper mapper = new ObjectMapper();
+    int regressions = compare(mapper.readTree(Path.of(args[0]).toFile()),
+        mapper.readTree(Path.of(args[1]).toFile()), tolerance, System.out);
+    System.exit(regressions == 0 ? 0 : 1);
+  }
+
+  /**
+   * Print the comparison and count the regressed endpoints.
+   *
+   * @return the number of regressed endpoints, the total row included
+   */
+  static int compare(JsonNode baseline, JsonNode current, double tolerance,
+                     PrintStream out) {
+    int regressions = 0;
+    out.printf("%-22s %-10s %12s %12s %8s%n", "endpoint", "metric",
+        "baseline", "current", "change");
+    Iterator<Map.Entry<String, JsonNode>> it =
+        current.path("endpoints").fields();
+    while (it.hasNext()) {
+      Map.Entry<String, JsonNode> e = it.next();
+      JsonNode now = e.getValue();
+      JsonNode before = baseline.path("endpoints").path(e.getKey());
+      if (before.isMissingNode()) {
+        out.printf("%-22s %-10s %12s %12s %8s%n", e.getKey(), "", "-", "-",
+            "new");
+        continue;
+      }
+      boolean slowerAny = false;
+      for (String p : PERCENTILES) {
+        double b = before.path(p).asDouble();
+        double c = now.path(p).asDouble();
+        boolean slower = c > b * (1 + tolerance) + LATENCY_SLACK;
+        line(out, e.getKey(), p + " ms", b, c, slower ? " SLOWER" : "");
+        slowerAny |= slower;
+      }
+      double b = before.path("throughput").asDouble();
+      double c = now.path("throughput").asDouble();
+      boolean fewer = c < b * (1 - tolerance);
+      line(out, e.getKey(), "req/s", b, c, fewer ? " FEWER" : "");
+      b = before.path("errorRate").asDouble();
+      c = now.path("errorRate").asDouble();
+      boolean failing = c > b + ERROR_RATE_SLACK;
+      line(out, e.getKey(), "errors %", b * 100, c * 100,
+          failing ? " MORE ERRORS" : "");
+      if (slowerAny || fewer || failing) {
+        regressions++;
+      }
+    }
+    out.printf("%d endpoint(s) regressed beyond %.0f%%%n", regressions,
+        tolerance * 100);
+    return regressions;
+  }
+
+  private static void line(PrintStream out, String endpoint, String metric,
+                           double before, double now, String flag) {
+    String change = before == 0 ? "-"
+        : String.format("%+7.1f%%", (now - before) / before * 100);
+    out.printf("%-22s %-10s %12.2f %12.2f %8s%s%n", endpoint, metric, before,
+        now, change, flag);
+  }
+}
@@ -0,0 +1,72 @@
+package com.example.market.load;
+
+import java.util.Locale;
+
+/**
+ * One request to send: the endpoint it is reported under, the path with
+ * its query, and the {@code X-Client-Id} to send, if any.
+ */
+final class LoadRequest {
+  /** Prefix of the service's endpoints, left out of endpoint names. */
+  private static final String PREFIX = "/market/";
+
+  final String endpoint;
+  final String pathAndQuery;
+  /** {@code null} to send no client id. */
+  final String clientId;
+
+  LoadRequest(String pathAndQuery, String clientId) {
+    this.pathAndQuery = pathAndQuery;
+    this.clientId = clientId;
+    this.endpoint = endpointOf(pathAndQuery);
+  }
+
+  /**
+   * The endpoint a path is reported under: the path without its query
+   * and the {@code /market/} prefix, e.g. {@code combined-prediction}.
+   */
+  static String endpointOf(String pathAndQuery) {
+    int query = pathAndQuery.indexOf('?');
+    String path = query < 0 ? pathAndQuery
+        : pathAndQuery.substring(0, query);
+    return path.startsWith(PREFIX) ? path.substring(PREFIX.length()) : path;
+  }
+
+  /**
+   * Parse one line of a request log, or return {@code null} for a blank
+   * line or a {@code #} comment.
+   *
+   * <p>A line is the path with its query, optionally preceded by the
+   * method and followed by the protocol and the client id, so both
+   * {@code /market/predict?symbol=AAPL client-1} and Tomcat's access log
+   * with the pattern {@code %r %{X-Client-Id}i} read as they are. A
+   * client id of {@code -} is no client id. Only GETs are replayed.</p>
+   *
+   * @throws IllegalArgumentException for another method or no path
+   */
+  static LoadRequest parse(String line) {
+    String trimmed = line.strip();
+    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+      return null;
+    }
+    String[] tokens = trimmed.split("\\s+");
+    int i = 0;
+    if (!tokens[0].startsWith("/")) {
+      if (!"GET".equals(tokens[0].toUpperCase(Locale.ROOT))) {
+        throw new IllegalArgumentException("Only GET requests are replayed: "
+            + line);
+      }
+      i++;
+    }
+    if (i >= tokens.length || !tokens[i].startsWith("/")) {
+      throw new IllegalArgumentException("No path in: " + line);
+    }
+    String path = tokens[i++];
+    if (i < tokens.length && tokens[i].startsWith("HTTP/")) {
+      i++;
+    }
+    String client = i < tokens.length && !"-".equals(tokens[i])
+        ? tokens[i] : null;
+    return new LoadRequest(path, client);
+  }
+}
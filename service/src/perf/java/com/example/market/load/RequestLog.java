@@ -0,0 +1,49 @@
+package com.example.market.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Requests read from a log, handed out in the log's order and from the
+ * top again once it runs out. The log's own timing is ignored: requests
+ * go out at the generator's rate.
+ */
+final class RequestLog implements Supplier<LoadRequest> {
+
+  private final List<LoadRequest> requests;
+  private int next;
+
+  RequestLog(List<LoadRequest> requests) {
+    if (requests.isEmpty()) {
+      throw new IllegalArgumentException("The request log is empty");
+    }
+    this.requests = List.copyOf(requests);
+  }
+
+  /** Read a log in the form {@link LoadRequest#parse} reads. */
+  static RequestLog read(Path file) throws IOException {
+    List<LoadRequest> requests = new ArrayList<>();
+    for (String line : Files.readAllLines(file)) {
+      LoadRequest request = LoadRequest.parse(line);
+      if (request != null) {
+        requests.add(request);
+      }
+    }
+    return new RequestLog(requests);
+  }
+
+  int size() {
+    return requests.size();
+  }
+
+  @Override
+  public LoadRequest get() {
+    LoadRequest request = requests.get(next);
+    next = (next + 1) % requests.size();
+    return request;
+  }
+}
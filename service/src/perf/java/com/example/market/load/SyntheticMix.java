@@ -0,0 +1,142 @@
+package com.example.market.load;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Requests drawn from a weighted mix of endpoints, over symbols whose
+ * popularity follows a Zipf law, sent as a fixed set of clients.
+ *
+ * <p>The symbol of rank {@code k} (1 for the first symbol) is asked for
+ * with probability proportional to {@code 1 / k^s}: {@code s = 0} is
+ * uniform, {@code s = 1} is the classic Zipf law where the top symbol
+ * gets about as many requests as the next three together, and larger
+ * exponents concentrate traffic further, which is what makes caches
+ * effective. Draws are seeded, so a mix repeats exactly.</p>
+ */
+final class SyntheticMix implements Supplier<LoadRequest> {
+
+  /** The endpoints the Python client calls, and their default weights. */
+  static final Map<String, Double> DEFAULT_WEIGHTS = defaultWeights();
+  /** Large caps, most popular first, for a default universe. */
+  static final List<String> DEFAULT_SYMBOLS = List.of(
+      "AAPL", "MSFT", "NVDA", "AMZN", "GOOGL", "META", "TSLA", "AVGO",
+      "BRK.B", "JPM", "LLY", "V", "UNH", "XOM", "MA", "JNJ", "PG", "HD",
+      "COST", "ABBV", "MRK", "CVX", "ADBE", "KO", "PEP", "CRM", "BAC",
+      "NFLX", "AMD", "WMT", "TMO", "MCD", "CSCO", "ACN", "ABT", "LIN",
+      "ORCL", "DIS", "INTC", "WFC", "CMCSA", "VZ", "DHR", "TXN", "PFE",
+      "NKE", "PM", "QCOM", "IBM", "AMGN");
+
+  private final String[] endpoints;
+  /** Cumulative endpoint weights, normalized to end at 1. */
+  private final double[] endpointCdf;
+  private final List<String> symbols;
+  /** Cumulative Zipf probabilities by rank, ending at 1. */
+  private final double[] symbolCdf;
+  private final int clients;
+  private final int horizon;
+  private final SplittableRandom random;
+
+  SyntheticMix(Map<String, Double> weights, List<String> symbols,
+               double exponent, int clients, int horizon, long seed) {
+    if (weights.isEmpty() || symbols.isEmpty() || clients < 1
+        || exponent < 0) {
+      throw new IllegalArgumentException("A mix needs endpoints, symbols, "
+          + "clients and a non-negative exponent");
+    }
+    this.endpoints = weights.keySet().toArray(new String[0]);
+    this.endpointCdf = cumulative(weights.values().stream()
+        .mapToDouble(Double::doubleValue).toArray());
+    this.symbols = List.copyOf(symbols);
+    double[] zipf = new double[symbols.size()];
+    for (int k = 0; k < zipf.length; k++) {
+      zipf[k] = 1 / Math.pow(k + 1, exponent);
+    }
+    this.symbolCdf = cumulative(zipf);
+    this.clients = clients;
+    this.horizon = horizon;
+    this.random = new SplittableRandom(seed);
+  }
+
+  private static Map<String, Double> defaultWeights() {
+    Map<String, Double> weights = new LinkedHashMap<>();
+    weights.put("predict", 1.0);
+    weights.put("sentiment", 1.0);
+    weights.put("combined-prediction", 2.0);
+    return weights;
+  }
+
+  /**
+   * Parse {@code name=weight,...}, e.g. {@code predict=1,sentiment=3}.
+   */
+  static Map<String, Double> parseWeights(String spec) {
+    Map<String, Double> weights = new LinkedHashMap<>();
+    for (String part : spec.split(",")) {
+      String[] kv = part.split("=", 2);
+      double weight = kv.length > 1 ? Double.parseDouble(kv[1].strip()) : 1;
+      if (!(weight >= 0)) {
+        throw new IllegalArgumentException("Bad weight in " + spec);
+      }
+      if (weight > 0) {
+        weights.put(kv[0].strip(), weight);
+      }
+    }
+    return weights;
+  }
+
+  /** A universe of {@code count} symbols, padded with made-up tickers. */
+  static List<String> universe(int count) {
+    List<String> out = new ArrayList<>(
+        DEFAULT_SYMBOLS.subList(0, Math.min(count, DEFAULT_SYMBOLS.size())));
+    for (int i = out.size(); i < count; i++) {
+      out.add("SYM" + i);
+    }
+    return out;
+  }
+
+  private static double[] cumulative(double[] weights) {
+    double[] cdf = new double[weights.length];
+    double sum = 0;
+    for (int i = 0; i < weights.length; i++) {
+      sum += weights[i];
+      cdf[i] = sum;
+    }
+    if (!(sum > 0)) {
+      throw new IllegalArgumentException("Weights must not all be zero");
+    }
+    for (int i = 0; i < cdf.length; i++) {
+      cdf[i] /= sum;
+    }
+    cdf[cdf.length - 1] = 1;
+    return cdf;
+  }
+
+  /** Index of the first cumulative probability above {@code u}. */
+  private static int pick(double[] cdf, double u) {
+    int i = Arrays.binarySearch(cdf, u);
+    return i >= 0 ? Math.min(i + 1, cdf.length - 1) : -i - 1;
+  }
+
+  /** Probability of the symbol of the given rank, from 1. */
+  double probability(int rank) {
+    return symbolCdf[rank - 1] - (rank == 1 ? 0 : symbolCdf[rank - 2]);
+  }
+
+  @Override
+  public LoadRequest get() {
+    String endpoint = endpoints[pick(endpointCdf, random.nextDouble())];
+    String symbol = symbols.get(pick(symbolCdf, random.nextDouble()));
+    String client = "load-" + (1 + random.nextInt(clients));
+    StringBuilder path = new StringBuilder("/market/").append(endpoint)
+        .append("?symbol=").append(symbol);
+    if (endpoint.contains("predict")) {
+      path.append("&horizon=").append(horizon);
+    }
+    return new LoadRequest(path.toString(), client);
+  }
+}
@@ -0,0 +1,86 @@
+package com.example.market.soak;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * What this JVM holds at one moment of a soak run: open file descriptors,
+ * live stub processes, platform threads, heap in use after a full GC and
+ * resident memory. Values the platform cannot report are -1.
+ */
+record ResourceSample(long elapsedSeconds, long calls, long errors,
+                      long fds, long processes, long threads,
+                      long heapBytes, long rssBytes) {
+
+  static final String CSV_HEADER =
+      "elapsed_s,calls,errors,fds,processes,threads,heap_mb,rss_mb";
+
+  private static final long MB = 1024 * 1024;
+  private static final Path STATUS = Path.of("/proc/self/status");
+
+  /** The resources a run may not grow, with how to read each. */
+  enum Metric {
+    FDS("open file descriptors", ResourceSample::fds, 1),
+    PROCESSES("live stub processes", ResourceSample::processes, 1),
+    THREADS("platform threads", ResourceSample::threads, 1),
+    HEAP("MB heap after GC", ResourceSample::heapBytes, MB),
+    RSS("MB resident", ResourceSample::rssBytes, MB);
+
+    final String label;
+    final ToLongFunction<ResourceSample> value;
+    /** Units of the allowance, in the metric's own unit. */
+    final long unit;
+
+    Metric(String label, ToLongFunction<ResourceSample> value, long unit) {
+      this.label = label;
+      this.value = value;
+      this.unit = unit;
+    }
+  }
+
+  /**
+   * Sample now. Collects garbage first, so the heap figure is what is
+   * still reachable rather than what the collector has not got to yet.
+   */
+  static ResourceSample take(long elapsedSeconds, long calls, long errors) {
+    // a second pass catches what finalization and reference processing
+    // released during the first
+    System.gc();
+    System.gc();
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    long fds = os instanceof UnixOperatingSystemMXBean unix
+        ? unix.getOpenFileDescriptorCount() : -1;
+    return new ResourceSample(elapsedSeconds, calls, errors, fds,
+        StubPython.live(),
+        ManagementFactory.getThreadMXBean().getThreadCount(),
+        ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+        rss());
+  }
+
+  /** VmRSS from /proc, where there is one. */
+  static long rss() {
+    try (Stream<String> lines = Files.lines(STATUS)) {
+      return lines.filter(line -> line.startsWith("VmRSS:"))
+          .map(line -> line.replaceAll("\\D", ""))
+          .filter(kb -> !kb.isEmpty())
+          .mapToLong(kb -> Long.parseLong(kb) * 1024)
+          .findFirst().orElse(-1);
+    } catch (IOException | UncheckedIOException e) {
+      return -1;
+    }
+  }
+
+  String toCsv() {
+    return elapsedSeconds + "," + calls + "," + errors + "," + fds + ","
+        + processes + "," + threads + "," + heapBytes / MB + ","
+        + (rssBytes < 0 ? -1 : rssBytes / MB);
+  }
+}
@@ -0,0 +1,477 @@
+package com.example.market.soak;
+
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.Deadline;
+import com.example.market.service.forecast.python.PythonEnvironment;
+import com.example.market.service.forecast.python.PythonService;
+import com.example.market.service.forecast.python.TrendMasterWorkerPool;
+import com.example.market.service.news.SentimentPythonService;
+import com.example.market.service.stock.AlphaVantageService;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hours of traffic through the Python and upstream paths, failing if the
+ * JVM's resources grow while it runs.
+ *
+ * <p>The real services run against stub_python.py and a local Alpha
+ * Vantage (see {@link StubPython} and {@link StubUpstream}), so only the
+ * Java side's process, pipe, socket and thread handling is under test,
+ * at a few hundred calls a second instead of a few a minute. Scripts fail,
+ * hang and linger, upstream calls fail and callers are interrupted at the
+ * configured rates, because leaks hide on those paths.</p>
+ *
+ * <p>Every {@code --sample-every} the traffic is paused until calls in
+ * flight finish, and a {@link ResourceSample} is taken; pausing makes
+ * every sample a floor rather than a snapshot of whatever happened to be
+ * running. The run fails, with exit code 1, if any resource's lowest
+ * value over the last quarter of the samples after the warmup exceeds
+ * its highest over the first quarter by more than its allowance, or if a
+ * stub process outlives the run. Samples are saved as CSV.</p>
+ *
+ * <pre>
+ * java ... SoakHarness [--option=value ...]
+ *   --duration=PT1H          how long traffic is sent after the warmup
+ *   --warmup=PT2M            traffic before the samples that count
+ *   --sample-every=PT30S     time between samples
+ *   --concurrency=8          calls in flight at once
+ *   --mix=daily=2,isolated=3,pooled=4,sentiment=3
+ *                            weights of the kinds of call
+ *   --symbols=50             distinct symbols
+ *   --horizon=10             forecast horizon
+ *   --timeout=PT2S           deadline of each call
+ *   --workers=2              TrendMaster workers of the pooled calls
+ *   --failure-rate=0.05      share of scripts that exit with an error
+ *   --hang-rate=0.02         share of scripts that hang until killed
+ *   --linger-rate=0.02       share of scripts that stay alive after
+ *                            answering until killed
+ *   --upstream-error-rate=0.05
+ *                            share of upstream calls answered with 500
+ *   --interrupt-rate=0.02    share of calls whose thread is interrupted
+ *   --python=python3         interpreter running the stub
+ *   --stub=src/perf/soak/stub_python.py
+ *   --allow-fds=8            allowed growth of each resource
+ *   --allow-processes=0
+ *   --allow-threads=4
+ *   --allow-heap-mb=16
+ *   --allow-rss-mb=64
+ *   --seed=42                seed of the draws
+ *   --report=FILE            where the samples are saved as CSV
+ * </pre>
+ */
+public final class SoakHarness {
+
+  private static final Map<String, String> DEFAULTS = defaults();
+  /** Longest wait for killed scripts to be reaped before sampling. */
+  private static final Duration SETTLE = Duration.ofSeconds(2);
+  /** Longest wait for interrupts to land, as a share of the timeout. */
+  private static final double INTERRUPT_WITHIN = 0.25;
+  private static final int MIN_SAMPLES = 4;
+
+  private SoakHarness() {
+  }
+
+  private static Map<String, String> defaults() {
+    Map<String, String> d = new LinkedHashMap<>();
+    d.put("duration", "PT1H");
+    d.put("warmup", "PT2M");
+    d.put("sample-every", "PT30S");
+    d.put("concurrency", "8");
+    d.put("mix", "daily=2,isolated=3,pooled=4,sentiment=3");
+    d.put("symbols", "50");
+    d.put("horizon", "10");
+    d.put("timeout", "PT2S");
+    d.put("workers", "2");
+    d.put("failure-rate", "0.05");
+    d.put("hang-rate", "0.02");
+    d.put("linger-rate", "0.02");
+    d.put("upstream-error-rate", "0.05");
+    d.put("interrupt-rate", "0.02");
+    d.put("python", "python3");
+    d.put("stub", "src/perf/soak/stub_python.py");
+    d.put("allow-fds", "8");
+    d.put("allow-processes", "0");
+    d.put("allow-threads", "4");
+    d.put("allow-heap-mb", "16");
+    d.put("allow-rss-mb", "64");
+    d.put("seed", "42");
+    d.put("report", "target/soak-samples.csv");
+    return d;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parse(args);
+    List<String> problems = run(options, System.out);
+    if (problems.isEmpty()) {
+      System.out.println("No resource grew.");
+    }
+    problems.forEach(p -> System.out.println("FAIL " + p));
+    System.exit(problems.isEmpty() ? 0 : 1);
+  }
+
+  /** Read {@code --name=value} options over the defaults. */
+  static Map<String, String> parse(String[] args) {
+    Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+    for (String arg : args) {
+      if (arg.isBlank()) {
+        continue;
+      }
+      int eq = arg.indexOf('=');
+      String name = arg.startsWith("--") && eq > 2
+          ? arg.substring(2, eq) : null;
+      if (name == null || !options.containsKey(name)) {
+        throw new IllegalArgumentException("Unknown option " + arg
+            + "; expected one of --" + String.join(", --", DEFAULTS.keySet()));
+      }
+      options.put(name, arg.substring(eq + 1));
+    }
+    return options;
+  }
+
+  /**
+   * Send traffic for the warmup and the duration, sampling as it goes.
+   *
+   * @return what grew or outlived the run; empty if nothing did
+   */
+  static List<String> run(Map<String, String> options, PrintStream out)
+      throws Exception {
+    Duration warmup = Duration.parse(options.get("warmup"));
+    Duration duration = Duration.parse(options.get("duration"));
+    Duration every = Duration.parse(options.get("sample-every"));
+    if (duration.dividedBy(every) < MIN_SAMPLES) {
+      throw new IllegalArgumentException("The duration must span at least "
+          + MIN_SAMPLES + " samples");
+    }
+    long seed = Long.parseLong(options.get("seed"));
+    StubPython stub = new StubPython(Path.of(options.get("stub")),
+        Double.parseDouble(options.get("failure-rate")),
+        Double.parseDouble(options.get("hang-rate")),
+        Double.parseDouble(options.get("linger-rate")), seed);
+    long leftOver = StubPython.live();
+    if (leftOver > 0) {
+      throw new IllegalStateException(leftOver
+          + " stub processes are already running; stop them first");
+    }
+
+    List<ResourceSample> samples = new ArrayList<>();
+    List<String> problems = new ArrayList<>();
+    try (StubUpstream upstream = new StubUpstream(
+        Double.parseDouble(options.get("upstream-error-rate")), seed)) {
+      AlphaVantageService stocks = upstream.client();
+      PythonService python = new PythonService(stub,
+          new PythonEnvironment(stub, options.get("python"), List.of(),
+              Duration.ofSeconds(5)));
+      int workers = Integer.parseInt(options.get("workers"));
+      Duration timeout = Duration.parse(options.get("timeout"));
+      TrendMasterWorkerPool pool = new TrendMasterWorkerPool(python,
+          workers, 256, timeout);
+      Traffic traffic = new Traffic(options, stocks, python,
+          new SentimentPythonService(stub), pool);
+      try {
+        samples = traffic.run(warmup.plus(duration), every, workers, out);
+      } finally {
+        pool.destroy();
+      }
+      traffic.print(out);
+      problems.addAll(traffic.brokenCalls());
+    }
+
+    Path report = Path.of(options.get("report"));
+    Files.createDirectories(report.toAbsolutePath().getParent());
+    List<String> lines = new ArrayList<>();
+    lines.add(ResourceSample.CSV_HEADER);
+    samples.forEach(s -> lines.add(s.toCsv()));
+    Files.write(report, lines);
+    out.println("Samples saved to " + report);
+
+    long counted = warmup.toSeconds();
+    problems.addAll(growth(samples.stream()
+        .filter(s -> s.elapsedSeconds() >= counted).toList(),
+        allowances(options)));
+    long outlived = awaitNoStubs(SETTLE.multipliedBy(2), 0);
+    if (outlived > 0) {
+      problems.add(outlived + " stub processes outlived the run");
+    }
+    return problems;
+  }
+
+  private static Map<ResourceSample.Metric, Long> allowances(
+      Map<String, String> options) {
+    Map<ResourceSample.Metric, Long> allow =
+        new EnumMap<>(ResourceSample.Metric.class);
+    allow.put(ResourceSample.Metric.FDS,
+        Long.parseLong(options.get("allow-fds")));
+    allow.put(ResourceSample.Metric.PROCESSES,
+        Long.parseLong(options.get("allow-processes")));
+    allow.put(ResourceSample.Metric.THREADS,
+        Long.parseLong(options.get("allow-threads")));
+    allow.put(ResourceSample.Metric.HEAP,
+        Long.parseLong(options.get("allow-heap-mb")));
+    allow.put(ResourceSample.Metric.RSS,
+        Long.parseLong(options.get("allow-rss-mb")));
+    return allow;
+  }
+
+  /**
+   * Compare the first and last quarter of the samples: a resource grew if
+   * its lowest value late in the run is above its highest early on by
+   * more than its allowance. Floors rising is what a leak looks like; a
+   * busy moment only raises a single sample.
+   */
+  static List<String> growth(List<ResourceSample> samples,
+                             Map<ResourceSample.Metric, Long> allowances) {
+    List<String> grown = new ArrayList<>();
+    if (samples.size() < MIN_SAMPLES) {
+      grown.add("only " + samples.size() + " samples after the warmup");
+      return grown;
+    }
+    int quarter = samples.size() / MIN_SAMPLES;
+    List<ResourceSample> early = samples.subList(0, quarter);
+    List<ResourceSample> late =
+        samples.subList(samples.size() - quarter, samples.size());
+    for (ResourceSample.Metric m : ResourceSample.Metric.values()) {
+      long before = early.stream().mapToLong(m.value).max().orElseThrow();
+      long after = late.stream().mapToLong(m.value).min().orElseThrow();
+      long allowed = allowances.getOrDefault(m, 0L) * m.unit;
+      if (before >= 0 && after > before + allowed) {
+        grown.add(String.format("%s grew from %d to %d (allowed %d)",
+            m.label, before / m.unit, after / m.unit, allowed / m.unit));
+      }
+    }
+    return grown;
+  }
+
+  /**
+   * Wait for killed scripts to be reaped.
+   *
+   * @return the stub processes still alive, beyond {@code expected}
+   */
+  static long awaitNoStubs(Duration wait, long expected)
+      throws InterruptedException {
+    long until = System.nanoTime() + wait.toNanos();
+    long live = StubPython.live();
+    while (live > expected && System.nanoTime() < until) {
+      TimeUnit.MILLISECONDS.sleep(50);
+      live = StubPython.live();
+    }
+    return Math.max(0, live - expected);
+  }
+
+  /** The calls the harness keeps sending, and how they went. */
+  private static final class Traffic {
+    private final AlphaVantageService stocks;
+    private final PythonService python;
+    private final SentimentPythonService sentiment;
+    private final TrendMasterWorkerPool pool;
+    private final String[] kinds;
+    private final double[] kindCdf;
+    private final int symbols;
+    private final int horizon;
+    private final int concurrency;
+    private final Duration timeout;
+    private final double interruptRate;
+    private final SplittableRandom random;
+    /** Held by each call, taken whole to pause the traffic. */
+    private final ReadWriteLock gate = new ReentrantReadWriteLock(true);
+    private final Map<String, LongAdder> ok = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> failed =
+        new ConcurrentSkipListMap<>();
+    private volatile boolean stopped;
+
+    Traffic(Map<String, String> options, AlphaVantageService stocks,
+            PythonService python, SentimentPythonService sentiment,
+            TrendMasterWorkerPool pool) {
+      this.stocks = stocks;
+      this.python = python;
+      this.sentiment = sentiment;
+      this.pool = pool;
+      Map<String, Double> weights = new LinkedHashMap<>();
+      for (String part : options.get("mix").split(",")) {
+        String[] kv = part.split("=", 2);
+        double weight = kv.length > 1 ? Double.parseDouble(kv[1].strip()) : 1;
+        if (!List.of("daily", "isolated", "pooled", "sentiment")
+            .contains(kv[0].strip()) || !(weight >= 0)) {
+          throw new IllegalArgumentException("Bad mix entry " + part);
+        }
+        if (weight > 0) {
+          weights.put(kv[0].strip(), weight);
+        }
+      }
+      if (weights.isEmpty()) {
+        throw new IllegalArgumentException("The mix has no calls");
+      }
+      this.kinds = weights.keySet().toArray(new String[0]);
+      this.kindCdf = new double[kinds.length];
+      double total = weights.values().stream()
+          .mapToDouble(Double::doubleValue).sum();
+      double sum = 0;
+      for (int i = 0; i < kinds.length; i++) {
+        sum += weights.get(kinds[i]) / total;
+        kindCdf[i] = sum;
+        ok.put(kinds[i], new LongAdder());
+        failed.put(kinds[i], new LongAdder());
+      }
+      this.symbols = Integer.parseInt(options.get("symbols"));
+      this.horizon = Integer.parseInt(options.get("horizon"));
+      this.concurrency = Integer.parseInt(options.get("concurrency"));
+      this.timeout = Duration.parse(options.get("timeout"));
+      this.interruptRate = Double.parseDouble(options.get("interrupt-rate"));
+      this.random = new SplittableRandom(
+          Long.parseLong(options.get("seed")));
+    }
+
+    /** Send calls for {@code length}, sampling every {@code every}. */
+    List<ResourceSample> run(Duration length, Duration every, int workers,
+                             PrintStream out) throws InterruptedException {
+      List<ResourceSample> samples = new ArrayList<>();
+      ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+      ScheduledExecutorService interrupter =
+          Executors.newSingleThreadScheduledExecutor();
+      long start = System.nanoTime();
+      try {
+        for (int i = 0; i < concurrency; i++) {
+          callers.submit(() -> keepCalling(interrupter));
+        }
+        out.println(ResourceSample.CSV_HEADER);
+        for (long at = every.toNanos(); at <= length.toNanos();
+             at += every.toNanos()) {
+          TimeUnit.NANOSECONDS.sleep(at - (System.nanoTime() - start));
+          gate.writeLock().lock();
+          try {
+            // idle workers are expected; anything else is being reaped
+            awaitNoStubs(SETTLE, workers);
+            ResourceSample sample = ResourceSample.take(
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+                total(ok) + total(failed), total(failed));
+            samples.add(sample);
+            out.println(sample.toCsv());
+          } finally {
+            gate.writeLock().unlock();
+          }
+        }
+      } finally {
+        stopped = true;
+        callers.shutdown();
+        callers.awaitTermination(timeout.multipliedBy(2).toMillis(),
+            TimeUnit.MILLISECONDS);
+        interrupter.shutdownNow();
+      }
+      return samples;
+    }
+
+    private void keepCalling(ScheduledExecutorService interrupter) {
+      Thread caller = Thread.currentThread();
+      while (!stopped) {
+        String kind;
+        String symbol;
+        long interruptAfter;
+        synchronized (random) {
+          kind = kinds[pick(random.nextDouble())];
+          symbol = "SYM" + random.nextInt(symbols);
+          interruptAfter = random.nextDouble() < interruptRate
+              ? random.nextLong(1, (long) (timeout.toNanos()
+                  * INTERRUPT_WITHIN) + 2)
+              : -1;
+        }
+        gate.readLock().lock();
+        AtomicBoolean done = new AtomicBoolean();
+        try (Deadline.Scope ignored = Deadline.after(timeout).bind()) {
+          if (interruptAfter > 0) {
+            interrupter.schedule(() -> interrupt(caller, done),
+                interruptAfter, TimeUnit.NANOSECONDS);
+          }
+          call(kind, symbol);
+          ok.get(kind).increment();
+        } catch (Exception e) {
+          failed.get(kind).increment();
+        } finally {
+          // an interrupt racing the end of the call must not hit the next
+          synchronized (done) {
+            done.set(true);
+            Thread.interrupted();
+          }
+          gate.readLock().unlock();
+        }
+      }
+    }
+
+    private static void interrupt(Thread caller, AtomicBoolean done) {
+      synchronized (done) {
+        if (!done.get()) {
+          caller.interrupt();
+        }
+      }
+    }
+
+    private int pick(double draw) {
+      int i = 0;
+      while (i < kinds.length - 1 && draw >= kindCdf[i]) {
+        i++;
+      }
+      return i;
+    }
+
+    private void call(String kind, String symbol) throws Exception {
+      switch (kind) {
+        case "daily" -> stocks.fetchDaily(symbol, "soak");
+        case "isolated" -> {
+          Map<String, String> out = python.runTrendMasterBatch(
+              Map.of(symbol, daily(symbol)), horizon);
+          python.parseForecastSeries(out.get(symbol));
+        }
+        case "pooled" -> {
+          String other = "SYM" + Math.floorMod(symbol.hashCode() + 1,
+              symbols);
+          Map<String, StockDailySeries> series = new LinkedHashMap<>();
+          series.put(symbol, daily(symbol));
+          series.putIfAbsent(other, daily(other));
+          pool.run(series, horizon).values()
+              .forEach(python::parseForecastSeries);
+        }
+        case "sentiment" -> sentiment.analyzeSentiment(
+            "Shares of " + symbol + " rose after earnings");
+        default -> throw new IllegalStateException(kind);
+      }
+    }
+
+    private StockDailySeries daily(String symbol) throws Exception {
+      return stocks.fetchDaily(symbol, "soak");
+    }
+
+    /** Calls whose every attempt failed point at a broken stub. */
+    List<String> brokenCalls() {
+      return ok.entrySet().stream()
+          .filter(e -> e.getValue().sum() == 0)
+          .map(e -> "no " + e.getKey() + " call succeeded")
+          .toList();
+    }
+
+    void print(PrintStream out) {
+      out.printf("%-10s %10s %10s%n", "call", "ok", "failed");
+      ok.forEach((kind, count) -> out.printf("%-10s %10d %10d%n", kind,
+          count.sum(), failed.get(kind).sum()));
+    }
+
+    private static long total(Map<String, LongAdder> counts) {
+      return counts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.example.market.soak;
+
+import com.example.market.service.forecast.python.ProcessRunner;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Starts stub_python.py in place of every script the services run, with
+ * the script's own path and arguments passed on, so process handling runs
+ * exactly as in production while the work takes milliseconds.
+ *
+ * <p>Each process is told, through {@code SOAK_BEHAVIOUR}, to answer, to
+ * fail, to hang with a child of its own until it is killed, or to linger
+ * after answering until it is killed, at the configured rates. Stub processes and their children are started with
+ * the interpreter option {@link #MARKER}, which Python ignores, so
+ * {@link #live()} finds them even once orphaned to init, where counting
+ * this JVM's descendants would miss them.</p>
+ */
+final class StubPython implements ProcessRunner {
+  /** Interpreter option every stub process and child is started with. */
+  static final String MARKER = "-Xsoak-stub";
+
+  private final Path stub;
+  private final double failureRate;
+  private final double hangRate;
+  private final double lingerRate;
+  private final SplittableRandom random;
+
+  StubPython(Path stub, double failureRate, double hangRate,
+             double lingerRate, long seed) {
+    if (failureRate < 0 || hangRate < 0 || lingerRate < 0
+        || failureRate + hangRate + lingerRate > 1) {
+      throw new IllegalArgumentException("Failure, hang and linger rates "
+          + "must be non-negative and add up to at most 1");
+    }
+    this.stub = stub.toAbsolutePath();
+    this.failureRate = failureRate;
+    this.hangRate = hangRate;
+    this.lingerRate = lingerRate;
+    this.random = new SplittableRandom(seed);
+  }
+
+  @Override
+  public Process start(ProcessBuilder pb) throws Exception {
+    // interpreter, script, args -> interpreter, marker, stub, script, args
+    List<String> command = new ArrayList<>(pb.command());
+    command.addAll(1, List.of(MARKER, stub.toString()));
+    pb.command(command);
+    pb.environment().put("SOAK_BEHAVIOUR", nextBehaviour());
+    return pb.start();
+  }
+
+  private synchronized String nextBehaviour() {
+    double draw = random.nextDouble();
+    if (draw < failureRate) {
+      return "fail";
+    }
+    if (draw < failureRate + hangRate) {
+      return "hang";
+    }
+    return draw < failureRate + hangRate + lingerRate ? "linger" : "ok";
+  }
+
+  /** Stub processes alive anywhere on this host, orphans included. */
+  static long live() {
+    return ProcessHandle.allProcesses()
+        .filter(p -> p.info().arguments()
+            .map(args -> Arrays.asList(args).contains(MARKER))
+            .orElse(false))
+        .count();
+  }
+}
@@ -0,0 +1,95 @@
+package com.example.market.soak;
+
+import com.example.market.service.stock.AlphaVantageService;
+import com.example.market.service.upstream.Upstreams;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+
+/**
+ * A local Alpha Vantage: answers every daily-series request with 100
+ * made-up bars for the symbol asked for, or with an HTTP 500 at the
+ * configured rate. {@link #client()} is the service pointed at it, so
+ * requests still go through the real HTTP client, breaker and parsing.
+ */
+final class StubUpstream implements AutoCloseable {
+  private static final String REAL_BASE = "https://www.alphavantage.co";
+  private static final int BARS = 100;
+
+  private final HttpServer server;
+  private final double errorRate;
+  private final SplittableRandom random;
+
+  StubUpstream(double errorRate, long seed) throws IOException {
+    this.errorRate = errorRate;
+    this.random = new SplittableRandom(seed);
+    this.server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.createContext("/query", this::answer);
+    server.start();
+  }
+
+  /** The daily-series client, sending its requests here. */
+  AlphaVantageService client() {
+    String base = "http://localhost:" + server.getAddress().getPort();
+    return new AlphaVantageService(new Upstreams()) {
+      @Override
+      protected JsonNode getJson(String url) throws Exception {
+        return super.getJson(base + url.substring(REAL_BASE.length()));
+      }
+    };
+  }
+
+  private void answer(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      String query = exchange.getRequestURI().getQuery();
+      String symbol = query.replaceAll(".*symbol=([^&]*).*", "$1");
+      boolean fails;
+      synchronized (random) {
+        fails = random.nextDouble() < errorRate;
+      }
+      byte[] body = (fails ? "{}" : daily(symbol))
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(fails ? 500 : 200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+
+  /** A daily series in Alpha Vantage's format, newest bar first. */
+  static String daily(String symbol) {
+    StringBuilder json = new StringBuilder("{\"Meta Data\":{\"2. Symbol\":\"")
+        .append(symbol).append("\"},\"Time Series (Daily)\":{");
+    LocalDate day = LocalDate.now();
+    double close = 100 + Math.floorMod(symbol.hashCode(), 400);
+    for (int i = 0; i < BARS; i++) {
+      String price = String.format(Locale.ROOT, "%.4f", close + i % 7 - 3);
+      json.append(i == 0 ? "" : ",").append('"').append(day.minusDays(i))
+          .append("\":{\"1. open\":\"").append(price)
+          .append("\",\"2. high\":\"").append(price)
+          .append("\",\"3. low\":\"").append(price)
+          .append("\",\"4. close\":\"").append(price)
+          .append("\",\"5. volume\":\"").append(1_000_000 + i)
+          .append("\"}");
+    }
+    return json.append("}}").toString();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,141 @@
+"""Stands in for the Python interpreter during soak runs (see
+SoakHarness.java): answers main.py in every input mode and
+sentiment_model.py the way the real scripts do, in milliseconds and
+without torch.
+
+Started as `python3 -Xsoak-stub stub_python.py <script> [args...]`. SOAK_BEHAVIOUR
+picks what this process does:
+  ok    answer
+  fail  print a traceback and exit 1 (a worker exits after one reply)
+  hang  start a child that sleeps, then sleep until killed
+  linger  answer, close its output, then sleep until killed, as a slow
+        interpreter shutdown would
+"""
+import json
+import os
+import struct
+import subprocess
+import sys
+import time
+from datetime import date, timedelta
+
+behaviour = os.environ.get("SOAK_BEHAVIOUR", "ok")
+steps = int(os.environ.get("TRENDMASTER_FUTURE_STEPS", 10))
+
+
+def misbehave():
+    """Fail or hang as asked; return to answer."""
+    if behaviour == "fail":
+        print("Traceback (most recent call last):\nRuntimeError: stub failure",
+              flush=True)
+        sys.exit(1)
+    if behaviour == "hang":
+        # a child, as bash -c python would have, so kills must reach it;
+        # it carries the -X marker soak runs count stub processes by
+        subprocess.Popen([sys.executable, "-Xsoak-stub", "-c",
+                          "import time; time.sleep(3600)"])
+        time.sleep(3600)
+
+
+def linger():
+    """Stay alive after answering, if asked to."""
+    if behaviour == "linger":
+        sys.stdout.flush()
+        # stderr shares the pipe, so both must close for the reader to end
+        os.close(1)
+        os.close(2)
+        time.sleep(3600)
+
+
+def forecast(last_day, last_close, horizon):
+    """Predictions in the shape TrendMaster's to_json gives them."""
+    start = date(1970, 1, 1) + timedelta(days=last_day)
+    rows = range(horizon)
+    return json.dumps({
+        "Date": {str(i): (start + timedelta(days=i + 1)).isoformat()
+                 for i in rows},
+        "Predicted_Close": {str(i): last_close * (1 + 0.001 * (i + 1))
+                            for i in rows}})
+
+
+def read_windows(data):
+    """{name: (last epoch day, last close)} of a TrendMasterInput block."""
+    if data[:4] != b"TMB1":
+        raise ValueError("stdin is not a TrendMaster input block")
+    (count,) = struct.unpack_from("<i", data, 4)
+    pos = 8
+    windows = {}
+    for _ in range(count):
+        (size,) = struct.unpack_from("<i", data, pos)
+        name = data[pos + 4:pos + 4 + size].decode("utf-8")
+        pos += 4 + size
+        (n,) = struct.unpack_from("<i", data, pos)
+        pos += 4
+        days = struct.unpack_from("<%dq" % n, data, pos)
+        pos += 8 * n
+        closes = struct.unpack_from("<%dd" % n, data, pos)
+        pos += 8 * n
+        windows[name] = (days[-1], closes[-1]) if n else None
+    return windows
+
+
+def results(windows, horizon):
+    out = {}
+    for name, last in windows.items():
+        out[name] = forecast(*last, horizon) if last else {
+            "error": "no bars to forecast from"}
+    return out
+
+
+def read_exact(stream, size):
+    data = b""
+    while len(data) < size:
+        chunk = stream.read(size - len(data))
+        if not chunk:
+            return None
+        data += chunk
+    return data
+
+
+def serve(stream):
+    """TrendMasterWorkerPool's protocol; every symbol is answered cold."""
+    first = True
+    while True:
+        head = read_exact(stream, 4)
+        body = head and read_exact(stream, struct.unpack("<i", head)[0])
+        if not body:
+            return
+        if behaviour == "hang":
+            misbehave()
+        (horizon,) = struct.unpack_from("<i", body, 0)
+        answered = results(read_windows(body[4:]), horizon)
+        timings = {"inference": 0.001}
+        if first:
+            timings["load"] = 0.01
+        sys.stdout.write("\n@@TM " + json.dumps(
+            {"results": answered, "state": {s: "cold" for s in answered},
+             "timings": timings}) + "\n")
+        sys.stdout.flush()
+        if behaviour == "fail":
+            sys.exit(1)
+        first = False
+
+
+script = os.path.basename(sys.argv[1])
+if script == "sentiment_model.py":
+    misbehave()
+    text = sys.argv[2] if len(sys.argv) > 2 else ""
+    print(json.dumps({"company": None, "sentimentScore": len(text) % 5 + 1,
+                      "sentimentLabel": "Neutral"}))
+    linger()
+elif os.environ.get("TRENDMASTER_INPUT") == "worker":
+    serve(sys.stdin.buffer)
+elif os.environ.get("TRENDMASTER_INPUT") == "binary":
+    windows = read_windows(sys.stdin.buffer.read())
+    misbehave()
+    print("@@TM " + json.dumps({"timings": {"load": 0.01,
+                                            "inference": 0.001}}))
+    print(json.dumps(results(windows, steps)))
+    linger()
+else:
+    sys.exit("TRENDMASTER_INPUT must be 'worker' or 'binary'")
@@ -0,0 +1,42 @@
+package com.example.market;
+
+import com.example.market.service.PipelineMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The stage timers reach the Prometheus scrape with their histogram
+ * buckets, and the worker tier counters are bound.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class MarketApplicationMetricsTest {
+
+  @Autowired MockMvc mvc;
+
+  @Test
+  void prometheusScrape_hasStageHistograms() throws Exception {
+    PipelineMetrics.record(PipelineMetrics.INFERENCE,
+        PipelineMetrics.SUCCESS, TimeUnit.MILLISECONDS.toNanos(250));
+
+    mvc.perform(get("/actuator/prometheus"))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString(
+            "market_pipeline_stage_seconds_bucket{endpoint=\"none\","
+                + "outcome=\"success\",stage=\"inference\"")))
+        .andExpect(content().string(containsString(
+            "market_forecast_worker_symbols_total{state=\"hit\"}")));
+  }
+}
@@ -0,0 +1,47 @@
+package com.example.market;
+
+import com.example.market.service.forecast.python.ProcessRunner;
+import com.example.market.service.forecast.python.ReplayProcessRunner;
+import com.example.market.service.news.CompanyLookupClient;
+import com.example.market.service.news.NewsApiClient;
+import com.example.market.service.news.ReplayCompanyLookupClient;
+import com.example.market.service.news.ReplayNewsApiClient;
+import com.example.market.service.replay.ReplayFixtures;
+import com.example.market.service.replay.ReplayMode;
+import com.example.market.service.stock.ReplayStockDataService;
+import com.example.market.service.stock.StockDataService;
+import com.example.market.service.upstream.Upstreams;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The replay profile swaps every upstream and the Python runner for
+ * stand-ins, with its faults.
+ */
+@SpringBootTest
+@ActiveProfiles("replay")
+class MarketApplicationReplayTest {
+
+  @Autowired StockDataService stocks;
+  @Autowired NewsApiClient news;
+  @Autowired CompanyLookupClient companies;
+  @Autowired ProcessRunner runner;
+  @Autowired ReplayFixtures fixtures;
+
+  @Test
+  void replayProfile_wiresTheStandIns() {
+    assertInstanceOf(ReplayStockDataService.class, stocks);
+    assertInstanceOf(ReplayNewsApiClient.class, news);
+    assertInstanceOf(ReplayCompanyLookupClient.class, companies);
+    assertInstanceOf(ReplayProcessRunner.class, runner);
+    assertEquals(ReplayMode.REPLAY, fixtures.mode());
+    assertEquals(Duration.ofMillis(250),
+        fixtures.faults(Upstreams.ALPHA_VANTAGE).median());
+  }
+}
@@ -0,0 +1,178 @@
+package com.example.market.allocation;
+
+import com.example.market.api.CompositeController;
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.analysis.AdjustedPredictionService;
+import com.example.market.service.forecast.ForecastDataService;
+import com.example.market.service.forecast.python.DefaultProcessRunner;
+import com.example.market.service.forecast.python.PythonService;
+import com.example.market.service.news.NewsDataService;
+import com.example.market.service.stock.JsonStore;
+import com.example.market.service.stock.StockDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Allocation budgets of the request hot paths.
+ *
+ * <p>Each test measures the bytes one call allocates once the code is
+ * warm, and fails if that is over the path's budget in
+ * {@code budgets.properties}, next to this class in the test resources.
+ * A change that makes a path allocate more shows up as a failing test, and
+ * raising the budget shows up in review. Budgets leave some headroom over
+ * what was measured when they were set; a failure prints the
+ * measurement.</p>
+ */
+class AllocationBudgetTest {
+
+  private static final String BUDGETS = "budgets.properties";
+  private static final int BARS = 100;
+
+  private static Properties budgets;
+
+  @TempDir
+  Path dir;
+
+  @BeforeAll
+  static void loadBudgets() throws IOException {
+    assumeTrue(AllocationMeter.threads() != null,
+        "JVM does not count allocated bytes per thread");
+    budgets = new Properties();
+    try (InputStream in =
+             AllocationBudgetTest.class.getResourceAsStream(BUDGETS)) {
+      assertNotNull(in, BUDGETS + " is missing");
+      budgets.load(in);
+    }
+  }
+
+  private static void assertWithinBudget(String path,
+                                         AllocationMeter.Work work)
+      throws Exception {
+    String budget = budgets.getProperty(path);
+    assertNotNull(budget, "No budget for " + path + " in " + BUDGETS);
+    long allocated = AllocationMeter.bytesPerCall(work);
+    assertTrue(allocated <= Long.parseLong(budget.strip()), path
+        + " allocated " + allocated + " bytes per call, over its budget of "
+        + budget.strip() + " in " + BUDGETS);
+  }
+
+  /** A store whose daily cache lives in the test's directory. */
+  static final class TempJsonStore extends JsonStore {
+    private final Path base;
+
+    TempJsonStore(Path base) {
+      this.base = base;
+    }
+
+    @Override
+    public Path dailyPath(String symbol) {
+      return base.resolve(symbol.trim().toLowerCase() + "-daily.json");
+    }
+  }
+
+  @Test
+  void meter_countsWhatIsAllocated() throws Exception {
+    byte[][] sink = new byte[1][];
+    long allocated = AllocationMeter.bytesPerCall(
+        () -> sink[0] = new byte[4096]);
+
+    // the array header comes on top of the 4096 bytes
+    assertTrue(allocated >= 4096 && allocated < 4096 + 64,
+        "measured " + allocated);
+  }
+
+  @Test
+  void dailySeries_cacheHit() throws Exception {
+    JsonStore store = new TempJsonStore(dir);
+    List<StockBar> bars = new ArrayList<>(BARS);
+    LocalDate day = LocalDate.now().minusDays(BARS);
+    for (int i = 0; i < BARS; i++) {
+      BigDecimal close = BigDecimal.valueOf(40_000 + (i * 37L) % 5_000, 2);
+      bars.add(new StockBar(day.plusDays(i).toString(),
+          close.subtract(BigDecimal.ONE), close.add(BigDecimal.TEN),
+          close.subtract(BigDecimal.TEN), close, 20_000_000L + i * 13L));
+    }
+    store.write(store.dailyPath("MSFT"), new StockDailySeries("MSFT",
+        Instant.now().toString(), "alphavantage: TIME_SERIES_DAILY", bars));
+    CompositeController controller = new CompositeController(
+        mock(StockDataService.class), mock(ForecastDataService.class),
+        mock(NewsDataService.class), new AdjustedPredictionService(), store);
+    assertEquals(BARS, controller.getDailySeries("MSFT", false)
+        .getBars().size());
+
+    assertWithinBudget("daily.cache-hit",
+        () -> controller.getDailySeries("MSFT", false));
+  }
+
+  private static ForecastSeries tenDays() {
+    long day = LocalDate.now().plusDays(1).toEpochDay();
+    long[] days = new long[10];
+    double[] prices = new double[10];
+    for (int i = 0; i < 10; i++) {
+      days[i] = day + i;
+      prices[i] = 412.5 + i * 0.37;
+    }
+    return new ForecastSeries(days, prices).withBounds(
+        Arrays.stream(prices).map(p -> p - 5).toArray(),
+        Arrays.stream(prices).map(p -> p + 5).toArray());
+  }
+
+  @Test
+  void adjust() throws Exception {
+    AdjustedPredictionService service = new AdjustedPredictionService();
+    ForecastSeries series = tenDays();
+    assertEquals(10, service.adjust(series, 4.0).size());
+
+    assertWithinBudget("adjust.10-days", () -> service.adjust(series, 4.0));
+  }
+
+  @Test
+  void adjustInto() throws Exception {
+    AdjustedPredictionService service = new AdjustedPredictionService();
+    ForecastSeries series = tenDays();
+    long today = LocalDate.now().toEpochDay();
+    double[] out = new double[series.size()];
+
+    assertWithinBudget("adjust-into.10-days",
+        () -> service.adjustInto(series, 4.0, today, out));
+  }
+
+  @Test
+  void parseForecastSeries() throws Exception {
+    PythonService python = new PythonService(new DefaultProcessRunner());
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = mapper.createObjectNode();
+    ObjectNode dates = root.putObject("Date");
+    ObjectNode close = root.putObject("Predicted_Close");
+    LocalDate day = LocalDate.of(2025, 10, 23);
+    for (int i = 0; i < 10; i++) {
+      dates.put(Integer.toString(i), day.plusDays(i).toString());
+      close.put(Integer.toString(i), 412.5 + i * 0.37);
+    }
+    String response = mapper.writeValueAsString(root);
+    assertEquals(10, python.parseForecastSeries(response).size());
+
+    assertWithinBudget("forecast-series.10-days",
+        () -> python.parseForecastSeries(response));
+  }
+}
@@ -0,0 +1,64 @@
+package com.example.market.allocation;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes a piece of code allocates per call on the calling thread, as the
+ * JVM's per-thread allocation counter reports them.
+ *
+ * <p>The code is warmed up first, so the JIT has compiled it and escape
+ * analysis has removed what it will; the count is then taken over
+ * several rounds and the smallest round kept, which leaves out one-off
+ * allocations such as a lazily grown buffer or a class initialised
+ * mid-round.</p>
+ */
+final class AllocationMeter {
+
+  /** Work measured; may throw. */
+  interface Work {
+    void run() throws Exception;
+  }
+
+  private static final int WARMUP = 20_000;
+  private static final int ROUNDS = 5;
+  private static final int CALLS = 2_000;
+
+  private AllocationMeter() {
+  }
+
+  /** The JVM's counter, if it has one. */
+  static com.sun.management.ThreadMXBean threads() {
+    if (ManagementFactory.getThreadMXBean()
+        instanceof com.sun.management.ThreadMXBean bean
+        && bean.isThreadAllocatedMemorySupported()) {
+      bean.setThreadAllocatedMemoryEnabled(true);
+      return bean;
+    }
+    return null;
+  }
+
+  /**
+   * Measure the bytes allocated per call of {@code work}.
+   *
+   * @throws IllegalStateException if the JVM cannot count them
+   */
+  static long bytesPerCall(Work work) throws Exception {
+    com.sun.management.ThreadMXBean bean = threads();
+    if (bean == null) {
+      throw new IllegalStateException(
+          "This JVM does not count allocated bytes per thread");
+    }
+    for (int i = 0; i < WARMUP; i++) {
+      work.run();
+    }
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r < ROUNDS; r++) {
+      long before = bean.getCurrentThreadAllocatedBytes();
+      for (int i = 0; i < CALLS; i++) {
+        work.run();
+      }
+      best = Math.min(best, bean.getCurrentThreadAllocatedBytes() - before);
+    }
+    return best / CALLS;
+  }
+}
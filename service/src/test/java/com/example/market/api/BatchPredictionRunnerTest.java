@@ -0,0 +1,258 @@
+package com.example.market.api;
+
+import com.example.market.service.PipelineMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchPredictionRunnerTest {
+
+  private static final ObjectMapper M = new ObjectMapper();
+
+  private BatchPredictionRunner runner;
+
+  @AfterEach
+  void tearDown() {
+    if (runner != null) {
+      runner.destroy();
+    }
+  }
+
+  /** Emitter that records lines instead of writing a response. */
+  static final class Recording extends ResponseBodyEmitter {
+    final List<JsonNode> lines = new ArrayList<>();
+    final CountDownLatch completed = new CountDownLatch(1);
+    boolean failSends;
+
+    @Override
+    public synchronized void send(Object object, MediaType type)
+        throws IOException {
+      if (failSends) {
+        throw new IOException("client gone");
+      }
+      assertEquals(MediaType.APPLICATION_NDJSON, type);
+      String text = new String((byte[]) object, StandardCharsets.UTF_8);
+      assertTrue(text.endsWith("\n"));
+      lines.add(M.readTree(text));
+    }
+
+    @Override
+    public synchronized void complete() {
+      completed.countDown();
+    }
+
+    List<JsonNode> await() throws InterruptedException {
+      assertTrue(completed.await(5, TimeUnit.SECONDS), "batch never completed");
+      synchronized (this) {
+        return new ArrayList<>(lines);
+      }
+    }
+  }
+
+  private static BatchPredictionRunner runner(int concurrency, Duration timeout) {
+    return new BatchPredictionRunner(concurrency, timeout, 3,
+        Duration.ofMinutes(1));
+  }
+
+  @Test
+  void symbols_normalizesAndValidates() {
+    runner = runner(1, Duration.ofSeconds(5));
+
+    assertEquals(List.of("AMZN", "MSFT"),
+        runner.symbols(Arrays.asList(" amzn", "MSFT", "Amzn")));
+    assertThrows(IllegalArgumentException.class, () -> runner.symbols(null));
+    assertThrows(IllegalArgumentException.class, () -> runner.symbols(List.of()));
+    assertThrows(IllegalArgumentException.class,
+        () -> runner.symbols(Arrays.asList("A", null)));
+    assertThrows(IllegalArgumentException.class,
+        () -> runner.symbols(List.of("A", " ")));
+    IllegalArgumentException tooMany = assertThrows(IllegalArgumentException.class,
+        () -> runner.symbols(List.of("A", "B", "C", "D")));
+    assertTrue(tooMany.getMessage().contains("at most 3"));
+  }
+
+  @Test
+  void invalidLimits_areRejected() {
+    Duration ok = Duration.ofSeconds(1);
+    assertThrows(IllegalArgumentException.class,
+        () -> new BatchPredictionRunner(0, ok, 1, ok));
+    assertThrows(IllegalArgumentException.class,
+        () -> new BatchPredictionRunner(1, ok, 0, ok));
+    assertThrows(IllegalArgumentException.class,
+        () -> new BatchPredictionRunner(1, Duration.ZERO, 1, ok));
+    assertThrows(IllegalArgumentException.class,
+        () -> new BatchPredictionRunner(1, ok, 1, Duration.ofSeconds(-1)));
+  }
+
+  @Test
+  void everySymbolGetsOneLine_errorsInline() throws Exception {
+    runner = runner(2, Duration.ofSeconds(5));
+    Recording out = new Recording();
+
+    runner.start(out, List.of("A", "BAD", "C"), s -> false, s -> {
+      if (s.equals("BAD")) {
+        throw new IllegalStateException("no data for " + s);
+      }
+      return Map.of("price", s.length());
+    });
+
+    List<JsonNode> lines = out.await();
+    assertEquals(3, lines.size());
+    for (JsonNode line : lines) {
+      if (line.get("symbol").asText().equals("BAD")) {
+        assertEquals("error", line.get("status").asText());
+        assertEquals("no data for BAD", line.get("error").asText());
+        assertFalse(line.has("result"));
+      } else {
+        assertEquals("ok", line.get("status").asText());
+        assertEquals(1, line.get("result").get("price").asInt());
+      }
+    }
+  }
+
+  @Test
+  void errorWithoutMessage_reportsExceptionType() throws Exception {
+    runner = runner(1, Duration.ofSeconds(5));
+    Recording out = new Recording();
+
+    runner.start(out, List.of("A"), s -> false, s -> {
+      throw new NullPointerException();
+    });
+
+    assertEquals("java.lang.NullPointerException",
+        out.await().get(0).get("error").asText());
+  }
+
+  @Test
+  void jobsAreTaggedWithTheEndpointThatQueuedThem() throws Exception {
+    runner = runner(2, Duration.ofSeconds(5));
+    Recording out = new Recording();
+
+    try (PipelineMetrics.Scope ignored =
+             PipelineMetrics.bindEndpoint("/market/predict/batch")) {
+      runner.start(out, List.of("A", "B"), s -> false,
+          s -> PipelineMetrics.endpoint());
+    }
+
+    for (JsonNode line : out.await()) {
+      assertEquals("/market/predict/batch", line.get("result").asText());
+    }
+  }
+
+  @Test
+  void cachedSymbolsRunFirst() throws Exception {
+    runner = runner(1, Duration.ofSeconds(5));
+    Recording out = new Recording();
+    List<String> order = new ArrayList<>();
+
+    runner.start(out, List.of("MISS1", "HIT", "MISS2"), s -> s.equals("HIT"), s -> {
+      order.add(s);
+      return s;
+    });
+
+    out.await();
+    assertEquals(List.of("HIT", "MISS1", "MISS2"), order);
+  }
+
+  @Test
+  void concurrencyIsBounded() throws Exception {
+    runner = runner(2, Duration.ofSeconds(5));
+    Recording out = new Recording();
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+
+    runner.start(out, List.of("A", "B", "C", "D", "E", "F"), s -> false, s -> {
+      peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+      Thread.sleep(30);
+      running.decrementAndGet();
+      return s;
+    });
+
+    assertEquals(6, out.await().size());
+    assertTrue(peak.get() <= 2, "peak " + peak.get());
+  }
+
+  @Test
+  void slowSymbol_timesOutAndIsInterrupted() throws Exception {
+    runner = runner(1, Duration.ofMillis(100));
+    Recording out = new Recording();
+    CountDownLatch interrupted = new CountDownLatch(1);
+
+    runner.start(out, List.of("SLOW", "FAST"), s -> false, s -> {
+      if (s.equals("SLOW")) {
+        try {
+          Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+          throw e;
+        }
+      }
+      return s;
+    });
+
+    List<JsonNode> lines = out.await();
+    assertEquals(2, lines.size());
+    assertEquals("SLOW", lines.get(0).get("symbol").asText());
+    assertEquals("timeout", lines.get(0).get("status").asText());
+    assertTrue(lines.get(0).get("error").asText().contains("PT0.1S"));
+    assertEquals("ok", lines.get(1).get("status").asText());
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void clientGone_cancelsTheRest() throws Exception {
+    runner = runner(1, Duration.ofSeconds(5));
+    Recording out = new Recording();
+    out.failSends = true;
+    Set<String> started = ConcurrentHashMap.newKeySet();
+    CountDownLatch first = new CountDownLatch(1);
+
+    runner.start(out, List.of("A", "B", "C"), s -> false, s -> {
+      started.add(s);
+      first.countDown();
+      return s;
+    });
+
+    assertTrue(first.await(5, TimeUnit.SECONDS));
+    Thread.sleep(200);
+    assertEquals(Set.of("A"), started);
+    assertEquals(1, out.completed.getCount(), "nothing to complete");
+  }
+
+  @Test
+  void emptyBatch_completesImmediately() throws Exception {
+    runner = runner(1, Duration.ofSeconds(5));
+    Recording out = new Recording();
+
+    runner.start(out, List.of(), s -> false, s -> s);
+
+    assertTrue(out.await().isEmpty());
+  }
+
+  @Test
+  void run_returnsALiveEmitter() {
+    runner = new BatchPredictionRunner();
+
+    ResponseBodyEmitter emitter = runner.run(List.of("A"), s -> true, s -> s);
+
+    assertEquals(Duration.ofMinutes(30).toMillis(), emitter.getTimeout());
+  }
+}
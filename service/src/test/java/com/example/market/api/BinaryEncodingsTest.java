@@ -0,0 +1,91 @@
+package com.example.market.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryEncodingsTest {
+
+  private static final String DOC =
+      "{\"symbol\":\"AMZN\",\"bars\":[{\"close\":105.10,\"volume\":123456,"
+          + "\"ok\":true,\"note\":null}],\"big\":12345678901234567890}";
+
+  private static MediaType negotiate(String accept) {
+    HttpHeaders h = new HttpHeaders();
+    if (accept != null) {
+      h.set(HttpHeaders.ACCEPT, accept);
+    }
+    return BinaryEncodings.negotiate(h);
+  }
+
+  @Test
+  void negotiate_defaultsToJson() {
+    assertEquals(MediaType.APPLICATION_JSON, BinaryEncodings.negotiate(null));
+    assertEquals(MediaType.APPLICATION_JSON, negotiate(null));
+    assertEquals(MediaType.APPLICATION_JSON, negotiate("*/*"));
+    assertEquals(MediaType.APPLICATION_JSON, negotiate("text/html"));
+    assertEquals(MediaType.APPLICATION_JSON,
+        negotiate("application/json, application/cbor"));
+  }
+
+  @Test
+  void negotiate_picksBinaryByPreference() {
+    assertEquals(BinaryEncodings.SMILE, negotiate("application/x-jackson-smile"));
+    assertEquals(BinaryEncodings.CBOR, negotiate("application/cbor, */*;q=0.1"));
+    assertEquals(BinaryEncodings.CBOR,
+        negotiate("application/json;q=0.5, application/cbor"));
+    assertEquals(BinaryEncodings.SMILE,
+        negotiate("application/cbor;q=0, application/x-jackson-smile"));
+  }
+
+  @Test
+  void isBinary_onlyForSmileAndCbor() {
+    assertFalse(BinaryEncodings.isBinary(MediaType.APPLICATION_JSON));
+    assertTrue(BinaryEncodings.isBinary(BinaryEncodings.SMILE));
+    assertTrue(BinaryEncodings.isBinary(BinaryEncodings.CBOR));
+  }
+
+  @Test
+  void transcode_smile_preservesTreeAndExactDecimals() throws Exception {
+    byte[] smile = BinaryEncodings.transcode(in(DOC), BinaryEncodings.SMILE);
+    JsonNode tree = new SmileMapper().readTree(smile);
+
+    assertEquals(new ObjectMapper().readTree(DOC).get("symbol"), tree.get("symbol"));
+    assertEquals(0, new BigDecimal("105.10")
+        .compareTo(tree.at("/bars/0/close").decimalValue()));
+    assertEquals(123456, tree.at("/bars/0/volume").asLong());
+    assertTrue(tree.at("/bars/0/note").isNull());
+    assertEquals("12345678901234567890", tree.get("big").bigIntegerValue().toString());
+  }
+
+  @Test
+  void transcode_cbor_isSmallerThanJson() throws Exception {
+    byte[] cbor = BinaryEncodings.transcode(in(DOC), BinaryEncodings.CBOR);
+    JsonNode tree = new CBORMapper().readTree(cbor);
+
+    assertEquals("AMZN", tree.get("symbol").asText());
+    assertTrue(tree.at("/bars/0/ok").booleanValue());
+    assertTrue(cbor.length < DOC.length());
+  }
+
+  @Test
+  void transcode_malformedJson_throws() {
+    assertThrows(IOException.class,
+        () -> BinaryEncodings.transcode(in("{\"a\":"), BinaryEncodings.SMILE));
+  }
+
+  private static ByteArrayInputStream in(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,115 @@
+package com.example.market.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheFileValidatorsTest {
+
+  @TempDir Path tmp;
+
+  private final CacheFileValidators validators = new CacheFileValidators();
+
+  private Path file(String name, String body, Instant modified) throws Exception {
+    Path p = tmp.resolve(name);
+    Files.writeString(p, body);
+    Files.setLastModifiedTime(p, FileTime.from(modified));
+    return p;
+  }
+
+  @Test
+  void missingOrNullFile_hasNoVersion() throws Exception {
+    assertNull(validators.current(null));
+    assertNull(validators.current(tmp.resolve("absent.json")));
+  }
+
+  @Test
+  void etag_isStrongQuotedAndStableForSameBytes() throws Exception {
+    Instant t = Instant.parse("2025-10-22T10:00:00Z");
+    var a = validators.current(file("a.json", "{\"x\":1}", t));
+    var b = validators.current(file("b.json", "{\"x\":1}", t));
+
+    assertTrue(a.getEtag().matches("\"[0-9a-f]+-7\""), a.getEtag());
+    assertEquals(a.getEtag(), b.getEtag());
+    assertEquals(t, a.getLastModified());
+  }
+
+  @Test
+  void version_isMemoizedUntilFileChanges() throws Exception {
+    Instant t = Instant.parse("2025-10-22T10:00:00Z");
+    Path p = file("a.json", "{\"x\":1}", t);
+    var first = validators.current(p);
+
+    assertSame(first, validators.current(p));
+
+    Files.writeString(p, "{\"x\":2}");
+    Files.setLastModifiedTime(p, FileTime.from(t.plusSeconds(1)));
+    var second = validators.current(p);
+
+    assertNotSame(first, second);
+    assertNotEquals(first.getEtag(), second.getEtag());
+  }
+
+  @Test
+  void remaining_countsDownFromModificationAndFloorsAtZero() {
+    Instant t = Instant.parse("2025-10-22T10:00:00Z");
+    var v = new CacheFileValidators.Version(t, 1, "\"e\"");
+
+    assertEquals(Duration.ofMinutes(15),
+        v.remaining(Duration.ofMinutes(20), t.plus(Duration.ofMinutes(5))));
+    assertEquals(Duration.ZERO,
+        v.remaining(Duration.ofMinutes(20), t.plus(Duration.ofHours(1))));
+  }
+
+  @Test
+  void ifNoneMatch_matchesExactWeakOrStar() {
+    var v = new CacheFileValidators.Version(Instant.EPOCH, 1, "\"abc-1\"");
+
+    assertTrue(v.notModified(inm("\"abc-1\"")));
+    assertTrue(v.notModified(inm("\"zzz\", W/\"abc-1\"")));
+    assertTrue(v.notModified(inm("*")));
+    assertFalse(v.notModified(inm("\"other\"")));
+    assertFalse(v.notModified(new HttpHeaders()));
+  }
+
+  @Test
+  void ifNoneMatch_takesPrecedenceOverIfModifiedSince() {
+    Instant t = Instant.parse("2025-10-22T10:00:00Z");
+    var v = new CacheFileValidators.Version(t, 1, "\"abc-1\"");
+    HttpHeaders h = inm("\"other\"");
+    h.setIfModifiedSince(t.plusSeconds(60));
+
+    assertFalse(v.notModified(h));
+  }
+
+  @Test
+  void ifModifiedSince_comparesAtSecondPrecision() {
+    Instant t = Instant.parse("2025-10-22T10:00:00.750Z");
+    var v = new CacheFileValidators.Version(t, 1, "\"e\"");
+
+    assertTrue(v.notModified(ims(t.truncatedTo(ChronoUnit.SECONDS))));
+    assertTrue(v.notModified(ims(t.plusSeconds(5))));
+    assertFalse(v.notModified(ims(t.minusSeconds(1))));
+  }
+
+  private static HttpHeaders inm(String value) {
+    HttpHeaders h = new HttpHeaders();
+    h.set(HttpHeaders.IF_NONE_MATCH, value);
+    return h;
+  }
+
+  private static HttpHeaders ims(Instant since) {
+    HttpHeaders h = new HttpHeaders();
+    h.setIfModifiedSince(since);
+    return h;
+  }
+}
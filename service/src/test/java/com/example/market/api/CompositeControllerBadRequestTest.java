@@ -3,6 +3,7 @@ package com.example.market.api;
 import com.example.market.service.analysis.AdjustedPredictionService;
 import com.example.market.service.forecast.ForecastDataService;
 import com.example.market.service.news.NewsDataService;
+import com.example.market.service.news.SentimentHistoryService;
 import com.example.market.service.stock.JsonStore;
 import com.example.market.service.stock.StockDataService;
 import org.junit.jupiter.api.AfterEach;
@@ -33,6 +34,8 @@ class CompositeControllerBadRequestTest {
   @MockBean NewsDataService news;
   @MockBean AdjustedPredictionService adjustedPrediction;
   @MockBean JsonStore store;
+  @MockBean SentimentHistoryService sentimentHistory;
+  @MockBean BatchPredictionRunner batch;
 
   @TempDir Path tmp;
 
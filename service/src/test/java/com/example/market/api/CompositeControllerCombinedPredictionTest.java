@@ -1,16 +1,24 @@
 package com.example.market.api;
 
+import com.example.market.model.forecast.ForecastSeries;
 import com.example.market.model.news.SentimentResult;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
 import com.example.market.service.analysis.AdjustedPredictionService;
 import com.example.market.service.forecast.ForecastDataService;
 import com.example.market.service.news.NewsDataService;
 import com.example.market.service.stock.JsonStore;
 import com.example.market.service.stock.StockDataService;
+import com.example.market.service.upstream.UpstreamUnavailableException;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.ResponseEntity;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,7 +35,7 @@ public class CompositeControllerCombinedPredictionTest {
     private CompositeController controller;
 
     @BeforeEach
-    void setup() {
+    void setup() throws Exception {
         stocks = mock(StockDataService.class);
         forecast = mock(ForecastDataService.class);
         news = mock(NewsDataService.class);
@@ -37,6 +45,21 @@ public class CompositeControllerCombinedPredictionTest {
         controller = new CompositeController(
                 stocks, forecast, news, adjustedPrediction, store
         );
+
+        // forecasts run on the daily series, fetched fresh as nothing is cached
+        System.setProperty("alphavantage.api.key", "test-key");
+        when(stocks.fetchDaily(anyString(), anyString())).thenAnswer(inv ->
+                new StockDailySeries(inv.getArgument(0), "2025-11-28",
+                        "test", List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("alphavantage.api.key");
+    }
+
+    private static ForecastSeries series(String price) {
+        return ForecastSeries.fromMap(Map.of("2025-12-01", price));
     }
 
     // ------------------------------------------------------------
@@ -46,16 +69,16 @@ public class CompositeControllerCombinedPredictionTest {
     void testSuccess() throws Exception {
         String symbol = "AAPL";
 
-        Map<String, String> prices = Map.of("DAY1", "100");
+        ForecastSeries prices = series("100");
         SentimentResult sentiment = new SentimentResult("AAPL", 4, "POSITIVE");
-        Map<String, String> adjusted = Map.of("DAY1", "110");
+        ForecastSeries adjusted = series("110");
 
-        when(forecast.predictFuturePrices(symbol, 10)).thenReturn(prices);
+        when(forecast.predictSeries(eq(symbol), eq(10), any())).thenReturn(prices);
         when(news.analyzeSentiment(symbol)).thenReturn(sentiment);
-        when(adjustedPrediction.adjustPricesWithSentiment(prices, sentiment))
-                .thenReturn(adjusted);
+        when(adjustedPrediction.adjust(prices, 4.0)).thenReturn(adjusted);
 
-        ResponseEntity<?> response = controller.getCombinedPrediction(symbol, 10, false);
+        ResponseEntity<?> response =
+                controller.getCombinedPrediction(symbol, 10, false, "none", "columnar", null, null);
 
         assertEquals(200, response.getStatusCode().value());
 
@@ -69,16 +92,47 @@ public class CompositeControllerCombinedPredictionTest {
         assertEquals("POSITIVE", sentimentMap.get("label"));
     }
 
+    // ------------------------------------------------------------
+    // 1b. SUCCESS — legacy map shape
+    // ------------------------------------------------------------
+    @Test
+    void testSuccessMapShape() throws Exception {
+        ForecastSeries prices = series("100");
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenReturn(prices);
+        when(news.analyzeSentiment("AMZN"))
+                .thenReturn(new SentimentResult("AMZN", 3, "neutral"));
+        when(adjustedPrediction.adjust(prices, 3.0)).thenReturn(series("100.004"));
+
+        ResponseEntity<?> response =
+                controller.getCombinedPrediction(null, 10, false, "none", "MAP", null, null);
+
+        Map body = (Map) response.getBody();
+        assertEquals(Map.of("2025-12-01", "100.00"), body.get("originalPredictions"));
+        assertEquals(Map.of("2025-12-01", "100.00"), body.get("adjustedPredictions"));
+    }
+
+    // ------------------------------------------------------------
+    // 1c. UNKNOWN SHAPE → 400
+    // ------------------------------------------------------------
+    @Test
+    void testUnknownShape() {
+        ResponseEntity<?> response =
+                controller.getCombinedPrediction(null, 10, false, "none", "pairs", null, null);
+
+        assertEquals(400, response.getStatusCode().value());
+        verifyNoInteractions(forecast);
+    }
+
     // ------------------------------------------------------------
     // 2. FORECAST RETURNS EMPTY → 502
     // ------------------------------------------------------------
     @Test
     void testForecastEmpty() throws Exception {
-        when(forecast.predictFuturePrices("AMZN", 10))
-                .thenReturn(Map.of());
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any()))
+                .thenReturn(ForecastSeries.empty());
 
         ResponseEntity<?> response =
-                controller.getCombinedPrediction(null, 10, false);
+                controller.getCombinedPrediction(null, 10, false, "none", "columnar", null, null);
 
         assertEquals(502, response.getStatusCode().value());
         assertTrue(response.getBody().toString().contains("empty predictions"));
@@ -89,11 +143,11 @@ public class CompositeControllerCombinedPredictionTest {
     // ------------------------------------------------------------
     @Test
     void testForecastThrows() throws Exception {
-        when(forecast.predictFuturePrices("AMZN", 10))
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any()))
                 .thenThrow(new RuntimeException("boom"));
 
         ResponseEntity<?> response =
-                controller.getCombinedPrediction(null, 10, false);
+                controller.getCombinedPrediction(null, 10, false, "none", "columnar", null, null);
 
         assertEquals(502, response.getStatusCode().value());
         assertTrue(response.getBody().toString().contains("Forecast service error"));
@@ -104,13 +158,13 @@ public class CompositeControllerCombinedPredictionTest {
     // ------------------------------------------------------------
     @Test
     void testSentimentNull() throws Exception {
-        when(forecast.predictFuturePrices("AMZN", 10))
-                .thenReturn(Map.of("D1", "1"));
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any()))
+                .thenReturn(series("1"));
 
         when(news.analyzeSentiment("AMZN")).thenReturn(null);
 
         ResponseEntity<?> response =
-                controller.getCombinedPrediction(null, 10, false);
+                controller.getCombinedPrediction(null, 10, false, "none", "columnar", null, null);
 
         assertEquals(502, response.getStatusCode().value());
         assertTrue(response.getBody().toString().contains("null result"));
@@ -121,18 +175,113 @@ public class CompositeControllerCombinedPredictionTest {
     // ------------------------------------------------------------
     @Test
     void testSentimentThrows() throws Exception {
-        when(forecast.predictFuturePrices("AMZN", 10))
-                .thenReturn(Map.of("D1", "1"));
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any()))
+                .thenReturn(series("1"));
 
         when(news.analyzeSentiment("AMZN"))
                 .thenThrow(new RuntimeException("sent error"));
 
         ResponseEntity<?> response =
-                controller.getCombinedPrediction(null, 10, false);
+                controller.getCombinedPrediction(null, 10, false, "none", "columnar", null, null);
 
         assertEquals(502, response.getStatusCode().value());
         assertTrue(response.getBody().toString().contains("Sentiment service error"));
     }
-}
 
-    
\ No newline at end of file
+    // ------------------------------------------------------------
+    // 6. SENTIMENT MISSES THE DEADLINE → 200, unadjusted, degraded
+    // ------------------------------------------------------------
+    @Test
+    void testSentimentOverrun_returnsDegradedForecast() throws Exception {
+        ForecastSeries prices = series("100");
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenReturn(prices);
+        when(news.analyzeSentiment("AMZN")).thenAnswer(inv -> {
+            Thread.sleep(80);
+            Deadline.current().check("sentiment");
+            return new SentimentResult("AMZN", 5, "POSITIVE");
+        });
+
+        ResponseEntity<?> response = controller.getCombinedPrediction(
+                null, 10, false, "none", "MAP", null, "50ms");
+
+        assertEquals(200, response.getStatusCode().value());
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        assertEquals(true, body.get("degraded"));
+        assertTrue(body.get("degradedReason").toString()
+                .contains("Deadline exceeded during sentiment"));
+        assertEquals("{2025-12-01=100.00}",
+                body.get("adjustedPredictions").toString());
+        assertEquals(body.get("originalPredictions"),
+                body.get("adjustedPredictions"));
+        assertFalse(body.containsKey("sentiment"));
+        verifyNoInteractions(adjustedPrediction);
+        assertFalse(Deadline.current().isBounded(),
+                "deadline should be unbound after the request");
+    }
+
+    // ------------------------------------------------------------
+    // 7. FORECAST MISSES THE DEADLINE → 504
+    // ------------------------------------------------------------
+    @Test
+    void testForecastOverrun_is504() throws Exception {
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any()))
+                .thenThrow(new DeadlineExceededException("forecast"));
+
+        ResponseEntity<?> response = controller.getCombinedPrediction(
+                null, 10, false, "none", "columnar", "3s", null);
+
+        assertEquals(504, response.getStatusCode().value());
+        assertTrue(response.getBody().toString()
+                .contains("Deadline exceeded during forecast"));
+        verifyNoInteractions(news);
+    }
+
+    // ------------------------------------------------------------
+    // 8. BUDGETS: the shorter one wins; garbage → 400
+    // ------------------------------------------------------------
+    @Test
+    void testTimeoutParsing() {
+        assertFalse(CompositeController.deadline(null, " ").isBounded());
+        assertTrue(CompositeController.deadline("1500", null)
+                .remaining(Duration.ofHours(1)).toMillis() <= 1500);
+        assertTrue(CompositeController.deadline("10s", "PT0.2S")
+                .remaining(Duration.ofHours(1)).toMillis() <= 200);
+        assertThrows(IllegalArgumentException.class,
+                () -> CompositeController.deadline("soon", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> CompositeController.deadline(null, "0"));
+
+        ResponseEntity<?> response = controller.getCombinedPrediction(
+                null, 10, false, "none", "columnar", "-5s", null);
+        assertEquals(400, response.getStatusCode().value());
+        response = controller.predict(null, 10, false, "columnar", "x", null);
+        assertEquals(400, response.getStatusCode().value());
+        verifyNoInteractions(forecast);
+    }
+
+    // ------------------------------------------------------------
+    // 9. SHED DEPENDENCIES: sentiment → degraded, forecast → 503
+    // ------------------------------------------------------------
+    @Test
+    void testShedDependencies() throws Exception {
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenReturn(series("100"));
+        when(news.analyzeSentiment("AMZN")).thenThrow(
+                new UpstreamUnavailableException("news-api", "circuit open"));
+
+        ResponseEntity<?> response = controller.getCombinedPrediction(
+                null, 10, false, "none", "columnar", null, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        assertEquals(true, body.get("degraded"));
+        assertEquals("Sentiment skipped: news-api unavailable: circuit open",
+                body.get("degradedReason"));
+
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenThrow(
+                new UpstreamUnavailableException("forecast",
+                        "too many concurrent calls"));
+        response = controller.getCombinedPrediction(
+                null, 10, false, "none", "columnar", null, null);
+        assertEquals(503, response.getStatusCode().value());
+    }
+}
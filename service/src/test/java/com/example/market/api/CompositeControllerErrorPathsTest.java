@@ -2,11 +2,16 @@ package com.example.market.api;
 
 import com.example.market.model.stock.StockBar;
 import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
 import com.example.market.service.analysis.AdjustedPredictionService;
 import com.example.market.service.forecast.ForecastDataService;
 import com.example.market.service.news.NewsDataService;
+import com.example.market.service.news.SentimentHistoryService;
 import com.example.market.service.stock.JsonStore;
 import com.example.market.service.stock.StockDataService;
+import com.example.market.service.upstream.UpstreamUnavailableException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -38,6 +44,8 @@ class CompositeControllerErrorPathsTest {
   @MockBean NewsDataService news;
   @MockBean AdjustedPredictionService adjustedPrediction;
   @MockBean JsonStore store;
+  @MockBean SentimentHistoryService sentimentHistory;
+  @MockBean BatchPredictionRunner batch;
 
   @TempDir Path tmp;
 
@@ -82,7 +90,7 @@ class CompositeControllerErrorPathsTest {
     when(store.dailyPath("AMZN")).thenReturn(cache);
     when(store.read(cache, StockDailySeries.class)).thenReturn(series("cached"));
 
-    when(forecast.predictFuturePrices("AMZN", 10)).thenThrow(new RuntimeException("boom"));
+    when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenThrow(new RuntimeException("boom"));
 
     mvc.perform(get("/market/predict"))
         .andExpect(status().isBadGateway())
@@ -94,20 +102,85 @@ class CompositeControllerErrorPathsTest {
   }
 
   @Test
-  void sentiment_cacheHit_returnsCachedPayload_and_skipsAnalyze() throws Exception {
+  void predict_pastTheGatewayDeadline_returns504() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    Files.createDirectories(cache.getParent());
+    Files.writeString(cache, "{}", StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    Files.setLastModifiedTime(cache, FileTime.from(Instant.now()));
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+    when(store.read(cache, StockDailySeries.class)).thenReturn(series("cached"));
+    when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenAnswer(inv -> {
+      Deadline deadline = Deadline.current();
+      assertTrue(deadline.isBounded());
+      throw new DeadlineExceededException("forecast");
+    });
+
+    mvc.perform(get("/market/predict")
+            .header(CompositeController.TIMEOUT_HEADER, "3s"))
+        .andExpect(status().isGatewayTimeout())
+        .andExpect(content().string(containsString("Deadline exceeded during forecast")));
+
+    mvc.perform(get("/market/predict").param("timeout", "later"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string(containsString("Invalid timeout: later")));
+  }
+
+  @Test
+  void shedUpstreams_serveStaleCaches_or503() throws Exception {
+    Path daily = tmp.resolve("data/stocks/amzn-daily.json");
     Path newsCache = tmp.resolve("data/news/amzn.json");
+    Files.createDirectories(daily.getParent());
     Files.createDirectories(newsCache.getParent());
-    Files.writeString(newsCache, "{}", StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-    Files.setLastModifiedTime(newsCache, FileTime.from(Instant.now()));
+    Files.writeString(daily, "{}");
+    Files.writeString(newsCache, "{}");
+    FileTime old = FileTime.from(Instant.now().minusSeconds(3 * 86_400));
+    Files.setLastModifiedTime(daily, old);
+    Files.setLastModifiedTime(newsCache, old);
+    when(store.dailyPath("AMZN")).thenReturn(daily);
     when(store.newsPath("AMZN")).thenReturn(newsCache);
+    when(store.read(daily, StockDailySeries.class)).thenReturn(series("stale"));
+    when(store.read(newsCache, Map.class))
+        .thenReturn(Map.of("sentimentLabel", "neutral"));
+    System.setProperty("alphavantage.api.key", "k");
+    when(stocks.fetchDaily(anyString(), anyString()))
+        .thenThrow(new UpstreamUnavailableException("alpha-vantage", "circuit open"));
+    when(news.analyzeSentiment("AMZN"))
+        .thenThrow(new UpstreamUnavailableException("news-api", "circuit open"));
+
+    mvc.perform(get("/market/daily"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.source").value("stale"));
+    mvc.perform(get("/market/sentiment"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Warning", "110 - \"Response is Stale\""))
+        .andExpect(header().string("Cache-Control", "no-cache"))
+        .andExpect(jsonPath("$.sentimentLabel").value("neutral"));
+    verify(store, never()).write(any(), any());
+
+    Files.delete(daily);
+    Files.delete(newsCache);
+    mvc.perform(get("/market/daily"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(content().string(containsString("alpha-vantage unavailable")));
+    mvc.perform(get("/market/sentiment"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(content().string(containsString("news-api unavailable")));
+  }
 
+  @Test
+  void sentiment_cacheHit_returnsCachedPayload_and_skipsAnalyze() throws Exception {
+    Path newsCache = tmp.resolve("data/news/amzn.json");
+    Files.createDirectories(newsCache.getParent());
     Map<String, Object> cached = Map.of(
         "company", "AMZN",
         "sentimentScore", 4,
         "sentimentLabel", "positive",
         "source", "news-placeholder"
     );
-    when(store.read(newsCache, Map.class)).thenReturn(cached);
+    Files.write(newsCache, new ObjectMapper().writeValueAsBytes(cached),
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    Files.setLastModifiedTime(newsCache, FileTime.from(Instant.now()));
+    when(store.newsPath("AMZN")).thenReturn(newsCache);
 
     mvc.perform(get("/market/sentiment"))
         .andExpect(status().isOk())
@@ -117,6 +190,7 @@ class CompositeControllerErrorPathsTest {
         .andExpect(jsonPath("$.source").value("news-placeholder"));
 
     verify(news, never()).analyzeSentiment(anyString());
+    verify(store, never()).read(any(), any());
     verify(store, never()).write(any(), any());
   }
 }
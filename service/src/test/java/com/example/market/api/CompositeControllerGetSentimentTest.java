@@ -9,8 +9,13 @@ import com.example.market.service.stock.StockDataService;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Files;
 import java.util.Map;
@@ -47,7 +52,7 @@ public class CompositeControllerGetSentimentTest {
         SentimentResult sr = new SentimentResult("AMZN", 5, "POSITIVE");
         when(news.analyzeSentiment("AMZN")).thenReturn(sr);
 
-        ResponseEntity<?> response = controller.getSentiment(null, false);
+        ResponseEntity<?> response = controller.getSentiment(null, false, new HttpHeaders());
 
         assertEquals(200, response.getStatusCode().value());
         verify(store).write(eq(fake), any());
@@ -57,19 +62,23 @@ public class CompositeControllerGetSentimentTest {
     void testCacheHitReturnsStoredValue() throws Exception {
         Path fake = Path.of("target", "test-cache", "fresh.json");
         Files.createDirectories(fake.getParent());
-        Files.writeString(fake, "{}");
+        Files.writeString(fake, "{\"cached\":true}");
 
         when(store.newsPath("AAPL")).thenReturn(fake);
 
-        Map<String,Object> cached = Map.of("cached", true);
-        when(store.read(fake, Map.class)).thenReturn(cached);
-
-        ResponseEntity<?> response = controller.getSentiment("AAPL", false);
+        ResponseEntity<?> response = controller.getSentiment("AAPL", false, new HttpHeaders());
 
         assertEquals(200, response.getStatusCode().value());
-        assertEquals(cached, response.getBody());
+        assertEquals(MediaType.APPLICATION_JSON,
+                response.getHeaders().getContentType());
+        assertEquals(15, response.getHeaders().getContentLength());
+        try (InputStream in = ((Resource) response.getBody()).getInputStream()) {
+            assertEquals("{\"cached\":true}",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
 
         verify(news, never()).analyzeSentiment(any());
+        verify(store, never()).read(any(), any());
         verify(store, never()).write(any(), any());
     }
 
@@ -82,7 +91,7 @@ public class CompositeControllerGetSentimentTest {
         SentimentResult sr = new SentimentResult("AAPL", 3, "NEUTRAL");
         when(news.analyzeSentiment("AAPL")).thenReturn(sr);
 
-        ResponseEntity<?> response = controller.getSentiment("AAPL", true);
+        ResponseEntity<?> response = controller.getSentiment("AAPL", true, new HttpHeaders());
 
         assertEquals(200, response.getStatusCode().value());
         verify(news).analyzeSentiment("AAPL");
@@ -97,7 +106,7 @@ public class CompositeControllerGetSentimentTest {
         SentimentResult sr = new SentimentResult("NFLX", 4, "POSITIVE");
         when(news.analyzeSentiment("NFLX")).thenReturn(sr);
 
-        ResponseEntity<?> response = controller.getSentiment("NFLX", false);
+        ResponseEntity<?> response = controller.getSentiment("NFLX", false, new HttpHeaders());
 
         assertEquals(200, response.getStatusCode().value());
         verify(store).write(eq(fake), any());
@@ -111,7 +120,7 @@ public class CompositeControllerGetSentimentTest {
         when(news.analyzeSentiment("TSLA"))
             .thenThrow(new RuntimeException("sentiment broken"));
 
-        ResponseEntity<?> response = controller.getSentiment("TSLA", false);
+        ResponseEntity<?> response = controller.getSentiment("TSLA", false, new HttpHeaders());
 
         assertEquals(502, response.getStatusCode().value());
         assertTrue(response.getBody().toString().contains("sentiment broken"));
@@ -5,6 +5,7 @@ import com.example.market.model.stock.StockDailySeries;
 import com.example.market.service.analysis.AdjustedPredictionService;
 import com.example.market.service.forecast.ForecastDataService;
 import com.example.market.service.news.NewsDataService;
+import com.example.market.service.news.SentimentHistoryService;
 import com.example.market.service.stock.JsonStore;
 import com.example.market.service.stock.StockDataService;
 import org.junit.jupiter.api.*;
@@ -42,6 +43,8 @@ class CompositeControllerHelperMethodsTest {
   @MockBean NewsDataService news;
   @MockBean AdjustedPredictionService adjustedPrediction;
   @MockBean JsonStore store;
+  @MockBean SentimentHistoryService sentimentHistory;
+  @MockBean BatchPredictionRunner batch;
 
   @TempDir Path tmp;
 
@@ -281,7 +284,7 @@ class CompositeControllerHelperMethodsTest {
   @Test
   void combinedPrediction_illegalArgumentException_returns502() throws Exception {
     when(store.dailyPath("AMZN")).thenReturn(tmp.resolve("data/stocks/amzn-daily.json"));
-    when(forecast.predictFuturePrices("AMZN", 10))
+    when(forecast.predictSeries(eq("AMZN"), eq(10), any()))
         .thenThrow(new IllegalArgumentException("Invalid symbol"));
 
     mvc.perform(get("/market/combined-prediction"))
@@ -292,7 +295,7 @@ class CompositeControllerHelperMethodsTest {
   @Test
   void combinedPrediction_exceptionWithNullMessage_handlesGracefully() throws Exception {
     when(store.dailyPath("AMZN")).thenReturn(tmp.resolve("data/stocks/amzn-daily.json"));
-    when(forecast.predictFuturePrices("AMZN", 10))
+    when(forecast.predictSeries(eq("AMZN"), eq(10), any()))
         .thenThrow(new RuntimeException((String) null));
 
     mvc.perform(get("/market/combined-prediction"))
@@ -323,7 +326,7 @@ class CompositeControllerHelperMethodsTest {
     StockDailySeries series = new StockDailySeries("AMZN", 
         Instant.now().toString(), "test", List.of());
     when(store.read(cache, StockDailySeries.class)).thenReturn(series);
-    when(forecast.predictFuturePrices("AMZN", 10))
+    when(forecast.predictSeries(eq("AMZN"), eq(10), any()))
         .thenThrow(new RuntimeException((String) null));
 
     mvc.perform(get("/market/predict"))
@@ -0,0 +1,70 @@
+package com.example.market.api;
+
+import com.example.market.service.analysis.AdjustedPredictionService;
+import com.example.market.service.forecast.ForecastDataService;
+import com.example.market.service.forecast.python.TrendMasterHealthIndicator;
+import com.example.market.service.news.NewsDataService;
+import com.example.market.service.news.SentimentHistoryService;
+import com.example.market.service.stock.JsonStore;
+import com.example.market.service.stock.StockDataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = CompositeController.class)
+class CompositeControllerReadinessTest {
+
+  @Autowired MockMvc mvc;
+
+  @MockBean StockDataService stocks;
+  @MockBean ForecastDataService forecast;
+  @MockBean NewsDataService news;
+  @MockBean AdjustedPredictionService adjustedPrediction;
+  @MockBean JsonStore store;
+  @MockBean SentimentHistoryService sentimentHistory;
+  @MockBean BatchPredictionRunner batch;
+  @MockBean TrendMasterHealthIndicator readiness;
+
+  @BeforeEach
+  void coldWorkers() {
+    when(readiness.isReady()).thenReturn(false);
+    when(readiness.reason()).thenReturn("TrendMaster workers are warming up");
+  }
+
+  @Test
+  void forecastEndpoints_refuseTrafficUntilWarm() throws Exception {
+    mvc.perform(get("/market/predict").param("symbol", "AMZN"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "30"))
+        .andExpect(jsonPath("$.error").value(
+            "TrendMaster workers are warming up"));
+    mvc.perform(get("/market/combined-prediction"))
+        .andExpect(status().isServiceUnavailable());
+    mvc.perform(post("/market/predict/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"symbols\":[\"AMZN\"]}"))
+        .andExpect(status().isServiceUnavailable());
+    mvc.perform(post("/market/combined-prediction/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"symbols\":[\"AMZN\"]}"))
+        .andExpect(status().isServiceUnavailable());
+
+    verifyNoInteractions(forecast, stocks, batch);
+  }
+
+  @Test
+  void otherEndpoints_areServed() throws Exception {
+    mvc.perform(get("/market/sentiment/history").param("symbol", "AMZN"))
+        .andExpect(status().isOk());
+  }
+}
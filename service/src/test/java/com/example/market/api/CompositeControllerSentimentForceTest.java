@@ -4,6 +4,7 @@ import com.example.market.model.news.SentimentResult;
 import com.example.market.service.analysis.AdjustedPredictionService;
 import com.example.market.service.forecast.ForecastDataService;
 import com.example.market.service.news.NewsDataService;
+import com.example.market.service.news.SentimentHistoryService;
 import com.example.market.service.stock.JsonStore;
 import com.example.market.service.stock.StockDataService;
 import org.junit.jupiter.api.Test;
@@ -34,6 +35,8 @@ class CompositeControllerSentimentForceTest {
   @MockBean NewsDataService news;
   @MockBean AdjustedPredictionService adjustedPrediction;
   @MockBean JsonStore store;
+  @MockBean SentimentHistoryService sentimentHistory;
+  @MockBean BatchPredictionRunner batch;
 
   @TempDir Path tmp;
 
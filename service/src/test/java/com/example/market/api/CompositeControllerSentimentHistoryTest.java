@@ -0,0 +1,174 @@
+package com.example.market.api;
+
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.news.SentimentAggregates;
+import com.example.market.model.news.SentimentObservation;
+import com.example.market.model.news.SentimentResult;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.analysis.AdjustedPredictionService;
+import com.example.market.service.forecast.ForecastDataService;
+import com.example.market.service.news.NewsDataService;
+import com.example.market.service.news.SentimentHistoryService;
+import com.example.market.service.stock.JsonStore;
+import com.example.market.service.stock.StockDataService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CompositeControllerSentimentHistoryTest {
+
+    private ForecastDataService forecast;
+    private NewsDataService news;
+    private AdjustedPredictionService adjustedPrediction;
+    private SentimentHistoryService history;
+
+    private CompositeController controller;
+
+    private final ForecastSeries prices =
+            ForecastSeries.fromMap(Map.of("2025-12-01", "100"));
+    private final SentimentResult latest =
+            new SentimentResult("AMZN", 5, "very positive");
+
+    @BeforeEach
+    void setup() throws Exception {
+        forecast = mock(ForecastDataService.class);
+        news = mock(NewsDataService.class);
+        adjustedPrediction = mock(AdjustedPredictionService.class);
+        history = mock(SentimentHistoryService.class);
+
+        StockDataService stocks = mock(StockDataService.class);
+        controller = new CompositeController(stocks,
+                forecast, news, adjustedPrediction, mock(JsonStore.class),
+                history, new BatchPredictionRunner());
+
+        // forecasts run on the daily series, fetched fresh as nothing is cached
+        System.setProperty("alphavantage.api.key", "test-key");
+        when(stocks.fetchDaily(anyString(), anyString())).thenAnswer(inv ->
+                new StockDailySeries(inv.getArgument(0), "2025-11-28",
+                        "test", List.of()));
+
+        when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenReturn(prices);
+        when(news.analyzeSentiment("AMZN")).thenReturn(latest);
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("alphavantage.api.key");
+    }
+
+    private static SentimentAggregates aggregates(final long count) {
+        return new SentimentAggregates("AMZN", count, null, 5,
+                new double[] {4.5, 3.8, 3.2});
+    }
+
+    @Test
+    void history_returnsAggregatesAndObservations() throws Exception {
+        SentimentObservation o = new SentimentObservation(
+                "AMZN", "2025-01-01T00:00:00Z", 4, "positive");
+        when(history.aggregates("AMZN")).thenReturn(aggregates(1));
+        when(history.recent("AMZN", 5)).thenReturn(List.of(o));
+
+        ResponseEntity<?> response = controller.getSentimentHistory(null, 5);
+
+        assertEquals(200, response.getStatusCode().value());
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        assertEquals("AMZN", body.get("symbol"));
+        assertEquals(List.of(o), body.get("observations"));
+    }
+
+    @Test
+    void history_badLimit_returns400() throws Exception {
+        when(history.aggregates("AMZN")).thenReturn(aggregates(0));
+        when(history.recent("AMZN", 0))
+                .thenThrow(new IllegalArgumentException("limit must be positive"));
+
+        ResponseEntity<?> response = controller.getSentimentHistory("AMZN", 0);
+
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    void history_readFailure_returns502() throws Exception {
+        when(history.aggregates("AMZN")).thenReturn(aggregates(0));
+        when(history.recent("AMZN", 10)).thenThrow(new IOException("disk"));
+
+        ResponseEntity<?> response = controller.getSentimentHistory("AMZN", 10);
+
+        assertEquals(502, response.getStatusCode().value());
+    }
+
+    @Test
+    void combined_withWindow_usesSmoothedScore() throws Exception {
+        ForecastSeries adjusted =
+                ForecastSeries.fromMap(Map.of("2025-12-01", "103"));
+        when(history.record("AMZN", latest)).thenReturn(aggregates(3));
+        when(adjustedPrediction.adjust(prices, 3.8)).thenReturn(adjusted);
+
+        ResponseEntity<?> response = controller.getCombinedPrediction(
+                "AMZN", 10, false, "7d", "columnar", null, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        Map<?, ?> sentiment = (Map<?, ?>) body.get("sentiment");
+        assertEquals("7d", sentiment.get("smoothing"));
+        assertEquals(3.8, sentiment.get("smoothedScore"));
+        assertEquals(adjusted, body.get("adjustedPredictions"));
+        verify(adjustedPrediction, never()).adjust(prices, 5.0);
+    }
+
+    @Test
+    void combined_withoutHistory_fallsBackToLatestReading() throws Exception {
+        when(history.record("AMZN", latest))
+                .thenThrow(new IOException("read-only disk"));
+        when(adjustedPrediction.adjust(prices, 5.0)).thenReturn(prices);
+
+        ResponseEntity<?> response = controller.getCombinedPrediction(
+                "AMZN", 10, false, "30d", "columnar", null, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        Map<?, ?> sentiment =
+                (Map<?, ?>) ((Map<?, ?>) response.getBody()).get("sentiment");
+        assertFalse(sentiment.containsKey("smoothing"));
+        verify(adjustedPrediction).adjust(prices, 5.0);
+        verify(adjustedPrediction, never()).adjust(any(), eq(3.2));
+    }
+
+    @Test
+    void combined_emptyAggregates_fallBackToLatestReading() throws Exception {
+        when(history.record("AMZN", latest)).thenReturn(aggregates(0));
+
+        controller.getCombinedPrediction("AMZN", 10, false, "1d", "columnar", null, null);
+
+        verify(adjustedPrediction).adjust(prices, 5.0);
+    }
+
+    @Test
+    void combined_unknownWindow_returns400() {
+        ResponseEntity<?> response = controller.getCombinedPrediction(
+                "AMZN", 10, false, "90d", "columnar", null, null);
+
+        assertEquals(400, response.getStatusCode().value());
+        verifyNoInteractions(forecast);
+    }
+
+    @Test
+    void sentiment_recordsFreshReading() throws Exception {
+        ResponseEntity<?> response = controller.getSentiment("AMZN", true, new HttpHeaders());
+
+        assertEquals(200, response.getStatusCode().value());
+        verify(history).record(eq("AMZN"), eq(latest));
+    }
+}
@@ -1,36 +1,55 @@
 package com.example.market.api;
 
+import com.example.market.model.forecast.ForecastSeries;
 import com.example.market.model.stock.StockBar;
 import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.PipelineMetrics;
 import com.example.market.service.analysis.AdjustedPredictionService;
 import com.example.market.service.forecast.ForecastDataService;
 import com.example.market.service.news.NewsDataService;
+import com.example.market.service.news.SentimentHistoryService;
 import com.example.market.service.stock.JsonStore;
 import com.example.market.service.stock.StockDataService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.nio.file.*;
 import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = CompositeController.class)
+@Import(BatchPredictionRunner.class)
 class CompositeControllerWebLayerTest {
 
   @Autowired MockMvc mvc;
@@ -41,6 +60,7 @@ class CompositeControllerWebLayerTest {
   @MockBean NewsDataService news;
   @MockBean AdjustedPredictionService adjustedPrediction;
   @MockBean JsonStore store;
+  @MockBean SentimentHistoryService sentimentHistory;
 
   @TempDir Path tmp;
 
@@ -91,27 +111,316 @@ class CompositeControllerWebLayerTest {
     // create a fresh cache file the controller's isFresh() will see
     Path cache = tmp.resolve("data/stocks/amzn-daily.json");
     Files.createDirectories(cache.getParent());
-    Files.writeString(cache, "{}",
+    byte[] cachedBytes = new ObjectMapper().writeValueAsBytes(sampleSeries());
+    Files.write(cache, cachedBytes,
         StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
     Files.setLastModifiedTime(cache, FileTime.from(Instant.now()));
 
     when(store.dailyPath("AMZN")).thenReturn(cache);
 
-    StockDailySeries cached = sampleSeries();
-    when(store.read(cache, StockDailySeries.class)).thenReturn(cached);
-
     // default force=false → cache-first path
     mvc.perform(get("/market/daily"))
         .andExpect(status().isOk())
         .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+        .andExpect(header().longValue("Content-Length", cachedBytes.length))
+        .andExpect(content().bytes(cachedBytes))
         .andExpect(jsonPath("$.symbol").value("AMZN"))
         .andExpect(jsonPath("$.source").value("mock-source"));
 
-    // ensure we never hit the provider because cache is fresh
+    // ensure we never hit the provider because cache is fresh, and the
+    // cached file is streamed rather than deserialized
     verify(stocks, never()).fetchDaily(anyString(), anyString());
+    verify(store, never()).read(any(), any());
     verify(store, never()).write(any(), any());
   }
 
+  @Test
+  void cacheLookupsAndStages_areTimedPerEndpoint() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Metrics.globalRegistry.add(registry);
+    try {
+      Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+      Files.createDirectories(cache.getParent());
+      Files.write(cache, new ObjectMapper().writeValueAsBytes(sampleSeries()));
+      when(store.dailyPath("AMZN")).thenReturn(cache);
+      Path missing = tmp.resolve("data/stocks/msft-daily.json");
+      when(store.dailyPath("MSFT")).thenReturn(missing);
+      when(stocks.fetchDaily(eq("MSFT"), anyString()))
+          .thenReturn(sampleSeries());
+      ForecastSeries prices =
+          ForecastSeries.fromMap(Map.of("2025-10-24", "100.00"));
+      when(forecast.predictSeries(eq("MSFT"), eq(10), any())).thenReturn(prices);
+      when(news.analyzeSentiment("MSFT")).thenReturn(
+          new com.example.market.model.news.SentimentResult("MSFT", 4,
+              "positive"));
+      when(adjustedPrediction.adjust(prices, 4.0)).thenReturn(prices);
+
+      mvc.perform(get("/market/daily")).andExpect(status().isOk());
+      mvc.perform(get("/market/predict").param("symbol", "MSFT"))
+          .andExpect(status().isOk());
+      mvc.perform(get("/market/combined-prediction").param("symbol", "MSFT"))
+          .andExpect(status().isOk());
+
+      assertEquals(1, registry.get(PipelineMetrics.CACHE_TIMER)
+          .tags("cache", "daily", "tier", "file", "endpoint", "/market/daily",
+              "outcome", "hit").timer().count());
+      assertEquals(1, registry.get(PipelineMetrics.CACHE_TIMER)
+          .tags("cache", "daily", "endpoint", "/market/predict",
+              "outcome", "miss").timer().count());
+      assertEquals(1, registry.get(PipelineMetrics.STAGE_TIMER)
+          .tags("stage", PipelineMetrics.SENTIMENT_ADJUSTMENT,
+              "endpoint", "/market/combined-prediction",
+              "outcome", "success").timer().count());
+      assertEquals(PipelineMetrics.NO_ENDPOINT, PipelineMetrics.endpoint());
+    } finally {
+      Metrics.globalRegistry.remove(registry);
+    }
+  }
+
+  @Test
+  void daily_cacheHit_sendsValidatorsAndRemainingMaxAge() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    Files.createDirectories(cache.getParent());
+    Files.write(cache, new ObjectMapper().writeValueAsBytes(sampleSeries()));
+    Files.setLastModifiedTime(cache,
+        FileTime.from(Instant.now().minus(Duration.ofMinutes(10))));
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+
+    mvc.perform(get("/market/daily"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", matchesPattern("\"[0-9a-f]+-[0-9a-f]+\"")))
+        .andExpect(header().exists("Last-Modified"))
+        // one-day TTL, written 10 minutes ago
+        .andExpect(header().string("Cache-Control", matchesPattern("max-age=85[78][0-9]{2}")));
+  }
+
+  @Test
+  void daily_ifNoneMatch_current_returns304WithoutBody() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    Files.createDirectories(cache.getParent());
+    Files.write(cache, new ObjectMapper().writeValueAsBytes(sampleSeries()));
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+
+    String etag = mvc.perform(get("/market/daily"))
+        .andReturn().getResponse().getHeader("ETag");
+
+    mvc.perform(get("/market/daily").header("If-None-Match", etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", etag))
+        .andExpect(header().string("Cache-Control", org.hamcrest.Matchers.startsWith("max-age=")))
+        .andExpect(content().bytes(new byte[0]));
+
+    mvc.perform(get("/market/daily").header("If-None-Match", "\"stale\""))
+        .andExpect(status().isOk());
+
+    verify(stocks, never()).fetchDaily(anyString(), anyString());
+    verify(store, never()).read(any(), any());
+  }
+
+  @Test
+  void daily_staleCache_ignoresValidatorsAndRefetches() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    Files.createDirectories(cache.getParent());
+    Files.writeString(cache, "{}");
+    Files.setLastModifiedTime(cache,
+        FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+    when(stocks.fetchDaily(eq("AMZN"), anyString())).thenReturn(sampleSeries());
+
+    mvc.perform(get("/market/daily").header("If-None-Match", "*"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.symbol").value("AMZN"));
+
+    verify(stocks).fetchDaily(eq("AMZN"), anyString());
+  }
+
+  @Test
+  void sentiment_ifModifiedSince_notOlderThanCache_returns304() throws Exception {
+    Path newsCache = tmp.resolve("data/news/amzn.json");
+    Files.createDirectories(newsCache.getParent());
+    Files.writeString(newsCache, "{\"company\":\"AMZN\"}");
+    Instant written = Instant.now().minusSeconds(30);
+    Files.setLastModifiedTime(newsCache, FileTime.from(written));
+    when(store.newsPath("AMZN")).thenReturn(newsCache);
+
+    mvc.perform(get("/market/sentiment").header("If-Modified-Since",
+            DateTimeFormatter.RFC_1123_DATE_TIME.format(written.atZone(ZoneOffset.UTC))))
+        .andExpect(status().isNotModified());
+
+    mvc.perform(get("/market/sentiment").header("If-Modified-Since",
+            DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                written.minusSeconds(3600).atZone(ZoneOffset.UTC))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.company").value("AMZN"));
+
+    verify(news, never()).analyzeSentiment(anyString());
+  }
+
+  @Test
+  void sentiment_force_ignoresConditionalHeaders() throws Exception {
+    Path newsCache = tmp.resolve("data/news/amzn.json");
+    Files.createDirectories(newsCache.getParent());
+    Files.writeString(newsCache, "{\"company\":\"AMZN\"}");
+    when(store.newsPath("AMZN")).thenReturn(newsCache);
+    when(news.analyzeSentiment("AMZN")).thenReturn(
+        new com.example.market.model.news.SentimentResult("AMZN", 2, "negative"));
+
+    mvc.perform(get("/market/sentiment").param("force", "true")
+            .header("If-None-Match", "*"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.sentimentLabel").value("negative"));
+  }
+
+  @Test
+  void daily_projection_fromFreshCache_hasOwnEtagAnd304() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    Files.createDirectories(cache.getParent());
+    Files.write(cache, new ObjectMapper().writeValueAsBytes(sampleSeries()));
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+
+    String full = mvc.perform(get("/market/daily"))
+        .andReturn().getResponse().getHeader("ETag");
+    String projected = mvc.perform(get("/market/daily")
+            .param("fields", "close").param("shape", "columnar"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+        .andExpect(jsonPath("$.timestamp[0]").value("2025-10-22"))
+        .andExpect(jsonPath("$.close[0]").value(105.0))
+        .andExpect(jsonPath("$.open").doesNotExist())
+        .andExpect(jsonPath("$.source").doesNotExist())
+        .andReturn().getResponse().getHeader("ETag");
+
+    assertNotEquals(full, projected);
+    mvc.perform(get("/market/daily").param("fields", "close")
+            .param("shape", "columnar").header("If-None-Match", projected))
+        .andExpect(status().isNotModified());
+    mvc.perform(get("/market/daily").param("fields", "close")
+            .header("If-None-Match", projected))
+        .andExpect(status().isOk());
+
+    verify(stocks, never()).fetchDaily(anyString(), anyString());
+    verify(store, never()).read(any(), any());
+  }
+
+  @Test
+  void daily_projection_onCacheMiss_projectsFetchedSeries() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+    when(stocks.fetchDaily(eq("AMZN"), anyString())).thenReturn(sampleSeries());
+
+    mvc.perform(get("/market/daily").param("last", "1").param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.bars.length()").value(1))
+        .andExpect(jsonPath("$.bars[0].volume").value(123456))
+        .andExpect(jsonPath("$.nextCursor").doesNotExist())
+        .andExpect(header().doesNotExist("ETag"));
+  }
+
+  @Test
+  void daily_invalidProjection_returns400BeforeTouchingStore() throws Exception {
+    mvc.perform(get("/market/daily").param("fields", "price"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string(containsString("price")));
+    mvc.perform(get("/market/daily").param("last", "3").param("cursor", "MjAyNQ"))
+        .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(store, stocks);
+  }
+
+  @Test
+  void daily_cacheHit_acceptSmile_transcodesWithSameShape() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    Files.createDirectories(cache.getParent());
+    byte[] json = new ObjectMapper().writeValueAsBytes(sampleSeries());
+    Files.write(cache, json);
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+
+    MvcResult smile = mvc.perform(get("/market/daily")
+            .accept("application/x-jackson-smile"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-jackson-smile"))
+        .andExpect(header().string("Vary", containsString("Accept")))
+        .andReturn();
+    String jsonEtag = mvc.perform(get("/market/daily"))
+        .andReturn().getResponse().getHeader("ETag");
+
+    byte[] body = smile.getResponse().getContentAsByteArray();
+    StockDailySeries decoded = new SmileMapper().readValue(body, StockDailySeries.class);
+    assertEquals(sampleSeries().getBars(), decoded.getBars()); // exact decimals, scale included
+    assertEquals(decimalTree(new ObjectMapper(), json), decimalTree(new SmileMapper(), body));
+    String smileEtag = smile.getResponse().getHeader("ETag");
+    assertNotEquals(jsonEtag, smileEtag);
+    mvc.perform(get("/market/daily").accept("application/x-jackson-smile")
+            .header("If-None-Match", smileEtag))
+        .andExpect(status().isNotModified());
+  }
+
+  @Test
+  void daily_projection_acceptCbor_transcodesProjection() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    Files.createDirectories(cache.getParent());
+    Files.write(cache, new ObjectMapper().writeValueAsBytes(sampleSeries()));
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+
+    byte[] body = mvc.perform(get("/market/daily").accept("application/cbor")
+            .param("fields", "close").param("shape", "columnar"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/cbor"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    JsonNode tree = new CBORMapper().readTree(body);
+    assertEquals("2025-10-22", tree.at("/timestamp/0").asText());
+    assertEquals(105.0, tree.at("/close/0").asDouble(), 1e-9);
+  }
+
+  @Test
+  void daily_cacheMiss_acceptCbor_usesRegisteredConverter() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+    StockDailySeries fresh = sampleSeries();
+    when(stocks.fetchDaily(eq("AMZN"), anyString())).thenReturn(fresh);
+
+    byte[] body = mvc.perform(get("/market/daily").accept("application/cbor"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/cbor"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    assertEquals(decimalTree(new ObjectMapper(), mapper.writeValueAsBytes(fresh)),
+        decimalTree(new CBORMapper(), body));
+
+    byte[] page = mvc.perform(get("/market/daily").accept("application/cbor")
+            .param("last", "1").param("force", "true"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/cbor"))
+        .andReturn().getResponse().getContentAsByteArray();
+    assertEquals(123456, new CBORMapper().readTree(page).at("/bars/0/volume").asLong());
+  }
+
+  @Test
+  void predict_acceptSmile_encodesSameShapeAsJson() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+    when(stocks.fetchDaily(eq("AMZN"), anyString())).thenReturn(
+        new StockDailySeries("AMZN", "2025-10-22T00:00:00Z", "s", List.of()));
+    when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenReturn(
+        ForecastSeries.fromMap(Map.of("2025-10-24", "106.5")));
+
+    byte[] json = mvc.perform(get("/market/predict").param("force", "true"))
+        .andReturn().getResponse().getContentAsByteArray();
+    byte[] smile = mvc.perform(get("/market/predict").param("force", "true")
+            .accept("application/x-jackson-smile"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-jackson-smile"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    assertEquals(decimalTree(new ObjectMapper(), json), decimalTree(new SmileMapper(), smile));
+  }
+
+  /** Tree with every number as a decimal, so encodings compare by value. */
+  private static JsonNode decimalTree(ObjectMapper m, byte[] body) throws Exception {
+    return m.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS).readTree(body);
+  }
+
   @Test
   void sentiment_cacheMiss_writesAndReturnsPayload_then200() throws Exception {
     Path newsCache = tmp.resolve("data/news/amzn.json");
@@ -142,18 +451,187 @@ class CompositeControllerWebLayerTest {
         "mock-source", List.of());
     when(stocks.fetchDaily(eq("AMZN"), anyString())).thenReturn(fresh);
 
-    Map<String, String> forecastMap = Map.of("2025-10-24", "106.50");
-    when(forecast.predictFuturePrices("AMZN", 10)).thenReturn(forecastMap);
+    ForecastSeries forecastSeries = ForecastSeries.fromMap(
+        Map.of("2025-10-24", "106.50", "2025-10-23", "105.25"))
+        .withModel("trendmaster", Double.NaN);
+    when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenReturn(forecastSeries);
 
     mvc.perform(get("/market/predict").param("force", "true"))
         .andExpect(status().isOk())
         .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
         .andExpect(jsonPath("$.symbol").value("AMZN"))
         .andExpect(jsonPath("$.horizon").value(10))
-        .andExpect(jsonPath("$.prediction.2025-10-24").value("106.50"))
+        .andExpect(jsonPath("$.prediction.model").value("trendmaster"))
+        .andExpect(jsonPath("$.prediction.dates[0]").value("2025-10-23"))
+        .andExpect(jsonPath("$.prediction.values[1]").value(106.5))
         .andExpect(jsonPath("$.source").value("mock-source"));
 
     verify(store).write(eq(cache), eq(fresh));
-    verify(forecast).predictFuturePrices("AMZN", 10);
+    // the series goes to the batcher, which routes it to AMZN's worker
+    verify(forecast).predictSeries(eq("AMZN"), eq(10), same(fresh));
+  }
+
+  @Test
+  void predict_mapShape_returnsDateToPriceObject() throws Exception {
+    Path cache = tmp.resolve("data/stocks/amzn-daily.json");
+    when(store.dailyPath("AMZN")).thenReturn(cache);
+    when(stocks.fetchDaily(eq("AMZN"), anyString())).thenReturn(
+        new StockDailySeries("AMZN", Instant.now().toString(), "s", List.of()));
+    when(forecast.predictSeries(eq("AMZN"), eq(10), any())).thenReturn(
+        ForecastSeries.fromMap(Map.of("2025-10-24", "106.5")));
+
+    mvc.perform(get("/market/predict").param("force", "true")
+            .param("shape", "map"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.prediction.2025-10-24").value("106.50"));
+  }
+
+  @Test
+  void predict_unknownShape_returns400() throws Exception {
+    mvc.perform(get("/market/predict").param("shape", "pairs"))
+        .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(forecast);
+  }
+
+  @Test
+  void predictBatch_streamsOneLinePerSymbol_cachedFirst_errorsInline()
+      throws Exception {
+    Path amznDaily = cacheFile("data/stocks/amzn-daily.json");
+    Path amznForecast = cacheFile("data/forecasts/AMZN-5d.json");
+    when(store.dailyPath("AMZN")).thenReturn(amznDaily);
+    when(store.forecastPath("AMZN", 5)).thenReturn(amznForecast);
+    StockDailySeries cached = new StockDailySeries("AMZN", "t", "cached", List.of());
+    when(store.read(amznDaily, StockDailySeries.class)).thenReturn(cached);
+    when(store.read(amznForecast, ForecastSeries.class)).thenReturn(
+        ForecastSeries.fromMap(Map.of("2025-10-24", "1.50")));
+
+    Path msftForecast = tmp.resolve("data/forecasts/MSFT-5d.json");
+    when(store.dailyPath("MSFT")).thenReturn(tmp.resolve("data/stocks/msft-daily.json"));
+    when(store.forecastPath("MSFT", 5)).thenReturn(msftForecast);
+    StockDailySeries msft = new StockDailySeries("MSFT", "t", "fetched", List.of());
+    when(stocks.fetchDaily(eq("MSFT"), anyString())).thenReturn(msft);
+    ForecastSeries msftPrediction = ForecastSeries.fromMap(Map.of("2025-10-24", "2.25"));
+    when(forecast.predictSeries("MSFT", 5, msft)).thenReturn(msftPrediction);
+
+    when(store.dailyPath("BAD")).thenReturn(tmp.resolve("data/stocks/bad-daily.json"));
+    when(store.forecastPath("BAD", 5)).thenReturn(tmp.resolve("data/forecasts/BAD-5d.json"));
+    when(stocks.fetchDaily(eq("BAD"), anyString()))
+        .thenThrow(new IllegalStateException("unknown symbol BAD"));
+
+    List<JsonNode> lines = batchLines("/market/predict/batch",
+        "{\"symbols\":[\"msft\",\"bad\",\"AMZN\"],\"horizon\":5}");
+
+    assertEquals(3, lines.size());
+    Map<String, JsonNode> bySymbol = new java.util.HashMap<>();
+    lines.forEach(l -> bySymbol.put(l.get("symbol").asText(), l));
+    assertEquals("ok", bySymbol.get("AMZN").get("status").asText());
+    assertEquals("cached", bySymbol.get("AMZN").at("/result/source").asText());
+    assertEquals(1.5, bySymbol.get("AMZN").at("/result/prediction/values/0").asDouble());
+    assertEquals(2.25, bySymbol.get("MSFT").at("/result/prediction/values/0").asDouble());
+    assertEquals(5, bySymbol.get("MSFT").at("/result/horizon").asInt());
+    assertEquals("error", bySymbol.get("BAD").get("status").asText());
+    assertEquals("unknown symbol BAD", bySymbol.get("BAD").get("error").asText());
+
+    verify(store).write(msftForecast, msftPrediction);
+    verify(forecast, never()).predictSeries(eq("AMZN"), anyInt(), any());
+  }
+
+  @Test
+  void predictBatch_emptyForecast_isAnInlineError() throws Exception {
+    when(store.dailyPath("X")).thenReturn(tmp.resolve("data/stocks/x-daily.json"));
+    when(store.forecastPath("X", 10)).thenReturn(tmp.resolve("data/forecasts/X-10d.json"));
+    StockDailySeries x = new StockDailySeries("X", "t", "s", List.of());
+    when(stocks.fetchDaily(eq("X"), anyString())).thenReturn(x);
+    when(forecast.predictSeries("X", 10, x)).thenReturn(ForecastSeries.empty());
+
+    List<JsonNode> lines = batchLines("/market/predict/batch",
+        "{\"symbols\":[\"X\"],\"force\":true,\"shape\":\"map\"}");
+
+    assertEquals("Forecast service returned empty predictions",
+        lines.get(0).get("error").asText());
+  }
+
+  @Test
+  void combinedBatch_adjustsEachSymbolWithItsSentiment() throws Exception {
+    when(store.dailyPath("AMZN")).thenReturn(tmp.resolve("data/stocks/amzn-daily.json"));
+    when(store.forecastPath("AMZN", 10)).thenReturn(tmp.resolve("data/forecasts/AMZN-10d.json"));
+    StockDailySeries daily = new StockDailySeries("AMZN", "t", "s", List.of());
+    when(stocks.fetchDaily(eq("AMZN"), anyString())).thenReturn(daily);
+    ForecastSeries prices = ForecastSeries.fromMap(Map.of("2025-10-24", "100.00"));
+    when(forecast.predictSeries("AMZN", 10, daily)).thenReturn(prices);
+    when(news.analyzeSentiment("AMZN")).thenReturn(
+        new com.example.market.model.news.SentimentResult("AMZN", 2, "positive"));
+    when(adjustedPrediction.adjust(prices, 2.0)).thenReturn(
+        ForecastSeries.fromMap(Map.of("2025-10-24", "101.00")));
+    when(store.dailyPath("NONE")).thenReturn(tmp.resolve("data/stocks/none-daily.json"));
+    when(store.forecastPath("NONE", 10)).thenReturn(tmp.resolve("data/forecasts/NONE-10d.json"));
+    StockDailySeries none = new StockDailySeries("NONE", "t", "s", List.of());
+    when(stocks.fetchDaily(eq("NONE"), anyString())).thenReturn(none);
+    when(forecast.predictSeries("NONE", 10, none)).thenReturn(prices);
+
+    List<JsonNode> lines = batchLines("/market/combined-prediction/batch",
+        "{\"symbols\":[\"AMZN\",\"NONE\"],\"shape\":\"map\"}");
+
+    assertEquals(2, lines.size());
+    for (JsonNode line : lines) {
+      if (line.get("symbol").asText().equals("AMZN")) {
+        assertEquals("positive", line.at("/result/sentiment/label").asText());
+        assertEquals("101.00",
+            line.at("/result/adjustedPredictions/2025-10-24").asText());
+      } else {
+        assertEquals("Sentiment service returned null result",
+            line.get("error").asText());
+      }
+    }
+  }
+
+  @Test
+  void batch_invalidRequests_return400WithoutWork() throws Exception {
+    for (String body : List.of("{\"symbols\":[]}",
+        "{\"symbols\":[\"A\"],\"horizon\":0}",
+        "{\"symbols\":[\"A\"],\"shape\":\"pairs\"}")) {
+      for (String path : List.of("/market/predict/batch",
+          "/market/combined-prediction/batch")) {
+        MvcResult started = mvc.perform(post(path)
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+            .andReturn();
+        mvc.perform(asyncDispatch(started))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").isNotEmpty());
+      }
+    }
+    MvcResult smoothing = mvc.perform(post("/market/combined-prediction/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"symbols\":[\"A\"],\"smoothing\":\"2d\"}"))
+        .andReturn();
+    mvc.perform(asyncDispatch(smoothing))
+        .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(forecast, stocks);
+  }
+
+  private Path cacheFile(String relative) throws Exception {
+    Path file = tmp.resolve(relative);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, "{}");
+    return file;
+  }
+
+  private List<JsonNode> batchLines(String path, String body) throws Exception {
+    MvcResult started = mvc.perform(post(path)
+            .contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    started.getAsyncResult(10_000);
+    String text = mvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+        .andReturn().getResponse().getContentAsString();
+    List<JsonNode> lines = new java.util.ArrayList<>();
+    for (String line : text.split("\n")) {
+      lines.add(mapper.readTree(line));
+    }
+    return lines;
   }
 }
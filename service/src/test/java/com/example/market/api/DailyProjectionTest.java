@@ -0,0 +1,216 @@
+package com.example.market.api;
+
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyProjectionTest {
+
+  private static final ObjectMapper M = new ObjectMapper();
+
+  private static StockDailySeries series(int bars) {
+    List<StockBar> out = new ArrayList<>();
+    for (int i = 1; i <= bars; i++) {
+      String day = String.format("2025-10-%02d", i);
+      out.add(new StockBar(day, new BigDecimal("10" + i + ".00"),
+          new BigDecimal("11" + i + ".50"), new BigDecimal("9" + i + ".25"),
+          new BigDecimal("10" + i + ".10"), 1000L + i));
+    }
+    return new StockDailySeries("AMZN", "2025-10-06T00:00:00Z",
+        "alphavantage: TIME_SERIES_DAILY, url=https://example", out);
+  }
+
+  private static JsonNode project(DailyProjection p, StockDailySeries s)
+      throws IOException {
+    return M.readTree(p.apply(s));
+  }
+
+  @Test
+  void noOptions_isIdentity() {
+    assertTrue(DailyProjection.of(null, null, null, null, null).isIdentity());
+    assertTrue(DailyProjection.of(null, null, null, null, "rows").isIdentity());
+    assertFalse(DailyProjection.of("close", null, null, null, null).isIdentity());
+    assertFalse(DailyProjection.of(null, null, null, null, "columnar").isIdentity());
+  }
+
+  @Test
+  void fields_keepTimestampAndSelected_dropSource() throws Exception {
+    JsonNode out = project(DailyProjection.of("close, VOLUME", null, null, null, null),
+        series(2));
+
+    assertEquals("AMZN", out.get("symbol").asText());
+    assertEquals("2025-10-06T00:00:00Z", out.get("asOfIso").asText());
+    assertFalse(out.has("source"));
+    assertFalse(out.has("nextCursor"));
+    JsonNode bar = out.get("bars").get(1);
+    assertEquals(List.of("timestamp", "close", "volume"), names(bar));
+    assertEquals("2025-10-02", bar.get("timestamp").asText());
+    assertEquals(1002L, bar.get("volume").asLong());
+  }
+
+  @Test
+  void numbers_keepTheirExactDecimalText() throws Exception {
+    byte[] out = DailyProjection.of("close", null, null, null, null).apply(series(1));
+
+    assertTrue(new String(out, StandardCharsets.UTF_8).contains("\"close\":101.10"));
+  }
+
+  @Test
+  void last_returnsTrailingBars() throws Exception {
+    JsonNode bars = project(DailyProjection.of(null, 2, null, null, null), series(5))
+        .get("bars");
+
+    assertEquals(2, bars.size());
+    assertEquals("2025-10-04", bars.get(0).get("timestamp").asText());
+    assertEquals("2025-10-05", bars.get(1).get("timestamp").asText());
+    assertEquals(6, bars.get(0).size());
+  }
+
+  @Test
+  void last_largerThanSeries_returnsAll() throws Exception {
+    assertEquals(3, project(DailyProjection.of(null, 50, null, null, null), series(3))
+        .get("bars").size());
+  }
+
+  @Test
+  void limitAndCursor_walkAllPagesWithoutGapsOrRepeats() throws Exception {
+    StockDailySeries s = series(5);
+    List<String> seen = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      JsonNode page = project(DailyProjection.of("close", null, cursor, 2, null), s);
+      page.get("bars").forEach(b -> seen.add(b.get("timestamp").asText()));
+      cursor = page.has("nextCursor") ? page.get("nextCursor").asText() : null;
+      pages++;
+    } while (cursor != null);
+
+    assertEquals(3, pages);
+    assertEquals(List.of("2025-10-01", "2025-10-02", "2025-10-03",
+        "2025-10-04", "2025-10-05"), seen);
+  }
+
+  @Test
+  void lastWithLimit_pagesThroughTheTrailingWindow() throws Exception {
+    StockDailySeries s = series(5);
+    JsonNode first = project(DailyProjection.of(null, 3, null, 2, null), s);
+    assertEquals("2025-10-03", first.get("bars").get(0).get("timestamp").asText());
+    assertEquals(2, first.get("bars").size());
+
+    JsonNode second = project(DailyProjection.of(null, null,
+        first.get("nextCursor").asText(), 2, null), s);
+    assertEquals(1, second.get("bars").size());
+    assertEquals("2025-10-05", second.get("bars").get(0).get("timestamp").asText());
+    assertFalse(second.has("nextCursor"));
+  }
+
+  @Test
+  void columnar_emitsOneArrayPerField() throws Exception {
+    JsonNode out = project(DailyProjection.of("close", 2, null, null, "COLUMNAR"),
+        series(3));
+
+    assertFalse(out.has("bars"));
+    assertEquals("2025-10-02", out.get("timestamp").get(0).asText());
+    assertEquals(2, out.get("close").size());
+    assertEquals(103.10, out.get("close").get(1).asDouble(), 1e-9);
+    assertFalse(out.has("open"));
+  }
+
+  @Test
+  void columnar_isSmallerThanRows() throws Exception {
+    StockDailySeries s = series(30);
+    int full = M.writeValueAsBytes(s).length;
+    int rows = DailyProjection.of(null, null, null, null, "rows").apply(s).length;
+    int cols = DailyProjection.of(null, null, null, null, "columnar").apply(s).length;
+
+    assertTrue(cols < rows, cols + " vs " + rows);
+    assertTrue(rows < full, rows + " vs " + full);
+  }
+
+  @Test
+  void stringValues_andUnknownBarFields_arePreservedOrSkipped() throws Exception {
+    byte[] json = ("{\"bars\":[{\"extra\":{\"x\":[1]},\"timestamp\":\"2025-10-01\","
+        + "\"close\":\"7.5\"}],\"symbol\":\"X\",\"source\":\"s\"}")
+        .getBytes(StandardCharsets.UTF_8);
+    JsonNode out = M.readTree(DailyProjection.of("close,open", null, null, null, null)
+        .apply(json));
+
+    JsonNode bar = out.get("bars").get(0);
+    assertEquals("7.5", bar.get("close").textValue());
+    assertTrue(bar.get("open").isNull());
+    assertFalse(bar.has("extra"));
+    assertEquals("X", out.get("symbol").asText());
+    assertFalse(out.has("source"));
+  }
+
+  @Test
+  void seriesWithoutBars_projectsToEmptyPage() throws Exception {
+    byte[] json = "{\"symbol\":\"X\"}".getBytes(StandardCharsets.UTF_8);
+    JsonNode out = M.readTree(DailyProjection.of(null, 3, null, null, null).apply(json));
+
+    assertEquals("X", out.get("symbol").asText());
+    assertFalse(out.has("bars"));
+  }
+
+  @Test
+  void malformedSeries_throwsIOException() {
+    DailyProjection p = DailyProjection.of("close", null, null, null, null);
+    assertThrows(IOException.class,
+        () -> p.apply("[]".getBytes(StandardCharsets.UTF_8)));
+    assertThrows(IOException.class,
+        () -> p.apply("{\"bars\":{}}".getBytes(StandardCharsets.UTF_8)));
+    assertThrows(IOException.class,
+        () -> p.apply("{\"bars\":[{\"close\":1}]}".getBytes(StandardCharsets.UTF_8)));
+    DailyProjection last = DailyProjection.of(null, 1, null, null, null);
+    assertThrows(IOException.class,
+        () -> last.apply("{\"bars\":1}".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void invalidOptions_throwIllegalArgument() {
+    assertThrows(IllegalArgumentException.class,
+        () -> DailyProjection.of("close,price", null, null, null, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> DailyProjection.of(null, 0, null, null, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> DailyProjection.of(null, null, null, -1, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> DailyProjection.of(null, 5, "MjAyNQ", null, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> DailyProjection.of(null, null, "not base64!", null, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> DailyProjection.of(null, null, "", null, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> DailyProjection.of(null, null, null, null, "map"));
+  }
+
+  @Test
+  void variant_isDistinctPerOutputAndEtagSafe() {
+    String a = DailyProjection.of("close", 5, null, null, null).variant();
+    String b = DailyProjection.of("close", 6, null, null, null).variant();
+    String c = DailyProjection.of("close", 5, null, null, "columnar").variant();
+    String d = DailyProjection.of(" CLOSE,,timestamp", 5, null, null, "rows").variant();
+
+    assertNotEquals(a, b);
+    assertNotEquals(a, c);
+    assertEquals(a, d);
+    assertFalse(DailyProjection.of(null, null, "MjAyNS0xMC0wMQ", 2, null)
+        .variant().contains("\""));
+  }
+
+  private static List<String> names(JsonNode node) {
+    List<String> out = new ArrayList<>();
+    node.fieldNames().forEachRemaining(out::add);
+    return out;
+  }
+}
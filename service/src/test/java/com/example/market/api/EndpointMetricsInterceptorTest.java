@@ -0,0 +1,60 @@
+package com.example.market.api;
+
+import com.example.market.service.PipelineMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointMetricsInterceptorTest {
+
+  private final EndpointMetricsInterceptor interceptor =
+      new EndpointMetricsInterceptor();
+
+  private static MockHttpServletRequest request(String pattern) {
+    MockHttpServletRequest request =
+        new MockHttpServletRequest("GET", "/market/predict");
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+        pattern);
+    return request;
+  }
+
+  @Test
+  void matchedPattern_isBoundUntilTheRequestCompletes() {
+    MockHttpServletRequest request = request("/market/predict");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+    assertEquals("/market/predict", PipelineMetrics.endpoint());
+
+    interceptor.afterCompletion(request, response, new Object(), null);
+    assertEquals(PipelineMetrics.NO_ENDPOINT, PipelineMetrics.endpoint());
+    // a second callback finds nothing left to unbind
+    interceptor.afterCompletion(request, response, new Object(), null);
+    assertEquals(PipelineMetrics.NO_ENDPOINT, PipelineMetrics.endpoint());
+  }
+
+  @Test
+  void streamingHandlers_releaseTheThreadWhenTheyReturn() {
+    MockHttpServletRequest request = request("/market/predict/batch");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    interceptor.preHandle(request, response, new Object());
+    interceptor.afterConcurrentHandlingStarted(request, response,
+        new Object());
+
+    assertEquals(PipelineMetrics.NO_ENDPOINT, PipelineMetrics.endpoint());
+  }
+
+  @Test
+  void unmatchedRequests_areLeftUntagged() {
+    MockHttpServletRequest request =
+        new MockHttpServletRequest("GET", "/market/nothing");
+
+    assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(),
+        new Object()));
+    assertEquals(PipelineMetrics.NO_ENDPOINT, PipelineMetrics.endpoint());
+  }
+}
@@ -0,0 +1,57 @@
+package com.example.market.api;
+
+import com.example.market.service.forecast.python.TrendMasterHealthIndicator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ForecastReadinessInterceptorTest {
+
+  @SuppressWarnings("unchecked")
+  private static ForecastReadinessInterceptor interceptor(
+      TrendMasterHealthIndicator readiness) {
+    ObjectProvider<TrendMasterHealthIndicator> provider =
+        mock(ObjectProvider.class);
+    when(provider.getIfAvailable()).thenReturn(readiness);
+    return new ForecastReadinessInterceptor(provider);
+  }
+
+  @Test
+  void coldWorkers_get503WithRetryAfter() throws Exception {
+    TrendMasterHealthIndicator readiness =
+        mock(TrendMasterHealthIndicator.class);
+    when(readiness.isReady()).thenReturn(false);
+    when(readiness.reason()).thenReturn("Missing \"torch\"");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertFalse(interceptor(readiness).preHandle(
+        new MockHttpServletRequest("GET", "/market/predict"), response,
+        new Object()));
+
+    assertEquals(503, response.getStatus());
+    assertEquals("30", response.getHeader("Retry-After"));
+    assertEquals("application/json", response.getContentType()
+        .split(";")[0]);
+    assertEquals("{\"error\":\"Missing \\\"torch\\\"\"}",
+        response.getContentAsString());
+  }
+
+  @Test
+  void warmOrAbsentWorkers_letRequestsThrough() throws Exception {
+    TrendMasterHealthIndicator readiness =
+        mock(TrendMasterHealthIndicator.class);
+    when(readiness.isReady()).thenReturn(true);
+    MockHttpServletRequest request =
+        new MockHttpServletRequest("GET", "/market/predict");
+
+    assertTrue(interceptor(readiness).preHandle(request,
+        new MockHttpServletResponse(), new Object()));
+    assertTrue(interceptor(null).preHandle(request,
+        new MockHttpServletResponse(), new Object()));
+  }
+}
@@ -0,0 +1,140 @@
+package com.example.market.api;
+
+import com.example.market.service.demand.SymbolDemand;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InteractiveTrafficTest {
+
+  private final SymbolDemand demand = new SymbolDemand(1024, 4, 16, 0);
+  private final InteractiveTraffic traffic = traffic(demand);
+
+  @SuppressWarnings("unchecked")
+  static InteractiveTraffic traffic(SymbolDemand demand) {
+    ObjectProvider<SymbolDemand> provider = mock(ObjectProvider.class);
+    when(provider.getIfAvailable()).thenReturn(demand);
+    return new InteractiveTraffic(provider);
+  }
+
+  private static MockHttpServletRequest request(String pattern,
+                                                String symbol) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET",
+        pattern);
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+        pattern);
+    if (symbol != null) {
+      request.setParameter("symbol", symbol);
+    }
+    return request;
+  }
+
+  @Test
+  void requests_areInFlightUntilTheyComplete() {
+    MockHttpServletRequest request = request("/market/predict", "aapl");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertTrue(traffic.preHandle(request, response, new Object()));
+    assertEquals(1, traffic.inFlight());
+
+    traffic.afterCompletion(request, response, new Object(), null);
+    assertEquals(0, traffic.inFlight());
+    // a second callback finds nothing left to count down
+    traffic.afterCompletion(request, response, new Object(), null);
+    assertEquals(0, traffic.inFlight());
+  }
+
+  @Test
+  void streamedResponses_stayInFlightUntilTheAsyncDispatchCompletes() {
+    MockHttpServletRequest request = request("/market/daily", "AAPL");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    traffic.preHandle(request, response, new Object());
+    request.setAsyncStarted(true);
+    traffic.afterCompletion(request, response, new Object(), null);
+    assertEquals(1, traffic.inFlight());
+
+    request.setAsyncStarted(false);
+    request.setDispatcherType(DispatcherType.ASYNC);
+    traffic.preHandle(request, response, new Object());
+    assertEquals(1, traffic.inFlight());
+    traffic.afterCompletion(request, response, new Object(), null);
+
+    assertEquals(0, traffic.inFlight());
+    assertEquals(1, demand.estimate("AAPL"), "counted once");
+  }
+
+  @Test
+  void symbols_areCountedOnTheDemandEndpointsOnly() {
+    for (String pattern : InteractiveTraffic.DEMAND_PATHS) {
+      traffic.preHandle(request(pattern, "msft"),
+          new MockHttpServletResponse(), new Object());
+    }
+    traffic.preHandle(request("/market/sentiment/history", "MSFT"),
+        new MockHttpServletResponse(), new Object());
+    traffic.preHandle(request("/market/stats/top-symbols", "MSFT"),
+        new MockHttpServletResponse(), new Object());
+    MockHttpServletRequest unmatched =
+        new MockHttpServletRequest("GET", "/market/nothing");
+    unmatched.setParameter("symbol", "MSFT");
+    traffic.preHandle(unmatched, new MockHttpServletResponse(), new Object());
+
+    assertEquals(InteractiveTraffic.DEMAND_PATHS.size(),
+        demand.estimate("MSFT"));
+  }
+
+  @Test
+  void popular_ranksByRequestsThenName() {
+    for (String s : List.of("msft", "AAPL", " aapl ", "TSLA", "MSFT",
+        "AAPL")) {
+      traffic.record(s);
+    }
+
+    assertEquals(List.of("AAPL", "MSFT", "TSLA"), traffic.popular(10));
+    assertEquals(List.of("AAPL", "MSFT"), traffic.popular(2));
+  }
+
+  @Test
+  void malformedSymbols_areNotCounted() {
+    traffic.record(null);
+    traffic.record("");
+    traffic.record("../etc");
+    traffic.record("WAYTOOLONGSYMBOL");
+    traffic.preHandle(request("/market/daily", null),
+        new MockHttpServletResponse(), new Object());
+
+    assertEquals(List.of(), traffic.popular(10));
+  }
+
+  @Test
+  void decay_halvesCountsAndForgetsTheRarelyAsked() {
+    traffic.record("AAPL");
+    traffic.record("AAPL");
+    traffic.record("MSFT");
+
+    traffic.decay();
+    assertEquals(List.of("AAPL"), traffic.popular(10));
+    traffic.decay();
+    assertEquals(List.of(), traffic.popular(10));
+  }
+
+  @Test
+  void withoutDemand_nothingIsCounted() {
+    InteractiveTraffic bare = traffic(null);
+    MockHttpServletRequest request = request("/market/daily", "AAPL");
+
+    bare.preHandle(request, new MockHttpServletResponse(), new Object());
+    bare.decay();
+
+    assertEquals(1, bare.inFlight());
+    assertEquals(List.of(), bare.popular(10));
+  }
+}
@@ -0,0 +1,97 @@
+package com.example.market.api;
+
+import com.example.market.service.upstream.Upstreams;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefetchQuotaTest {
+
+  private static final String AV = Upstreams.ALPHA_VANTAGE;
+
+  private final AtomicLong now = new AtomicLong();
+  private final List<Long> waits = new ArrayList<>();
+
+  private PrefetchQuota quota(MockEnvironment env) {
+    return new PrefetchQuota(env, now::get, nanos -> {
+      waits.add(nanos);
+      now.addAndGet(nanos);
+    });
+  }
+
+  @Test
+  void calls_areSpreadEvenlyOverTheMinute() throws InterruptedException {
+    PrefetchQuota quota = quota(new MockEnvironment()
+        .withProperty("market.prefetch.quota.alpha-vantage.per-minute", "4"));
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(quota.acquire(AV));
+    }
+
+    assertEquals(List.of(TimeUnit.SECONDS.toNanos(15),
+        TimeUnit.SECONDS.toNanos(15)), waits);
+  }
+
+  @Test
+  void timeAlreadySpent_countsTowardsThePacing()
+      throws InterruptedException {
+    PrefetchQuota quota = quota(new MockEnvironment()
+        .withProperty("market.prefetch.quota.alpha-vantage.per-minute", "4"));
+    quota.acquire(AV);
+    now.addAndGet(TimeUnit.SECONDS.toNanos(20));
+
+    quota.acquire(AV);
+
+    assertEquals(List.of(), waits);
+  }
+
+  @Test
+  void theRunBudget_refusesWithoutWaitingUntilReset()
+      throws InterruptedException {
+    PrefetchQuota quota = quota(new MockEnvironment()
+        .withProperty("market.prefetch.quota.alpha-vantage.per-minute", "0")
+        .withProperty("market.prefetch.quota.alpha-vantage.per-run", "2"));
+
+    assertTrue(quota.acquire(AV));
+    assertTrue(quota.acquire(AV));
+    assertFalse(quota.acquire(AV));
+    assertEquals("2/2", quota.usage().get(AV));
+    assertEquals(List.of(), waits);
+
+    quota.reset();
+    assertTrue(quota.acquire(AV));
+  }
+
+  @Test
+  void aCallReachingSeveralUpstreams_isChargedToAllOrNone()
+      throws InterruptedException {
+    PrefetchQuota quota = quota(new MockEnvironment()
+        .withProperty("market.prefetch.quota.fmp.per-run", "5")
+        .withProperty("market.prefetch.quota.news-api.per-run", "1"));
+
+    assertTrue(quota.acquire(Upstreams.FMP, Upstreams.NEWS_API));
+    assertFalse(quota.acquire(Upstreams.FMP, Upstreams.NEWS_API));
+
+    assertEquals("1/5", quota.usage().get(Upstreams.FMP));
+    assertEquals("1/1", quota.usage().get(Upstreams.NEWS_API));
+  }
+
+  @Test
+  void defaults_applyWhenUnset() {
+    assertEquals("0/400", quota(new MockEnvironment()).usage().get(AV));
+  }
+
+  @Test
+  void negativeQuotas_areRejected() {
+    MockEnvironment env = new MockEnvironment()
+        .withProperty("market.prefetch.quota.fmp.per-run", "-1");
+
+    assertThrows(IllegalArgumentException.class, () -> quota(env));
+  }
+}
@@ -0,0 +1,41 @@
+package com.example.market.api;
+
+import com.example.market.service.demand.SymbolDemand;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolStatsControllerTest {
+
+  private final SymbolDemand demand = new SymbolDemand(1024, 4, 3, 0);
+  private final SymbolStatsController controller =
+      new SymbolStatsController(demand);
+
+  @Test
+  void topSymbols_listsTheHeavyHittersWithTheirRequests() {
+    demand.record("AAPL");
+    demand.record("AAPL");
+    demand.record("MSFT");
+
+    ResponseEntity<?> response = controller.topSymbols(null);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(Map.of("tracked", 3, "symbols", List.of(
+        Map.of("symbol", "AAPL", "requests", 2L),
+        Map.of("symbol", "MSFT", "requests", 1L))), response.getBody());
+    assertEquals(Map.of("tracked", 3, "symbols", List.of(
+        Map.of("symbol", "AAPL", "requests", 2L))),
+        controller.topSymbols(1).getBody());
+  }
+
+  @Test
+  void aLimitBelowOne_isABadRequest() {
+    assertEquals(HttpStatus.BAD_REQUEST,
+        controller.topSymbols(0).getStatusCode());
+  }
+}
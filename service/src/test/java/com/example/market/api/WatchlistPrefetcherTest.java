@@ -0,0 +1,237 @@
+package com.example.market.api;
+
+import com.example.market.service.demand.SymbolDemand;
+import com.example.market.service.stock.JsonStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class WatchlistPrefetcherTest {
+
+  /** Monday 19 October 2026, noon in New York. */
+  private static final Instant NOON = Instant.parse("2026-10-19T16:00:00Z");
+
+  @TempDir
+  Path dir;
+
+  private final CompositeController controller =
+      mock(CompositeController.class);
+  private final JsonStore store = mock(JsonStore.class);
+  private final InteractiveTraffic traffic =
+      InteractiveTrafficTest.traffic(new SymbolDemand(1024, 4, 16, 0));
+  private final List<Long> sleeps = new ArrayList<>();
+  private MockEnvironment env;
+
+  @BeforeEach
+  void setUp() {
+    when(store.dailyPath(anyString()))
+        .thenAnswer(inv -> dir.resolve(inv.getArgument(0) + "-daily.json"));
+    env = new MockEnvironment()
+        .withProperty("market.prefetch.watchlist", "msft, aapl")
+        .withProperty("market.prefetch.horizons", "10,30")
+        .withProperty("market.prefetch.quota.alpha-vantage.per-minute", "0")
+        .withProperty("market.prefetch.quota.news-api.per-minute", "0")
+        .withProperty("market.prefetch.quota.fmp.per-minute", "0");
+  }
+
+  private WatchlistPrefetcher prefetcher() {
+    return prefetcher(env);
+  }
+
+  private WatchlistPrefetcher prefetcher(MockEnvironment e) {
+    return new WatchlistPrefetcher(e, controller, traffic, store,
+        new PrefetchQuota(e), sleeps::add,
+        Clock.fixed(NOON, ZoneOffset.UTC));
+  }
+
+  @Test
+  void run_refreshesTheWatchlistThenThePopularSymbols() throws Exception {
+    traffic.record("TSLA");
+    traffic.record("AAPL");
+    WatchlistPrefetcher prefetcher = prefetcher();
+
+    prefetcher.run(false);
+
+    InOrder order = inOrder(controller);
+    for (String s : List.of("MSFT", "AAPL", "TSLA")) {
+      order.verify(controller).getDailySeries(s, true);
+      order.verify(controller).refreshForecast(s, 10, null);
+      order.verify(controller).refreshForecast(s, 30, null);
+      order.verify(controller).refreshSentiment(s);
+    }
+    Map<String, Object> progress = prefetcher.progress();
+    assertEquals("scheduled", progress.get("state"));
+    assertEquals(3, progress.get("symbols"));
+    assertEquals(3, progress.get("done"));
+    assertEquals(NOON, progress.get("started"));
+    assertEquals(NOON, progress.get("finished"));
+    assertNull(progress.get("current"));
+    assertEquals("3/400", ((Map<?, ?>) progress.get("quota"))
+        .get("alpha-vantage"));
+  }
+
+  @Test
+  void onlyScheduledRuns_halveTheRequestCounts() throws Exception {
+    traffic.record("TSLA");
+    traffic.record("TSLA");
+    WatchlistPrefetcher prefetcher = prefetcher();
+
+    prefetcher.run(false);
+    assertEquals(List.of("MSFT", "AAPL", "TSLA"), prefetcher.targets());
+
+    prefetcher.run(true);
+    assertEquals(List.of("MSFT", "AAPL", "TSLA"), prefetcher.targets());
+    verify(controller, times(2)).getDailySeries("TSLA", true);
+
+    prefetcher.run(true);
+    assertEquals(List.of("MSFT", "AAPL"), prefetcher.targets());
+  }
+
+  @Test
+  void aFailedStep_isCountedAndTheRunGoesOn() throws Exception {
+    when(controller.refreshForecast("MSFT", 30, null))
+        .thenThrow(new IllegalStateException("no predictions"));
+    WatchlistPrefetcher prefetcher = prefetcher();
+
+    prefetcher.run(false);
+
+    verify(controller, never()).refreshSentiment("MSFT");
+    verify(controller).refreshSentiment("AAPL");
+    Map<String, Object> progress = prefetcher.progress();
+    assertEquals(1, progress.get("failed"));
+    assertEquals(1, progress.get("done"));
+    assertEquals("MSFT forecast-30: no predictions",
+        progress.get("lastFailure"));
+  }
+
+  @Test
+  void symbolsBeyondTheQuota_areSkipped() throws Exception {
+    env.setProperty("market.prefetch.quota.alpha-vantage.per-run", "1");
+    env.setProperty("market.prefetch.quota.news-api.per-run", "0");
+    WatchlistPrefetcher prefetcher = prefetcher();
+
+    prefetcher.run(false);
+
+    verify(controller).getDailySeries("MSFT", true);
+    verify(controller, times(2)).refreshForecast(eq("MSFT"), anyInt(),
+        any());
+    verify(controller, never()).getDailySeries(eq("AAPL"), anyBoolean());
+    verify(controller, never()).refreshSentiment(anyString());
+    assertEquals(2, prefetcher.progress().get("skipped"));
+    assertEquals(0, prefetcher.progress().get("done"));
+  }
+
+  @Test
+  void aSeriesWrittenDuringTheRun_isNotFetchedAgain() throws Exception {
+    Path daily = Files.writeString(dir.resolve("MSFT-daily.json"), "{}");
+    Files.setLastModifiedTime(daily, FileTime.from(NOON.plusSeconds(1)));
+    WatchlistPrefetcher prefetcher = prefetcher();
+
+    prefetcher.run(false);
+
+    verify(controller).getDailySeries("MSFT", false);
+    verify(controller).getDailySeries("AAPL", true);
+    assertEquals("1/400", ((Map<?, ?>) prefetcher.progress().get("quota"))
+        .get("alpha-vantage"));
+  }
+
+  @Test
+  void busyClients_pauseTheRun() throws Exception {
+    env.setProperty("market.prefetch.busy-requests", "1");
+    env.setProperty("market.prefetch.watchlist", "MSFT");
+    env.setProperty("market.prefetch.sentiment", "false");
+    MockHttpServletRequest request =
+        new MockHttpServletRequest("GET", "/market/daily");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    traffic.preHandle(request, response, new Object());
+    AtomicReference<WatchlistPrefetcher> self = new AtomicReference<>();
+    List<Object> statesWhilePaused = new ArrayList<>();
+    WatchlistPrefetcher prefetcher = new WatchlistPrefetcher(env,
+        controller, traffic, store, new PrefetchQuota(env), nanos -> {
+          sleeps.add(nanos);
+          statesWhilePaused.add(self.get().progress().get("state"));
+          traffic.afterCompletion(request, response, new Object(), null);
+        }, Clock.fixed(NOON, ZoneOffset.UTC));
+    self.set(prefetcher);
+
+    prefetcher.run(false);
+
+    assertEquals(List.of(1_000_000_000L), sleeps);
+    assertEquals(List.of("paused"), statesWhilePaused);
+    verify(controller).getDailySeries("MSFT", true);
+    assertEquals(1, prefetcher.progress().get("done"));
+  }
+
+  @Test
+  void start_schedulesTheNextRunAfterTheClose() {
+    WatchlistPrefetcher prefetcher = prefetcher();
+    try {
+      prefetcher.start();
+
+      assertEquals(Instant.parse("2026-10-19T20:30:00Z"),
+          prefetcher.progress().get("nextRun"));
+    } finally {
+      prefetcher.destroy();
+    }
+  }
+
+  @Test
+  void disabled_schedulesNothing() {
+    env.setProperty("market.prefetch.enabled", "false");
+    WatchlistPrefetcher prefetcher = prefetcher();
+
+    prefetcher.start();
+
+    assertEquals("disabled", prefetcher.progress().get("state"));
+    assertNull(prefetcher.progress().get("nextRun"));
+    prefetcher.destroy();
+  }
+
+  @Test
+  void runNow_runsInTheBackground() throws Exception {
+    WatchlistPrefetcher prefetcher = prefetcher();
+    try {
+      assertTrue(prefetcher.runNow());
+      long giveUp = System.nanoTime() + 10_000_000_000L;
+      while (prefetcher.progress().get("finished") == null
+          && System.nanoTime() < giveUp) {
+        Thread.sleep(10);
+      }
+      assertEquals(2, prefetcher.progress().get("done"));
+    } finally {
+      prefetcher.destroy();
+    }
+  }
+
+  @Test
+  void invalidSettings_areRejected() {
+    env.setProperty("market.prefetch.horizons", "0");
+    assertThrows(IllegalArgumentException.class, this::prefetcher);
+
+    MockEnvironment e = new MockEnvironment()
+        .withProperty("market.prefetch.step-timeout", "PT0S");
+    assertThrows(IllegalArgumentException.class, () -> prefetcher(e));
+  }
+}
@@ -0,0 +1,173 @@
+package com.example.market.model.forecast;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForecastSeriesTest {
+
+  @Test
+  void fromMap_sortsByDate() {
+    Map<String, String> raw = new HashMap<>();
+    raw.put("2025-12-03", "103.5");
+    raw.put("2025-12-01", "101");
+    raw.put("2025-12-02", "102.25");
+
+    ForecastSeries series = ForecastSeries.fromMap(raw);
+
+    assertEquals(3, series.size());
+    assertEquals(LocalDate.of(2025, 12, 1), series.date(0));
+    assertEquals(LocalDate.of(2025, 12, 3).toEpochDay(), series.epochDay(2));
+    assertEquals(102.25, series.price(1));
+    assertEquals(List.of("2025-12-01", "2025-12-02", "2025-12-03"),
+        new ArrayList<>(series.toMap().keySet()));
+    assertEquals("101.00", series.toMap().get("2025-12-01"));
+  }
+
+  @Test
+  void fromMap_strictRejectsBadEntries() {
+    assertThrows(IllegalArgumentException.class,
+        () -> ForecastSeries.fromMap(Map.of("not-a-date", "1")));
+    assertThrows(IllegalArgumentException.class,
+        () -> ForecastSeries.fromMap(Map.of("2025-12-01", "NaN")));
+  }
+
+  @Test
+  void fromMap_lenientReportsBadEntries() {
+    Map<String, String> raw = new HashMap<>();
+    raw.put("2025-12-01", "1");
+    raw.put("2025-12-02", "x");
+    raw.put("bad", "2");
+    Map<String, String> rejected = new HashMap<>();
+
+    ForecastSeries series = ForecastSeries.fromMap(raw, rejected::put);
+
+    assertEquals(1, series.size());
+    assertEquals(Map.of("2025-12-02", "x", "bad", "2"), rejected);
+  }
+
+  @Test
+  void fromMap_nullOrEmptyIsEmpty() {
+    assertTrue(ForecastSeries.fromMap(null).isEmpty());
+    assertSame(ForecastSeries.empty(), ForecastSeries.fromMap(Map.of()));
+  }
+
+  @Test
+  void constructor_copiesAndValidates() {
+    long[] days = {10, 11};
+    double[] prices = {1.0, 2.0};
+    ForecastSeries series = new ForecastSeries(days, prices);
+    prices[0] = 99.0;
+
+    assertEquals(1.0, series.price(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new ForecastSeries(new long[] {1}, new double[0]));
+    assertThrows(IllegalArgumentException.class,
+        () -> new ForecastSeries(new long[] {2, 2}, new double[2]));
+  }
+
+  @Test
+  void withPrices_keepsDaysAndChecksLength() {
+    ForecastSeries series =
+        new ForecastSeries(new long[] {10, 11}, new double[] {1.0, 2.0});
+
+    ForecastSeries adjusted = series.withPrices(new double[] {3.0, 4.0});
+
+    assertEquals(11, adjusted.epochDay(1));
+    assertEquals(4.0, adjusted.price(1));
+    assertThrows(IllegalArgumentException.class,
+        () -> series.withPrices(new double[1]));
+  }
+
+  @Test
+  void formatPrice_matchesStringFormat() {
+    double[] samples = {0, 1.005, 2.675, 100, 190.899999, 1234.5, 0.125};
+    for (double v : samples) {
+      assertEquals(String.format("%.2f", v), ForecastSeries.formatPrice(v),
+          "price " + v);
+    }
+  }
+
+  @Test
+  void boundsAndModel_areOptional() {
+    ForecastSeries plain =
+        new ForecastSeries(new long[] {1}, new double[] {10});
+
+    assertFalse(plain.hasBounds());
+    assertNull(plain.getModel());
+    assertTrue(Double.isNaN(plain.getConfidence()));
+    assertThrows(IllegalStateException.class, () -> plain.lower(0));
+    assertThrows(IllegalStateException.class, () -> plain.upper(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> plain.withBounds(new double[2], new double[1]));
+
+    ForecastSeries rich = plain.withBounds(new double[] {9}, new double[] {11})
+        .withModel("trendmaster", 0.8);
+    assertEquals(9, rich.lower(0));
+    assertEquals(11, rich.upper(0));
+    assertEquals("trendmaster", rich.getModel());
+    assertEquals(0.8, rich.getConfidence());
+    // new prices drop the old bounds but keep the model
+    ForecastSeries repriced = rich.withPrices(new double[] {12});
+    assertFalse(repriced.hasBounds());
+    assertEquals("trendmaster", repriced.getModel());
+  }
+
+  @Test
+  void json_isColumnarAndRoundTrips() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    ForecastSeries series = ForecastSeries.fromMap(
+            Map.of("2025-12-02", "102.456", "2025-12-01", "101"))
+        .withBounds(new double[] {99, 100}, new double[] {103, 104.5})
+        .withModel("trendmaster", 0.75);
+
+    String json = mapper.writeValueAsString(series);
+
+    assertEquals("{\"model\":\"trendmaster\",\"confidence\":0.75,"
+        + "\"dates\":[\"2025-12-01\",\"2025-12-02\"],"
+        + "\"values\":[101.00,102.46],"
+        + "\"lower\":[99.00,100.00],\"upper\":[103.00,104.50]}", json);
+
+    ForecastSeries back = mapper.readValue(json, ForecastSeries.class);
+    assertEquals(2, back.size());
+    assertEquals(102.46, back.price(1));
+    assertEquals(104.5, back.upper(1));
+    assertEquals("trendmaster", back.getModel());
+    assertEquals(0.75, back.getConfidence());
+  }
+
+  @Test
+  void json_minimalFormOmitsUnknownFields() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    ForecastSeries series =
+        ForecastSeries.fromMap(Map.of("2025-12-01", "1"));
+
+    String json = mapper.writeValueAsString(series);
+
+    assertEquals("{\"dates\":[\"2025-12-01\"],\"values\":[1.00]}", json);
+    ForecastSeries back = mapper.readValue(json, ForecastSeries.class);
+    assertNull(back.getModel());
+    assertFalse(back.hasBounds());
+  }
+
+  @Test
+  void json_rejectsMalformedColumns() {
+    ObjectMapper mapper = new ObjectMapper();
+
+    assertThrows(JsonMappingException.class, () -> mapper.readValue(
+        "{\"dates\":[\"2025-12-01\"]}", ForecastSeries.class));
+    assertThrows(JsonMappingException.class, () -> mapper.readValue(
+        "{\"dates\":[\"x\"],\"values\":[1]}", ForecastSeries.class));
+    assertThrows(JsonMappingException.class, () -> mapper.readValue(
+        "{\"dates\":[\"2025-12-02\",\"2025-12-01\"],\"values\":[1,2]}",
+        ForecastSeries.class));
+  }
+}
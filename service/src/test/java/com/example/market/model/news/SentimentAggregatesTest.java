@@ -0,0 +1,65 @@
+package com.example.market.model.news;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SentimentAggregatesTest {
+
+  @Test
+  void windowFromKey_parsesKnownWindows() {
+    assertEquals(SentimentWindow.ONE_DAY, SentimentWindow.fromKey("1d"));
+    assertEquals(SentimentWindow.SEVEN_DAYS, SentimentWindow.fromKey(" 7D "));
+    assertEquals(SentimentWindow.THIRTY_DAYS, SentimentWindow.fromKey("30d"));
+    assertEquals(Duration.ofDays(7),
+        SentimentWindow.SEVEN_DAYS.getTimeConstant());
+  }
+
+  @Test
+  void windowFromKey_rejectsUnknownOrNull() {
+    assertThrows(IllegalArgumentException.class,
+        () -> SentimentWindow.fromKey("90d"));
+    assertThrows(IllegalArgumentException.class,
+        () -> SentimentWindow.fromKey(null));
+  }
+
+  @Test
+  void decayed_isKeyedByWindowInOrder() {
+    SentimentAggregates aggregates = new SentimentAggregates(
+        "AMZN", 3, "2025-01-01T00:00:00Z", 4, new double[] {4.0, 3.5, 3.2});
+
+    Map<String, Double> decayed = aggregates.getDecayed();
+    assertEquals(java.util.List.of("1d", "7d", "30d"),
+        java.util.List.copyOf(decayed.keySet()));
+    assertEquals(3.5, aggregates.score(SentimentWindow.SEVEN_DAYS));
+    assertFalse(aggregates.isEmpty());
+    assertEquals("AMZN", aggregates.getSymbol());
+    assertEquals(3, aggregates.getObservations());
+    assertEquals(4, aggregates.getLastScore());
+    assertEquals("2025-01-01T00:00:00Z", aggregates.getLastObservedAt());
+  }
+
+  @Test
+  void emptyAggregates_haveNoDecayedValues() {
+    SentimentAggregates empty = new SentimentAggregates(
+        "AMZN", 0, null, 0,
+        new double[] {Double.NaN, Double.NaN, Double.NaN});
+
+    assertTrue(empty.isEmpty());
+    assertTrue(empty.getDecayed().isEmpty());
+  }
+
+  @Test
+  void observation_exposesFields() {
+    SentimentObservation o = new SentimentObservation(
+        "AMZN", "2025-01-01T00:00:00Z", 5, "very positive");
+
+    assertEquals("AMZN", o.getSymbol());
+    assertEquals("2025-01-01T00:00:00Z", o.getObservedAt());
+    assertEquals(5, o.getSentimentScore());
+    assertEquals("very positive", o.getSentimentLabel());
+  }
+}
@@ -0,0 +1,35 @@
+package com.example.market.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DaemonThreadsTest {
+
+  @Test
+  void numbered_countsFromOne_perFactory() {
+    ThreadFactory a = DaemonThreads.numbered("work-");
+    Thread first = a.newThread(() -> { });
+    Thread second = a.newThread(() -> { });
+
+    assertEquals("work-1", first.getName());
+    assertEquals("work-2", second.getName());
+    assertTrue(first.isDaemon());
+    assertEquals("work-1",
+        DaemonThreads.numbered("work-").newThread(() -> { }).getName());
+  }
+
+  @Test
+  void start_runsTheTaskOnADaemonThread() throws InterruptedException {
+    Thread[] ran = new Thread[1];
+    Thread t = DaemonThreads.start("reader",
+        () -> ran[0] = Thread.currentThread());
+    t.join();
+
+    assertSame(t, ran[0]);
+    assertEquals("reader", t.getName());
+    assertTrue(t.isDaemon());
+  }
+}
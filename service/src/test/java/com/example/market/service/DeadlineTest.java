@@ -0,0 +1,85 @@
+package com.example.market.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+
+  @Test
+  void unboundThreads_seeADeadlineThatNeverExpires() {
+    Deadline none = Deadline.current();
+
+    assertSame(Deadline.none(), none);
+    assertFalse(none.isBounded());
+    assertFalse(none.isExpired());
+    assertEquals(Long.MAX_VALUE, none.remainingNanos());
+    assertEquals(Duration.ofSeconds(7), none.remaining(Duration.ofSeconds(7)));
+    none.check("anything");
+    AtomicInteger runs = new AtomicInteger();
+    none.onExpiry(runs::incrementAndGet).close();
+    assertEquals(0, runs.get());
+  }
+
+  @Test
+  void bind_scopesTheDeadlineToTheThread_andRestoresThePrevious() {
+    Deadline outer = Deadline.after(Duration.ofMinutes(1));
+    Deadline inner = Deadline.after(Duration.ofSeconds(1));
+
+    try (Deadline.Scope a = outer.bind()) {
+      try (Deadline.Scope b = inner.bind()) {
+        assertSame(inner, Deadline.current());
+      }
+      assertSame(outer, Deadline.current());
+      assertTrue(outer.remaining(Duration.ofHours(1))
+          .compareTo(Duration.ofMinutes(1)) <= 0);
+      assertEquals(Duration.ofMillis(5), outer.remaining(Duration.ofMillis(5)));
+    }
+    assertSame(Deadline.none(), Deadline.current());
+  }
+
+  @Test
+  void expiredDeadline_failsChecks_andRunsActionsRightAway()
+      throws InterruptedException {
+    Deadline d = Deadline.after(Duration.ofMillis(1));
+    Thread.sleep(5);
+
+    assertTrue(d.isExpired());
+    assertEquals(0L, d.remainingNanos());
+    assertEquals(Duration.ZERO, d.remaining(Duration.ofSeconds(1)));
+    DeadlineExceededException e =
+        assertThrows(DeadlineExceededException.class, () -> d.check("sentiment"));
+    assertEquals("Deadline exceeded during sentiment", e.getMessage());
+
+    AtomicInteger runs = new AtomicInteger();
+    d.onExpiry(runs::incrementAndGet);
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  void onExpiry_firesAtTheDeadline_unlessCancelled() throws InterruptedException {
+    CountDownLatch fired = new CountDownLatch(1);
+    Deadline.after(Duration.ofMillis(20)).onExpiry(fired::countDown);
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+
+    AtomicInteger runs = new AtomicInteger();
+    Deadline d = Deadline.after(Duration.ofMillis(20));
+    d.onExpiry(runs::incrementAndGet).close();
+    Thread.sleep(60);
+    assertTrue(d.isExpired());
+    assertEquals(0, runs.get());
+  }
+
+  @Test
+  void nonPositiveBudget_isRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> Deadline.after(Duration.ZERO));
+    assertThrows(IllegalArgumentException.class,
+        () -> Deadline.after(Duration.ofSeconds(-1)));
+  }
+}
@@ -0,0 +1,122 @@
+package com.example.market.service;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @BeforeEach
+  void setUp() {
+    Metrics.globalRegistry.add(registry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    Metrics.globalRegistry.remove(registry);
+  }
+
+  private Timer stage(String stage, String endpoint, String outcome) {
+    return registry.find(PipelineMetrics.STAGE_TIMER).tag("stage", stage)
+        .tag("endpoint", endpoint).tag("outcome", outcome).timer();
+  }
+
+  @Test
+  void bindEndpoint_tagsTheThreadsStages_andRestoresThePrevious() {
+    assertEquals(PipelineMetrics.NO_ENDPOINT, PipelineMetrics.endpoint());
+
+    try (PipelineMetrics.Scope a =
+             PipelineMetrics.bindEndpoint("/market/predict")) {
+      try (PipelineMetrics.Scope b =
+               PipelineMetrics.bindEndpoint("/market/daily")) {
+        PipelineMetrics.record("alpha-vantage", PipelineMetrics.SUCCESS,
+            TimeUnit.MILLISECONDS.toNanos(12));
+      }
+      assertEquals("/market/predict", PipelineMetrics.endpoint());
+    }
+    assertEquals(PipelineMetrics.NO_ENDPOINT, PipelineMetrics.endpoint());
+
+    Timer t = stage("alpha-vantage", "/market/daily", PipelineMetrics.SUCCESS);
+    assertNotNull(t);
+    assertEquals(1, t.count());
+    assertEquals(12.0, t.totalTime(TimeUnit.MILLISECONDS), 0.001);
+  }
+
+  @Test
+  void time_recordsTheOutcome() throws Exception {
+    assertEquals("ok", PipelineMetrics.time("fmp", () -> "ok"));
+    assertThrows(IOException.class, () -> PipelineMetrics.time("fmp", () -> {
+      throw new IOException("reset");
+    }));
+    assertThrows(DeadlineExceededException.class,
+        () -> PipelineMetrics.timed("fmp", () -> {
+          throw new DeadlineExceededException("company lookup");
+        }));
+
+    for (String outcome : new String[] {PipelineMetrics.SUCCESS,
+        PipelineMetrics.ERROR, PipelineMetrics.TIMEOUT}) {
+      assertEquals(1, stage("fmp", PipelineMetrics.NO_ENDPOINT, outcome)
+          .count(), outcome);
+    }
+  }
+
+  @Test
+  void unboundThreads_areTaggedWithNoEndpoint() {
+    PipelineMetrics.record(PipelineMetrics.INFERENCE,
+        PipelineMetrics.SUCCESS, TimeUnit.SECONDS.toNanos(90));
+
+    Timer t = stage(PipelineMetrics.INFERENCE, PipelineMetrics.NO_ENDPOINT,
+        PipelineMetrics.SUCCESS);
+    assertEquals(90.0, t.max(TimeUnit.SECONDS), 0.001);
+  }
+
+  @Test
+  void recordCache_tagsTierAndHitOrMiss() {
+    try (PipelineMetrics.Scope ignored =
+             PipelineMetrics.bindEndpoint("/market/sentiment")) {
+      PipelineMetrics.recordCache("sentiment", PipelineMetrics.FILE_TIER,
+          true, 1_000);
+      PipelineMetrics.recordCache("sentiment", PipelineMetrics.FILE_TIER,
+          false, 1_000);
+      PipelineMetrics.recordCache("sentiment", PipelineMetrics.FILE_TIER,
+          false, 1_000);
+    }
+
+    for (String outcome : new String[] {PipelineMetrics.HIT,
+        PipelineMetrics.MISS}) {
+      Timer t = registry.find(PipelineMetrics.CACHE_TIMER)
+          .tag("cache", "sentiment").tag("tier", "file")
+          .tag("endpoint", "/market/sentiment").tag("outcome", outcome)
+          .timer();
+      assertNotNull(t, outcome);
+      assertEquals(PipelineMetrics.HIT.equals(outcome) ? 1 : 2, t.count());
+    }
+  }
+
+  @Test
+  void cachedTimers_stillReachRegistriesAddedLater() {
+    PipelineMetrics.record("yahoo", PipelineMetrics.SUCCESS, 1_000);
+    SimpleMeterRegistry later = new SimpleMeterRegistry();
+    Metrics.globalRegistry.add(later);
+    try {
+      PipelineMetrics.record("yahoo", PipelineMetrics.SUCCESS, 1_000);
+
+      assertEquals(2, stage("yahoo", PipelineMetrics.NO_ENDPOINT,
+          PipelineMetrics.SUCCESS).count());
+      assertEquals(1, later.find(PipelineMetrics.STAGE_TIMER)
+          .tag("stage", "yahoo").timer().count());
+    } finally {
+      Metrics.globalRegistry.remove(later);
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.example.market.service.analysis;
 
+import com.example.market.model.forecast.ForecastSeries;
 import com.example.market.model.news.SentimentResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -257,4 +258,113 @@ class AdjustedPredictionServiceTest {
     double adjusted = Double.parseDouble(adjustedPrice);
     assertTrue(adjusted > 100.00);
   }
+
+  @Test
+  void adjustPricesWithSentiment_fractionalScore_scalesBetweenBuckets() {
+    String dateStr = LocalDate.now().plusDays(1).format(formatter);
+    Map<String, String> predictions = Map.of(dateStr, "100.00");
+
+    double four = Double.parseDouble(service.adjustPricesWithSentiment(
+        predictions, new SentimentResult("AMZN", 4, "positive")).get(dateStr));
+    double smoothed = Double.parseDouble(service.adjustPricesWithSentiment(
+        predictions, 3.5).get(dateStr));
+
+    assertTrue(smoothed > 100.00 && smoothed < four);
+  }
+
+  @Test
+  void adjustPricesWithSentiment_scoreOutsideScale_isClamped() {
+    String dateStr = LocalDate.now().plusDays(1).format(formatter);
+    Map<String, String> predictions = Map.of(dateStr, "100.00");
+
+    assertEquals(service.adjustPricesWithSentiment(predictions, 5.0),
+        service.adjustPricesWithSentiment(predictions, 9.0));
+    assertTrue(service.adjustPricesWithSentiment(
+        Map.<String, String>of(), 4.0).isEmpty());
+  }
+
+  @Test
+  void adjustPricesWithSentiment_outputIsDateOrdered() {
+    LocalDate today = LocalDate.now();
+    Map<String, String> predictions = new HashMap<>();
+    for (int d = 12; d >= 1; d--) {
+      predictions.put(today.plusDays(d).format(formatter), "100.00");
+    }
+    predictions.put("invalid-date", "50.00");
+
+    Map<String, String> result = service.adjustPricesWithSentiment(
+        predictions, new SentimentResult("AMZN", 4, "positive"));
+
+    java.util.List<String> keys = new java.util.ArrayList<>(result.keySet());
+    assertEquals(today.plusDays(1).format(formatter), keys.get(0));
+    assertEquals(today.plusDays(12).format(formatter), keys.get(11));
+    assertEquals("invalid-date", keys.get(12));
+  }
+
+  @Test
+  void adjustInto_matchesClosedFormAndDecaysWithHorizon() {
+    ForecastSeries series = new ForecastSeries(
+        new long[] {99, 100, 101, 500}, new double[] {100, 100, 100, 100});
+    double[] out = new double[4];
+
+    service.adjustInto(series, 5, 100, out);
+
+    double base = 0.15 * Math.tanh(2.0);
+    assertEquals(100 * (1 + base), out[0], 1e-9);
+    assertEquals(out[0], out[1], 1e-9);
+    assertEquals(100 * (1 + base * Math.exp(-0.12)), out[2], 1e-9);
+    // beyond the decay table the factor is computed directly
+    assertEquals(100 * (1 + base * Math.exp(-0.12 * 400)), out[3], 1e-9);
+  }
+
+  @Test
+  void adjustInto_rejectsShortOutput() {
+    ForecastSeries series =
+        new ForecastSeries(new long[] {1, 2}, new double[] {1, 2});
+    assertThrows(IllegalArgumentException.class,
+        () -> service.adjustInto(series, 3, 0, new double[1]));
+  }
+
+  @Test
+  void adjust_emptySeriesIsReturnedAsIs() {
+    assertSame(ForecastSeries.empty(),
+        service.adjust(ForecastSeries.empty(), 5));
+  }
+
+  @Test
+  void timeDecay_tableMatchesExp() {
+    for (int d : new int[] {0, 1, 30, 365, 366, 1000}) {
+      assertEquals(Math.exp(-0.12 * d),
+          AdjustedPredictionService.timeDecay(d), 1e-15);
+    }
+  }
+
+  @Test
+  void adjust_scalesBoundsAndKeepsModel() {
+    long today = LocalDate.now().toEpochDay();
+    ForecastSeries series = new ForecastSeries(
+        new long[] {today + 1, today + 2}, new double[] {100, 200})
+        .withBounds(new double[] {90, 180}, new double[] {110, 220})
+        .withModel("trendmaster", 0.6);
+
+    ForecastSeries adjusted = service.adjust(series, 5);
+
+    for (int i = 0; i < 2; i++) {
+      double factor = adjusted.price(i) / series.price(i);
+      assertTrue(factor > 1.0);
+      assertEquals(series.lower(i) * factor, adjusted.lower(i), 1e-9);
+      assertEquals(series.upper(i) * factor, adjusted.upper(i), 1e-9);
+    }
+    assertEquals("trendmaster", adjusted.getModel());
+    assertEquals(0.6, adjusted.getConfidence());
+  }
+
+  @Test
+  void adjust_withoutBoundsHasNoBounds() {
+    long today = LocalDate.now().toEpochDay();
+    ForecastSeries series =
+        new ForecastSeries(new long[] {today}, new double[] {100});
+
+    assertFalse(service.adjust(series, 1).hasBounds());
+  }
 }
@@ -0,0 +1,140 @@
+package com.example.market.service.demand;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolDemandTest {
+
+  @Test
+  void sketch_neverUndercountsAndStaysCloseWithRoom() {
+    CountMinSketch sketch = new CountMinSketch(1024, 4);
+    for (int i = 0; i < 200; i++) {
+      for (int n = 0; n <= i % 5; n++) {
+        sketch.add("S" + i);
+      }
+    }
+
+    int over = 0;
+    for (int i = 0; i < 200; i++) {
+      int estimate = sketch.estimate("S" + i);
+      assertTrue(estimate >= i % 5 + 1, "S" + i);
+      over += estimate - (i % 5 + 1);
+    }
+    assertTrue(over < 20, "overcount " + over);
+    assertEquals(0, sketch.estimate("NEVER"));
+  }
+
+  @Test
+  void sketch_roundsTheWidthUpAndHalves() {
+    CountMinSketch sketch = new CountMinSketch(1000, 2);
+    assertEquals(1024, sketch.width());
+    assertEquals(1024, new CountMinSketch(1024, 2).width());
+
+    for (int i = 0; i < 5; i++) {
+      sketch.add("AAPL");
+    }
+    sketch.halve();
+
+    assertEquals(2, sketch.estimate("AAPL"));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CountMinSketch(0, 1));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CountMinSketch(8, 0));
+  }
+
+  @Test
+  void sketch_separatesKeysWithTheSameStringHashCode() {
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    CountMinSketch sketch = new CountMinSketch(1024, 4);
+    for (int i = 0; i < 10; i++) {
+      sketch.add("Aa");
+    }
+
+    assertEquals(10, sketch.estimate("Aa"));
+    assertEquals(0, sketch.estimate("BB"));
+  }
+
+  @Test
+  void top_listsTheHeavyHittersMostRequestedFirst() {
+    SymbolDemand demand = new SymbolDemand(1024, 4, 3, 0);
+    record(demand, "AAPL", 5);
+    record(demand, "MSFT", 3);
+    record(demand, "TSLA", 3);
+
+    assertEquals(Map.of("AAPL", 5L, "MSFT", 3L, "TSLA", 3L),
+        demand.top(10));
+    assertEquals(List.of("AAPL", "MSFT"),
+        List.copyOf(demand.top(2).keySet()));
+  }
+
+  @Test
+  void oneOffSymbols_doNotDisplaceHeavyHitters() {
+    SymbolDemand demand = new SymbolDemand(1024, 4, 2, 0);
+    record(demand, "AAPL", 5);
+    record(demand, "MSFT", 3);
+    for (int i = 0; i < 100; i++) {
+      demand.record("ONE" + i);
+    }
+
+    assertEquals(List.of("AAPL", "MSFT"),
+        List.copyOf(demand.top(10).keySet()));
+    assertEquals(1, demand.estimate("ONE7"));
+  }
+
+  @Test
+  void aRisingSymbol_replacesTheLeastRequested() {
+    SymbolDemand demand = new SymbolDemand(1024, 4, 2, 0);
+    record(demand, "AAPL", 5);
+    record(demand, "MSFT", 2);
+    record(demand, "NVDA", 3);
+
+    assertEquals(Map.of("AAPL", 5L, "NVDA", 3L), demand.top(10));
+  }
+
+  @Test
+  void aHitterThatGrewSinceItWasQueued_isNotTheOneEvicted() {
+    SymbolDemand demand = new SymbolDemand(1024, 4, 2, 0);
+    record(demand, "AAPL", 1);
+    record(demand, "MSFT", 1);
+    record(demand, "AAPL", 5);
+    record(demand, "NVDA", 2);
+
+    assertEquals(Map.of("AAPL", 6L, "NVDA", 2L), demand.top(10));
+  }
+
+  @Test
+  void counts_halveEverySample() {
+    SymbolDemand demand = new SymbolDemand(1024, 4, 4, 8);
+    record(demand, "AAPL", 7);
+    assertEquals(7, demand.estimate("AAPL"));
+
+    demand.record("MSFT");
+
+    assertEquals(3, demand.estimate("AAPL"));
+    assertEquals(0, demand.estimate("MSFT"));
+    assertEquals(Map.of("AAPL", 3L), demand.top(10));
+  }
+
+  @Test
+  void configuration_isReadFromTheEnvironment() {
+    SymbolDemand demand = new SymbolDemand(new MockEnvironment()
+        .withProperty("market.demand.top", "7"));
+
+    assertEquals(7, demand.capacity());
+    assertThrows(IllegalArgumentException.class,
+        () -> new SymbolDemand(1024, 4, 0, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new SymbolDemand(1024, 4, 1, -1));
+  }
+
+  private static void record(SymbolDemand demand, String symbol, int n) {
+    for (int i = 0; i < n; i++) {
+      demand.record(symbol);
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package com.example.market.service.forecast;
+
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
+import com.example.market.service.forecast.python.PythonService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForecastBatcherTest {
+
+  private final List<ForecastBatcher> batchers = new ArrayList<>();
+  private final ExecutorService callers = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void tearDown() {
+    batchers.forEach(ForecastBatcher::destroy);
+    callers.shutdownNow();
+  }
+
+  /** Records each batch and answers with one bar per symbol. */
+  static class StubPython extends PythonService {
+    final List<Map<String, StockDailySeries>> runs = new ArrayList<>();
+    final List<Integer> horizons = new ArrayList<>();
+    Function<Map<String, StockDailySeries>, Map<String, String>> answer =
+        StubPython::priceBySymbolLength;
+
+    @Override
+    public synchronized Map<String, String> runTrendMasterBatch(
+        Map<String, StockDailySeries> series, int horizon) {
+      runs.add(series);
+      horizons.add(horizon);
+      return answer.apply(series);
+    }
+
+    static Map<String, String> priceBySymbolLength(Map<String, StockDailySeries> in) {
+      Map<String, String> out = new HashMap<>();
+      in.keySet().forEach(s -> out.put(s, "{\"Date\":{\"0\":\"2025-01-02\"},"
+          + "\"Predicted_Close\":{\"0\":\"" + s.length() + ".5\"}}"));
+      return out;
+    }
+  }
+
+  private ForecastBatcher batcher(StubPython python, Duration window, int maxSize) {
+    ForecastBatcher b = new ForecastBatcher(python, window, maxSize);
+    batchers.add(b);
+    return b;
+  }
+
+  private static StockDailySeries series(String symbol) {
+    return new StockDailySeries(symbol, "t", "s", List.of());
+  }
+
+  private Future<ForecastSeries> call(ForecastBatcher b, String symbol, int horizon) {
+    return callers.submit(() -> b.predict(symbol, horizon, series(symbol)));
+  }
+
+  @Test
+  void concurrentRequests_shareOneRun_andGetTheirOwnResult() throws Exception {
+    StubPython python = new StubPython();
+    ForecastBatcher b = batcher(python, Duration.ofSeconds(5), 3);
+
+    Future<ForecastSeries> a = call(b, "A", 10);
+    Future<ForecastSeries> bb = call(b, "BB", 10);
+    Future<ForecastSeries> ccc = call(b, "CCC", 10);
+
+    assertEquals(1.5, a.get(5, TimeUnit.SECONDS).price(0));
+    assertEquals(2.5, bb.get(5, TimeUnit.SECONDS).price(0));
+    assertEquals(3.5, ccc.get(5, TimeUnit.SECONDS).price(0));
+    assertEquals(1, python.runs.size(), "a full batch is sent at once");
+    assertEquals(3, python.runs.get(0).size());
+    assertEquals("trendmaster", a.get().getModel());
+  }
+
+  @Test
+  void windowEnd_sendsAPartialBatch() {
+    StubPython python = new StubPython();
+    ForecastBatcher b = batcher(python, Duration.ofMillis(20), 8);
+
+    assertEquals(1.5, b.predict("A", 10, series("A")).price(0));
+    assertEquals(1, python.runs.size());
+  }
+
+  @Test
+  void zeroWindow_sendsEachRequestAlone() {
+    StubPython python = new StubPython();
+    ForecastBatcher b = batcher(python, Duration.ZERO, 8);
+
+    b.predict("A", 10, series("A"));
+    b.predict("B", 10, series("B"));
+
+    assertEquals(2, python.runs.size());
+  }
+
+  @Test
+  void horizonsAreBatchedSeparately_andSameSymbolSharesASlot() throws Exception {
+    StubPython python = new StubPython();
+    ForecastBatcher b = batcher(python, Duration.ofMillis(200), 8);
+
+    Future<ForecastSeries> first = call(b, "A", 10);
+    Future<ForecastSeries> again = call(b, "A", 10);
+    Future<ForecastSeries> other = call(b, "A", 5);
+
+    assertEquals(1.5, first.get(5, TimeUnit.SECONDS).price(0));
+    assertSame(first.get(), again.get(5, TimeUnit.SECONDS));
+    assertNotNull(other.get(5, TimeUnit.SECONDS));
+    assertEquals(2, python.runs.size());
+    assertTrue(python.horizons.containsAll(List.of(5, 10)));
+    python.runs.forEach(run -> assertEquals(1, run.size()));
+  }
+
+  @Test
+  void symbolErrors_failOnlyThatSymbol() throws Exception {
+    StubPython python = new StubPython();
+    python.answer = in -> {
+      Map<String, String> out = StubPython.priceBySymbolLength(in);
+      out.put("BAD", "{\"error\":\"not enough bars\"}");
+      out.remove("GONE");
+      return out;
+    };
+    ForecastBatcher b = batcher(python, Duration.ofSeconds(5), 3);
+
+    Future<ForecastSeries> ok = call(b, "OK", 10);
+    Future<ForecastSeries> bad = call(b, "BAD", 10);
+    Future<ForecastSeries> gone = call(b, "GONE", 10);
+
+    assertEquals(2.5, ok.get(5, TimeUnit.SECONDS).price(0));
+    Exception e = assertThrows(Exception.class, () -> bad.get(5, TimeUnit.SECONDS));
+    assertTrue(e.getCause().getMessage().contains("not enough bars"));
+    e = assertThrows(Exception.class, () -> gone.get(5, TimeUnit.SECONDS));
+    assertTrue(e.getCause().getMessage().contains("No forecast for GONE"));
+  }
+
+  @Test
+  void runFailure_failsEveryCaller() {
+    StubPython python = new StubPython();
+    python.answer = in -> {
+      throw new RuntimeException("exit code 1");
+    };
+    ForecastBatcher b = batcher(python, Duration.ZERO, 8);
+
+    RuntimeException e = assertThrows(RuntimeException.class,
+        () -> b.predict("A", 10, series("A")));
+    assertEquals("exit code 1", e.getMessage());
+  }
+
+  @Test
+  void lastCallerInterrupted_withdrawsTheOpenBatch() throws Exception {
+    StubPython python = new StubPython();
+    ForecastBatcher b = batcher(python, Duration.ofMillis(300), 8);
+    CountDownLatch waiting = new CountDownLatch(1);
+
+    Thread caller = new Thread(() -> {
+      waiting.countDown();
+      RuntimeException e = assertThrows(RuntimeException.class,
+          () -> b.predict("A", 10, series("A")));
+      assertTrue(e.getMessage().contains("interrupted"));
+      assertTrue(Thread.currentThread().isInterrupted());
+    });
+    caller.start();
+    waiting.await();
+    Thread.sleep(50);
+    caller.interrupt();
+    caller.join(5_000);
+
+    Thread.sleep(400);
+    assertTrue(python.runs.isEmpty(), "withdrawn batch must not run");
+  }
+
+  @Test
+  void lastCallerInterrupted_stopsTheRunningBatch() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch stopped = new CountDownLatch(1);
+    StubPython python = new StubPython();
+    python.answer = in -> {
+      started.countDown();
+      try {
+        Thread.sleep(10_000);
+      } catch (InterruptedException e) {
+        stopped.countDown();
+      }
+      return Map.of();
+    };
+    ForecastBatcher b = batcher(python, Duration.ZERO, 8);
+
+    Future<ForecastSeries> f = call(b, "A", 10);
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    f.cancel(true);
+
+    assertTrue(stopped.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void callerDeadline_stopsTheRunningBatch() throws Exception {
+    CountDownLatch stopped = new CountDownLatch(1);
+    StubPython python = new StubPython();
+    python.answer = in -> {
+      try {
+        Thread.sleep(10_000);
+      } catch (InterruptedException e) {
+        stopped.countDown();
+      }
+      return Map.of();
+    };
+    ForecastBatcher b = batcher(python, Duration.ZERO, 8);
+
+    try (Deadline.Scope scope = Deadline.after(Duration.ofMillis(50)).bind()) {
+      DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+          () -> b.predict("A", 10, series("A")));
+      assertEquals("Deadline exceeded during forecast", e.getMessage());
+    }
+
+    assertTrue(stopped.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void invalidSettings_areRejected() {
+    StubPython python = new StubPython();
+    assertThrows(IllegalArgumentException.class,
+        () -> new ForecastBatcher(python, Duration.ofMillis(-1), 8));
+    assertThrows(IllegalArgumentException.class,
+        () -> new ForecastBatcher(python, Duration.ZERO, 0));
+    ForecastBatcher defaults = new ForecastBatcher(python);
+    batchers.add(defaults);
+    assertEquals(1.5, defaults.predict("A", 1, series("A")).price(0));
+  }
+}
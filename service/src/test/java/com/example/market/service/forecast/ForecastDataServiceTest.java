@@ -1,76 +1,75 @@
 package com.example.market.service.forecast;
 
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.stock.StockDailySeries;
 import com.example.market.service.forecast.python.PythonService;
 import org.junit.jupiter.api.Test;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
- * Unit tests for ForecastDataService to drive coverage of:
- *  - default horizon path
- *  - explicit horizon path
+ * Unit tests for ForecastDataService: series forecasts go through the
+ * batcher, whether it is given or built around a PythonService.
  */
 class ForecastDataServiceTest {
 
   /**
-   * Stub PythonService that records the last symbol + horizon used.
+   * Stub PythonService that records the batches it is asked to run.
    */
   static class StubPythonService extends PythonService {
-    String lastSymbol;
-    Integer lastHorizon; // null when default overload is used without horizon
-    Map<String, String> toReturn = new HashMap<>();
+    Map<String, StockDailySeries> lastBatch;
+    Integer lastHorizon;
 
     StubPythonService() {
-      super(); // use no-arg ctor; we override the prediction methods anyway
+      super(); // use no-arg ctor; we override the batch run anyway
     }
 
     @Override
-    public Map<String, String> predictFuturePrices(final String companyName) {
-      this.lastSymbol = companyName;
-      this.lastHorizon = null;
-      return toReturn;
-    }
-
-    @Override
-    public Map<String, String> predictFuturePrices(final String companyName,
-                                                   final int horizon) {
-      this.lastSymbol = companyName;
+    public Map<String, String> runTrendMasterBatch(
+        final Map<String, StockDailySeries> series, final int horizon) {
+      this.lastBatch = series;
       this.lastHorizon = horizon;
-      return toReturn;
+      Map<String, String> out = new HashMap<>();
+      series.keySet().forEach(s -> out.put(s,
+          "{\"Date\":{\"0\":\"2025-01-02\"},"
+              + "\"Predicted_Close\":{\"0\":151.78}}"));
+      return out;
     }
   }
 
   @Test
-  void predictFuturePrices_usesDefaultHorizon10() {
+  void predictSeries_withoutABatcher_runsABatchOnThePythonService() {
     StubPythonService stub = new StubPythonService();
-    stub.toReturn.put("2025-01-01", "123.45");
+    StockDailySeries daily =
+        new StockDailySeries("MSFT", "2025-01-01", "test", List.of());
 
-    ForecastDataService service = new ForecastDataService(stub);
+    ForecastSeries result =
+        new ForecastDataService(stub).predictSeries("MSFT", 7, daily);
 
-    Map<String, String> result = service.predictFuturePrices("AAPL");
-
-    assertEquals("AAPL", stub.lastSymbol, "Symbol should be forwarded to PythonService");
-    // IMPORTANT: The real implementation passes 10 as the default horizon.
-    assertEquals(10, stub.lastHorizon,
-        "Default method should use a horizon of 10");
-    assertEquals("123.45", result.get("2025-01-01"));
+    assertEquals(151.78, result.price(0), 1e-9);
+    assertEquals(Map.of("MSFT", daily), stub.lastBatch);
+    assertEquals(7, stub.lastHorizon,
+        "Horizon should be passed through unchanged");
   }
 
   @Test
-  void predictFuturePrices_withExplicitHorizonForwardsToPythonService() {
-    StubPythonService stub = new StubPythonService();
-    stub.toReturn.put("2025-01-02", "151.78");
-
-    ForecastDataService service = new ForecastDataService(stub);
-
-    Map<String, String> result = service.predictFuturePrices("MSFT", 7);
-
-    assertEquals("MSFT", stub.lastSymbol);
-    assertEquals(7, stub.lastHorizon,
-        "Explicit horizon should be passed through unchanged");
-    assertEquals("151.78", result.get("2025-01-02"));
+  void predictSeries_withSeriesGoesThroughTheBatcher() {
+    ForecastSeries expected =
+        ForecastSeries.fromMap(Map.of("2025-01-02", "151.78"));
+    StockDailySeries daily =
+        new StockDailySeries("MSFT", "2025-01-01", "test", List.of());
+    ForecastBatcher batcher = mock(ForecastBatcher.class);
+    when(batcher.predict("MSFT", 3, daily)).thenReturn(expected);
+
+    ForecastSeries result =
+        new ForecastDataService(batcher).predictSeries("MSFT", 3, daily);
+
+    assertSame(expected, result);
   }
-}
\ No newline at end of file
+}
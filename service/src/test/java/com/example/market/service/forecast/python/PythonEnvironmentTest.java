@@ -0,0 +1,141 @@
+package com.example.market.service.forecast.python;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PythonEnvironmentTest {
+
+  private static Process exited(int code) throws InterruptedException {
+    Process p = mock(Process.class);
+    when(p.waitFor(anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
+    when(p.exitValue()).thenReturn(code);
+    return p;
+  }
+
+  /** Runner that prints {@code output} and exits with {@code code}. */
+  private static ProcessRunner printing(String output, int code,
+                                        AtomicReference<ProcessBuilder> seen) {
+    return pb -> {
+      seen.set(pb);
+      Files.writeString(pb.redirectOutput().file().toPath(), output);
+      return exited(code);
+    };
+  }
+
+  private static PythonEnvironment env(ProcessRunner runner) {
+    return new PythonEnvironment(runner, "/opt/py/bin/python3",
+        List.of("trendmaster", "torch"), Duration.ofSeconds(5));
+  }
+
+  @Test
+  void bootstrap_importsEveryPackage_andRecordsTheVersion() {
+    AtomicReference<ProcessBuilder> seen = new AtomicReference<>();
+    PythonEnvironment env = env(printing(
+        "warming\n{\"version\": \"3.11.4\", \"missing\": {}}\n", 0, seen));
+
+    env.bootstrap();
+
+    assertEquals("3.11.4", env.version());
+    List<String> command = seen.get().command();
+    assertEquals("/opt/py/bin/python3", command.get(0));
+    assertEquals("-c", command.get(1));
+    assertEquals(PythonEnvironment.CHECK_SCRIPT, command.get(2));
+    assertTrue(command.get(3).endsWith("trendmaster"), command.get(3));
+    assertEquals(List.of("trendmaster", "torch"), command.subList(4, 6));
+    assertFalse(command.contains("pip"));
+    assertFalse(Files.exists(seen.get().directory().toPath()),
+        "check dir should be deleted");
+  }
+
+  @Test
+  void missingPackages_failTheBootstrap() {
+    AtomicReference<ProcessBuilder> seen = new AtomicReference<>();
+    PythonEnvironment env = env(printing("{\"version\": \"3.9.1\", "
+        + "\"missing\": {\"torch\": \"ModuleNotFoundError: torch\"}}", 0,
+        seen));
+
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, env::bootstrap);
+    assertTrue(e.getMessage().contains("torch"), e.getMessage());
+    assertEquals("3.9.1", env.version());
+  }
+
+  @Test
+  void crashesTimeoutsAndGarbage_failTheBootstrap() throws Exception {
+    AtomicReference<ProcessBuilder> seen = new AtomicReference<>();
+    IllegalStateException e = assertThrows(IllegalStateException.class,
+        env(printing("Segmentation fault\n", 139, seen))::bootstrap);
+    assertTrue(e.getMessage().contains("exit code 139"), e.getMessage());
+
+    e = assertThrows(IllegalStateException.class,
+        env(printing("not json\n", 0, seen))::bootstrap);
+    assertTrue(e.getMessage().contains("not json"), e.getMessage());
+
+    e = assertThrows(IllegalStateException.class, env(pb -> {
+      throw new IOException("No such file");
+    })::bootstrap);
+    assertTrue(e.getMessage().contains("Cannot run /opt/py/bin/python3"),
+        e.getMessage());
+
+    Process hung = mock(Process.class);
+    when(hung.waitFor(anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(false);
+    when(hung.descendants()).thenReturn(java.util.stream.Stream.empty());
+    e = assertThrows(IllegalStateException.class,
+        env(pb -> hung)::bootstrap);
+    assertTrue(e.getMessage().contains("did not finish"), e.getMessage());
+    verify(hung).destroyForcibly();
+  }
+
+  @Test
+  void interruptedCheck_keepsTheInterrupt() throws Exception {
+    Process p = mock(Process.class);
+    when(p.waitFor(anyLong(), eq(TimeUnit.NANOSECONDS)))
+        .thenThrow(new InterruptedException());
+    PythonEnvironment env = env(pb -> p);
+
+    RuntimeException e = assertThrows(RuntimeException.class, env::bootstrap);
+    assertTrue(e.getMessage().contains("interrupted"));
+    assertTrue(Thread.interrupted());
+  }
+
+  @Test
+  void locate_searchesPathBeforeTheUsualPlaces(@TempDir Path dir)
+      throws IOException {
+    Path notExecutable = Files.createDirectory(dir.resolve("a"))
+        .resolve("python3");
+    Files.writeString(notExecutable, "");
+    Path bin = Files.createDirectory(dir.resolve("b"));
+    Path python = bin.resolve("python");
+    Files.writeString(python, "");
+    assertTrue(python.toFile().setExecutable(true));
+
+    String path = notExecutable.getParent() + java.io.File.pathSeparator
+        + java.io.File.pathSeparator + bin;
+    assertEquals(python.toString(), PythonEnvironment.locate(path));
+    assertNotNull(PythonEnvironment.locate(null));
+  }
+
+  @Test
+  void configuredInterpreter_isUsedAsIs() {
+    assertEquals("/opt/py/bin/python3", env(pb -> null).interpreter());
+    PythonEnvironment searched = new PythonEnvironment();
+    assertSame(searched.interpreter(), searched.interpreter());
+    assertEquals(PythonEnvironment.DEFAULT_PACKAGES, searched.packages());
+    assertNull(searched.version());
+  }
+}
@@ -1,13 +1,17 @@
 package com.example.market.service.forecast.python;
 
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.stock.StockDailySeries;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
- * Unit tests for PythonService.parseTrendMasterResponse that exercise
+ * Unit tests for PythonService.parseForecastSeries that exercise
  * both valid and invalid JSON responses.
  */
 class PythonServiceParsingTest {
@@ -15,7 +19,10 @@ class PythonServiceParsingTest {
   static class StubPythonService extends PythonService {
     private final String payload;
     StubPythonService(String payload) { this.payload = payload; }
-    @Override public String runTrendMaster() { return payload; }
+    @Override public String runTrendMaster(final StockDailySeries series,
+                                           final int horizon) {
+      return payload;
+    }
   }
 
   @Test
@@ -29,7 +36,8 @@ class PythonServiceParsingTest {
         }
         """;
 
-    Map<String, String> result = pythonService.parseTrendMasterResponse(json);
+    Map<String, String> result = pythonService.parseForecastSeries(json)
+        .toMap();
 
     assertEquals(2, result.size());
     assertEquals("150.23", result.get("2025-01-01"));
@@ -40,7 +48,7 @@ class PythonServiceParsingTest {
   void blankResponseThrowsHelpfulException() {
     StubPythonService pythonService = new StubPythonService("");
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> pythonService.parseTrendMasterResponse("   "));
+        () -> pythonService.parseForecastSeries("   "));
     assertTrue(ex.getMessage().contains("Empty response"),
         "Expected message to mention empty response");
   }
@@ -49,7 +57,7 @@ class PythonServiceParsingTest {
   void nonJsonResponseThrowsHelpfulException() {
     StubPythonService pythonService = new StubPythonService("");
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> pythonService.parseTrendMasterResponse("not-json"));
+        () -> pythonService.parseForecastSeries("not-json"));
     assertTrue(ex.getMessage().contains("not valid JSON"),
         "Expected message to mention invalid JSON");
   }
@@ -65,7 +73,7 @@ class PythonServiceParsingTest {
         """;
 
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> pythonService.parseTrendMasterResponse(jsonMissingFields));
+        () -> pythonService.parseForecastSeries(jsonMissingFields));
     assertTrue(ex.getMessage().contains("Missing 'Date' or 'Predicted_Close'"),
         "Expected message to mention missing Date or Predicted_Close");
   }
@@ -84,10 +92,77 @@ class PythonServiceParsingTest {
     // Outer JSON where the entire payload is a JSON-encoded string
     String wrapped = "\"" + inner.replace("\"", "\\\"") + "\"";
 
-    Map<String, String> result = pythonService.parseTrendMasterResponse(wrapped);
+    Map<String, String> result = pythonService.parseForecastSeries(wrapped)
+        .toMap();
 
     assertEquals(1, result.size());
     assertEquals("123.45", result.get("2025-01-01"));
   }
-  
+
+  @Test
+  void parseForecastSeries_readsDateOrderedSeriesWithModel() {
+    StubPythonService pythonService = new StubPythonService("");
+
+    String json = """
+        {
+          "Date": { "0": "2025-01-01", "1": "2025-01-02" },
+          "Predicted_Close": { "0": 150.23, "1": "151.78" }
+        }
+        """;
+
+    ForecastSeries series = pythonService.parseForecastSeries(json);
+
+    assertEquals(2, series.size());
+    assertEquals(LocalDate.of(2025, 1, 2), series.date(1));
+    assertEquals(150.23, series.price(0));
+    assertEquals("trendmaster", series.getModel());
+    assertFalse(series.hasBounds());
+  }
+
+  @Test
+  void parseForecastSeries_readsOptionalBounds() {
+    StubPythonService pythonService = new StubPythonService("");
+
+    String json = """
+        {
+          "Date": { "0": "2025-01-01" },
+          "Predicted_Close": { "0": 150 },
+          "Lower_Bound": { "0": 140 },
+          "Upper_Bound": { "0": 160 }
+        }
+        """;
+
+    ForecastSeries series = pythonService.parseForecastSeries(json);
+
+    assertTrue(series.hasBounds());
+    assertEquals(140.0, series.lower(0));
+    assertEquals(160.0, series.upper(0));
+  }
+
+  @Test
+  void parseForecastSeries_malformedRowsThrowHelpfulException() {
+    StubPythonService pythonService = new StubPythonService("");
+
+    RuntimeException badDate = assertThrows(RuntimeException.class,
+        () -> pythonService.parseForecastSeries(
+            "{\"Date\":{\"0\":\"soon\"},\"Predicted_Close\":{\"0\":1}}"));
+    assertTrue(badDate.getMessage().contains("Malformed forecast"));
+
+    assertThrows(RuntimeException.class,
+        () -> pythonService.parseForecastSeries(
+            "{\"Date\":{\"0\":\"2025-01-01\"},\"Predicted_Close\":{}}"));
+    assertThrows(RuntimeException.class,
+        () -> pythonService.parseForecastSeries("   "));
+  }
+
+  @Test
+  void predictSeries_runsTrendMasterAndParsesOutput() {
+    StubPythonService pythonService = new StubPythonService(
+        "{\"Date\":{\"0\":\"2025-01-01\"},\"Predicted_Close\":{\"0\":9.5}}");
+
+    ForecastSeries series = pythonService.predictSeries("AMZN", 1,
+        new StockDailySeries("AMZN", "2025-01-01", "test", List.of()));
+
+    assertEquals(9.5, series.price(0));
+  }
 }
@@ -0,0 +1,278 @@
+package com.example.market.service.forecast.python;
+
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
+import com.example.market.service.news.SentimentPythonService;
+import com.example.market.service.replay.InjectedFaults;
+import com.example.market.service.replay.ReplayFixtures;
+import com.example.market.service.replay.ReplayMode;
+import com.example.market.service.stock.JsonStore;
+import com.example.market.service.upstream.Upstreams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplayProcessRunnerTest {
+
+  private static final String SENTIMENT =
+      "{\"sentimentScore\": 2, \"sentimentLabel\": \"Positive\"}";
+
+  @TempDir
+  Path dir;
+
+  private ReplayFixtures fixtures(ReplayMode mode,
+                                  Map<String, InjectedFaults> faults) {
+    return new ReplayFixtures(mode, dir, new JsonStore(), faults);
+  }
+
+  private ReplayProcessRunner replaying(Map<String, InjectedFaults> faults) {
+    return new ReplayProcessRunner(fixtures(ReplayMode.REPLAY, faults),
+        pb -> fail("replays start nothing"));
+  }
+
+  private static PythonService python(ProcessRunner runner) {
+    return new PythonService(runner);
+  }
+
+  private static StockDailySeries series(int bars) {
+    List<StockBar> out = new ArrayList<>();
+    for (int i = 0; i < bars; i++) {
+      BigDecimal close = BigDecimal.valueOf(100 + i);
+      out.add(new StockBar(LocalDate.of(2025, 1, 1).plusDays(i).toString(),
+          close, close, close, close, 1000L));
+    }
+    return new StockDailySeries("X", "2025-02-01", "AlphaVantage", out);
+  }
+
+  private static String forecast(double price) {
+    return "{\"Date\": {\"0\": \"2025-02-03\"}, \"Predicted_Close\": {\"0\": "
+        + price + "}}";
+  }
+
+  private static Process finished(int exitCode, String stdout)
+      throws Exception {
+    Process process = mock(Process.class);
+    when(process.waitFor()).thenReturn(exitCode);
+    when(process.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+    when(process.getInputStream()).thenReturn(
+        new ByteArrayInputStream(stdout.getBytes(StandardCharsets.UTF_8)));
+    return process;
+  }
+
+  @Test
+  void forecasts_areRecordedPerSeries_andReplayedInAnyBatch()
+      throws Exception {
+    AtomicInteger runs = new AtomicInteger();
+    ReplayProcessRunner recording = new ReplayProcessRunner(
+        fixtures(ReplayMode.RECORD, Map.of()), pb -> {
+          runs.incrementAndGet();
+          return finished(0, "epoch 1/1\n{\"AAPL\": " + forecast(7.5)
+              + ", \"MSFT\": " + forecast(9.25) + "}\n");
+        });
+    Map<String, StockDailySeries> batch = new LinkedHashMap<>();
+    batch.put("AAPL", series(5));
+    batch.put("MSFT", series(6));
+    python(recording).runTrendMasterBatch(batch, 3);
+    assertEquals(1, runs.get());
+
+    PythonService replayed = python(replaying(Map.of()));
+
+    // alone, under another name
+    assertEquals(9.25, replayed.parseForecastSeries(
+        replayed.runTrendMaster(series(6), 3)).price(0));
+    // next to a series that was never recorded
+    Map<String, StockDailySeries> mixed = new LinkedHashMap<>();
+    mixed.put("AAPL", series(5));
+    mixed.put("TSLA", series(7));
+    Map<String, String> out = replayed.runTrendMasterBatch(mixed, 3);
+    assertEquals(7.5, replayed.parseForecastSeries(out.get("AAPL")).price(0));
+    RuntimeException e = assertThrows(RuntimeException.class,
+        () -> replayed.parseForecastSeries(out.get("TSLA")));
+    assertEquals("TrendMaster failed: no recording for TSLA", e.getMessage());
+    // the horizon is part of what was asked
+    assertThrows(RuntimeException.class, () -> replayed.parseForecastSeries(
+        replayed.runTrendMaster(series(6), 4)));
+  }
+
+  @Test
+  void workerReplies_areRecordedPerSeries_andReplayedByAWorker()
+      throws Exception {
+    TrendMasterWorkerPool recording = new TrendMasterWorkerPool(
+        python(new ReplayProcessRunner(fixtures(ReplayMode.RECORD, Map.of()),
+            pb -> new TrendMasterWorkerPoolTest.FakeWorker())),
+        1, 16, Duration.ofSeconds(5));
+    try {
+      recording.run(Map.of("AAPL", series(5)), 3);
+      recording.run(Map.of("AAPL", series(5)), 4);
+      recording.run(Map.of("AAPL", series(6)), 3);
+    } finally {
+      recording.destroy();
+    }
+
+    PythonService python = python(replaying(Map.of()));
+    TrendMasterWorkerPool replayed =
+        new TrendMasterWorkerPool(python, 1, 16, Duration.ofSeconds(5));
+    try {
+      replayed.warmUp();
+      // recorded from a worker, replayed by an isolated run
+      assertEquals(1.5, python.parseForecastSeries(
+          python.runTrendMaster(series(5), 3)).price(0));
+
+      Map<String, String> out = replayed.run(Map.of("MSFT", series(5)), 3);
+      assertEquals(1.5, python.parseForecastSeries(out.get("MSFT")).price(0));
+      assertEquals(1, replayed.coldForecasts());
+      // the same window and horizon again, next to an unrecorded series
+      out = replayed.run(Map.of("MSFT", series(5), "TSLA", series(7)), 3);
+      assertTrue(out.get("TSLA").contains("no recording for TSLA"));
+      assertEquals(1, replayed.hits());
+      // a new horizon over the same window, then a new window
+      replayed.run(Map.of("MSFT", series(5)), 4);
+      assertEquals(1, replayed.warmForecasts());
+      replayed.run(Map.of("MSFT", series(6)), 3);
+      assertEquals(2, replayed.coldForecasts());
+      assertEquals(0, replayed.fallbacks());
+    } finally {
+      replayed.destroy();
+    }
+  }
+
+  @Test
+  void replayedWorker_diesOnAnInjectedFailure_andTheBatchRunsIsolated() {
+    InjectedFaults failing =
+        new InjectedFaults(Duration.ZERO, Duration.ZERO, 1, 0);
+    TrendMasterWorkerPool pool = new TrendMasterWorkerPool(
+        python(replaying(Map.of(Upstreams.FORECAST, failing))),
+        1, 16, Duration.ofSeconds(5));
+    try {
+      pool.warmUp();
+      assertThrows(RuntimeException.class,
+          () -> pool.run(Map.of("AAPL", series(3)), 1));
+      assertEquals(1, pool.fallbacks());
+    } finally {
+      pool.destroy();
+    }
+  }
+
+  @Test
+  void sentiment_isRecordedByText_andReplayed() throws Exception {
+    SentimentPythonService recording = new SentimentPythonService(
+        new ReplayProcessRunner(fixtures(ReplayMode.RECORD, Map.of()),
+            pb -> finished(0, "loading model\n" + SENTIMENT + "\n")));
+    assertEquals(2, recording.analyzeSentiment("Shares rose").getSentimentScore());
+
+    SentimentPythonService replayed =
+        new SentimentPythonService(replaying(Map.of()));
+
+    assertEquals("Positive",
+        replayed.analyzeSentiment("Shares rose").getSentimentLabel());
+    RuntimeException e = assertThrows(RuntimeException.class,
+        () -> replayed.analyzeSentiment("Shares fell"));
+    assertTrue(e.getMessage().contains("No recording of sentiment_model.py"),
+        e.getMessage());
+  }
+
+  @Test
+  void replay_injectsFailures_perDependency() {
+    InjectedFaults failing =
+        new InjectedFaults(Duration.ZERO, Duration.ZERO, 1, 0);
+    SentimentPythonService sentiment = new SentimentPythonService(
+        replaying(Map.of(Upstreams.SENTIMENT, failing)));
+    PythonService forecast = python(replaying(Map.of()));
+
+    RuntimeException e = assertThrows(RuntimeException.class,
+        () -> sentiment.analyzeSentiment("Shares rose"));
+    assertTrue(e.getMessage().contains("Injected failure"), e.getMessage());
+    // forecasts have faults of their own: this one is simply not recorded
+    Map<String, String> out =
+        forecast.runTrendMasterBatch(Map.of("AAPL", series(3)), 1);
+    assertTrue(out.get("AAPL").contains("no recording"));
+  }
+
+  @Test
+  void replay_isKilledWhenTheDeadlinePasses() {
+    PythonService forecast = python(replaying(Map.of(Upstreams.FORECAST,
+        new InjectedFaults(Duration.ofSeconds(10), Duration.ofSeconds(10),
+            0, 0))));
+
+    long start = System.nanoTime();
+    try (Deadline.Scope scope =
+             Deadline.after(Duration.ofMillis(50)).bind()) {
+      assertThrows(DeadlineExceededException.class,
+          () -> forecast.runTrendMaster(series(3), 1));
+    }
+    assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+  }
+
+  @Test
+  void replayedProcess_behavesLikeAProcess() throws Exception {
+    Process process = replaying(Map.of())
+        .start(new ProcessBuilder("python3", "other.py", "--flag"));
+
+    assertTrue(process.isAlive());
+    assertThrows(IllegalThreadStateException.class, process::exitValue);
+    assertEquals(0, process.descendants().count());
+    assertEquals(-1, process.getErrorStream().read());
+
+    process.destroyForcibly();
+
+    assertTrue(process.waitFor(1, TimeUnit.SECONDS));
+    assertEquals(ReplayProcessRunner.KILLED, process.exitValue());
+    assertFalse(process.isAlive());
+    assertEquals(-1, process.getInputStream().read());
+  }
+
+  @Test
+  void recording_delegatesToTheRealProcess_andSkipsKilledRuns()
+      throws Exception {
+    Process real = finished(0, "ok\n");
+    when(real.waitFor(anyLong(), any())).thenReturn(true);
+    when(real.exitValue()).thenReturn(ReplayProcessRunner.KILLED);
+    when(real.isAlive()).thenReturn(false);
+    when(real.pid()).thenReturn(42L);
+    ReplayProcessRunner runner = new ReplayProcessRunner(
+        fixtures(ReplayMode.RECORD, Map.of()), pb -> real);
+
+    Process process = runner.start(new ProcessBuilder("python3", "a.py"));
+    process.getOutputStream().write('x');
+    assertEquals('o', process.getInputStream().read());
+
+    assertTrue(process.waitFor(1, TimeUnit.SECONDS));
+    assertEquals(42L, process.pid());
+    assertFalse(process.isAlive());
+    process.destroy();
+    assertSame(process, process.destroyForcibly());
+    verify(real).destroy();
+    verify(real).destroyForcibly();
+    assertFalse(Files.exists(dir.resolve(ReplayProcessRunner.RUNS)));
+  }
+
+  @Test
+  void seriesKey_dependsOnHorizonAndBars() {
+    byte[] bars = {1, 2, 3};
+
+    assertEquals(16, ReplayProcessRunner.seriesKey("3", bars).length());
+    assertEquals(ReplayProcessRunner.seriesKey("3", bars),
+        ReplayProcessRunner.seriesKey("3", bars.clone()));
+    assertNotEquals(ReplayProcessRunner.seriesKey("3", bars),
+        ReplayProcessRunner.seriesKey("4", bars));
+  }
+}
@@ -0,0 +1,124 @@
+package com.example.market.service.forecast.python;
+
+import com.example.market.service.upstream.Upstreams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrendMasterHealthIndicatorTest {
+
+  private final PythonEnvironment env = mock(PythonEnvironment.class);
+  private final TrendMasterWorkerPool pool = mock(TrendMasterWorkerPool.class);
+  private final List<TrendMasterHealthIndicator> indicators = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    indicators.forEach(TrendMasterHealthIndicator::destroy);
+  }
+
+  private TrendMasterHealthIndicator indicator(boolean enabled,
+                                               Duration retry) {
+    when(env.interpreter()).thenReturn("/usr/bin/python3");
+    when(env.packages()).thenReturn(PythonEnvironment.DEFAULT_PACKAGES);
+    when(pool.size()).thenReturn(2);
+    TrendMasterHealthIndicator h =
+        new TrendMasterHealthIndicator(env, pool, enabled, retry);
+    indicators.add(h);
+    return h;
+  }
+
+  @Test
+  void notReady_untilTheWorkersAreWarm() {
+    TrendMasterHealthIndicator h = indicator(true, Duration.ofMinutes(5));
+
+    assertFalse(h.isReady());
+    assertEquals(Upstreams.DEGRADED, h.health().getStatus());
+    assertTrue(h.reason().contains("warming up"));
+
+    when(env.version()).thenReturn("3.11.4");
+    h.bootstrap();
+
+    assertTrue(h.isReady());
+    Health health = h.health();
+    assertEquals(Status.UP, health.getStatus());
+    assertEquals("ready", health.getDetails().get("bootstrap"));
+    assertEquals("3.11.4", health.getDetails().get("pythonVersion"));
+    assertEquals(2, health.getDetails().get("workers"));
+    verify(env).bootstrap();
+    verify(pool).warmUp();
+  }
+
+  @Test
+  void startRunsTheBootstrapInTheBackground() {
+    TrendMasterHealthIndicator h = indicator(true, Duration.ofMinutes(5));
+
+    h.start();
+
+    verify(pool, timeout(5_000)).warmUp();
+  }
+
+  @Test
+  void failure_isReportedDown_andRetried() {
+    doThrow(new IllegalStateException("Missing Python packages: torch"))
+        .doNothing().when(env).bootstrap();
+    TrendMasterHealthIndicator h = indicator(true, Duration.ofMillis(20));
+
+    h.start();
+    verify(env, timeout(5_000).times(2)).bootstrap();
+    verify(pool, timeout(5_000)).warmUp();
+
+    assertTrue(h.isReady());
+    assertEquals(TrendMasterHealthIndicator.State.READY, h.state());
+  }
+
+  @Test
+  void failedWarmUp_keepsForecastsOff_andIsDegraded() {
+    doNothing().when(env).bootstrap();
+    doThrow(new IllegalStateException("TrendMaster worker 0 did not start"))
+        .when(pool).warmUp();
+    TrendMasterHealthIndicator h = indicator(true, Duration.ofMinutes(5));
+
+    h.bootstrap();
+
+    assertFalse(h.isReady());
+    Health health = h.health();
+    assertEquals(Upstreams.DEGRADED, health.getStatus());
+    assertEquals("TrendMaster worker 0 did not start",
+        health.getDetails().get("error"));
+    assertEquals("TrendMaster worker 0 did not start", h.reason());
+  }
+
+  @Test
+  void disabled_servesRightAway_withoutChecking() {
+    TrendMasterHealthIndicator h = indicator(false, Duration.ofMinutes(5));
+
+    h.start();
+
+    assertTrue(h.isReady());
+    assertEquals(Status.UP, h.health().getStatus());
+    assertEquals("disabled", h.health().getDetails().get("bootstrap"));
+    verify(env, never()).bootstrap();
+    verify(pool, times(0)).warmUp();
+  }
+
+  @Test
+  void nonPositiveRetry_isRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new TrendMasterHealthIndicator(env, pool, true, Duration.ZERO));
+  }
+}
@@ -0,0 +1,123 @@
+package com.example.market.service.forecast.python;
+
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendMasterInputTest {
+
+  private static StockBar bar(String day, String close) {
+    BigDecimal c = new BigDecimal(close);
+    return new StockBar(day, c, c, c, c, 1L);
+  }
+
+  private static StockDailySeries series(List<StockBar> bars) {
+    return new StockDailySeries("X", "t", "s", bars);
+  }
+
+  private static ByteBuffer read(byte[] block) {
+    return ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Test
+  void encodesTrailingWindow_littleEndian_oldestFirst() {
+    List<StockBar> bars = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      bars.add(bar(LocalDate.of(2025, 1, 1).plusDays(i).toString(), "10" + i + ".25"));
+    }
+    Map<String, StockDailySeries> in = new LinkedHashMap<>();
+    in.put("AMZN", series(bars));
+    in.put("É", series(null));
+
+    ByteBuffer b = read(TrendMasterInput.encode(in, 3));
+
+    byte[] magic = new byte[4];
+    b.get(magic);
+    assertArrayEquals(TrendMasterInput.MAGIC, magic);
+    assertEquals(2, b.getInt());
+    assertEquals(4, b.getInt());
+    byte[] name = new byte[4];
+    b.get(name);
+    assertEquals("AMZN", new String(name, StandardCharsets.UTF_8));
+    assertEquals(3, b.getInt());
+    long first = LocalDate.of(2025, 1, 3).toEpochDay();
+    assertEquals(first, b.getLong());
+    assertEquals(first + 1, b.getLong());
+    assertEquals(first + 2, b.getLong());
+    assertEquals(102.25, b.getDouble());
+    assertEquals(103.25, b.getDouble());
+    assertEquals(104.25, b.getDouble());
+    assertEquals(2, b.getInt(), "two UTF-8 bytes");
+    b.get(new byte[2]);
+    assertEquals(0, b.getInt());
+    assertFalse(b.hasRemaining());
+  }
+
+  @Test
+  void keepsTheDatePartOfTimestamps() {
+    List<StockBar> bars = List.of(
+        bar("2025-01-01", "1"),
+        bar("2025-01-02T16:00:00Z", "2"),
+        bar("2025-01-04", "4"));
+
+    ByteBuffer b = read(TrendMasterInput.encode(Map.of("X", series(bars)), 2));
+
+    b.position(4 + 4 + 4 + 1);
+    assertEquals(2, b.getInt());
+    assertEquals(LocalDate.of(2025, 1, 2).toEpochDay(), b.getLong());
+    assertEquals(LocalDate.of(2025, 1, 4).toEpochDay(), b.getLong());
+    assertEquals(2.0, b.getDouble());
+    assertEquals(4.0, b.getDouble());
+  }
+
+  @Test
+  void badTimestamp_isRejected() {
+    Map<String, StockDailySeries> in =
+        Map.of("X", series(List.of(bar("yesterday", "1"))));
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> TrendMasterInput.encode(in, 30));
+    assertTrue(e.getMessage().contains("yesterday"));
+  }
+
+  @Test
+  void split_isTheInverseOfEncode() {
+    Map<String, StockDailySeries> in = new LinkedHashMap<>();
+    in.put("AAPL", series(List.of(bar("2025-01-01", "1"),
+        bar("2025-01-02", "2"))));
+    in.put("É", series(null));
+    byte[] block = TrendMasterInput.encode(in, 30);
+
+    Map<String, byte[]> out = TrendMasterInput.split(block);
+
+    assertEquals(List.of("AAPL", "É"), List.copyOf(out.keySet()));
+    ByteBuffer aapl = read(out.get("AAPL"));
+    assertEquals(2, aapl.getInt());
+    assertEquals(4 + 2 * 16, out.get("AAPL").length);
+    assertArrayEquals(new byte[4], out.get("É"));
+  }
+
+  @Test
+  void split_rejectsMalformedBlocks() {
+    byte[] block = TrendMasterInput.encode(
+        Map.of("X", series(List.of(bar("2025-01-01", "1")))), 30);
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> TrendMasterInput.split("{}".getBytes(StandardCharsets.UTF_8)));
+    assertEquals("Not a TrendMaster input block", e.getMessage());
+    assertThrows(IllegalArgumentException.class, () -> TrendMasterInput.split(
+        java.util.Arrays.copyOf(block, block.length - 1)));
+  }
+}
@@ -0,0 +1,646 @@
+package com.example.market.service.forecast.python;
+
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
+import com.example.market.service.PipelineMetrics;
+import com.example.market.service.demand.SymbolDemand;
+import com.example.market.service.forecast.ForecastBatcher;
+import com.example.market.service.forecast.ForecastDataService;
+import com.example.market.service.jfr.PythonProcessEvent;
+import com.example.market.service.jfr.Recordings;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendMasterWorkerPoolTest {
+
+  private static final String FORECAST =
+      "{\"Date\":{\"0\":\"2025-01-02\"},\"Predicted_Close\":{\"0\":\"1.5\"}}";
+
+  private final List<TrendMasterWorkerPool> pools = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    pools.forEach(TrendMasterWorkerPool::destroy);
+  }
+
+  /** Starts {@link FakeWorker}s and answers isolated fallback runs. */
+  static class StubPython extends PythonService {
+    final List<FakeWorker> started = new CopyOnWriteArrayList<>();
+    final List<Map<String, StockDailySeries>> isolated =
+        new CopyOnWriteArrayList<>();
+    /** Decides how each new worker behaves. */
+    Function<Integer, FakeWorker> workers = n -> new FakeWorker();
+
+    StubPython() {
+      super((ProcessRunner) null);
+    }
+
+    @Override
+    Process start(ProcessBuilder pb) throws IOException {
+      assertEquals(TrendMasterWorkerPool.WORKER_INPUT,
+          pb.environment().get(INPUT_ENV));
+      assertEquals("16",
+          pb.environment().get(TrendMasterWorkerPool.CAPACITY_ENV));
+      FakeWorker w = workers.apply(started.size());
+      started.add(w);
+      return w;
+    }
+
+    @Override
+    public Map<String, String> runTrendMasterBatch(
+        Map<String, StockDailySeries> series, int horizon) {
+      isolated.add(series);
+      Map<String, String> out = new HashMap<>();
+      series.keySet().forEach(s -> out.put(s, "isolated"));
+      return out;
+    }
+  }
+
+  /**
+   * Stands in for a main.py worker: decodes requests, remembers the
+   * symbols it has seen and replies the way the script does.
+   */
+  static class FakeWorker extends Process {
+    // an OS pipe: a java.io pipe breaks once the thread that last wrote
+    // to it dies, as an interrupted caller's does
+    private final OutputStream stdin;
+    private final PipedInputStream stdout = new PipedInputStream(1 << 16);
+    private final PipedOutputStream replies = new PipedOutputStream();
+    private final CountDownLatch exited = new CountDownLatch(1);
+    final Set<String> held = new HashSet<>();
+    final List<List<String>> requests = new CopyOnWriteArrayList<>();
+    final List<Integer> horizons = new CopyOnWriteArrayList<>();
+    final List<List<Boolean>> admissions = new CopyOnWriteArrayList<>();
+    /** Requests answered before one kills it; negative never dies. */
+    int answers = -1;
+    /** Requests read but never answered. */
+    boolean silent;
+    /** If set, replies wait until it is released. */
+    volatile CountDownLatch release;
+    /** Whether the next reply is the first, which reports the load. */
+    private boolean first = true;
+
+    FakeWorker() {
+      try {
+        Pipe input = Pipe.open();
+        stdin = Channels.newOutputStream(input.sink());
+        InputStream requestsIn = Channels.newInputStream(input.source());
+        replies.connect(stdout);
+        Thread t = new Thread(() -> serve(requestsIn));
+        t.setDaemon(true);
+        t.start();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private void serve(InputStream in) {
+      try (DataInputStream data = new DataInputStream(in)) {
+        while (true) {
+          byte[] head = new byte[4];
+          data.readFully(head);
+          byte[] body = new byte[le(head).getInt()];
+          data.readFully(body);
+          ByteBuffer b = le(body);
+          horizons.add(b.getInt());
+          List<String> symbols = symbols(b);
+          requests.add(symbols);
+          List<Boolean> admitted = new ArrayList<>();
+          while (b.hasRemaining()) {
+            admitted.add(b.get() == 1);
+          }
+          admissions.add(admitted);
+          if (answers == 0) {
+            break;
+          }
+          if (silent) {
+            continue;
+          }
+          if (release != null) {
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              break;
+            }
+          }
+          StringBuilder results = new StringBuilder();
+          StringBuilder state = new StringBuilder();
+          for (String s : symbols) {
+            String sep = results.isEmpty() ? "" : ",";
+            results.append(sep).append('"').append(s).append("\":")
+                .append(s.startsWith("BAD") ? "{\"error\":\"no bars\"}"
+                    : "\"" + FORECAST.replace("\"", "\\\"") + "\"");
+            state.append(sep).append('"').append(s).append("\":\"")
+                .append(held.add(s) ? "cold" : "hit").append('"');
+          }
+          String timings = (first ? "\"load\":2.0" : "")
+              + (symbols.isEmpty() ? "" : (first ? "," : "")
+                  + "\"inference\":0.5");
+          first = false;
+          replies.write(("progress 100%@@TM {\"results\":{" + results
+              + "},\"state\":{" + state + "},\"timings\":{" + timings
+              + "}}\n").getBytes(StandardCharsets.UTF_8));
+          replies.flush();
+          answers--;
+        }
+      } catch (IOException e) {
+        // stdin closed or destroyed: exit
+      }
+      destroy();
+    }
+
+    private static ByteBuffer le(byte[] bytes) {
+      return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static List<String> symbols(ByteBuffer b) {
+      b.position(b.position() + TrendMasterInput.MAGIC.length);
+      int count = b.getInt();
+      List<String> out = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        byte[] name = new byte[b.getInt()];
+        b.get(name);
+        out.add(new String(name, StandardCharsets.UTF_8));
+        int bars = b.getInt();
+        b.position(b.position() + bars * 16);
+      }
+      return out;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return stdin;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return stdout;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return InputStream.nullInputStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+      exited.await();
+      return 0;
+    }
+
+    @Override
+    public int exitValue() {
+      if (exited.getCount() > 0) {
+        throw new IllegalThreadStateException("running");
+      }
+      return 0;
+    }
+
+    @Override
+    public boolean isAlive() {
+      return exited.getCount() > 0;
+    }
+
+    @Override
+    public Stream<ProcessHandle> descendants() {
+      return Stream.empty();
+    }
+
+    @Override
+    public void destroy() {
+      exited.countDown();
+      try {
+        replies.close();
+        stdin.close();
+      } catch (IOException e) {
+        // already closed
+      }
+    }
+  }
+
+  private TrendMasterWorkerPool pool(StubPython python, int count,
+                                     Duration replyTimeout) {
+    TrendMasterWorkerPool p =
+        new TrendMasterWorkerPool(python, count, 16, replyTimeout);
+    pools.add(p);
+    return p;
+  }
+
+  private TrendMasterWorkerPool pool(StubPython python, int count) {
+    return pool(python, count, Duration.ofSeconds(5));
+  }
+
+  private static Map<String, StockDailySeries> series(String... symbols) {
+    Map<String, StockDailySeries> out = new LinkedHashMap<>();
+    for (String s : symbols) {
+      BigDecimal c = BigDecimal.ONE;
+      out.put(s, new StockDailySeries(s, "t", "s",
+          List.of(new StockBar("2025-01-01", c, c, c, c, 1L))));
+    }
+    return out;
+  }
+
+  /** Two symbols that hash to different workers of a pool of two. */
+  private static String[] split(TrendMasterWorkerPool pool) {
+    String first = "AAPL";
+    for (String s : List.of("MSFT", "AMZN", "GOOG", "NVDA", "TSLA")) {
+      if (pool.route(s) != pool.route(first)) {
+        return new String[] {first, s};
+      }
+    }
+    throw new AssertionError("no two symbols on different workers");
+  }
+
+  @Test
+  void sameSymbol_goesToTheWorkerHoldingItsState() {
+    StubPython python = new StubPython();
+    TrendMasterWorkerPool p = pool(python, 2);
+
+    assertEquals(1.5, python.parseForecastSeries(
+        p.run(series("AAPL"), 10).get("AAPL")).price(0));
+    p.run(series("AAPL"), 10);
+    p.run(series("AAPL"), 5);
+
+    assertEquals(1, python.started.size(), "one worker owns AAPL");
+    FakeWorker w = python.started.get(0);
+    assertEquals(3, w.requests.size());
+    assertEquals(List.of(10, 10, 5), w.horizons);
+    assertEquals(1, p.coldForecasts());
+    assertEquals(2, p.hits());
+    assertEquals(0, p.fallbacks());
+    assertEquals(p.route("AAPL"), p.route("AAPL"));
+  }
+
+  @Test
+  void singleSymbolForecasts_areServedByTheStickyWorker() {
+    StubPython python = new StubPython();
+    TrendMasterWorkerPool p = pool(python, 2);
+    ForecastBatcher batcher =
+        new ForecastBatcher(python, p, Duration.ZERO, 8);
+    ForecastDataService forecast = new ForecastDataService(batcher);
+    StockDailySeries amzn = series("AMZN").get("AMZN");
+    try {
+      forecast.predictSeries("AMZN", 10, amzn);
+      assertEquals(1.5, forecast.predictSeries("AMZN", 10, amzn).price(0));
+    } finally {
+      batcher.destroy();
+    }
+
+    assertEquals(1, python.started.size(), "no cold start on the repeat");
+    assertEquals(1, p.coldForecasts());
+    assertEquals(1, p.hits());
+    assertTrue(python.isolated.isEmpty());
+  }
+
+  @Test
+  void batchSpanningWorkers_isSplitByOwner_andMerged() {
+    StubPython python = new StubPython();
+    TrendMasterWorkerPool p = pool(python, 2);
+    String[] symbols = split(p);
+
+    Map<String, String> out = p.run(series(symbols[0], symbols[1]), 10);
+
+    assertEquals(2, out.size());
+    assertTrue(out.values().stream().allMatch(v -> v.contains("2025-01-02")));
+    assertEquals(2, python.started.size());
+    python.started.forEach(w -> assertEquals(1, w.requests.get(0).size()));
+    assertEquals(2, p.coldForecasts());
+  }
+
+  @Test
+  void symbolErrors_arePassedThrough() {
+    StubPython python = new StubPython();
+    TrendMasterWorkerPool p = pool(python, 1);
+
+    Map<String, String> out = p.run(series("BAD", "OK"), 10);
+
+    RuntimeException e = assertThrows(RuntimeException.class,
+        () -> python.parseForecastSeries(out.get("BAD")));
+    assertTrue(e.getMessage().contains("no bars"));
+    assertEquals(1.5, python.parseForecastSeries(out.get("OK")).price(0));
+  }
+
+  @Test
+  void deadWorker_fallsBackToAnIsolatedRun_andRestartsCold() {
+    StubPython python = new StubPython();
+    python.workers = n -> {
+      FakeWorker w = new FakeWorker();
+      w.answers = n == 0 ? 1 : -1;
+      return w;
+    };
+    TrendMasterWorkerPool p = pool(python, 1);
+
+    p.run(series("A"), 10);
+    Map<String, String> out = p.run(series("A"), 10);
+
+    assertEquals("isolated", out.get("A"));
+    assertEquals(1, p.fallbacks());
+    assertEquals(1, python.isolated.size());
+
+    p.run(series("A"), 10);
+    assertEquals(2, python.started.size(), "restarted by the next request");
+    assertEquals(2, p.coldForecasts(), "a restarted worker has no state");
+    assertEquals(0, p.hits());
+  }
+
+  @Test
+  void workerThatCannotStart_fallsBack() {
+    StubPython python = new StubPython();
+    python.workers = n -> {
+      throw new IllegalStateException("no python3");
+    };
+    TrendMasterWorkerPool p = pool(python, 2);
+
+    assertEquals("isolated", p.run(series("A"), 10).get("A"));
+    assertEquals(1, p.fallbacks());
+  }
+
+  @Test
+  void silentWorker_isStoppedAfterTheReplyTimeout() {
+    StubPython python = new StubPython();
+    python.workers = n -> {
+      FakeWorker w = new FakeWorker();
+      w.silent = true;
+      return w;
+    };
+    TrendMasterWorkerPool p = pool(python, 1, Duration.ofMillis(100));
+
+    assertEquals("isolated", p.run(series("A"), 10).get("A"));
+    assertFalse(python.started.get(0).isAlive());
+  }
+
+  @Test
+  void interruptedCaller_keepsTheWorker_andItsLateReplyIsDiscarded()
+      throws Exception {
+    StubPython python = new StubPython();
+    CountDownLatch release = new CountDownLatch(1);
+    python.workers = n -> {
+      FakeWorker w = new FakeWorker();
+      w.release = release;
+      return w;
+    };
+    TrendMasterWorkerPool p = pool(python, 1);
+    List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+    Thread caller = new Thread(() -> {
+      try {
+        p.run(series("A"), 10);
+      } catch (RuntimeException e) {
+        failures.add(e);
+        assertTrue(Thread.currentThread().isInterrupted());
+      }
+    });
+    caller.start();
+    while (python.started.isEmpty()
+        || python.started.get(0).requests.isEmpty()) {
+      Thread.sleep(5);
+    }
+    caller.interrupt();
+    caller.join(5_000);
+
+    assertEquals(1, failures.size());
+    assertTrue(failures.get(0).getMessage().contains("interrupted"));
+    assertTrue(python.started.get(0).isAlive());
+
+    release.countDown();
+    assertEquals(1.5, python.parseForecastSeries(
+        p.run(series("A"), 10).get("A")).price(0));
+    assertEquals(1, python.started.size());
+    assertEquals(2, python.started.get(0).requests.size());
+    // the cold reply went to the interrupted caller and was dropped
+    assertEquals(0, p.coldForecasts());
+    assertEquals(1, p.hits());
+    assertTrue(python.isolated.isEmpty());
+  }
+
+  @Test
+  void abandonedBatch_keepsTheWorker() throws Exception {
+    StubPython python = new StubPython();
+    CountDownLatch release = new CountDownLatch(1);
+    python.workers = n -> {
+      FakeWorker w = new FakeWorker();
+      w.release = release;
+      return w;
+    };
+    TrendMasterWorkerPool p = pool(python, 1);
+    ForecastBatcher batcher =
+        new ForecastBatcher(python, p, Duration.ZERO, 8);
+    ForecastDataService forecast = new ForecastDataService(batcher);
+    StockDailySeries amzn = series("AMZN").get("AMZN");
+    try {
+      try (Deadline.Scope ignored =
+               Deadline.after(Duration.ofMillis(100)).bind()) {
+        assertThrows(DeadlineExceededException.class,
+            () -> forecast.predictSeries("AMZN", 10, amzn));
+      }
+      assertTrue(python.started.get(0).isAlive());
+
+      release.countDown();
+      assertEquals(1.5, forecast.predictSeries("AMZN", 10, amzn).price(0));
+    } finally {
+      batcher.destroy();
+    }
+    assertEquals(1, python.started.size(), "the worker was not restarted");
+    assertEquals(1, p.hits());
+    assertTrue(python.isolated.isEmpty());
+  }
+
+  @Test
+  void shutDownPool_doesNotFallBack() {
+    StubPython python = new StubPython();
+    TrendMasterWorkerPool p = pool(python, 1);
+    p.run(series("A"), 10);
+
+    p.destroy();
+
+    assertFalse(python.started.get(0).isAlive());
+    assertThrows(RuntimeException.class, () -> p.run(series("A"), 10));
+    assertTrue(python.isolated.isEmpty());
+  }
+
+  @Test
+  void warmUp_startsEveryWorker_withAnEmptyRequest() {
+    StubPython python = new StubPython();
+    TrendMasterWorkerPool p = pool(python, 2);
+
+    p.warmUp();
+
+    assertEquals(2, p.size());
+    assertEquals(2, python.started.size());
+    python.started.forEach(w -> {
+      assertEquals(List.of(List.of()), w.requests);
+      assertTrue(w.isAlive());
+    });
+    p.run(series("AAPL"), 10);
+    assertEquals(2, python.started.size(), "warm workers are reused");
+  }
+
+  @Test
+  void modelLoadAndInference_areRecordedAsStages_andStatesExported() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Metrics.globalRegistry.add(registry);
+    try {
+      StubPython python = new StubPython();
+      TrendMasterWorkerPool p = pool(python, 1);
+      p.bindTo(registry);
+
+      p.warmUp();
+      p.run(series("AAPL"), 10);
+      p.run(series("AAPL"), 10);
+
+      assertEquals(2.0, registry.get(PipelineMetrics.STAGE_TIMER)
+          .tag("stage", PipelineMetrics.MODEL_LOAD).timer()
+          .totalTime(TimeUnit.SECONDS), 1e-6, "load reported once");
+      assertEquals(2, registry.get(PipelineMetrics.STAGE_TIMER)
+          .tag("stage", PipelineMetrics.INFERENCE).timer().count(),
+          "the warm-up ping has no inference");
+      assertEquals(1.0, registry.get(TrendMasterWorkerPool.SYMBOLS_METER)
+          .tag("state", "cold").functionCounter().count());
+      assertEquals(1.0, registry.get(TrendMasterWorkerPool.SYMBOLS_METER)
+          .tag("state", "hit").functionCounter().count());
+      assertEquals(0.0, registry.get(TrendMasterWorkerPool.SYMBOLS_METER)
+          .tag("state", "warm").functionCounter().count());
+      assertEquals(0.0, registry.get(TrendMasterWorkerPool.FALLBACKS_METER)
+          .functionCounter().count());
+    } finally {
+      Metrics.globalRegistry.remove(registry);
+    }
+  }
+
+  @Test
+  void workerRequests_areRecordedAsPythonProcessEvents() throws Exception {
+    StubPython python = new StubPython();
+    TrendMasterWorkerPool p = pool(python, 1);
+
+    List<RecordedEvent> events = Recordings.record(PythonProcessEvent.class,
+        () -> {
+          p.warmUp();
+          p.run(series("AAPL"), 10);
+        });
+
+    assertEquals(2, events.size());
+    for (RecordedEvent e : events) {
+      assertEquals("main.py", e.getString("script"));
+      assertEquals("worker", e.getString("mode"));
+      assertEquals(PythonProcessEvent.STILL_RUNNING, e.getInt("exitCode"));
+      assertTrue(e.getLong("bytesIn") > 0);
+      assertTrue(e.getLong("bytesOut") > 0);
+    }
+    assertEquals("", events.get(0).getString("symbols"));
+    assertEquals("AAPL", events.get(1).getString("symbols"));
+  }
+
+  @Test
+  void warmUp_failsWhenAWorkerCannotStart() {
+    StubPython python = new StubPython();
+    python.workers = n -> {
+      FakeWorker w = new FakeWorker();
+      w.answers = n == 1 ? 0 : -1;
+      return w;
+    };
+    TrendMasterWorkerPool p = pool(python, 2);
+
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, p::warmUp);
+    assertTrue(e.getMessage().contains("worker 1"), e.getMessage());
+    assertFalse(python.started.get(1).isAlive());
+  }
+
+  @Test
+  void noWorkers_runsIsolated() {
+    StubPython python = new StubPython();
+    TrendMasterWorkerPool p = new TrendMasterWorkerPool(python);
+    pools.add(p);
+
+    assertEquals("isolated", p.run(series("A"), 10).get("A"));
+    assertTrue(python.started.isEmpty());
+  }
+
+  @Test
+  void frame_prefixesLengthAndHorizonAndEndsWithAdmissions() {
+    byte[] frame = TrendMasterWorkerPool.frame(series("A", "B"), 7,
+        "B"::equals);
+    ByteBuffer b = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+
+    assertEquals(frame.length - 4, b.getInt());
+    assertEquals(7, b.getInt());
+    byte[] magic = new byte[4];
+    b.get(magic);
+    assertArrayEquals(TrendMasterInput.MAGIC, magic);
+    assertEquals(0, frame[frame.length - 2]);
+    assertEquals(1, frame[frame.length - 1]);
+  }
+
+  @Test
+  void symbolsSeldomAskedFor_areSentUnadmitted() {
+    StubPython python = new StubPython();
+    SymbolDemand demand = new SymbolDemand(1024, 4, 16, 0);
+    demand.record("HOT");
+    demand.record("HOT");
+    demand.record("ONCE");
+    TrendMasterWorkerPool p = new TrendMasterWorkerPool(python, 1, 16,
+        Duration.ofSeconds(5), demand, 2);
+    pools.add(p);
+
+    p.run(series("HOT", "ONCE", "NEVER"), 10);
+
+    assertEquals(List.of(List.of(true, false, false)),
+        python.started.get(0).admissions);
+  }
+
+  @Test
+  void admitAfterOne_admitsEverySymbol() {
+    StubPython python = new StubPython();
+    TrendMasterWorkerPool p = new TrendMasterWorkerPool(python, 1, 16,
+        Duration.ofSeconds(5), new SymbolDemand(1024, 4, 16, 0), 1);
+    pools.add(p);
+
+    p.run(series("NEVER"), 10);
+
+    assertEquals(List.of(List.of(true)), python.started.get(0).admissions);
+  }
+
+  @Test
+  void invalidSettings_areRejected() {
+    StubPython python = new StubPython();
+    assertThrows(IllegalArgumentException.class,
+        () -> new TrendMasterWorkerPool(python, -1, 16, Duration.ofSeconds(1)));
+    assertThrows(IllegalArgumentException.class,
+        () -> new TrendMasterWorkerPool(python, 1, 0, Duration.ofSeconds(1)));
+    assertThrows(IllegalArgumentException.class,
+        () -> new TrendMasterWorkerPool(python, 1, 16, Duration.ZERO));
+  }
+}
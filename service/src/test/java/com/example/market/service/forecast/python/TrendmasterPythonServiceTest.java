@@ -1,89 +1,329 @@
 package com.example.market.service.forecast.python;
 
+import com.example.market.model.forecast.ForecastSeries;
+import com.example.market.model.stock.StockBar;
 import com.example.market.model.stock.StockDailySeries;
-import com.example.market.service.stock.AlphaVantageService;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
+import com.example.market.service.PipelineMetrics;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
- * Tests for PythonService.runTrendMaster that cover success and failure paths.
+ * Tests for PythonService's TrendMaster runs, covering success and failure
+ * paths.
  */
 class TrendmasterPythonServiceTest {
 
-  @Test
-  void runTrendMaster_successReturnsLastLine() throws Exception {
-    ProcessRunner runner = mock(ProcessRunner.class);
+  /** A finished script whose stdin is captured. */
+  private static Process finished(int exitCode, ByteArrayOutputStream stdin)
+      throws Exception {
     Process process = mock(Process.class);
+    when(process.waitFor()).thenReturn(exitCode);
+    when(process.getOutputStream()).thenReturn(stdin);
+    when(process.getInputStream()).thenReturn(InputStream.nullInputStream());
+    return process;
+  }
 
-    String output = "line1\nline2\nRESULT\n";
+  /** Make a started script print the given output. */
+  private static Process prints(Process process, String output) {
     when(process.getInputStream())
         .thenReturn(new ByteArrayInputStream(output.getBytes()));
-    when(process.waitFor()).thenReturn(0);
-    when(runner.start(any(ProcessBuilder.class))).thenReturn(process);
+    return process;
+  }
 
-    AlphaVantageService mockStockData = mock(AlphaVantageService.class);
-    StockDailySeries fakeSeries = new StockDailySeries(
-        "AAPL", "2025-02-01", "AlphaVantage", List.of()
-    );
-    when(mockStockData.fetchDaily(eq("AAPL"), any())).thenReturn(fakeSeries);
+  private static String single(String price) {
+    return "{\"STOCK\": \"{\\\"Date\\\": {\\\"0\\\": \\\"2025-02-03\\\"},"
+        + " \\\"Predicted_Close\\\": {\\\"0\\\": " + price + "}}\"}";
+  }
 
-    PythonService service = new PythonService(runner, mockStockData);
+  @Test
+  void isolatedRun_pipesBinaryWindow_setsEnv_andCleansUp() throws Exception {
+    ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+    Process process = finished(0, stdin);
+    AtomicReference<ProcessBuilder> seen = new AtomicReference<>();
+    ProcessRunner runner = pb -> {
+      seen.set(pb);
+      try (Stream<Path> files = Files.list(pb.directory().toPath())) {
+        assertEquals(0, files.count(), "no input file on disk");
+      }
+      return prints(process, "noise\n" + single("101.5") + "\n");
+    };
+    PythonService service = new PythonService(runner,
+        new PythonEnvironment(runner,
+            "/opt/py/bin/python3", List.of(), Duration.ofSeconds(1)));
 
-    String result = service.runTrendMaster();
+    ForecastSeries out = service.predictSeries("AAPL", 3, series(40));
 
-    assertEquals("RESULT", result);
+    assertEquals(1, out.size());
+    assertEquals(101.5, out.price(0), 1e-9);
+    Map<String, String> env = seen.get().environment();
+    assertEquals("3", env.get(PythonService.HORIZON_ENV));
+    assertEquals("binary", env.get(PythonService.INPUT_ENV));
+    assertEquals("30", env.get(PythonService.INPUT_WINDOW_ENV));
+    assertTrue(seen.get().redirectErrorStream());
+    assertEquals(ProcessBuilder.Redirect.PIPE, seen.get().redirectOutput(),
+        "output is read from the pipe, not a file");
+    List<String> command = seen.get().command();
+    assertEquals("/opt/py/bin/python3", command.get(0));
+    assertTrue(command.get(1).endsWith("main.py"), command.get(1));
+    assertEquals(2, command.size(), "no shell, no pip install");
+    assertArrayEquals(TrendMasterInput.encode(Map.of("STOCK", series(40)),
+        PythonService.INPUT_WINDOW), stdin.toByteArray());
+    assertFalse(Files.exists(seen.get().directory().toPath()),
+        "work dir should be deleted");
   }
 
   @Test
-  void runTrendMaster_nonZeroExitCodeThrows() throws Exception {
-    ProcessRunner runner = mock(ProcessRunner.class);
-    Process process = mock(Process.class);
+  void isolatedRun_failureAndSilenceThrow() throws Exception {
+    Process failed = finished(2, new ByteArrayOutputStream());
+    PythonService service = new PythonService(pb -> failed);
 
-    String output = "error line\n";
-    when(process.getInputStream())
-        .thenReturn(new ByteArrayInputStream(output.getBytes()));
-    when(process.waitFor()).thenReturn(1); // non-zero
-    when(runner.start(any(ProcessBuilder.class))).thenReturn(process);
+    RuntimeException ex = assertThrows(RuntimeException.class,
+        () -> service.runTrendMaster(series(1), 5));
+    assertTrue(ex.getMessage().contains("exit code 2"), ex.getMessage());
+
+    Process silent = finished(0, new ByteArrayOutputStream());
+    PythonService quiet = new PythonService(pb -> silent);
+    ex = assertThrows(RuntimeException.class,
+        () -> quiet.runTrendMaster(series(1), 5));
+    assertTrue(ex.getMessage().contains("No output"), ex.getMessage());
+
+    Process other = finished(0, new ByteArrayOutputStream());
+    PythonService wrongKey = new PythonService(pb -> prints(other,
+        "{}\n"));
+    ex = assertThrows(RuntimeException.class,
+        () -> wrongKey.runTrendMaster(series(1), 5));
+    assertTrue(ex.getMessage().contains("No output"), ex.getMessage());
 
-    AlphaVantageService stockData = mock(AlphaVantageService.class);
-    when(stockData.fetchDaily(eq("AAPL"), any()))
-        .thenReturn(new StockDailySeries("AAPL", "2025-02-01", "AlphaVantage", List.of()));
+    PythonService broken = new PythonService(pb -> {
+      throw new IOException("no bash");
+    });
+    ex = assertThrows(RuntimeException.class,
+        () -> broken.runTrendMaster(series(1), 5));
+    assertTrue(ex.getMessage().contains("no bash"), ex.getMessage());
+  }
 
-    PythonService service = new PythonService(runner, stockData);
+  @Test
+  void isolatedRun_closedPipe_reportsExitOrSendFailure() throws Exception {
+    OutputStream closed = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+    Process crashed = mock(Process.class);
+    when(crashed.waitFor()).thenReturn(1);
+    when(crashed.getOutputStream()).thenReturn(closed);
+    PythonService service = new PythonService(pb -> prints(crashed,
+        "ModuleNotFoundError: numpy\n"));
 
     RuntimeException ex = assertThrows(RuntimeException.class,
-        service::runTrendMaster);
-    assertTrue(ex.getMessage().contains("exit code"),
-        "Expected message to mention exit code");
+        () -> service.runTrendMaster(series(1), 5));
+    assertTrue(ex.getMessage().contains("numpy"), ex.getMessage());
+
+    Process exitedOk = finished(0, new ByteArrayOutputStream());
+    when(exitedOk.getOutputStream()).thenReturn(closed);
+    PythonService odd = new PythonService(pb -> exitedOk);
+    ex = assertThrows(RuntimeException.class,
+        () -> odd.runTrendMaster(series(1), 5));
+    assertTrue(ex.getMessage().contains("Failed to send input"),
+        ex.getMessage());
   }
 
   @Test
-  void runTrendMaster_noOutputThrows() throws Exception {
-    ProcessRunner runner = mock(ProcessRunner.class);
-    Process process = mock(Process.class);
+  void isolatedRun_interruptKillsProcess() throws Exception {
+    Process process = finished(0, new ByteArrayOutputStream());
+    when(process.waitFor()).thenThrow(new InterruptedException());
+    when(process.descendants()).thenReturn(Stream.empty());
+    PythonService service = new PythonService(pb -> process);
+
+    try {
+      RuntimeException ex = assertThrows(RuntimeException.class,
+          () -> service.runTrendMaster(series(1), 5));
+      assertTrue(ex.getMessage().contains("interrupted"));
+      assertTrue(Thread.currentThread().isInterrupted());
+      verify(process).destroyForcibly();
+    } finally {
+      Thread.interrupted();
+    }
+  }
 
-    // empty stream
+  @Test
+  void finishedScripts_areLeftAlone() throws Exception {
+    Process process = finished(0, new ByteArrayOutputStream());
+    PythonService service = new PythonService(pb -> prints(process,
+        single("1") + "\n"));
+
+    assertEquals(1.0, service.predictSeries("AAPL", 1, series(1)).price(0));
+    verify(process, never()).destroyForcibly();
+  }
+
+  /** A script that runs until it is killed, then exits with 137. */
+  private static Process runsUntilKilled() throws Exception {
+    CountDownLatch killed = new CountDownLatch(1);
+    Process process = mock(Process.class);
     when(process.getInputStream())
         .thenReturn(new ByteArrayInputStream(new byte[0]));
-    when(process.waitFor()).thenReturn(0);
-    when(runner.start(any(ProcessBuilder.class))).thenReturn(process);
+    when(process.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+    when(process.descendants()).thenAnswer(inv -> Stream.empty());
+    when(process.destroyForcibly()).thenAnswer(inv -> {
+      killed.countDown();
+      return process;
+    });
+    when(process.waitFor()).thenAnswer(inv -> {
+      killed.await();
+      return 137;
+    });
+    return process;
+  }
+
+  @Test
+  void runsPastTheRequestDeadline_areKilled() throws Exception {
+    Process isolated = runsUntilKilled();
+    PythonService service = new PythonService(pb -> isolated);
 
-    AlphaVantageService stockData = mock(AlphaVantageService.class);
-    when(stockData.fetchDaily(eq("AAPL"), any()))
-        .thenReturn(new StockDailySeries("AAPL", "2025-02-01", "AlphaVantage", List.of()));
+    try (Deadline.Scope scope =
+             Deadline.after(Duration.ofMillis(50)).bind()) {
+      DeadlineExceededException ex = assertThrows(
+          DeadlineExceededException.class,
+          () -> service.runTrendMaster(series(1), 5));
+      assertEquals("Deadline exceeded during forecast", ex.getMessage());
+    }
+    verify(isolated).destroyForcibly();
 
-    PythonService service = new PythonService(runner, stockData);
+    try (Deadline.Scope scope =
+             Deadline.after(Duration.ofMillis(50)).bind()) {
+      Thread.sleep(60);
+      // nothing is started once the budget is spent
+      assertThrows(DeadlineExceededException.class,
+          () -> new PythonService(pb -> {
+            throw new AssertionError("started");
+          }).runTrendMaster(series(1), 5));
+    }
+  }
+
+  @Test
+  void batchRun_sendsAllSeries_andSplitsOutputBySymbol() throws Exception {
+    ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+    Process process = finished(0, stdin);
+    ProcessRunner runner = pb -> prints(process,
+        "loading\n{\"AAPL\": \"{\\\"Date\\\": {\\\"0\\\": \\\"2025-02-03\\\"},"
+        + " \\\"Predicted_Close\\\": {\\\"0\\\": 7.5}}\","
+        + " \"MSFT\": {\"error\": \"too short\"}}\n");
+    PythonService service =
+        new PythonService(runner);
 
+    Map<String, StockDailySeries> in = new LinkedHashMap<>();
+    in.put("AAPL", series(2));
+    in.put("MSFT", series(0));
+    Map<String, String> out = service.runTrendMasterBatch(in, 4);
+
+    assertArrayEquals(TrendMasterInput.encode(in, PythonService.INPUT_WINDOW),
+        stdin.toByteArray());
+    assertEquals(7.5, service.parseForecastSeries(out.get("AAPL")).price(0));
     RuntimeException ex = assertThrows(RuntimeException.class,
-        service::runTrendMaster);
-    assertTrue(ex.getMessage().contains("No output"),
-        "Expected message to mention no output");
+        () -> service.parseForecastSeries(out.get("MSFT")));
+    assertEquals("TrendMaster failed: too short", ex.getMessage());
+  }
+
+  @Test
+  void isolatedRun_recordsSpawnLoadInferenceAndParseStages()
+      throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Metrics.globalRegistry.add(registry);
+    try {
+      Process process = finished(0, new ByteArrayOutputStream());
+      PythonService service = new PythonService(pb -> prints(process,
+          "epoch 1/1@@TM {\"timings\": {\"load\": 4.5,"
+          + " \"inference\": 0.25}}\n" + single("101.5") + "\n"));
+
+      service.predictSeries("AAPL", 3, series(40));
+
+      Map<String, Double> seconds = Map.of(PipelineMetrics.MODEL_LOAD, 4.5,
+          PipelineMetrics.INFERENCE, 0.25);
+      seconds.forEach((stage, s) -> assertEquals(s, registry
+          .get(PipelineMetrics.STAGE_TIMER).tag("stage", stage)
+          .tag("outcome", PipelineMetrics.SUCCESS).timer()
+          .totalTime(TimeUnit.SECONDS), 1e-6, stage));
+      for (String stage : List.of(PipelineMetrics.PYTHON_SPAWN,
+          PipelineMetrics.OUTPUT_PARSE)) {
+        assertEquals(1, registry.get(PipelineMetrics.STAGE_TIMER)
+            .tag("stage", stage).tag("outcome", PipelineMetrics.SUCCESS)
+            .timer().count(), stage);
+      }
+    } finally {
+      Metrics.globalRegistry.remove(registry);
+    }
+  }
+
+  @Test
+  void batchRun_rejectsOutputThatIsNotAnObject() throws Exception {
+    for (String line : List.of("[1]", "{oops")) {
+      Process process = finished(0, new ByteArrayOutputStream());
+      PythonService service = new PythonService(pb -> prints(process,
+          line + "\n"));
+
+      RuntimeException ex = assertThrows(RuntimeException.class,
+          () -> service.runTrendMasterBatch(Map.of("A", series(1)), 1));
+      assertTrue(ex.getMessage().startsWith("Batch output is not"),
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  void undeletableWorkDirs_areCounted() throws Exception {
+    Path proc = Path.of("/proc/self/fdinfo");
+    assumeTrue(Files.isDirectory(proc), "needs procfs");
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Metrics.globalRegistry.add(registry);
+    try {
+      Path empty = Files.createTempDirectory("trendmaster-test-");
+      assertTrue(PythonService.deleteQuietly(empty));
+      assertTrue(PythonService.deleteQuietly(empty), "already gone");
+      assertEquals(0, registry.counter(PythonService.LEFTOVER_DIRS_METER)
+          .count());
+
+      assertFalse(PythonService.deleteQuietly(proc));
+      assertEquals(1, registry.counter(PythonService.LEFTOVER_DIRS_METER)
+          .count());
+    } finally {
+      Metrics.globalRegistry.remove(registry);
+    }
+  }
+
+  private static StockDailySeries series(int bars) {
+    List<StockBar> out = new ArrayList<>();
+    for (int i = 0; i < bars; i++) {
+      BigDecimal close = BigDecimal.valueOf(100 + i);
+      out.add(new StockBar(LocalDate.of(2025, 1, 1).plusDays(i).toString(),
+          close, close, close, close, 1000L));
+    }
+    return new StockDailySeries("AAPL", "2025-02-01", "AlphaVantage", out);
   }
 }
@@ -0,0 +1,171 @@
+package com.example.market.service.jfr;
+
+import com.example.market.service.forecast.python.ProcessRunner;
+import com.example.market.service.news.SentimentPythonService;
+import com.example.market.service.stock.AlphaVantageService;
+import com.example.market.service.stock.JsonStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Configuration;
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MarketEventsTest {
+
+  @TempDir
+  Path dir;
+
+  /** Exposes the HTTP fetch of the real service. */
+  static class FetchingAlphaVantageService extends AlphaVantageService {
+    JsonNode fetch(String url) throws Exception {
+      return getJson(url);
+    }
+  }
+
+  @Test
+  void disabledEvents_acceptEveryCallWithoutRecording() {
+    UpstreamCallEvent call = UpstreamCallEvent.start("fmp", "AAPL");
+    call.finish(200, 10);
+    UpstreamCallEvent.start("fmp", "AAPL").fail(new RuntimeException());
+    PythonProcessEvent.start("main.py", "worker", List.of("AAPL"))
+        .finish(PythonProcessEvent.STILL_RUNNING, 1, 1);
+    CacheOperationEvent.start("read", dir).finish(1);
+    assertFalse(call.isEnabled());
+  }
+
+  @Test
+  void jsonStore_recordsEachOperationWithFileAndBytes() throws Exception {
+    JsonStore store = new JsonStore();
+    Path file = dir.resolve("aapl.json");
+    Path log = dir.resolve("aapl.ndjson");
+
+    List<RecordedEvent> events = Recordings.record(CacheOperationEvent.class,
+        () -> {
+          store.write(file, Map.of("symbol", "AAPL"));
+          store.read(file, Map.class);
+          store.append(log, Map.of("score", 1));
+          store.readLines(log, Map.class);
+        });
+
+    assertEquals(List.of("write", "read", "append", "read"),
+        events.stream().map(e -> e.getString("operation")).toList());
+    long written = Files.size(file);
+    assertEquals(written, events.get(0).getLong("bytes"));
+    assertEquals(written, events.get(1).getLong("bytes"));
+    assertEquals(file.toString(), events.get(1).getString("file"));
+    assertEquals(Files.size(log), events.get(2).getLong("bytes"));
+    assertEquals(Files.size(log), events.get(3).getLong("bytes"));
+  }
+
+  @Test
+  void sentimentRun_recordsExitCodeAndSizes() throws Exception {
+    String printed = "{\"sentimentScore\": 3, \"sentimentLabel\": \"Neutral\"}";
+    ProcessRunner runner = mock(ProcessRunner.class);
+    Process process = mock(Process.class);
+    when(process.getInputStream()).thenReturn(new ByteArrayInputStream(
+        printed.getBytes(StandardCharsets.UTF_8)));
+    when(process.waitFor()).thenReturn(0);
+    when(runner.start(any(ProcessBuilder.class))).thenReturn(process);
+
+    List<RecordedEvent> events = Recordings.record(PythonProcessEvent.class,
+        () -> new SentimentPythonService(runner)
+            .analyzeSentiment("Shares rose"));
+
+    assertEquals(1, events.size());
+    RecordedEvent e = events.get(0);
+    assertEquals("sentiment_model.py", e.getString("script"));
+    assertEquals("sentiment", e.getString("mode"));
+    assertEquals("", e.getString("symbols"));
+    assertEquals(0, e.getInt("exitCode"));
+    assertEquals("Shares rose".length(), e.getLong("bytesIn"));
+    assertEquals(printed.length(), e.getLong("bytesOut"));
+  }
+
+  @Test
+  void alphaVantageCalls_recordSymbolStatusAndBytes_butNotTheKey()
+      throws Exception {
+    String body = "{\"Note\": \"slow down\"}";
+    HttpServer server = HttpServer.create(
+        new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/ok", exchange -> {
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    });
+    server.createContext("/limited", exchange -> {
+      exchange.sendResponseHeaders(429, -1);
+      exchange.close();
+    });
+    server.start();
+    try {
+      String base = "http://localhost:" + server.getAddress().getPort();
+      FetchingAlphaVantageService service = new FetchingAlphaVantageService();
+
+      List<RecordedEvent> events = Recordings.record(UpstreamCallEvent.class,
+          () -> {
+            service.fetch(base + "/ok?function=TIME_SERIES_DAILY"
+                + "&symbol=MSFT&apikey=secret");
+            service.fetch(base + "/limited?function=TIME_SERIES_DAILY"
+                + "&symbol=AAPL&apikey=secret");
+          });
+
+      assertEquals(2, events.size());
+      RecordedEvent ok = events.get(0);
+      assertEquals("alpha-vantage", ok.getString("upstream"));
+      assertEquals("MSFT", ok.getString("symbol"));
+      assertEquals(200, ok.getInt("status"));
+      assertEquals(body.length(), ok.getLong("bytes"));
+      assertNull(ok.getString("failure"));
+      assertEquals("AAPL", events.get(1).getString("symbol"));
+      assertEquals(429, events.get(1).getInt("status"));
+      for (RecordedEvent e : events) {
+        assertFalse(e.toString().contains("secret"));
+      }
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void unreachableUpstream_recordsTheFailure() throws Exception {
+    FetchingAlphaVantageService service = new FetchingAlphaVantageService();
+
+    List<RecordedEvent> events = Recordings.record(UpstreamCallEvent.class,
+        () -> service.fetch("http://localhost:1/query?symbol=IBM"));
+
+    assertEquals(1, events.size());
+    assertEquals("IBM", events.get(0).getString("symbol"));
+    assertEquals(0, events.get(0).getInt("status"));
+    assertNotNull(events.get(0).getString("failure"));
+  }
+
+  @Test
+  void bundledSettings_enableEveryMarketEvent() throws Exception {
+    Configuration market =
+        Configuration.create(Path.of("jfr", "market.jfc"));
+
+    for (String name : new String[] {UpstreamCallEvent.NAME,
+        PythonProcessEvent.NAME, CacheOperationEvent.NAME}) {
+      assertEquals("true", market.getSettings().get(name + "#enabled"),
+          name);
+    }
+    assertEquals("0 ms",
+        market.getSettings().get(UpstreamCallEvent.NAME + "#threshold"));
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.market.service.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Records the custom events a piece of work emits, for tests.
+ */
+public final class Recordings {
+
+  /** Work that may throw. */
+  @FunctionalInterface
+  public interface Work {
+    void run() throws Exception;
+  }
+
+  private Recordings() {
+  }
+
+  /**
+   * Run some work with an event enabled and return the events it emitted.
+   * Failures of the work are ignored; the events are what is checked.
+   */
+  public static List<RecordedEvent> record(Class<? extends Event> type,
+                                           Work work) throws Exception {
+    Path file = Files.createTempFile("market-", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(type).withoutThreshold();
+      recording.start();
+      try {
+        work.run();
+      } catch (Exception e) {
+        // the work's failure is part of what is recorded
+      }
+      recording.stop();
+      recording.dump(file);
+      String name = type.getAnnotation(jdk.jfr.Name.class).value();
+      return RecordingFile.readAllEvents(file).stream()
+          .filter(e -> e.getEventType().getName().equals(name))
+          .toList();
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.example.market.service.news;
+
+import com.example.market.model.news.SentimentAggregates;
+import com.example.market.model.news.SentimentWindow;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecayedSentimentAggregatorTest {
+
+    private static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Test
+    void empty_hasNaNMeansAndNoLastObservation() {
+        SentimentAggregates a = new DecayedSentimentAggregator("AMZN")
+                .snapshot();
+
+        assertTrue(a.isEmpty());
+        assertNull(a.getLastObservedAt());
+        assertTrue(Double.isNaN(a.score(SentimentWindow.ONE_DAY)));
+    }
+
+    @Test
+    void singleObservation_isTheMeanForEveryWindow() {
+        DecayedSentimentAggregator agg = new DecayedSentimentAggregator("AMZN");
+        agg.add(T0, 4);
+
+        SentimentAggregates a = agg.snapshot();
+        for (SentimentWindow w : SentimentWindow.values()) {
+            assertEquals(4.0, a.score(w), 1e-12);
+        }
+        assertEquals(1, a.getObservations());
+        assertEquals(4, a.getLastScore());
+        assertEquals(T0.toString(), a.getLastObservedAt());
+    }
+
+    @Test
+    void simultaneousObservations_averageEqually() {
+        DecayedSentimentAggregator agg = new DecayedSentimentAggregator("AMZN");
+        agg.add(T0, 5);
+        agg.add(T0, 1);
+
+        assertEquals(3.0, agg.snapshot().score(SentimentWindow.ONE_DAY),
+                1e-12);
+    }
+
+    @Test
+    void shorterWindows_forgetOlderObservationsFaster() {
+        DecayedSentimentAggregator agg = new DecayedSentimentAggregator("AMZN");
+        agg.add(T0, 5);
+        agg.add(T0.plus(Duration.ofDays(3)), 1);
+
+        SentimentAggregates a = agg.snapshot();
+        double oneDay = a.score(SentimentWindow.ONE_DAY);
+        double sevenDays = a.score(SentimentWindow.SEVEN_DAYS);
+        double thirtyDays = a.score(SentimentWindow.THIRTY_DAYS);
+
+        assertTrue(oneDay < sevenDays && sevenDays < thirtyDays);
+        // weight of the old reading after 3 days with tau = 1 day
+        double w = Math.exp(-3.0);
+        assertEquals((5 * w + 1) / (w + 1), oneDay, 1e-9);
+    }
+
+    @Test
+    void lateObservation_matchesInOrderResult() {
+        DecayedSentimentAggregator inOrder =
+                new DecayedSentimentAggregator("AMZN");
+        inOrder.add(T0, 2);
+        inOrder.add(T0.plus(Duration.ofHours(12)), 5);
+
+        DecayedSentimentAggregator outOfOrder =
+                new DecayedSentimentAggregator("AMZN");
+        outOfOrder.add(T0.plus(Duration.ofHours(12)), 5);
+        outOfOrder.add(T0, 2);
+
+        for (SentimentWindow w : SentimentWindow.values()) {
+            assertEquals(inOrder.snapshot().score(w),
+                    outOfOrder.snapshot().score(w), 1e-12);
+        }
+        assertEquals(5, outOfOrder.snapshot().getLastScore());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.market.service.news;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Agreement report for the lexicon engine on a fixture corpus.
+ *
+ * Every row of {@code sentiment/agreement-corpus.tsv} carries a reference
+ * 1-5 score. The test scores each row with {@link LexiconSentimentService},
+ * writes a confusion matrix to {@code target/sentiment-agreement.txt} and
+ * fails if agreement drops below the thresholds below.
+ *
+ * With {@code -Dsentiment.agreement.live=true} every row is also scored by
+ * the real Python model and a lexicon-vs-Python section is added.
+ */
+class LexiconSentimentAgreementTest {
+
+    private static final double MIN_EXACT_AGREEMENT = 0.7;
+    private static final double MIN_WITHIN_ONE_AGREEMENT = 0.95;
+    private static final Path REPORT = Paths.get("target",
+            "sentiment-agreement.txt");
+
+    record Row(int reference, String text) { }
+
+    @Test
+    void lexiconAgreesWithReferenceScores() throws Exception {
+        List<Row> corpus = loadCorpus();
+        LexiconSentimentService lexicon = new LexiconSentimentService();
+
+        int[] lexiconScores = new int[corpus.size()];
+        int[] reference = new int[corpus.size()];
+        for (int i = 0; i < corpus.size(); i++) {
+            reference[i] = corpus.get(i).reference();
+            lexiconScores[i] = lexicon.analyzeSentiment(corpus.get(i).text())
+                    .getSentimentScore();
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("rows: ").append(corpus.size()).append('\n');
+        double[] vsReference = section(report, "lexicon vs reference",
+                reference, lexiconScores, corpus);
+
+        if (Boolean.getBoolean("sentiment.agreement.live")) {
+            SentimentPythonService python = new SentimentPythonService();
+            int[] pythonScores = new int[corpus.size()];
+            for (int i = 0; i < corpus.size(); i++) {
+                pythonScores[i] = python.analyzeSentiment(
+                        corpus.get(i).text()).getSentimentScore();
+            }
+            section(report, "python vs reference",
+                    reference, pythonScores, corpus);
+            section(report, "lexicon vs python",
+                    pythonScores, lexiconScores, corpus);
+        }
+
+        Files.createDirectories(REPORT.getParent());
+        Files.writeString(REPORT, report.toString());
+
+        assertTrue(vsReference[0] >= MIN_EXACT_AGREEMENT,
+                "exact agreement too low, see " + REPORT + "\n" + report);
+        assertTrue(vsReference[1] >= MIN_WITHIN_ONE_AGREEMENT,
+                "within-one agreement too low, see " + REPORT + "\n" + report);
+    }
+
+    /**
+     * Appends agreement figures, a confusion matrix and disagreements.
+     *
+     * @return {exact agreement, within-one agreement}
+     */
+    private static double[] section(StringBuilder out, String title,
+                                    int[] expected, int[] actual,
+                                    List<Row> corpus) {
+        int[][] confusion = new int[6][6];
+        int exact = 0;
+        int withinOne = 0;
+        StringBuilder misses = new StringBuilder();
+        for (int i = 0; i < expected.length; i++) {
+            confusion[expected[i]][actual[i]]++;
+            if (expected[i] == actual[i]) {
+                exact++;
+            } else {
+                misses.append("  expected ").append(expected[i])
+                        .append(" got ").append(actual[i]).append(": ")
+                        .append(corpus.get(i).text()).append('\n');
+            }
+            if (Math.abs(expected[i] - actual[i]) <= 1) {
+                withinOne++;
+            }
+        }
+        double exactRate = (double) exact / expected.length;
+        double withinOneRate = (double) withinOne / expected.length;
+
+        out.append("\n== ").append(title).append(" ==\n");
+        out.append(String.format("exact agreement:      %.3f%n", exactRate));
+        out.append(String.format("within-one agreement: %.3f%n",
+                withinOneRate));
+        out.append("confusion (rows=expected, cols=actual)\n      1   2   3   4   5\n");
+        for (int e = 1; e <= 5; e++) {
+            out.append("  ").append(e);
+            for (int a = 1; a <= 5; a++) {
+                out.append(String.format("%4d", confusion[e][a]));
+            }
+            out.append('\n');
+        }
+        out.append("disagreements:\n").append(misses);
+        return new double[] {exactRate, withinOneRate};
+    }
+
+    private static List<Row> loadCorpus() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        try (InputStream in = LexiconSentimentAgreementTest.class
+                .getResourceAsStream("/sentiment/agreement-corpus.tsv");
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                rows.add(new Row(Integer.parseInt(line.substring(0, tab)),
+                        line.substring(tab + 1)));
+            }
+        }
+        assertFalse(rows.isEmpty(), "fixture corpus is empty");
+        return rows;
+    }
+}
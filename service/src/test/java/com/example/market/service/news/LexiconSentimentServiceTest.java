@@ -0,0 +1,108 @@
+package com.example.market.service.news;
+
+import com.example.market.model.news.SentimentResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LexiconSentimentService}.
+ */
+class LexiconSentimentServiceTest {
+
+    private final LexiconSentimentService service =
+            new LexiconSentimentService();
+
+    @Test
+    void analyzeSentiment_strongPositiveText_isVeryPositive() {
+        SentimentResult result = service.analyzeSentiment(
+                "Shares soar as profits surge and analysts upgrade the stock");
+
+        assertNull(result.getCompany(),
+                "company should be null so NewsDataService sets the symbol");
+        assertEquals(5, result.getSentimentScore());
+        assertEquals("very positive", result.getSentimentLabel());
+    }
+
+    @Test
+    void analyzeSentiment_strongNegativeText_isVeryNegative() {
+        SentimentResult result = service.analyzeSentiment(
+                "Stock plunges after fraud scandal and bankruptcy filing");
+
+        assertEquals(1, result.getSentimentScore());
+        assertEquals("very negative", result.getSentimentLabel());
+    }
+
+    @Test
+    void analyzeSentiment_noPolarWords_isNeutral() {
+        SentimentResult result = service.analyzeSentiment(
+                "The company will hold its meeting on Tuesday.");
+
+        assertEquals(3, result.getSentimentScore());
+        assertEquals("neutral", result.getSentimentLabel());
+    }
+
+    @Test
+    void analyzeSentiment_nullOrEmpty_isNeutral() {
+        assertEquals(3, service.analyzeSentiment(null).getSentimentScore());
+        assertEquals(3, service.analyzeSentiment("").getSentimentScore());
+    }
+
+    @Test
+    void score_negationFlipsFollowingWords() {
+        double plain = service.score("earnings beat estimates").getCompound();
+        double negated = service.score("earnings did not beat estimates")
+                .getCompound();
+
+        assertTrue(plain > 0);
+        assertTrue(negated < 0, "negated beat should read negative");
+    }
+
+    @Test
+    void score_negationEndsAtClauseBreakAndScope() {
+        double afterBreak = service.score("not today. profits surge")
+                .getCompound();
+        double outOfScope = service.score("not a b c d profits surge")
+                .getCompound();
+
+        assertTrue(afterBreak > 0, "negation must not cross a full stop");
+        assertTrue(outOfScope > 0, "negation reaches only a few words");
+    }
+
+    @Test
+    void score_boosterAmplifiesNextPolarWord() {
+        double plain = service.score("shares gain").getCompound();
+        double boosted = service.score("shares gain very").getCompound();
+        double intensified = service.score("shares very gain").getCompound();
+
+        assertEquals(plain, boosted, 1e-9, "booster only affects later words");
+        assertTrue(intensified > plain);
+    }
+
+    @Test
+    void score_isCaseInsensitiveAndHandlesPunctuation() {
+        LexiconSentimentService.LexiconScore score =
+                service.score("SURGED!!! (rallied), Plunged;");
+
+        assertEquals(3, score.getHits());
+    }
+
+    @Test
+    void score_countsHits() {
+        LexiconSentimentService.LexiconScore score =
+                service.score("Profits rose but the company warned");
+
+        // profits, rose, warned
+        assertEquals(3, score.getHits());
+    }
+
+    @Test
+    void stars_bucketsBoundaries() {
+        assertEquals(1, LexiconSentimentService.stars(-0.9));
+        assertEquals(1, LexiconSentimentService.stars(-0.55));
+        assertEquals(2, LexiconSentimentService.stars(-0.3));
+        assertEquals(3, LexiconSentimentService.stars(0.0));
+        assertEquals(4, LexiconSentimentService.stars(0.3));
+        assertEquals(5, LexiconSentimentService.stars(0.55));
+    }
+}
@@ -1,13 +1,22 @@
 package com.example.market.service.news;
 
 import com.example.market.model.news.SentimentResult;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
 import com.example.market.service.forecast.python.ProcessRunner;
+import com.example.market.service.upstream.NegativeCache;
+import com.example.market.service.upstream.UpstreamRefusedException;
+import com.example.market.service.upstream.UpstreamUnavailableException;
+import com.example.market.service.upstream.Upstreams;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -302,4 +311,114 @@ void analyzeSentiment_whenLookupReturnsEmptyList_triggersFallbackBranches() thro
 }
 
 
-}
\ No newline at end of file
+
+    @Test
+    void analyzeSentiment_pastTheDeadline_skipsTheModel() throws Exception {
+        Map<String, Object> article = new HashMap<>();
+        article.put("title", "Slow news day");
+        Map<String, Object> response = new HashMap<>();
+        response.put("articles", List.of(article));
+        StubSentimentPythonService sentimentService =
+                new StubSentimentPythonService(
+                        new SentimentResult("AAPL", 5, "very positive"));
+        Deadline deadline = Deadline.after(Duration.ofMillis(20));
+        NewsDataService service = new NewsDataService(sentimentService,
+                new StubNewsApiClient(response) {
+                    @Override
+                    public Map<String, Object> fetchNews(String query) {
+                        while (!deadline.isExpired()) {
+                            Thread.onSpinWait();
+                        }
+                        return super.fetchNews(query);
+                    }
+                }, new StubCompanyLookupClient("Apple Inc."));
+
+        try (Deadline.Scope scope = deadline.bind()) {
+            DeadlineExceededException e = assertThrows(
+                    DeadlineExceededException.class,
+                    () -> service.analyzeSentiment("AAPL"));
+            assertEquals("Deadline exceeded during sentiment", e.getMessage());
+        }
+        assertFalse(sentimentService.wasCalled());
+    }
+
+    @Test
+    void analyzeSentiment_newsApiOutage_failsFastOnceTheBreakerOpens() {
+        AtomicInteger fetches = new AtomicInteger();
+        StubSentimentPythonService sentimentService =
+                new StubSentimentPythonService(
+                        new SentimentResult("AAPL", 5, "very positive"));
+        Upstreams upstreams = new Upstreams(new MockEnvironment()
+                .withProperty("market.upstreams.news-api.minimum-calls", "2"));
+        NewsDataService service = new NewsDataService(sentimentService,
+                new StubNewsApiClient(Map.of()) {
+                    @Override
+                    public Map<String, Object> fetchNews(String query) {
+                        fetches.incrementAndGet();
+                        throw new IllegalStateException("I/O error: timed out");
+                    }
+                }, new StubCompanyLookupClient("Apple Inc."), upstreams);
+
+        assertThrows(IllegalStateException.class,
+                () -> service.analyzeSentiment("AAPL"));
+        assertThrows(IllegalStateException.class,
+                () -> service.analyzeSentiment("AAPL"));
+        UpstreamUnavailableException e = assertThrows(
+                UpstreamUnavailableException.class,
+                () -> service.analyzeSentiment("AAPL"));
+
+        assertEquals(Upstreams.NEWS_API, e.upstream());
+        assertEquals(2, fetches.get());
+        assertFalse(sentimentService.wasCalled());
+        assertEquals(3, upstreams.get(Upstreams.FMP).breaker().calls());
+    }
+
+    @Test
+    void analyzeSentiment_emptyLookups_areNotRepeated() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        StubNewsApiClient newsClient = new StubNewsApiClient(Map.of());
+        Upstreams upstreams = new Upstreams();
+        NewsDataService service = new NewsDataService(
+                new StubSentimentPythonService(null), newsClient,
+                new StubCompanyLookupClient(null) {
+                    @Override
+                    public String lookupCompanyName(String symbol) {
+                        lookups.incrementAndGet();
+                        return null;
+                    }
+                }, upstreams);
+
+        service.analyzeSentiment("AMZNN");
+        service.analyzeSentiment("AMZNN");
+        service.analyzeSentiment("AAPL");
+
+        assertEquals(2, lookups.get(), "one per symbol");
+        assertEquals("AAPL", newsClient.getLastQuery());
+        assertEquals(1L, upstreams.get(Upstreams.FMP).negative().hits());
+    }
+
+    @Test
+    void analyzeSentiment_rateLimitedNewsApi_isNotCalledUntilItPasses() {
+        AtomicInteger fetches = new AtomicInteger();
+        Upstreams upstreams = new Upstreams();
+        NewsDataService service = new NewsDataService(
+                new StubSentimentPythonService(null),
+                new StubNewsApiClient(Map.of()) {
+                    @Override
+                    public Map<String, Object> fetchNews(String query) {
+                        fetches.incrementAndGet();
+                        throw new UpstreamRefusedException(Upstreams.NEWS_API,
+                                NegativeCache.Kind.THROTTLED, "rate limited");
+                    }
+                }, new StubCompanyLookupClient("Apple Inc."), upstreams);
+
+        assertThrows(UpstreamRefusedException.class,
+                () -> service.analyzeSentiment("AAPL"));
+        UpstreamUnavailableException e = assertThrows(
+                UpstreamUnavailableException.class,
+                () -> service.analyzeSentiment("MSFT"));
+
+        assertEquals("news-api unavailable: throttled", e.getMessage());
+        assertEquals(1, fetches.get());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.market.service.news;
+
+import com.example.market.service.replay.InjectedFaults;
+import com.example.market.service.replay.ReplayFixtures;
+import com.example.market.service.replay.ReplayMode;
+import com.example.market.service.stock.JsonStore;
+import com.example.market.service.upstream.Upstreams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayHttpClientsTest {
+
+    @TempDir
+    Path dir;
+
+    private ReplayFixtures fixtures(Map<String, InjectedFaults> faults) {
+        return new ReplayFixtures(ReplayMode.REPLAY, dir, new JsonStore(),
+                faults);
+    }
+
+    @Test
+    void news_isReplayedByQuery() throws Exception {
+        ReplayFixtures fixtures = fixtures(Map.of());
+        Map<String, Object> saved = Map.of("status", "ok",
+                "articles", List.of(Map.of("title", "Up")));
+        fixtures.write(ReplayNewsApiClient.KIND, "Apple", saved);
+
+        assertEquals(saved, new ReplayNewsApiClient(fixtures)
+                .fetchNews("Apple"));
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new ReplayNewsApiClient(fixtures).fetchNews("Tesla"));
+        assertTrue(e.getMessage().contains("Tesla"));
+    }
+
+    @Test
+    void news_failuresLookLikeAnUnreachableHost() {
+        ReplayFixtures fixtures = fixtures(Map.of(Upstreams.NEWS_API,
+                new InjectedFaults(Duration.ZERO, Duration.ZERO, 1, 0)));
+
+        ResourceAccessException e = assertThrows(
+                ResourceAccessException.class,
+                () -> new ReplayNewsApiClient(fixtures).fetchNews("Apple"));
+        assertEquals("Injected failure", e.getMessage());
+    }
+
+    @Test
+    void companies_areReplayed_includingUnknownSymbols() throws Exception {
+        ReplayFixtures fixtures = fixtures(Map.of());
+        fixtures.write(ReplayCompanyLookupClient.KIND, "AAPL",
+                Map.of("name", "Apple Inc."));
+        fixtures.write(ReplayCompanyLookupClient.KIND, "ZZZZ",
+                Collections.singletonMap("name", null));
+        ReplayCompanyLookupClient client =
+                new ReplayCompanyLookupClient(fixtures);
+
+        assertEquals("Apple Inc.", client.lookupCompanyName("AAPL"));
+        assertNull(client.lookupCompanyName("ZZZZ"));
+        assertThrows(IllegalStateException.class,
+                () -> client.lookupCompanyName("MSFT"));
+    }
+
+    @Test
+    void companies_injectFailures() {
+        ReplayFixtures fixtures = fixtures(Map.of(Upstreams.FMP,
+                new InjectedFaults(Duration.ZERO, Duration.ZERO, 1, 0)));
+
+        assertThrows(ResourceAccessException.class,
+                () -> new ReplayCompanyLookupClient(fixtures)
+                        .lookupCompanyName("AAPL"));
+    }
+
+    @Test
+    void interruptedWait_failsTheCall_andKeepsTheFlag() {
+        InjectedFaults slow = new InjectedFaults(Duration.ofSeconds(10),
+                Duration.ofSeconds(10), 0, 0);
+        Thread.currentThread().interrupt();
+        try {
+            ResourceAccessException e = assertThrows(
+                    ResourceAccessException.class,
+                    () -> Replays.await(slow, "news search"));
+            assertTrue(e.getMessage().contains("interrupted"));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.market.service.news;
+
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
+import com.example.market.service.jfr.Recordings;
+import com.example.market.service.jfr.UpstreamCallEvent;
+import com.example.market.service.upstream.NegativeCache;
+import com.example.market.service.upstream.UpstreamRefusedException;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestTemplatesTest {
+
+    @Test
+    void silentServer_timesOutWithTheDeadline() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread accept = new Thread(() -> {
+                try (Socket ignored = server.accept()) {
+                    Thread.sleep(10_000);
+                } catch (Exception e) {
+                    // closed by the test
+                }
+            });
+            accept.setDaemon(true);
+            accept.start();
+            String url = "http://localhost:" + server.getLocalPort() + "/";
+
+            long started = System.nanoTime();
+            try (Deadline.Scope scope =
+                         Deadline.after(Duration.ofMillis(200)).bind()) {
+                assertThrows(ResourceAccessException.class,
+                        () -> RestTemplates.forDeadline("news search")
+                                .getForObject(url, String.class));
+                assertTrue(Deadline.current().isExpired());
+            }
+            assertTrue(System.nanoTime() - started
+                    < Duration.ofSeconds(5).toNanos());
+            accept.interrupt();
+        }
+    }
+
+    @Test
+    void spentBudget_failsBeforeCalling() {
+        Deadline spent = Deadline.after(Duration.ofNanos(1));
+        while (!spent.isExpired()) {
+            Thread.onSpinWait();
+        }
+        try (Deadline.Scope scope = spent.bind()) {
+            DeadlineExceededException e = assertThrows(
+                    DeadlineExceededException.class,
+                    () -> RestTemplates.forDeadline("company lookup"));
+            assertEquals("Deadline exceeded during company lookup",
+                    e.getMessage());
+        }
+        assertNotNull(RestTemplates.forDeadline("company lookup"));
+    }
+
+    private static HttpServer serve(int status, String body) throws Exception {
+        HttpServer server = HttpServer.create(
+                new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status,
+                    bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static String url(HttpServer server) {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @Test
+    void getJson_parsesTheBody_andRecordsTheCall() throws Exception {
+        String body = "{\"status\": \"ok\", \"totalResults\": 0}";
+        HttpServer server = serve(200, body);
+        try {
+            List<RecordedEvent> events = Recordings.record(
+                    UpstreamCallEvent.class, () -> assertEquals("ok",
+                            RestTemplates.getJson(
+                                    RestTemplates.forDeadline("news search"),
+                                    url(server), Map.class, "news-api",
+                                    "Apple").get("status")));
+
+            assertEquals(1, events.size());
+            assertEquals("news-api", events.get(0).getString("upstream"));
+            assertEquals("Apple", events.get(0).getString("symbol"));
+            assertEquals(200, events.get(0).getInt("status"));
+            assertEquals(body.length(), events.get(0).getLong("bytes"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void getJson_recordsErrorStatuses_andRethrows() throws Exception {
+        HttpServer server = serve(503, "{\"error\": \"busy\"}");
+        try {
+            List<RecordedEvent> events = Recordings.record(
+                    UpstreamCallEvent.class, () -> assertThrows(
+                            HttpServerErrorException.class,
+                            () -> RestTemplates.getJson(
+                                    RestTemplates.forDeadline("lookup"),
+                                    url(server), List.class, "fmp", "AAPL")));
+
+            assertEquals(503, events.get(0).getInt("status"));
+            assertEquals(17, events.get(0).getLong("bytes"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void getJson_rateLimitsAreRefusals() throws Exception {
+        HttpServer server = serve(429, "{\"error\": \"slow down\"}");
+        try {
+            UpstreamRefusedException e = assertThrows(
+                    UpstreamRefusedException.class,
+                    () -> RestTemplates.getJson(
+                            RestTemplates.forDeadline("news search"),
+                            url(server), Map.class, "news-api", "Apple"));
+
+            assertEquals("news-api", e.upstream());
+            assertEquals(NegativeCache.Kind.THROTTLED, e.kind());
+            assertInstanceOf(HttpClientErrorException.class, e.getCause());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void getJson_emptyBodyIsNull_andMalformedBodyFails() throws Exception {
+        HttpServer empty = serve(200, "");
+        HttpServer broken = serve(200, "not json");
+        try {
+            assertNull(RestTemplates.getJson(
+                    RestTemplates.forDeadline("lookup"), url(empty),
+                    List.class, "fmp", "AAPL"));
+            RestClientException e = assertThrows(RestClientException.class,
+                    () -> RestTemplates.getJson(
+                            RestTemplates.forDeadline("lookup"), url(broken),
+                            List.class, "fmp", "AAPL"));
+            assertEquals("unreadable fmp response", e.getMessage());
+        } finally {
+            empty.stop(0);
+            broken.stop(0);
+        }
+    }
+
+    @Test
+    void getJson_recordsConnectionFailures() throws Exception {
+        List<RecordedEvent> events = Recordings.record(
+                UpstreamCallEvent.class, () -> RestTemplates.getJson(
+                        RestTemplates.forDeadline("lookup"),
+                        "http://localhost:1/", List.class, "fmp", "AAPL"));
+
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).getString("failure")
+                .contains("ResourceAccessException"));
+    }
+}
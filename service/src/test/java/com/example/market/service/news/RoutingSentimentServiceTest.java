@@ -0,0 +1,125 @@
+package com.example.market.service.news;
+
+import com.example.market.model.news.SentimentResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link RoutingSentimentService} and
+ * {@link SentimentEngine} configuration parsing.
+ */
+class RoutingSentimentServiceTest {
+
+    private static final String CLEAR_TEXT =
+            "Shares soar as profits surge to a record";
+    private static final String AMBIGUOUS_TEXT =
+            "The company will hold its meeting on Tuesday";
+
+    private final LexiconSentimentService lexicon =
+            new LexiconSentimentService();
+
+    @Test
+    void pythonMode_delegatesToPython() throws Exception {
+        SentimentAnalysisPort python = mock(SentimentAnalysisPort.class);
+        when(python.analyzeSentiment(anyString()))
+                .thenReturn(new SentimentResult(null, 2, "negative"));
+
+        RoutingSentimentService router = new RoutingSentimentService(
+                python, lexicon, SentimentEngine.PYTHON, 0.35);
+
+        assertEquals(2, router.analyzeSentiment(CLEAR_TEXT).getSentimentScore());
+        verify(python).analyzeSentiment(CLEAR_TEXT);
+    }
+
+    @Test
+    void lexiconMode_neverCallsPython() throws Exception {
+        SentimentAnalysisPort python = mock(SentimentAnalysisPort.class);
+
+        RoutingSentimentService router = new RoutingSentimentService(
+                python, lexicon, SentimentEngine.LEXICON, 0.35);
+
+        assertEquals(5, router.analyzeSentiment(CLEAR_TEXT).getSentimentScore());
+        verifyNoInteractions(python);
+    }
+
+    @Test
+    void refineMode_confidentLexiconSkipsPython() throws Exception {
+        SentimentAnalysisPort python = mock(SentimentAnalysisPort.class);
+
+        RoutingSentimentService router = new RoutingSentimentService(
+                python, lexicon, SentimentEngine.LEXICON_THEN_PYTHON_REFINE,
+                0.35);
+
+        assertEquals(5, router.analyzeSentiment(CLEAR_TEXT).getSentimentScore());
+        verifyNoInteractions(python);
+    }
+
+    @Test
+    void refineMode_ambiguousTextAsksPython() throws Exception {
+        SentimentAnalysisPort python = mock(SentimentAnalysisPort.class);
+        when(python.analyzeSentiment(anyString()))
+                .thenReturn(new SentimentResult(null, 4, "positive"));
+
+        RoutingSentimentService router = new RoutingSentimentService(
+                python, lexicon, SentimentEngine.LEXICON_THEN_PYTHON_REFINE,
+                0.35);
+
+        assertEquals(4,
+                router.analyzeSentiment(AMBIGUOUS_TEXT).getSentimentScore());
+        verify(python).analyzeSentiment(AMBIGUOUS_TEXT);
+    }
+
+    @Test
+    void refineMode_pythonFailureFallsBackToLexicon() throws Exception {
+        SentimentAnalysisPort python = mock(SentimentAnalysisPort.class);
+        when(python.analyzeSentiment(anyString()))
+                .thenThrow(new RuntimeException("python missing"));
+
+        RoutingSentimentService router = new RoutingSentimentService(
+                python, lexicon, SentimentEngine.LEXICON_THEN_PYTHON_REFINE,
+                0.35);
+
+        SentimentResult result = router.analyzeSentiment(AMBIGUOUS_TEXT);
+        assertEquals(3, result.getSentimentScore());
+        assertEquals("neutral", result.getSentimentLabel());
+    }
+
+    @Test
+    void springConstructor_parsesEngineName() {
+        RoutingSentimentService router = new RoutingSentimentService(
+                new SentimentPythonService(), lexicon,
+                "Lexicon-Then-Python-Refine", 0.35);
+
+        assertEquals(SentimentEngine.LEXICON_THEN_PYTHON_REFINE,
+                router.getEngine());
+    }
+
+    @Test
+    void confidence_requiresSeveralHits() {
+        assertEquals(0.0, RoutingSentimentService.confidence(
+                new LexiconSentimentService.LexiconScore(0.9, 1)));
+        assertEquals(0.5, RoutingSentimentService.confidence(
+                new LexiconSentimentService.LexiconScore(-0.5, 3)));
+    }
+
+    @Test
+    void engineFromConfig_acceptsKnownNamesAndDefaultsToPython() {
+        assertEquals(SentimentEngine.PYTHON, SentimentEngine.fromConfig(null));
+        assertEquals(SentimentEngine.PYTHON, SentimentEngine.fromConfig(" "));
+        assertEquals(SentimentEngine.LEXICON,
+                SentimentEngine.fromConfig(" lexicon "));
+        assertEquals("lexicon-then-python-refine",
+                SentimentEngine.LEXICON_THEN_PYTHON_REFINE.getConfigName());
+    }
+
+    @Test
+    void engineFromConfig_rejectsUnknownNames() {
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> SentimentEngine.fromConfig("vader"));
+        assertTrue(ex.getMessage().contains("vader"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.market.service.news;
+
+import com.example.market.model.news.SentimentAggregates;
+import com.example.market.model.news.SentimentObservation;
+import com.example.market.model.news.SentimentResult;
+import com.example.market.model.news.SentimentWindow;
+import com.example.market.service.stock.JsonStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SentimentHistoryServiceTest {
+
+    private static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir Path tmp;
+
+    private JsonStore store;
+    private Path log;
+
+    @BeforeEach
+    void setUp() {
+        store = spy(new JsonStore());
+        log = tmp.resolve("history/amzn.ndjson");
+        doReturn(log).when(store).newsHistoryPath("AMZN");
+    }
+
+    @Test
+    void record_appendsToLogAndUpdatesAggregates() throws IOException {
+        SentimentHistoryService history = new SentimentHistoryService(store);
+
+        history.record("amzn", new SentimentResult(null, 5, "very positive"),
+                T0);
+        SentimentAggregates a = history.record("AMZN",
+                new SentimentResult(null, 1, "very negative"), T0);
+
+        assertEquals(2, a.getObservations());
+        assertEquals(3.0, a.score(SentimentWindow.SEVEN_DAYS), 1e-12);
+        assertEquals(2, Files.readAllLines(log).size());
+    }
+
+    @Test
+    void aggregates_replayWithoutCaching_untilTheSymbolIsRecorded()
+            throws IOException {
+        SentimentHistoryService first = new SentimentHistoryService(store);
+        first.record("AMZN", new SentimentResult(null, 4, "positive"), T0);
+        first.record("AMZN", new SentimentResult(null, 2, "negative"), T0);
+
+        clearInvocations(store);
+
+        // a fresh service (e.g. after restart) rebuilds from the log
+        SentimentHistoryService restarted = new SentimentHistoryService(store);
+        SentimentAggregates a = restarted.aggregates("AMZN");
+        restarted.aggregates("AMZN");
+
+        assertEquals(2, a.getObservations());
+        assertEquals(3.0, a.score(SentimentWindow.ONE_DAY), 1e-12);
+        verify(store, times(2)).readLines(eq(log), any());
+
+        // recording keeps the replayed aggregates; reads then use them
+        restarted.record("AMZN", new SentimentResult(null, 3, "neutral"), T0);
+        assertEquals(3, restarted.aggregates("AMZN").getObservations());
+        verify(store, times(3)).readLines(eq(log), any());
+    }
+
+    @Test
+    void aggregates_replayPastATornLastLine() throws IOException {
+        SentimentHistoryService first = new SentimentHistoryService(store);
+        first.record("AMZN", new SentimentResult(null, 4, "positive"), T0);
+        Files.writeString(log, "{\"score\":",
+                java.nio.file.StandardOpenOption.APPEND);
+
+        SentimentHistoryService restarted = new SentimentHistoryService(store);
+        restarted.record("AMZN", new SentimentResult(null, 2, "negative"), T0);
+
+        assertEquals(2, restarted.aggregates("AMZN").getObservations());
+        assertEquals(2, new SentimentHistoryService(store)
+                .aggregates("AMZN").getObservations());
+    }
+
+    @Test
+    void recent_returnsNewestObservationsOldestFirst() throws IOException {
+        SentimentHistoryService history = new SentimentHistoryService(store);
+        for (int score = 1; score <= 5; score++) {
+            history.record("AMZN", new SentimentResult(null, score, "x"),
+                    T0.plusSeconds(score));
+        }
+        clearInvocations(store);
+
+        List<SentimentObservation> recent = history.recent("AMZN", 2);
+
+        assertEquals(2, recent.size());
+        assertEquals(4, recent.get(0).getSentimentScore());
+        assertEquals(5, recent.get(1).getSentimentScore());
+        assertEquals("AMZN", recent.get(1).getSymbol());
+        verify(store, never()).readLines(eq(log), any());
+    }
+
+    @Test
+    void recent_rejectsNonPositiveLimit() {
+        SentimentHistoryService history = new SentimentHistoryService(store);
+        assertThrows(IllegalArgumentException.class,
+                () -> history.recent("AMZN", 0));
+    }
+
+    @Test
+    void blankSymbol_isRejected() {
+        SentimentHistoryService history = new SentimentHistoryService(store);
+        assertThrows(IllegalArgumentException.class,
+                () -> history.aggregates(" "));
+        assertThrows(IllegalArgumentException.class,
+                () -> history.aggregates(null));
+    }
+
+    @Test
+    void unreadableLog_surfacesAsUncheckedIOException() throws IOException {
+        doThrow(new IOException("disk gone")).when(store)
+                .readLines(eq(log), any());
+        SentimentHistoryService history = new SentimentHistoryService(store);
+
+        assertThrows(java.io.UncheckedIOException.class,
+                () -> history.aggregates("AMZN"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.market.service.news;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the trie-backed {@link SentimentLexicon}.
+ */
+class SentimentLexiconTest {
+
+    private static SentimentLexicon parse(String text) throws IOException {
+        return SentimentLexicon.parse(new ByteArrayInputStream(
+                text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void parse_readsWeightsNegatorsAndBoosters() throws IOException {
+        SentimentLexicon lexicon = parse("""
+                # comment line
+
+                surge\t3
+                slump\t-2
+                not\tNEG
+                very\tBOOST
+                """);
+
+        assertEquals(4, lexicon.termCount());
+        assertEquals(SentimentLexicon.POLAR, lexicon.kind(lexicon.find("surge")));
+        assertEquals(3f, lexicon.weight(lexicon.find("SURGE")));
+        assertEquals(-2f, lexicon.weight(lexicon.find("slump")));
+        assertEquals(SentimentLexicon.NEGATOR, lexicon.kind(lexicon.find("not")));
+        assertEquals(SentimentLexicon.BOOSTER, lexicon.kind(lexicon.find("Very")));
+    }
+
+    @Test
+    void find_prefixesAndUnknownWordsAreNotTerms() throws IOException {
+        SentimentLexicon lexicon = parse("surged\t3\n");
+
+        // "surge" is an interior node of "surged", not a term
+        int prefix = lexicon.find("surge");
+        assertNotEquals(SentimentLexicon.NO_NODE, prefix);
+        assertEquals(SentimentLexicon.NONE, lexicon.kind(prefix));
+
+        assertEquals(SentimentLexicon.NO_NODE, lexicon.find("plunge"));
+        assertEquals(SentimentLexicon.NONE,
+                lexicon.kind(SentimentLexicon.NO_NODE));
+        assertEquals(0f, lexicon.weight(SentimentLexicon.NO_NODE));
+        assertEquals(SentimentLexicon.NO_NODE,
+                lexicon.step(SentimentLexicon.NO_NODE, 'a'));
+        assertEquals(SentimentLexicon.NO_NODE,
+                lexicon.step(SentimentLexicon.ROOT, '7'));
+    }
+
+    @Test
+    void apostrophesAreFoldedTogether() throws IOException {
+        SentimentLexicon lexicon = parse("don't\tNEG\n");
+
+        assertEquals(SentimentLexicon.NEGATOR,
+                lexicon.kind(lexicon.find("don’t")));
+        assertEquals(-1, SentimentLexicon.letterIndex('-'));
+    }
+
+    @Test
+    void duplicateTermsAreCountedOnce() throws IOException {
+        SentimentLexicon lexicon = parse("gain\t1\ngain\t2\n");
+
+        assertEquals(1, lexicon.termCount());
+        assertEquals(2f, lexicon.weight(lexicon.find("gain")));
+    }
+
+    @Test
+    void parse_growsPastInitialCapacity() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (char a = 'a'; a <= 'z'; a++) {
+            for (char b = 'a'; b <= 'z'; b++) {
+                sb.append("zz").append(a).append(b).append("\t1\n");
+            }
+        }
+        SentimentLexicon lexicon = parse(sb.toString());
+
+        assertEquals(26 * 26, lexicon.termCount());
+        assertEquals(SentimentLexicon.POLAR, lexicon.kind(lexicon.find("zzqx")));
+    }
+
+    @Test
+    void parse_malformedLineThrows() {
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> parse("surge\n"));
+        assertTrue(ex.getMessage().contains("line 1"));
+    }
+
+    @Test
+    void parse_unsupportedCharacterThrows() {
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> parse("sell-off\t-2\n"));
+        assertTrue(ex.getMessage().contains("sell-off"));
+    }
+
+    @Test
+    void loadDefault_containsFinanceTerms() {
+        SentimentLexicon lexicon = SentimentLexicon.loadDefault();
+
+        assertTrue(lexicon.termCount() > 200);
+        assertTrue(lexicon.weight(lexicon.find("bankruptcy")) < 0);
+        assertTrue(lexicon.weight(lexicon.find("upgrade")) > 0);
+    }
+}
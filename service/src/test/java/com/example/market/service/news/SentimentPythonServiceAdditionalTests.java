@@ -1,14 +1,22 @@
 package com.example.market.service.news;
 
 import com.example.market.model.news.SentimentResult;
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
 import com.example.market.service.forecast.python.ProcessRunner;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -132,4 +140,65 @@ class SentimentPythonServiceAdditionalTests {
         // analyzeSentiment deliberately sets company = null
         assertNull(result.getCompany());
     }
+
+    /**
+     * A model that prints nothing until it is killed.
+     */
+    static class HangingProcess extends FakeProcess {
+        private final PipedOutputStream out = new PipedOutputStream();
+        private final PipedInputStream in;
+        private volatile boolean killed;
+
+        HangingProcess() throws IOException {
+            super("", 137);
+            in = new PipedInputStream(out);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public Stream<ProcessHandle> descendants() {
+            return Stream.empty();
+        }
+
+        @Override
+        public Process destroyForcibly() {
+            killed = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+    }
+
+    @Test
+    void modelStillRunningAtTheDeadline_isKilled() throws Exception {
+        HangingProcess proc = new HangingProcess();
+        SentimentPythonService service =
+                new SentimentPythonService(new StubProcessRunner(proc));
+
+        try (Deadline.Scope scope =
+                     Deadline.after(Duration.ofMillis(50)).bind()) {
+            DeadlineExceededException ex = assertThrows(
+                    DeadlineExceededException.class,
+                    () -> service.analyzeSentiment("slow"));
+            assertTrue(ex.getMessage().contains("sentiment"));
+        }
+        assertTrue(proc.killed);
+
+        // out of budget before starting: the model is never run
+        Deadline spent = Deadline.after(Duration.ofNanos(1));
+        Thread.sleep(1);
+        try (Deadline.Scope scope = spent.bind()) {
+            assertThrows(DeadlineExceededException.class,
+                    () -> new SentimentPythonService(pb -> {
+                        throw new AssertionError("started");
+                    }).analyzeSentiment("late"));
+        }
+    }
 }
@@ -2,10 +2,17 @@ package com.example.market.service.news;
 
 import com.example.market.model.news.SentimentResult;
 import com.example.market.service.forecast.python.ProcessRunner;
+import com.example.market.service.forecast.python.PythonEnvironment;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -138,5 +145,63 @@ class SentimentPythonServiceTests {
         "Expected message to mention missing JSON output but was: " + msg);
   }
 
+  @Test
+  void analyzeSentiment_interruptedWait_killsTheModel() throws Exception {
+    ProcessRunner mockRunner = mock(ProcessRunner.class);
+    Process mockProcess = mock(Process.class);
+    when(mockRunner.start(any(ProcessBuilder.class))).thenReturn(mockProcess);
+    when(mockProcess.getInputStream())
+        .thenReturn(new ByteArrayInputStream(new byte[0]));
+    when(mockProcess.waitFor()).thenThrow(new InterruptedException());
+    when(mockProcess.isAlive()).thenReturn(true);
+    when(mockProcess.descendants()).thenReturn(Stream.empty());
+
+    SentimentPythonService service = new SentimentPythonService(mockRunner);
+
+    assertThrows(InterruptedException.class,
+        () -> service.analyzeSentiment("AAPL"));
+    verify(mockProcess).destroyForcibly();
+  }
+
+  @Test
+  void analyzeSentiment_failedRead_killsTheModel() throws Exception {
+    ProcessRunner mockRunner = mock(ProcessRunner.class);
+    Process mockProcess = mock(Process.class);
+    when(mockRunner.start(any(ProcessBuilder.class))).thenReturn(mockProcess);
+    when(mockProcess.getInputStream()).thenReturn(new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Stream closed");
+      }
+    });
+    when(mockProcess.isAlive()).thenReturn(true);
+    when(mockProcess.descendants()).thenReturn(Stream.empty());
+
+    SentimentPythonService service = new SentimentPythonService(mockRunner);
+
+    assertThrows(UncheckedIOException.class,
+        () -> service.analyzeSentiment("AAPL"));
+    verify(mockProcess).destroyForcibly();
+    verify(mockProcess, never()).waitFor();
+  }
+
+  @Test
+  void analyzeSentiment_runsOnTheConfiguredInterpreter() throws Exception {
+    ProcessRunner mockRunner = mock(ProcessRunner.class);
+    Process mockProcess = mock(Process.class);
+    when(mockProcess.getInputStream()).thenReturn(new ByteArrayInputStream(
+        "{\"sentimentScore\": 1, \"sentimentLabel\": \"Neutral\"}"
+            .getBytes()));
+    when(mockProcess.waitFor()).thenReturn(0);
+    when(mockRunner.start(any(ProcessBuilder.class))).thenReturn(mockProcess);
+    PythonEnvironment env = new PythonEnvironment(mockRunner,
+        "/opt/venv/bin/python", List.of(), Duration.ofSeconds(1));
+
+    new SentimentPythonService(mockRunner, env).analyzeSentiment("AAPL");
 
+    ArgumentCaptor<ProcessBuilder> pb =
+        ArgumentCaptor.forClass(ProcessBuilder.class);
+    verify(mockRunner).start(pb.capture());
+    assertEquals("/opt/venv/bin/python", pb.getValue().command().get(0));
+  }
 }
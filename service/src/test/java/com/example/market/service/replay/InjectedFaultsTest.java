@@ -0,0 +1,120 @@
+package com.example.market.service.replay;
+
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InjectedFaultsTest {
+
+  private static final int DRAWS = 20_000;
+
+  private static long[] draw(InjectedFaults faults) {
+    long[] millis = new long[DRAWS];
+    for (int i = 0; i < DRAWS; i++) {
+      millis[i] = faults.nextLatency().toMillis();
+    }
+    Arrays.sort(millis);
+    return millis;
+  }
+
+  @Test
+  void none_answersAtOnce_andNeverFails() {
+    for (int i = 0; i < 100; i++) {
+      assertEquals(Duration.ZERO, InjectedFaults.NONE.nextLatency());
+      assertFalse(InjectedFaults.NONE.nextFails());
+    }
+    assertEquals(Duration.ZERO, InjectedFaults.NONE.median());
+    assertEquals(0, InjectedFaults.NONE.errorRate());
+  }
+
+  @Test
+  void latency_fitsTheMedianAndP99() {
+    long[] millis = draw(new InjectedFaults(Duration.ofMillis(200),
+        Duration.ofMillis(1000), 0, 7));
+
+    assertEquals(200, millis[DRAWS / 2], 15);
+    assertEquals(1000, millis[DRAWS * 99 / 100], 120);
+    assertTrue(millis[0] > 0);
+  }
+
+  @Test
+  void equalMedianAndP99_isConstant() {
+    InjectedFaults faults = new InjectedFaults(Duration.ofMillis(30),
+        Duration.ofMillis(30), 0, 1);
+
+    assertEquals(Duration.ofMillis(30), faults.nextLatency());
+    assertEquals(Duration.ofMillis(30), faults.median());
+  }
+
+  @Test
+  void sameSeed_drawsTheSameSequence() {
+    InjectedFaults a = new InjectedFaults(Duration.ofMillis(10),
+        Duration.ofMillis(90), 0.3, 42);
+    InjectedFaults b = new InjectedFaults(Duration.ofMillis(10),
+        Duration.ofMillis(90), 0.3, 42);
+
+    for (int i = 0; i < 200; i++) {
+      assertEquals(a.nextLatency(), b.nextLatency());
+      assertEquals(a.nextFails(), b.nextFails());
+    }
+  }
+
+  @Test
+  void errors_followTheRate() {
+    InjectedFaults faults = new InjectedFaults(Duration.ZERO, Duration.ZERO,
+        0.2, 3);
+    int failed = 0;
+    for (int i = 0; i < DRAWS; i++) {
+      failed += faults.nextFails() ? 1 : 0;
+    }
+
+    assertEquals(0.2, (double) failed / DRAWS, 0.02);
+    assertEquals(0.2, faults.errorRate());
+  }
+
+  @Test
+  void rejectsSettingsOutOfRange() {
+    Duration ms = Duration.ofMillis(1);
+    assertThrows(IllegalArgumentException.class,
+        () -> new InjectedFaults(ms.negated(), ms, 0, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new InjectedFaults(ms.multipliedBy(2), ms, 0, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new InjectedFaults(ms, ms, -0.1, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new InjectedFaults(ms, ms, 1.5, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new InjectedFaults(ms, ms, Double.NaN, 0));
+  }
+
+  @Test
+  void await_sleepsTheLatency() throws Exception {
+    InjectedFaults faults = new InjectedFaults(Duration.ofMillis(40),
+        Duration.ofMillis(40), 0, 0);
+
+    long start = System.nanoTime();
+    faults.await("stage");
+
+    assertTrue(System.nanoTime() - start >= Duration.ofMillis(40).toNanos());
+  }
+
+  @Test
+  void await_isCutShortByTheDeadline() {
+    InjectedFaults faults = new InjectedFaults(Duration.ofSeconds(10),
+        Duration.ofSeconds(10), 0, 0);
+
+    long start = System.nanoTime();
+    try (Deadline.Scope scope =
+             Deadline.after(Duration.ofMillis(50)).bind()) {
+      DeadlineExceededException e = assertThrows(
+          DeadlineExceededException.class, () -> faults.await("news search"));
+      assertTrue(e.getMessage().contains("news search"));
+    }
+    assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+  }
+}
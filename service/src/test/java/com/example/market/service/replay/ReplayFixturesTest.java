@@ -0,0 +1,102 @@
+package com.example.market.service.replay;
+
+import com.example.market.service.stock.JsonStore;
+import com.example.market.service.upstream.Upstreams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayFixturesTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void mode_isReadFromConfig() {
+    assertEquals(ReplayMode.RECORD, ReplayMode.fromConfig(" Record "));
+    assertEquals(ReplayMode.REPLAY, ReplayMode.fromConfig("replay"));
+    assertEquals("replay", ReplayMode.REPLAY.getConfigName());
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> ReplayMode.fromConfig("rewind"));
+    assertTrue(e.getMessage().contains("rewind"));
+    assertThrows(IllegalArgumentException.class,
+        () -> ReplayMode.fromConfig(null));
+  }
+
+  @Test
+  void unset_isOff_withoutFaults() {
+    ReplayFixtures fixtures =
+        new ReplayFixtures(new MockEnvironment(), new JsonStore());
+
+    assertNull(fixtures.mode());
+    assertFalse(fixtures.isRecording());
+    assertEquals(Duration.ZERO,
+        fixtures.faults(Upstreams.ALPHA_VANTAGE).median());
+    assertEquals(Path.of("data/replay/fmp/msft.json"),
+        fixtures.path("fmp", "MSFT"));
+  }
+
+  @Test
+  void settings_areReadFromConfig() {
+    MockEnvironment env = new MockEnvironment()
+        .withProperty("market.replay.mode", "record")
+        .withProperty("market.replay.dir", dir.toString())
+        .withProperty("market.replay.faults.news-api.latency-median", "20ms")
+        .withProperty("market.replay.faults.news-api.latency-p99", "PT0.2S")
+        .withProperty("market.replay.faults.news-api.error-rate", "0.25")
+        .withProperty("market.replay.faults.fmp.latency-median", "5ms");
+
+    ReplayFixtures fixtures = new ReplayFixtures(env, new JsonStore());
+
+    assertEquals(ReplayMode.RECORD, fixtures.mode());
+    assertTrue(fixtures.isRecording());
+    InjectedFaults news = fixtures.faults(Upstreams.NEWS_API);
+    assertEquals(Duration.ofMillis(20), news.median());
+    assertEquals(0.25, news.errorRate());
+    // without a p99 the latency is constant
+    assertEquals(Duration.ofMillis(5),
+        fixtures.faults(Upstreams.FMP).nextLatency());
+    assertSame(InjectedFaults.NONE, fixtures.faults("elsewhere"));
+    assertEquals(dir.resolve("news-api").resolve("msft.json"),
+        fixtures.path("news-api", "MSFT"));
+  }
+
+  @Test
+  void invalidMode_failsStartup() {
+    MockEnvironment env = new MockEnvironment()
+        .withProperty("market.replay.mode", "both");
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new ReplayFixtures(env, new JsonStore()));
+  }
+
+  @Test
+  void writeThenRead_roundTrips_andMissingIsNull() throws Exception {
+    ReplayFixtures fixtures = new ReplayFixtures(ReplayMode.RECORD, dir,
+        new JsonStore(), Map.of());
+
+    fixtures.write("news-api", "Apple Inc.", Map.of("articles", List.of(1, 2)));
+
+    assertTrue(Files.exists(dir.resolve("news-api/apple_inc..json")));
+    assertEquals(Map.of("articles", List.of(1, 2)),
+        fixtures.read("news-api", "apple inc.", Map.class));
+    assertNull(fixtures.read("news-api", "Microsoft", Map.class));
+  }
+
+  @Test
+  void fileName_keepsOnlySafeCharacters() {
+    assertEquals("brk.b", ReplayFixtures.fileName(" BRK.B "));
+    assertEquals("a_b_c-d", ReplayFixtures.fileName("a/b c-d"));
+    assertEquals("_", ReplayFixtures.fileName(""));
+    assertEquals("_", ReplayFixtures.fileName(null));
+    assertEquals("__", ReplayFixtures.fileName("/\\"));
+  }
+}
@@ -1,9 +1,17 @@
 package com.example.market.service.stock;
 
+import com.example.market.service.Deadline;
+import com.example.market.service.DeadlineExceededException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.market.service.upstream.NegativeCache;
+import com.example.market.service.upstream.UpstreamRefusedException;
+import com.example.market.service.upstream.UpstreamUnavailableException;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class AlphaVantageServiceAdditionalBranchesTest {
@@ -68,4 +76,86 @@ class AlphaVantageServiceAdditionalBranchesTest {
         assertTrue(msg.contains("Meta Data"),
                 "Expected message to list 'Meta Data' among response fields");
     }
+
+    @Test
+    void requestsTimeOutWithTheRequestDeadline() {
+        String url = "https://www.alphavantage.co/query?symbol=AMZN";
+        assertEquals(Duration.ofMillis(30_001),
+                AlphaVantageService.request(url).timeout().orElseThrow());
+
+        try (Deadline.Scope scope =
+                     Deadline.after(Duration.ofSeconds(2)).bind()) {
+            Duration timeout = AlphaVantageService.request(url).timeout()
+                    .orElseThrow();
+            assertTrue(timeout.compareTo(Duration.ofMillis(2001)) <= 0,
+                    timeout.toString());
+        }
+
+        Deadline spent = Deadline.after(Duration.ofNanos(1));
+        try (Deadline.Scope scope = spent.bind()) {
+            while (!spent.isExpired()) {
+                Thread.onSpinWait();
+            }
+            assertThrows(DeadlineExceededException.class,
+                    () -> new AlphaVantageService().fetchDaily("AMZN", "k"));
+        }
+    }
+
+    @Test
+    void symbolOf_readsTheSymbolParameterOnly() {
+        assertEquals("MSFT", AlphaVantageService.symbolOf(
+            "https://x/query?function=F&symbol=MSFT&apikey=k"));
+        assertEquals("BRK.B",
+            AlphaVantageService.symbolOf("https://x/query?a=1&symbol=BRK.B"));
+        assertEquals("", AlphaVantageService.symbolOf("https://x/query"));
+    }
+
+    @Test
+    void unknownSymbols_areAnsweredWithoutCallingAgain() throws Exception {
+        JsonNode error = new ObjectMapper().readTree(
+            "{\"Error Message\": \"Invalid API call.\"}");
+        AtomicInteger calls = new AtomicInteger();
+        AlphaVantageService service = new StubAlphaVantageService(error) {
+            @Override
+            protected JsonNode getJson(final String url) {
+                calls.incrementAndGet();
+                return super.getJson(url);
+            }
+        };
+
+        for (String symbol : new String[] {"AMZNN", "amznn ", "AMZNN"}) {
+            UpstreamRefusedException ex = assertThrows(
+                UpstreamRefusedException.class,
+                () -> service.fetchDaily(symbol, "dummy-key"));
+            assertEquals("Invalid API call.", ex.getMessage());
+            assertEquals(NegativeCache.Kind.INVALID, ex.kind());
+        }
+        assertThrows(UpstreamRefusedException.class,
+            () -> service.fetchDaily("MSFTT", "dummy-key"));
+
+        assertEquals(2, calls.get(), "once per symbol");
+    }
+
+    @Test
+    void rateLimitNotes_turnEveryCallAwayForAWhile() throws Exception {
+        JsonNode note = new ObjectMapper().readTree(
+            "{\"Note\": \"5 calls per minute\"}");
+        AtomicInteger calls = new AtomicInteger();
+        AlphaVantageService service = new StubAlphaVantageService(note) {
+            @Override
+            protected JsonNode getJson(final String url) {
+                calls.incrementAndGet();
+                return super.getJson(url);
+            }
+        };
+
+        assertThrows(UpstreamRefusedException.class,
+            () -> service.fetchDaily("AAPL", "dummy-key"));
+        UpstreamUnavailableException ex = assertThrows(
+            UpstreamUnavailableException.class,
+            () -> service.fetchDaily("MSFT", "dummy-key"));
+
+        assertEquals("alpha-vantage", ex.upstream());
+        assertEquals(1, calls.get());
+    }
 }
@@ -0,0 +1,89 @@
+package com.example.market.service.stock;
+
+import com.example.market.model.stock.StockBar;
+import com.example.market.model.stock.StockDailySeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DailyCacheKeyScrubTest {
+
+  private static final String URL =
+      "https://www.alphavantage.co/query?function=TIME_SERIES_DAILY"
+          + "&symbol=AMZN";
+  private static final FileTime WRITTEN =
+      FileTime.from(Instant.parse("2026-10-18T12:00:00Z"));
+
+  @TempDir
+  Path dir;
+
+  private JsonStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = spy(new JsonStore());
+    doReturn(dir).when(store).dailyDir();
+  }
+
+  private Path cached(String symbol, String source) throws IOException {
+    Path file = dir.resolve(symbol.toLowerCase() + "-daily.json");
+    BigDecimal c = BigDecimal.TEN;
+    store.write(file, new StockDailySeries(symbol, "2026-10-18T12:00:00Z",
+        source, List.of(new StockBar("2026-10-16", c, c, c, c, 1L))));
+    Files.setLastModifiedTime(file, WRITTEN);
+    return file;
+  }
+
+  @Test
+  void filesWithTheKey_areRewrittenWithoutIt_keepingTheirFreshness()
+      throws IOException {
+    Path leaky = cached("AMZN", URL + "&apikey=SECRET&datatype=json");
+    Path clean = cached("MSFT", URL);
+    Files.writeString(dir.resolve("notes.txt"), "apikey=SECRET");
+    clearInvocations(store);
+
+    assertEquals(1, new DailyCacheKeyScrub(store).scrub());
+
+    assertFalse(Files.readString(leaky).contains("SECRET"));
+    assertEquals(URL + "&datatype=json",
+        store.read(leaky, StockDailySeries.class).getSource());
+    assertEquals(1, store.read(leaky, StockDailySeries.class)
+        .getBars().size());
+    assertEquals(WRITTEN, Files.getLastModifiedTime(leaky));
+    assertEquals(WRITTEN, Files.getLastModifiedTime(clean));
+    assertEquals("apikey=SECRET",
+        Files.readString(dir.resolve("notes.txt")));
+    verify(store, times(1)).write(eq(leaky), any());
+  }
+
+  @Test
+  void aFileThatCannotBeRewritten_isDeleted() throws IOException {
+    Path leaky = cached("AMZN", URL + "&apikey=SECRET");
+    doThrow(new IOException("read-only")).when(store)
+        .write(eq(leaky), any());
+
+    new DailyCacheKeyScrub(store).afterPropertiesSet();
+
+    assertFalse(Files.exists(leaky));
+  }
+
+  @Test
+  void aMissingCacheDirectory_isNothingToScrub() throws IOException {
+    doReturn(dir.resolve("absent")).when(store).dailyDir();
+
+    assertEquals(0, new DailyCacheKeyScrub(store).scrub());
+  }
+}
@@ -6,6 +6,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -60,4 +62,104 @@ class JsonStoreReadWriteTest {
         assertEquals(Paths.get("data", "stocks", "aapl-daily.json"), daily);
         assertEquals(Paths.get("data", "news", ".json"), news);
     }
+
+    @Test
+    void appendThenReadLinesKeepsOrder() throws IOException {
+        JsonStore store = new JsonStore();
+
+        Path file = Paths.get("target/test-output/json-store-append.ndjson");
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+
+        assertTrue(store.readLines(file, Map.class).isEmpty(),
+                "Missing file should read as empty");
+
+        store.append(file, Map.of("n", 1));
+        store.append(file, Map.of("n", 2));
+
+        var lines = store.readLines(file, Map.class);
+        assertEquals(2, lines.size());
+        assertEquals(1, ((Number) lines.get(0).get("n")).intValue());
+        assertEquals(2, ((Number) lines.get(1).get("n")).intValue());
+        assertEquals(2, Files.readAllLines(file).size(),
+                "Each value should be one compact line");
+    }
+
+    @Test
+    void tornLastLine_isSkipped_andTheNextAppendStartsAFreshLine()
+            throws IOException {
+        JsonStore store = new JsonStore();
+        Path file = Paths.get("target/test-output/json-store-torn.ndjson");
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+        store.append(file, Map.of("n", 1));
+        // a crash part way through the second append
+        Files.writeString(file, "{\"n\":", StandardOpenOption.APPEND);
+
+        var lines = store.readLines(file, Map.class);
+        assertEquals(1, lines.size());
+        assertEquals(1, store.malformedLines());
+
+        store.append(file, Map.of("n", 3));
+        lines = store.readLines(file, Map.class);
+        assertEquals(2, lines.size());
+        assertEquals(3, ((Number) lines.get(1).get("n")).intValue());
+        assertEquals(2, store.malformedLines(), "counted on every read");
+    }
+
+    @Test
+    void readLastLines_scansBackPastChunkBoundariesAndTornLines()
+            throws IOException {
+        JsonStore store = new JsonStore();
+        Path file = Paths.get("target/test-output/json-store-tail.ndjson");
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+
+        assertTrue(store.readLastLines(file, Map.class, 3).isEmpty(),
+                "Missing file should read as empty");
+
+        // long enough that the tail spans several read chunks
+        for (int n = 1; n <= 2000; n++) {
+            store.append(file, Map.of("n", n, "pad", "x".repeat(20)));
+        }
+        var tail = store.readLastLines(file, Map.class, 3);
+        assertEquals(List.of(1998, 1999, 2000), tail.stream()
+                .map(m -> ((Number) m.get("n")).intValue()).toList());
+        assertEquals(2000, store.readLastLines(file, Map.class, 5000).size());
+        assertEquals(1, ((Number) store.readLastLines(file, Map.class, 5000)
+                .get(0).get("n")).intValue());
+
+        Files.writeString(file, "{\"n\":", StandardOpenOption.APPEND);
+        tail = store.readLastLines(file, Map.class, 1);
+        assertEquals(2000, ((Number) tail.get(0).get("n")).intValue());
+        assertEquals(1, store.malformedLines());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> store.readLastLines(file, Map.class, 0));
+    }
+
+    @Test
+    void newsHistoryPathNormalizesSymbol() {
+        JsonStore store = new JsonStore();
+
+        assertEquals(Paths.get("data", "news", "history", "amzn.ndjson"),
+                store.newsHistoryPath(" AMZN "));
+    }
+
+    @Test
+    void writeReplacesExistingFileWithoutLeavingTempFiles() throws IOException {
+        JsonStore store = new JsonStore();
+
+        Path dir = Paths.get("target/test-output/json-store-replace");
+        Path file = dir.resolve("value.json");
+        Files.createDirectories(dir);
+        Files.writeString(file, "{\"old\":\"a much longer previous value\"}");
+
+        store.write(file, Map.of("n", 1));
+
+        assertEquals(1, ((Number) store.read(file, Map.class).get("n")).intValue());
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count(), "Only the target file should remain");
+        }
+    }
 }
@@ -0,0 +1,108 @@
+package com.example.market.service.stock;
+
+import com.example.market.model.stock.StockDailySeries;
+import com.example.market.service.replay.InjectedFaults;
+import com.example.market.service.replay.ReplayFixtures;
+import com.example.market.service.replay.ReplayMode;
+import com.example.market.service.upstream.Upstreams;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayStockDataServiceTest {
+
+    private static final String DAILY = """
+        {"Time Series (Daily)": {
+          "2025-01-03": {"1. open": "10", "2. high": "12", "3. low": "9",
+                         "4. close": "11", "5. volume": "100"},
+          "2025-01-02": {"1. open": "9", "2. high": "10", "3. low": "8",
+                         "4. close": "10", "5. volume": "90"}}}
+        """;
+
+    @TempDir
+    Path dir;
+
+    private ReplayStockDataService service(ReplayMode mode,
+                                           InjectedFaults faults) {
+        return new ReplayStockDataService(new Upstreams(),
+                new ReplayFixtures(mode, dir, new JsonStore(),
+                        Map.of(Upstreams.ALPHA_VANTAGE, faults)));
+    }
+
+    @Test
+    void record_savesTheResponse_andReplayServesItWithoutNetwork()
+            throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HttpServer server = HttpServer.create(
+                new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            calls.incrementAndGet();
+            byte[] bytes = DAILY.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        try {
+            JsonNode recorded = service(ReplayMode.RECORD, InjectedFaults.NONE)
+                    .getJson("http://localhost:" + server.getAddress().getPort()
+                            + "/query?function=TIME_SERIES_DAILY&symbol=MSFT"
+                            + "&apikey=secret");
+            assertTrue(recorded.has("Time Series (Daily)"));
+        } finally {
+            server.stop(0);
+        }
+        assertEquals(1, calls.get());
+        Path saved = dir.resolve("alpha-vantage/msft.json");
+        assertTrue(Files.exists(saved));
+        assertFalse(Files.readString(saved).contains("secret"));
+
+        StockDailySeries series = service(ReplayMode.REPLAY, InjectedFaults.NONE)
+                .fetchDaily("MSFT", "key");
+
+        assertEquals("MSFT", series.getSymbol());
+        assertEquals(2, series.getBars().size());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void replay_withoutRecording_fails() {
+        ReplayStockDataService service =
+                service(ReplayMode.REPLAY, InjectedFaults.NONE);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service.fetchDaily("TSLA", "key"));
+        assertTrue(e.getMessage().contains("TSLA"));
+    }
+
+    @Test
+    void replay_injectsLatencyAndFailures() throws Exception {
+        new JsonStore().write(dir.resolve("alpha-vantage/aapl.json"),
+                Map.of("Time Series (Daily)", Map.of()));
+        InjectedFaults failing = new InjectedFaults(Duration.ofMillis(30),
+                Duration.ofMillis(30), 1, 0);
+
+        long start = System.nanoTime();
+        IOException e = assertThrows(IOException.class,
+                () -> service(ReplayMode.REPLAY, failing).fetchDaily("AAPL",
+                        "key"));
+
+        assertEquals("Injected failure", e.getMessage());
+        assertTrue(System.nanoTime() - start
+                >= Duration.ofMillis(30).toNanos());
+    }
+}
@@ -86,4 +86,17 @@ class AlphaVantageServiceBranchesTest {
         assertEquals("2025-10-21", out.getBars().get(0).getTimestamp());
         assertEquals("2025-10-22", out.getBars().get(1).getTimestamp());
     }
+
+    @Test
+    void source_namesQueryButNotApiKey() throws Exception {
+        var body = "{ \"Time Series (Daily)\": { " +
+                "\"2025-10-21\":{\"1. open\":\"1\",\"2. high\":\"1\",\"3. low\":\"1\",\"4. close\":\"1\",\"5. volume\":\"5\"}" +
+                "} }";
+        var svc = new StubAlpha(M.readTree(body));
+
+        StockDailySeries out = svc.fetchDaily("AAPL", "SECRET-KEY");
+        assertTrue(out.getSource().contains("symbol=AAPL"), out.getSource());
+        assertFalse(out.getSource().contains("SECRET-KEY"), out.getSource());
+        assertFalse(out.getSource().toLowerCase().contains("apikey"), out.getSource());
+    }
 }
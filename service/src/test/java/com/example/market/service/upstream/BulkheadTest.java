@@ -0,0 +1,71 @@
+package com.example.market.service.upstream;
+
+import com.example.market.service.Deadline;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+  @Test
+  void boundsCallsInFlight_andCountsRejections() {
+    Bulkhead b = new Bulkhead(2, Duration.ZERO);
+
+    assertTrue(b.tryEnter());
+    assertTrue(b.tryEnter());
+    assertEquals(2, b.inFlight());
+    assertFalse(b.tryEnter());
+    assertEquals(1, b.rejected());
+
+    b.exit();
+    assertTrue(b.tryEnter());
+    assertEquals(2, b.maxConcurrent());
+  }
+
+  @Test
+  void waitsForASlot_butNotPastTheDeadline() throws InterruptedException {
+    Bulkhead b = new Bulkhead(1, Duration.ofSeconds(10));
+    assertTrue(b.tryEnter());
+    Thread release = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        return;
+      }
+      b.exit();
+    });
+    release.start();
+    assertTrue(b.tryEnter(), "slot freed while waiting");
+    release.join();
+
+    long started = System.nanoTime();
+    try (Deadline.Scope ignored =
+             Deadline.after(Duration.ofMillis(50)).bind()) {
+      assertFalse(b.tryEnter());
+    }
+    assertTrue(System.nanoTime() - started < Duration.ofSeconds(5).toNanos());
+  }
+
+  @Test
+  void interruptedWait_isARejection_andKeepsTheInterrupt() {
+    Bulkhead b = new Bulkhead(1, Duration.ofSeconds(10));
+    assertTrue(b.tryEnter());
+    Thread.currentThread().interrupt();
+    try {
+      assertFalse(b.tryEnter());
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  void invalidSettings_areRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new Bulkhead(0, Duration.ZERO));
+    assertThrows(IllegalArgumentException.class,
+        () -> new Bulkhead(1, Duration.ofMillis(-1)));
+  }
+}
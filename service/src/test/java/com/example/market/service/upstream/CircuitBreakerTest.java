@@ -0,0 +1,124 @@
+package com.example.market.service.upstream;
+
+import com.example.market.service.upstream.CircuitBreaker.Permit;
+import com.example.market.service.upstream.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+  private static final long FAST = Duration.ofMillis(1).toNanos();
+  private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+  private static CircuitBreaker breaker(Duration openFor) {
+    return new CircuitBreaker(Duration.ofSeconds(1), 0.5, 4, 2, openFor);
+  }
+
+  private static void record(CircuitBreaker b, long elapsed, boolean failed) {
+    Permit p = b.tryAcquire();
+    assertNotEquals(Permit.REJECTED, p);
+    b.onResult(p, elapsed, failed);
+  }
+
+  @Test
+  void opensOnceTheFailureRateIsReached_afterTheMinimumCalls() {
+    CircuitBreaker b = breaker(Duration.ofMinutes(1));
+
+    record(b, FAST, true);
+    assertEquals(State.CLOSED, b.state(), "below minimum calls");
+    record(b, FAST, false);
+
+    assertEquals(State.OPEN, b.state());
+    assertEquals(Permit.REJECTED, b.tryAcquire());
+    assertEquals(1, b.timesOpened());
+    assertEquals(0, b.calls(), "window starts clean");
+  }
+
+  @Test
+  void slowCalls_countAsUnhealthy() {
+    CircuitBreaker b = breaker(Duration.ofMinutes(1));
+
+    record(b, FAST, false);
+    record(b, FAST, false);
+    record(b, SLOW, false);
+    assertEquals(State.CLOSED, b.state());
+    assertEquals(1.0 / 3, b.unhealthyRate(), 1e-9);
+    record(b, SLOW, false);
+
+    assertEquals(State.OPEN, b.state());
+  }
+
+  @Test
+  void oldOutcomes_slideOutOfTheWindow() {
+    CircuitBreaker b = breaker(Duration.ofMinutes(1));
+    record(b, FAST, false);
+    record(b, FAST, false);
+    record(b, FAST, true);
+    for (int i = 0; i < 4; i++) {
+      record(b, FAST, false);
+    }
+    assertEquals(State.CLOSED, b.state());
+    assertEquals(4, b.calls());
+    assertEquals(0.0, b.unhealthyRate());
+  }
+
+  @Test
+  void afterOpenFor_oneProbeDecides() throws InterruptedException {
+    CircuitBreaker b = breaker(Duration.ofMillis(20));
+    record(b, FAST, true);
+    record(b, FAST, true);
+    Thread.sleep(40);
+
+    Permit probe = b.tryAcquire();
+    assertEquals(Permit.PROBE, probe);
+    assertEquals(State.HALF_OPEN, b.state());
+    assertEquals(Permit.REJECTED, b.tryAcquire(), "one probe at a time");
+    b.onResult(probe, FAST, true);
+    assertEquals(State.OPEN, b.state());
+    assertEquals(2, b.timesOpened());
+
+    Thread.sleep(40);
+    probe = b.tryAcquire();
+    b.release(probe);
+    probe = b.tryAcquire();
+    assertEquals(Permit.PROBE, probe, "a released probe can be retaken");
+    b.onResult(probe, FAST, false);
+    assertEquals(State.CLOSED, b.state());
+    assertEquals(Permit.CALL, b.tryAcquire());
+  }
+
+  @Test
+  void callsAdmittedBeforeOpening_doNotCount() {
+    CircuitBreaker b = breaker(Duration.ofMinutes(1));
+    Permit early = b.tryAcquire();
+    record(b, FAST, true);
+    record(b, FAST, true);
+
+    b.onResult(early, FAST, false);
+    b.onResult(Permit.PROBE, FAST, false);
+    b.release(Permit.CALL);
+
+    assertEquals(State.OPEN, b.state());
+    assertEquals(0, b.calls());
+  }
+
+  @Test
+  void invalidSettings_areRejected() {
+    Duration s = Duration.ofSeconds(1);
+    assertThrows(IllegalArgumentException.class,
+        () -> new CircuitBreaker(Duration.ZERO, 0.5, 4, 2, s));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CircuitBreaker(s, 0.5, 4, 2, Duration.ZERO));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CircuitBreaker(s, 0, 4, 2, s));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CircuitBreaker(s, 1.5, 4, 2, s));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CircuitBreaker(s, 0.5, 4, 0, s));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CircuitBreaker(s, 0.5, 4, 5, s));
+  }
+}
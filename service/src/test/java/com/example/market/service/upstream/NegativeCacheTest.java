@@ -0,0 +1,78 @@
+package com.example.market.service.upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NegativeCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  private NegativeCache cache(int maxEntries) {
+    return new NegativeCache(maxEntries, Duration.ofSeconds(60),
+        Duration.ofSeconds(30), Duration.ofSeconds(5), now::get);
+  }
+
+  @Test
+  void entries_expireAfterTheirKindsTimeToLive() {
+    NegativeCache cache = cache(10);
+    cache.put("AMZNN", NegativeCache.Kind.INVALID, "Invalid API call.");
+    cache.put("ZZZZ", NegativeCache.Kind.EMPTY, null);
+
+    now.set(Duration.ofSeconds(29).toNanos());
+    assertEquals("Invalid API call.", cache.get("AMZNN").message());
+    assertEquals(NegativeCache.Kind.EMPTY, cache.get("ZZZZ").kind());
+    assertNull(cache.get("AAPL"));
+
+    now.set(Duration.ofSeconds(30).toNanos());
+    assertNull(cache.get("ZZZZ"));
+    assertNotNull(cache.get("AMZNN"));
+    now.set(Duration.ofSeconds(60).toNanos());
+    assertNull(cache.get("AMZNN"));
+
+    assertEquals(0, cache.size(), "expired entries are dropped");
+    assertEquals(3, cache.hits());
+  }
+
+  @Test
+  void aThrottle_holdsForEveryKey() {
+    NegativeCache cache = cache(10);
+    cache.put("AAPL", NegativeCache.Kind.THROTTLED, "slow down");
+
+    assertEquals(NegativeCache.Kind.THROTTLED, cache.get("MSFT").kind());
+    assertEquals("slow down", cache.get(null).message());
+    now.set(Duration.ofSeconds(5).toNanos());
+    assertNull(cache.get(null));
+  }
+
+  @Test
+  void theOldestEntry_isForgottenFirst() {
+    NegativeCache cache = cache(2);
+    cache.put("A", NegativeCache.Kind.INVALID, null);
+    cache.put("B", NegativeCache.Kind.INVALID, null);
+    cache.put("A", NegativeCache.Kind.INVALID, null);
+    cache.put("C", NegativeCache.Kind.INVALID, null);
+
+    assertEquals(2, cache.size());
+    assertNull(cache.get("B"));
+    assertNotNull(cache.get("A"));
+    assertNotNull(cache.get("C"));
+  }
+
+  @Test
+  void aZeroTimeToLive_orNoKey_isNotRemembered() {
+    NegativeCache cache = new NegativeCache(10, Duration.ZERO,
+        Duration.ofSeconds(1), Duration.ofSeconds(1));
+    cache.put("AMZNN", NegativeCache.Kind.INVALID, "Invalid API call.");
+    cache.put(null, NegativeCache.Kind.EMPTY, null);
+
+    assertEquals(0, cache.size());
+    assertThrows(IllegalArgumentException.class, () -> cache(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new NegativeCache(1, Duration.ofSeconds(-1), Duration.ZERO,
+            Duration.ZERO));
+  }
+}
@@ -0,0 +1,226 @@
+package com.example.market.service.upstream;
+
+import com.example.market.service.DeadlineExceededException;
+import com.example.market.service.PipelineMetrics;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamsTest {
+
+  private static Upstream upstream(int maxConcurrent) {
+    return new Upstream("news-api", new Bulkhead(maxConcurrent, Duration.ZERO),
+        new CircuitBreaker(Duration.ofSeconds(5), 0.5, 4, 2,
+            Duration.ofMinutes(1)));
+  }
+
+  @Test
+  void failingDependency_isShortCircuited() {
+    Upstream u = upstream(2);
+    AtomicInteger calls = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      assertThrows(IOException.class, () -> u.call(() -> {
+        calls.incrementAndGet();
+        throw new IOException("connection reset");
+      }));
+    }
+    UpstreamUnavailableException e = assertThrows(
+        UpstreamUnavailableException.class,
+        () -> u.get(calls::incrementAndGet));
+
+    assertEquals("news-api unavailable: circuit open", e.getMessage());
+    assertEquals("news-api", e.upstream());
+    assertEquals(2, calls.get(), "open breaker must not call");
+    assertEquals(1L, u.details().get("shortCircuited"));
+    assertEquals("OPEN", u.details().get("state"));
+  }
+
+  @Test
+  void callerMistakesAndDeadlines_doNotTripTheBreaker() throws Exception {
+    Upstream u = upstream(2);
+    for (int i = 0; i < 4; i++) {
+      assertThrows(IllegalArgumentException.class, () -> u.call(() -> {
+        throw new IllegalArgumentException("symbol is required");
+      }));
+      assertThrows(DeadlineExceededException.class, () -> u.get(() -> {
+        throw new DeadlineExceededException("sentiment");
+      }));
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, u.breaker().state());
+    assertEquals(4, u.breaker().calls());
+    assertEquals(0, u.bulkhead().inFlight());
+    assertEquals("ok", u.call(() -> "ok"));
+  }
+
+  @Test
+  void everyCall_isTimedAsAStage_byOutcome() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Metrics.globalRegistry.add(registry);
+    try {
+      Upstream u = upstream(2);
+      assertEquals("ok", u.call(() -> "ok"));
+      assertThrows(DeadlineExceededException.class, () -> u.get(() -> {
+        throw new DeadlineExceededException("news search");
+      }));
+      // one success and one failure open a breaker of two calls at 50%
+      assertThrows(IOException.class, () -> u.call(() -> {
+        throw new IOException("connection reset");
+      }));
+      assertThrows(UpstreamUnavailableException.class,
+          () -> u.get(() -> "never"));
+
+      Map<String, Long> counts = Map.of(PipelineMetrics.SUCCESS, 1L,
+          PipelineMetrics.TIMEOUT, 1L, PipelineMetrics.ERROR, 1L,
+          PipelineMetrics.REJECTED, 1L);
+      counts.forEach((outcome, n) -> assertEquals(n, registry
+          .get(PipelineMetrics.STAGE_TIMER).tag("stage", "news-api")
+          .tag("outcome", outcome).timer().count(), outcome));
+    } finally {
+      Metrics.globalRegistry.remove(registry);
+    }
+  }
+
+  @Test
+  void refusalsAndEmptyAnswers_areAnsweredFromTheNegativeCache()
+      throws Exception {
+    Upstream u = upstream(2);
+    AtomicInteger calls = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      UpstreamRefusedException e = assertThrows(
+          UpstreamRefusedException.class, () -> u.call("AMZNN", () -> {
+            calls.incrementAndGet();
+            throw new UpstreamRefusedException("news-api",
+                NegativeCache.Kind.INVALID, "unknown symbol");
+          }));
+      assertEquals("unknown symbol", e.getMessage());
+      assertNull(u.call("ZZZZ", () -> {
+        calls.incrementAndGet();
+        return null;
+      }));
+    }
+    assertEquals("found", u.call("AAPL", () -> "found"));
+
+    assertEquals(2, calls.get());
+    assertEquals(4L, u.details().get("negativeHits"));
+    assertEquals(2, u.details().get("negativeEntries"));
+    assertEquals(CircuitBreaker.State.CLOSED, u.breaker().state());
+    assertEquals(3, u.breaker().calls(), "hits are not recorded");
+  }
+
+  @Test
+  void aThrottle_rejectsEveryCallUntilItExpires() throws Exception {
+    Upstream u = new Upstream("fmp", new Bulkhead(2, Duration.ZERO),
+        new CircuitBreaker(Duration.ofSeconds(5), 0.5, 20, 10,
+            Duration.ofMinutes(1)),
+        new NegativeCache(10, Duration.ZERO, Duration.ZERO,
+            Duration.ofMillis(50)));
+    assertThrows(UpstreamRefusedException.class, () -> u.call(() -> {
+      throw new UpstreamRefusedException("fmp",
+          NegativeCache.Kind.THROTTLED, "HTTP 429");
+    }));
+
+    UpstreamUnavailableException e = assertThrows(
+        UpstreamUnavailableException.class,
+        () -> u.call("AAPL", () -> "never"));
+    assertEquals("fmp unavailable: throttled", e.getMessage());
+    assertEquals(1, u.breaker().calls());
+
+    Thread.sleep(60);
+    assertEquals("ok", u.get(() -> "ok"));
+    assertNull(u.call("AAPL", () -> null));
+    assertNull(u.negative().get("AAPL"), "empty answers are off");
+  }
+
+  @Test
+  void fullBulkhead_rejectsWithoutCalling() throws Exception {
+    Upstream u = upstream(1);
+    CountDownLatch inside = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread holder = new Thread(() -> u.get(() -> {
+      inside.countDown();
+      try {
+        return release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        return false;
+      }
+    }));
+    holder.start();
+    assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+    UpstreamUnavailableException e = assertThrows(
+        UpstreamUnavailableException.class, () -> u.get(() -> "never"));
+    assertTrue(e.getMessage().contains("too many concurrent calls"));
+    assertEquals(1L, u.bulkhead().rejected());
+
+    release.countDown();
+    holder.join();
+    assertEquals(0, u.bulkhead().inFlight());
+    assertEquals(1, u.breaker().calls(), "the rejection is not recorded");
+  }
+
+  @Test
+  void dependencies_areConfiguredPerName() {
+    MockEnvironment env = new MockEnvironment()
+        .withProperty("market.upstreams.news-api.max-concurrent", "7")
+        .withProperty("market.upstreams.news-api.window", "30")
+        .withProperty("market.upstreams.news-api.minimum-calls", "3")
+        .withProperty("market.upstreams.fmp.open-for", "1m")
+        .withProperty("market.upstreams.negative-cache.empty-for", "0s");
+    Upstreams upstreams = new Upstreams(env);
+
+    assertEquals(List.of(Upstreams.ALPHA_VANTAGE, Upstreams.NEWS_API,
+        Upstreams.FMP, Upstreams.FORECAST, Upstreams.SENTIMENT),
+        List.copyOf(upstreams.all().keySet()));
+    assertEquals(7, upstreams.get(Upstreams.NEWS_API).bulkhead()
+        .maxConcurrent());
+    assertEquals(16, upstreams.get(Upstreams.FORECAST).bulkhead()
+        .maxConcurrent());
+    assertEquals(Upstreams.SENTIMENT,
+        upstreams.get(Upstreams.SENTIMENT).name());
+    assertThrows(IllegalArgumentException.class,
+        () -> upstreams.get("nope"));
+    upstreams.get(Upstreams.FMP).negative()
+        .put("ZZZZ", NegativeCache.Kind.EMPTY, null);
+    assertEquals(0, upstreams.get(Upstreams.FMP).negative().size());
+    assertEquals(4, new Upstreams().get(Upstreams.NEWS_API).bulkhead()
+        .maxConcurrent());
+  }
+
+  @Test
+  void health_listsEveryBreaker_andDegradesWhileOneIsOpen() {
+    Upstreams upstreams = new Upstreams(new MockEnvironment()
+        .withProperty("market.upstreams.fmp.minimum-calls", "1"));
+
+    Health up = upstreams.health();
+    assertEquals(Status.UP, up.getStatus());
+    assertEquals(5, up.getDetails().size());
+    Map<?, ?> fmp = (Map<?, ?>) up.getDetails().get(Upstreams.FMP);
+    assertEquals("CLOSED", fmp.get("state"));
+    assertEquals(4, fmp.get("maxConcurrent"));
+
+    assertThrows(IOException.class, () -> upstreams.get(Upstreams.FMP)
+        .call(() -> {
+          throw new IOException("502 from FMP");
+        }));
+
+    Health degraded = upstreams.health();
+    assertEquals(Upstreams.DEGRADED, degraded.getStatus());
+    assertEquals(List.of(Upstreams.FMP), degraded.getDetails().get("open"));
+  }
+}